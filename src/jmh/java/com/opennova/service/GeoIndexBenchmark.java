@@ -0,0 +1,131 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.repository.EstablishmentRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nearby search through the grid index against the full Haversine scan over every active establishment that
+ * EstablishmentService ran before the index. Establishments are spread over India with a dense city cluster,
+ * and queries land in the cluster, where the grid has the most to do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoIndexBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({ "10000", "100000" })
+    private int establishments;
+
+    @Param({ "5" })
+    private double radiusKm;
+
+    private List<Establishment> table;
+    private GeoIndexService index;
+    private double[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(17);
+        EstablishmentType[] types = EstablishmentType.values();
+        EstablishmentStatus[] statuses = EstablishmentStatus.values();
+        table = new ArrayList<>(establishments);
+        for (int i = 0; i < establishments; i++) {
+            boolean city = i % 4 == 0;
+            Establishment establishment = new Establishment();
+            establishment.setId((long) i + 1);
+            establishment.setLatitude(city ? 12.8 + random.nextDouble() * 0.4 : 8 + random.nextDouble() * 27);
+            establishment.setLongitude(city ? 77.4 + random.nextDouble() * 0.4 : 68 + random.nextDouble() * 29);
+            establishment.setType(types[random.nextInt(types.length)]);
+            establishment.setStatus(statuses[random.nextInt(statuses.length)]);
+            establishment.setIsActive(true);
+            table.add(establishment);
+        }
+
+        EstablishmentRepository repository = mock(EstablishmentRepository.class);
+        when(repository.findByIsActiveTrue()).thenReturn(table);
+        index = new GeoIndexService();
+        ReflectionTestUtils.setField(index, "establishmentRepository", repository);
+        index.rebuild();
+
+        queries = new double[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = new double[] { 12.8 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4 };
+        }
+    }
+
+    @Benchmark
+    public List<GeoIndexService.NearbyResult> radiusIndex() {
+        double[] query = nextQuery();
+        return index.findWithinRadius(query[0], query[1], radiusKm, null, null);
+    }
+
+    @Benchmark
+    public List<Establishment> radiusFullScan() {
+        double[] query = nextQuery();
+        List<Establishment> nearby = new ArrayList<>();
+        for (Establishment establishment : table) {
+            if (Boolean.TRUE.equals(establishment.getIsActive())
+                && GeoIndexService.haversine(query[0], query[1],
+                    establishment.getLatitude(), establishment.getLongitude()) <= radiusKm) {
+                nearby.add(establishment);
+            }
+        }
+        nearby.sort(Comparator.comparingDouble(establishment -> GeoIndexService.haversine(query[0], query[1],
+            establishment.getLatitude(), establishment.getLongitude())));
+        return nearby;
+    }
+
+    @Benchmark
+    public List<GeoIndexService.NearbyResult> nearest20Index() {
+        double[] query = nextQuery();
+        return index.findNearest(query[0], query[1], 20, null, null);
+    }
+
+    @Benchmark
+    public List<double[]> nearest20FullScan() {
+        double[] query = nextQuery();
+        List<double[]> distances = new ArrayList<>(table.size());
+        for (Establishment establishment : table) {
+            distances.add(new double[] { establishment.getId(), GeoIndexService.haversine(query[0], query[1],
+                establishment.getLatitude(), establishment.getLongitude()) });
+        }
+        distances.sort(Comparator.comparingDouble((double[] hit) -> hit[1]).thenComparingDouble(hit -> hit[0]));
+        return distances.subList(0, Math.min(20, distances.size()));
+    }
+
+    private double[] nextQuery() {
+        double[] query = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return query;
+    }
+}
@@ -0,0 +1,128 @@
+package com.opennova.service;
+
+import com.opennova.model.EstablishmentStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typed registry against the string-keyed SharedStateService path RealTimeUpdateService used before it:
+ * "establishment_" + id + "_status" keys with String values type-checked on the way out. The listing benchmarks
+ * read every establishment's status, as the public listing loop does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RealTimeStateBenchmark {
+
+    private static final int LOOKUPS = 4096;
+
+    @Param({ "2000", "20000" })
+    private int establishments;
+
+    private SharedStateService sharedState;
+    private RealTimeStateRegistry registry;
+    private long[] ids;
+    private EstablishmentStatus[] statuses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sharedState = new SharedStateService();
+        ReflectionTestUtils.setField(sharedState, "maxEntries", establishments * 3);
+        ReflectionTestUtils.setField(sharedState, "defaultTtlSeconds", 3600L);
+        ReflectionTestUtils.setField(sharedState, "entityTtlSeconds", 3600L);
+        sharedState.initCache();
+        registry = new RealTimeStateRegistry();
+
+        EstablishmentStatus[] values = EstablishmentStatus.values();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= establishments; id++) {
+            EstablishmentStatus status = values[(int) (id % values.length)];
+            sharedState.setState("establishment_" + id + "_status", status.toString());
+            sharedState.setState("establishment_" + id + "_last_update", now);
+            registry.setEstablishmentStatus(id, status);
+            registry.touch(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, id);
+        }
+
+        Random random = new Random(11);
+        ids = new long[LOOKUPS];
+        statuses = new EstablishmentStatus[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            ids[i] = 1 + random.nextInt(establishments);
+            statuses[i] = values[random.nextInt(values.length)];
+        }
+    }
+
+    @Benchmark
+    public String statusReadStringKeys() {
+        return sharedState.getState("establishment_" + ids[nextIndex()] + "_status", String.class);
+    }
+
+    @Benchmark
+    public EstablishmentStatus statusReadRegistry() {
+        return registry.getEstablishmentStatus(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public void statusWriteStringKeys() {
+        int i = nextIndex();
+        sharedState.setState("establishment_" + ids[i] + "_status", statuses[i].toString());
+    }
+
+    @Benchmark
+    public void statusWriteRegistry() {
+        int i = nextIndex();
+        registry.setEstablishmentStatus(ids[i], statuses[i]);
+    }
+
+    @Benchmark
+    public LocalDateTime lastUpdateReadStringKeys() {
+        return sharedState.getState("establishment_" + ids[nextIndex()] + "_last_update", LocalDateTime.class);
+    }
+
+    @Benchmark
+    public long lastUpdateReadRegistry() {
+        return registry.getLastUpdateMillis(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, ids[nextIndex()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void listingStringKeys(Blackhole blackhole) {
+        for (long id = 1; id <= establishments; id++) {
+            blackhole.consume(sharedState.getState("establishment_" + id + "_status", String.class));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void listingRegistry(Blackhole blackhole) {
+        for (long id = 1; id <= establishments; id++) {
+            blackhole.consume(registry.getEstablishmentStatus(id));
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (i + 1) & (LOOKUPS - 1);
+        return i;
+    }
+}
@@ -0,0 +1,140 @@
+package com.opennova.config;
+
+import com.opennova.controller.ChatWebSocketEndpoint;
+import com.opennova.security.CustomUserDetailsService;
+import com.opennova.security.JwtUtil;
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers the chat WebSocket endpoint with the servlet container's JSR-356 ServerContainer.
+ * The JWT is checked once, at handshake, from a Bearer Authorization header or, for browsers, which
+ * cannot set headers on WebSocket requests, from the subprotocol list: new WebSocket(url, ["access_token", jwt]).
+ * It is never taken from the URL, which ends up in access logs and proxies.
+ */
+@Configuration
+public class ChatWebSocketConfig implements SmartInitializingSingleton {
+
+    public static final String CHAT_PATH = "/ws/chat";
+
+    // Subprotocol a browser offers ahead of its JWT; the only one the server ever selects, so the token is not echoed
+    public static final String TOKEN_PROTOCOL = "access_token";
+
+    @Autowired(required = false)
+    private ServletContext servletContext;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private ChatWebSocketEndpoint chatWebSocketEndpoint;
+
+    @Value("${cors.allowed-origins:}")
+    private String allowedOrigins;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = servletContext != null
+            ? (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName()) : null;
+        if (container == null) {
+            System.err.println("No WebSocket server container available, chat WebSocket disabled");
+            return;
+        }
+        try {
+            container.addEndpoint(ServerEndpointConfig.Builder.create(ChatWebSocketEndpoint.class, CHAT_PATH)
+                .subprotocols(List.of(TOKEN_PROTOCOL))
+                .configurator(new JwtHandshakeConfigurator())
+                .build());
+            System.out.println("Chat WebSocket endpoint registered at " + CHAT_PATH);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to register chat WebSocket endpoint: " + e.getMessage(), e);
+        }
+    }
+
+    private class JwtHandshakeConfigurator extends ServerEndpointConfig.Configurator {
+
+        private final List<String> origins = Arrays.stream(allowedOrigins.split(","))
+            .map(String::trim)
+            .filter(origin -> !origin.isEmpty())
+            .toList();
+
+        @Override
+        public boolean checkOrigin(String originHeaderValue) {
+            // Only configured front ends; clients that send no Origin are refused as well
+            return originHeaderValue != null && origins.contains(originHeaderValue);
+        }
+
+        @Override
+        public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+            return requested.contains(TOKEN_PROTOCOL) ? TOKEN_PROTOCOL : "";
+        }
+
+        @Override
+        public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+            String email = authenticate(extractToken(request));
+            if (email != null) {
+                // Per-handshake copy of the config; the endpoint closes the session if this is missing
+                sec.getUserProperties().put(ChatWebSocketEndpoint.USER_EMAIL, email);
+            }
+        }
+
+        @Override
+        public <T> T getEndpointInstance(Class<T> endpointClass) {
+            return endpointClass.cast(chatWebSocketEndpoint);
+        }
+
+        private String extractToken(HandshakeRequest request) {
+            for (String header : header(request, "Authorization")) {
+                if (header.startsWith("Bearer ")) {
+                    return header.substring(7);
+                }
+            }
+            // The protocols may arrive as one comma-separated header or several
+            List<String> protocols = header(request, HandshakeRequest.SEC_WEBSOCKET_PROTOCOL).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .toList();
+            int marker = protocols.indexOf(TOKEN_PROTOCOL);
+            return marker >= 0 && marker + 1 < protocols.size() ? protocols.get(marker + 1) : null;
+        }
+
+        // Header names are case-insensitive, whatever map the container hands over
+        private List<String> header(HandshakeRequest request, String name) {
+            for (Map.Entry<String, List<String>> entry : request.getHeaders().entrySet()) {
+                if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null) {
+                    return entry.getValue();
+                }
+            }
+            return List.of();
+        }
+
+        private String authenticate(String token) {
+            if (token == null || token.isEmpty()) {
+                return null;
+            }
+            try {
+                String username = jwtUtil.extractUsername(token);
+                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                return jwtUtil.validateToken(token, userDetails) ? username : null;
+            } catch (Exception e) {
+                System.err.println("Rejected chat WebSocket handshake: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+}
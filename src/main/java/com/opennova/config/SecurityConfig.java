@@ -2,6 +2,7 @@ package com.opennova.config;
 
 import com.opennova.security.JwtAuthenticationEntryPoint;
 import com.opennova.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -69,6 +70,7 @@ public class SecurityConfig {
         
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("Idempotent-Replayed"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -84,6 +86,8 @@ public class SecurityConfig {
             .exceptionHandling(exception -> exception.authenticationEntryPoint(jwtAuthenticationEntryPoint))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
+                // Async dispatches (SSE streams completing) were already authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/login", "/api/auth/register", "/api/auth/forgot-password", "/api/auth/reset-password").permitAll()
                 .requestMatchers("/api/auth/profile").authenticated()
                 .requestMatchers("/api/public/**").permitAll()
@@ -101,6 +105,8 @@ public class SecurityConfig {
                 // Allow authenticated users to access chat endpoints, but allow guest access for basic chat
                 .requestMatchers("/api/chat/guest/**").permitAll()
                 .requestMatchers("/api/chat/**").authenticated()
+                // Chat WebSocket authenticates the JWT itself during the handshake
+                .requestMatchers("/ws/**").permitAll()
                 .anyRequest().authenticated()
             );
 
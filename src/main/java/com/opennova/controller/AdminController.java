@@ -12,6 +12,7 @@ import com.opennova.service.ReviewService;
 
 import com.opennova.service.EmailService;
 import com.opennova.service.EstablishmentRequestService;
+import com.opennova.service.EstablishmentRequestRegistry;
 import com.opennova.model.User;
 import java.util.ArrayList;
 import com.opennova.model.UserRole;
@@ -47,12 +48,39 @@ public class AdminController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private com.opennova.service.RatingStatsService ratingStatsService;
+
     @Autowired
     private EmailService emailService;
 
     @Autowired
     private EstablishmentRequestService establishmentRequestService;
 
+    @Autowired
+    private com.opennova.service.UpdateStreamService updateStreamService;
+
+    @Autowired
+    private com.opennova.service.RealTimeUpdateService realTimeUpdateService;
+
+    @Autowired
+    private com.opennova.service.OutboxService outboxService;
+
+    @Autowired
+    private com.opennova.service.BookingArchiveService bookingArchiveService;
+
+    @Autowired
+    private com.opennova.service.IdempotencyService idempotencyService;
+
+    @Autowired
+    private com.opennova.service.BookingLifecycleService bookingLifecycleService;
+
+    @Autowired
+    private com.opennova.service.BookingStatsService bookingStatsService;
+
+    @Autowired
+    private com.opennova.service.BookingRollupService bookingRollupService;
+
     @Autowired
     private org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
 
@@ -1030,7 +1058,7 @@ public class AdminController {
             }
             
             // Get all establishment requests
-            List<Map<String, Object>> requests = sharedStateService.getAllEstablishmentRequests();
+            List<Map<String, Object>> requests = establishmentRequestService.getPendingRequestViews();
             System.out.println("Found " + requests.size() + " establishment requests");
             
             return ResponseEntity.ok(requests);
@@ -1072,22 +1100,22 @@ public class AdminController {
             }
             
             // Get the establishment request
-            Map<String, Object> request = sharedStateService.getEstablishmentRequest(id);
+            EstablishmentRequestRegistry.RequestRecord request = establishmentRequestService.getRequestRecord(id);
             if (request == null) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Establishment request not found with ID: " + id);
                 return ResponseEntity.status(404).body(error);
             }
             
-            System.out.println("Found establishment request: " + request.get("name"));
+            System.out.println("Found establishment request: " + request.getName());
             
             // Create new establishment from request
             try {
                 Establishment establishment = new Establishment();
-                establishment.setName((String) request.get("name"));
-                establishment.setType(EstablishmentType.valueOf((String) request.get("type")));
-                establishment.setEmail((String) request.get("email"));
-                establishment.setAddress((String) request.get("address"));
+                establishment.setName(request.getName());
+                establishment.setType(request.getType());
+                establishment.setEmail(request.getEmail());
+                establishment.setAddress(request.getAddress());
                 establishment.setStatus(EstablishmentStatus.OPEN);
                 establishment.setIsActive(true);
                 establishment.setCreatedAt(LocalDateTime.now());
@@ -1097,9 +1125,8 @@ public class AdminController {
                 Establishment savedEstablishment = establishmentService.save(establishment);
                 System.out.println("Created establishment with ID: " + savedEstablishment.getId());
                 
-                // Update request status and remove from pending
-                sharedStateService.updateEstablishmentRequestStatus(id, "APPROVED");
-                sharedStateService.removeEstablishmentRequest(id);
+                // Persist the decision; the registry drops it from the pending index
+                establishmentRequestService.updateStatus(id, RequestStatus.APPROVED, "Approved by admin");
                 
                 // Send approval email
                 try {
@@ -1117,14 +1144,14 @@ public class AdminController {
                         "Welcome to OpenNova!\n\n" +
                         "Best regards,\n" +
                         "OpenNova Admin Team",
-                        request.get("requestedByName"),
-                        request.get("name"),
-                        request.get("type"),
-                        request.get("email"),
-                        request.get("address")
+                        request.getRequestedByName(),
+                        request.getName(),
+                        request.getType(),
+                        request.getEmail(),
+                        request.getAddress()
                     );
                     
-                    emailService.sendEmail((String) request.get("email"), subject, body);
+                    emailService.sendEmail(request.getEmail(), subject, body);
                     System.out.println("Approval email sent successfully");
                 } catch (Exception emailError) {
                     System.err.println("Failed to send approval email: " + emailError.getMessage());
@@ -1180,23 +1207,22 @@ public class AdminController {
             }
             
             // Get the establishment request
-            Map<String, Object> request = sharedStateService.getEstablishmentRequest(id);
+            EstablishmentRequestRegistry.RequestRecord request = establishmentRequestService.getRequestRecord(id);
             if (request == null) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Establishment request not found with ID: " + id);
                 return ResponseEntity.status(404).body(error);
             }
             
-            System.out.println("Found establishment request: " + request.get("name"));
+            System.out.println("Found establishment request: " + request.getName());
             
             String rejectionReason = rejectionData.get("reason");
             if (rejectionReason == null || rejectionReason.trim().isEmpty()) {
                 rejectionReason = "Request did not meet our requirements.";
             }
             
-            // Update request status and remove from pending
-            sharedStateService.updateEstablishmentRequestStatus(id, "REJECTED");
-            sharedStateService.removeEstablishmentRequest(id);
+            // Persist the decision; the registry drops it from the pending index
+            establishmentRequestService.updateStatus(id, RequestStatus.REJECTED, rejectionReason);
             
             // Send rejection email
             try {
@@ -1214,14 +1240,14 @@ public class AdminController {
                     "If you have any questions, please contact our support team.\n\n" +
                     "Best regards,\n" +
                     "OpenNova Admin Team",
-                    request.get("requestedByName"),
-                    request.get("name"),
-                    request.get("type"),
-                    request.get("email"),
+                    request.getRequestedByName(),
+                    request.getName(),
+                    request.getType(),
+                    request.getEmail(),
                     rejectionReason
                 );
                 
-                emailService.sendEmail((String) request.get("requestedByEmail"), subject, body);
+                emailService.sendEmail(request.getRequestedByEmail(), subject, body);
                 System.out.println("Rejection email sent successfully");
             } catch (Exception emailError) {
                 System.err.println("Failed to send rejection email: " + emailError.getMessage());
@@ -1469,6 +1495,253 @@ public class AdminController {
         }
     }
 
+    @PostMapping("/rating-stats/rebuild")
+    public ResponseEntity<?> rebuildRatingStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            int establishmentsWithReviews = ratingStatsService.rebuildAll();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Rating stats rebuilt successfully");
+            response.put("establishmentsWithReviews", establishmentsWithReviews);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to rebuild rating stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @PostMapping("/booking-stats/reconcile")
+    public ResponseEntity<?> reconcileBookingStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            int corrected = bookingStatsService.reconcileAll();
+            
+            Map<String, Object> response = new HashMap<>(bookingStatsService.getReconcileStats());
+            response.put("message", "Booking stats reconciled");
+            response.put("corrected", corrected);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to reconcile booking stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    /**
+     * Booking counts and amounts per hour or day over a time range, from the rollups; from/to take an ISO date
+     * or date-time and default to the last 48 hours (HOUR) or 30 days (DAY)
+     */
+    @GetMapping("/analytics/bookings")
+    public ResponseEntity<?> getBookingAnalytics(
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Long establishmentId) {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            com.opennova.model.RollupGranularity bucket = com.opennova.model.RollupGranularity.valueOf(granularity.trim().toUpperCase());
+            java.time.LocalDateTime end = to != null && !to.isEmpty() ? parseAnalyticsTime(to) : java.time.LocalDateTime.now();
+            java.time.LocalDateTime start = from != null && !from.isEmpty() ? parseAnalyticsTime(from)
+                : bucket == com.opennova.model.RollupGranularity.HOUR ? end.minusHours(48) : end.minusDays(30);
+            EstablishmentType establishmentType = type != null && !type.isEmpty()
+                ? EstablishmentType.valueOf(type.trim().toUpperCase()) : null;
+            
+            return ResponseEntity.ok(bookingRollupService.getSeries(bucket, start, end, establishmentType, establishmentId));
+        } catch (java.time.format.DateTimeParseException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid time, expected ISO format like 2024-01-31 or 2024-01-31T18:00");
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid granularity or type: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch booking analytics: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    private static java.time.LocalDateTime parseAnalyticsTime(String value) {
+        String trimmed = value.trim();
+        return trimmed.length() == 10 ? java.time.LocalDate.parse(trimmed).atStartOfDay() : java.time.LocalDateTime.parse(trimmed);
+    }
+
+    @PostMapping("/booking-rollups/rebuild")
+    public ResponseEntity<?> rebuildBookingRollups() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            int rebuilt = bookingRollupService.rebuildAll();
+            
+            Map<String, Object> response = new HashMap<>(bookingRollupService.getBackfillStats());
+            response.put("message", "Booking rollups rebuilt");
+            response.put("rebuilt", rebuilt);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to rebuild booking rollups: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/shared-state/stats")
+    public ResponseEntity<?> getSharedStateStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            return ResponseEntity.ok(sharedStateService.getCacheStats());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch shared state stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/update-streams/stats")
+    public ResponseEntity<?> getUpdateStreamStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            Map<String, Object> stats = new HashMap<>(updateStreamService.getStats());
+            stats.put("establishmentRefreshes", realTimeUpdateService.getRefreshStats());
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch update stream stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<?> getOutboxStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            return ResponseEntity.ok(outboxService.getStats());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch outbox stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/idempotency/stats")
+    public ResponseEntity<?> getIdempotencyStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            return ResponseEntity.ok(idempotencyService.getStats());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch idempotency stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/lifecycle/stats")
+    public ResponseEntity<?> getLifecycleStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            return ResponseEntity.ok(bookingLifecycleService.getStats());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch booking lifecycle stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/bookings/archive/stats")
+    public ResponseEntity<?> getBookingArchiveStats() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            return ResponseEntity.ok(bookingArchiveService.getStats());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch booking archive stats: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @PostMapping("/bookings/archive/run")
+    public ResponseEntity<?> runBookingArchive() {
+        try {
+            User admin = getAuthenticatedAdmin();
+            if (admin == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "Access denied. Admin privileges required.");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("archived", bookingArchiveService.archiveOldBookings());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to archive bookings: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
     @PostMapping("/requests/{id}/approve")
     public ResponseEntity<?> approveRequest(@PathVariable Long id) {
         try {
@@ -1558,10 +1831,6 @@ public class AdminController {
             // Update request status to approved in database
             establishmentRequestService.updateStatus(id, RequestStatus.APPROVED, "Approved by admin");
             
-            // Also update shared state for backward compatibility
-            sharedStateService.updateEstablishmentRequestStatus(id, "APPROVED");
-            sharedStateService.removeEstablishmentRequest(id);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Request approved successfully! Establishment created and credentials sent to " + establishmentEmail);
             response.put("requestId", id.toString());
@@ -1617,9 +1886,6 @@ public class AdminController {
             String adminNotes = reason != null && !reason.trim().isEmpty() ? reason.trim() : "Rejected by admin";
             establishmentRequestService.updateStatus(id, RequestStatus.REJECTED, adminNotes);
             
-            // Also update shared state for backward compatibility
-            sharedStateService.updateEstablishmentRequestStatus(id, "REJECTED");
-            
             Map<String, String> response = new HashMap<>();
             response.put("message", "Request rejected successfully");
             response.put("requestId", id.toString());
@@ -1645,29 +1911,16 @@ public class AdminController {
                 return ResponseEntity.status(403).body(error);
             }
             
-            // Debug: Log what we're trying to delete
-            System.out.println("DEBUG: Attempting to delete request with ID=" + id);
-            System.out.println("DEBUG: Current requests before deletion:");
-            List<Map<String, Object>> currentRequests = sharedStateService.getAllEstablishmentRequests();
-            for (Map<String, Object> req : currentRequests) {
-                System.out.println("DEBUG: - Request ID=" + req.get("id") + " (type: " + req.get("id").getClass().getSimpleName() + "), Name=" + req.get("name"));
-            }
-            
-            // Check if request exists in database
-            Optional<EstablishmentRequest> requestOpt = establishmentRequestService.findById(id);
-            if (!requestOpt.isPresent()) {
+            // Check if request exists
+            if (establishmentRequestService.getRequestRecord(id) == null) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Request not found");
                 return ResponseEntity.badRequest().body(error);
             }
             
-            // Delete from database
+            // Delete from database and the request registry
             establishmentRequestService.deleteRequest(id);
             
-            // Also remove from shared state for backward compatibility
-            boolean removed = sharedStateService.removeEstablishmentRequest(id);
-            System.out.println("DEBUG: Removal result from shared state: " + removed);
-            
             Map<String, String> response = new HashMap<>();
             response.put("message", "Request deleted successfully");
             response.put("deletedId", id.toString());
@@ -1921,38 +2174,8 @@ public class AdminController {
                 return ResponseEntity.status(403).body(error);
             }
             
-            // Get actual establishment requests from database
-            List<EstablishmentRequest> dbRequests = establishmentRequestService.getAllRequests();
-            List<Map<String, Object>> requests = new ArrayList<>();
-            
-            // Convert to response format
-            for (EstablishmentRequest req : dbRequests) {
-                Map<String, Object> requestMap = new HashMap<>();
-                requestMap.put("id", req.getId());
-                requestMap.put("name", req.getName());
-                requestMap.put("type", req.getType().name());
-                requestMap.put("email", req.getEmail());
-                requestMap.put("address", req.getAddress());
-                requestMap.put("notes", req.getNotes());
-                requestMap.put("status", req.getStatus().name());
-                requestMap.put("requestedBy", req.getUser().getId());
-                requestMap.put("requestedByName", req.getUser().getName());
-                requestMap.put("requestedByEmail", req.getUser().getEmail());
-                requestMap.put("createdAt", req.getCreatedAt().toString());
-                requestMap.put("adminNotes", req.getAdminNotes());
-                requests.add(requestMap);
-            }
-            
-            // Also get from shared state for backward compatibility and merge
-            List<Map<String, Object>> sharedRequests = sharedStateService.getAllEstablishmentRequests();
-            for (Map<String, Object> sharedReq : sharedRequests) {
-                // Check if this request is not already in database results
-                Long sharedId = (Long) sharedReq.get("id");
-                boolean existsInDb = requests.stream().anyMatch(r -> r.get("id").equals(sharedId));
-                if (!existsInDb) {
-                    requests.add(sharedReq);
-                }
-            }
+            // Served from the indexed request registry, which is loaded from the database
+            List<Map<String, Object>> requests = establishmentRequestService.getAllRequestViews();
             
             return ResponseEntity.ok(requests);
         } catch (Exception e) {
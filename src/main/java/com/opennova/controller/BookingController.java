@@ -6,12 +6,15 @@ import com.opennova.service.BookingService;
 import com.opennova.service.BookingValidationService;
 import com.opennova.service.EmailService;
 import com.opennova.service.QRCodeService;
+import com.opennova.service.UpdateStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -31,6 +34,12 @@ public class BookingController {
     @Autowired
     private QRCodeService qrCodeService;
 
+    @Autowired
+    private UpdateStreamService updateStreamService;
+
+    @Autowired
+    private com.opennova.service.IdempotencyService idempotencyService;
+
     // Validation endpoint
     @PostMapping("/bookings/validate")
     public ResponseEntity<?> validateBooking(@RequestBody Map<String, Object> validationData) {
@@ -68,8 +77,29 @@ public class BookingController {
             @RequestParam(value = "transactionRef", required = false) String transactionRef,
             @RequestParam(value = "paymentVerified", required = false) String paymentVerified,
             @RequestParam(value = "paymentScreenshot", required = false) MultipartFile paymentScreenshot,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         
+        // Retries carrying the same Idempotency-Key get the first response instead of a second booking
+        Map<String, Object> request = new java.util.LinkedHashMap<>();
+        request.put("establishmentId", establishmentId);
+        request.put("visitingDate", visitingDate);
+        request.put("visitingTime", visitingTime);
+        request.put("selectedItems", selectedItems);
+        request.put("totalAmount", totalAmount);
+        request.put("paymentAmount", paymentAmount);
+        request.put("transactionId", transactionId);
+        request.put("transactionRef", transactionRef);
+        Long userId = ((com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) authentication.getPrincipal()).getUser().getId();
+        return idempotencyService.execute("POST /api/user/bookings", userId, idempotencyKey, request, () ->
+            createBookingOnce(establishmentId, visitingDate, visitingTime, selectedItems, totalAmount, paymentAmount,
+                transactionId, transactionRef, paymentVerified, paymentScreenshot, authentication));
+    }
+
+    private ResponseEntity<?> createBookingOnce(Long establishmentId, String visitingDate, String visitingTime,
+                                                String selectedItems, Double totalAmount, Double paymentAmount,
+                                                String transactionId, String transactionRef, String paymentVerified,
+                                                MultipartFile paymentScreenshot, Authentication authentication) {
         try {
             com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
                 (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) authentication.getPrincipal();
@@ -99,9 +129,6 @@ public class BookingController {
                 paymentScreenshot
             );
 
-            // Send confirmation email
-            emailService.sendBookingConfirmation(booking);
-
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("bookingId", booking.getId());
@@ -144,6 +171,23 @@ public class BookingController {
         }
     }
 
+    /**
+     * Live status updates for one of the user's bookings (Server-Sent Events)
+     */
+    @GetMapping(value = "/user/bookings/{bookingId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamBookingUpdates(@PathVariable Long bookingId, Authentication authentication) {
+        com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
+            (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) authentication.getPrincipal();
+        Booking booking = bookingService.getBookingById(bookingId);
+        if (booking == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (booking.getUser() == null || !booking.getUser().getId().equals(userPrincipal.getUser().getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(updateStreamService.subscribe(UpdateStreamService.Topic.BOOKING, bookingId));
+    }
+
     @PutMapping("/user/bookings/{bookingId}/cancel")
     public ResponseEntity<?> cancelBooking(@PathVariable Long bookingId, Authentication authentication) {
         try {
@@ -173,9 +217,9 @@ public class BookingController {
 
     // Admin endpoints
     @GetMapping("/admin/bookings")
-    public ResponseEntity<?> getAllBookings() {
+    public ResponseEntity<?> getAllBookings(@RequestParam(defaultValue = "false") boolean includeArchived) {
         try {
-            List<Booking> bookings = bookingService.getAllBookings();
+            List<Booking> bookings = bookingService.getAllBookings(includeArchived);
             
             // Convert to DTOs to avoid circular reference issues
             List<com.opennova.dto.BookingResponseDTO> bookingDTOs = bookings.stream()
@@ -123,40 +123,7 @@ public class ChatController {
             }
 
             String chatRoomId = messageData.get("chatRoomId");
-            ChatMessage chatMessage;
-            
-            // Check if this is an admin/owner replying to a specific chat room
-            if (chatRoomId != null && !chatRoomId.trim().isEmpty() && 
-                ("ADMIN".equals(sender.getRole().toString()) || 
-                 "OWNER".equals(sender.getRole().toString()) ||
-                 "HOTEL_OWNER".equals(sender.getRole().toString()) ||
-                 "HOSPITAL_OWNER".equals(sender.getRole().toString()) ||
-                 "SHOP_OWNER".equals(sender.getRole().toString()))) {
-                
-                System.out.println("Admin/Owner sending message to chat room: " + chatRoomId);
-                
-                // Find the other user in this chat room
-                String[] emails = chatRoomId.split("_");
-                String recipientEmail = null;
-                for (String emailInRoom : emails) {
-                    if (!emailInRoom.equals(sender.getEmail())) {
-                        recipientEmail = emailInRoom;
-                        break;
-                    }
-                }
-                
-                if (recipientEmail != null) {
-                    System.out.println("Sending admin message to recipient: " + recipientEmail);
-                    chatMessage = chatService.sendMessage(sender, message.trim(), recipientEmail);
-                } else {
-                    System.out.println("Could not find recipient in chat room, falling back to support");
-                    // Fallback to sendMessageToSupport if we can't find recipient
-                    chatMessage = chatService.sendMessageToSupport(sender, message.trim());
-                }
-            } else {
-                // Regular user sending message to support
-                chatMessage = chatService.sendMessageToSupport(sender, message.trim());
-            }
+            ChatMessage chatMessage = chatService.sendChatMessage(sender, message.trim(), chatRoomId);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -540,15 +507,6 @@ public class ChatController {
     }
 
     private Map<String, Object> formatChatMessage(ChatMessage message) {
-        Map<String, Object> formatted = new HashMap<>();
-        formatted.put("id", message.getId());
-        formatted.put("message", message.getMessage());
-        formatted.put("sender", message.getSender().getRole().toString().toLowerCase());
-        formatted.put("senderName", message.getSender().getName());
-        formatted.put("senderEmail", message.getSender().getEmail());
-        formatted.put("timestamp", message.getCreatedAt().toString());
-        formatted.put("isRead", message.getIsRead());
-        formatted.put("chatRoomId", message.getChatRoomId());
-        return formatted;
+        return chatService.toMessageView(message);
     }
-}
\ No newline at end of file
+}
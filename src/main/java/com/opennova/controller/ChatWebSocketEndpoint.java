@@ -0,0 +1,175 @@
+package com.opennova.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.model.ChatMessage;
+import com.opennova.model.User;
+import com.opennova.service.ChatPushService;
+import com.opennova.service.ChatService;
+import com.opennova.service.UserService;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chat over WebSocket. The handshake is authenticated by ChatWebSocketConfig; frames are JSON objects with a "type":
+ * send {message, chatRoomId?, ref?}, subscribe/unsubscribe {chatRoomId}, read {chatRoomId?} and ping.
+ * New messages and read receipts are pushed by ChatPushService.
+ */
+@Component
+public class ChatWebSocketEndpoint extends Endpoint {
+
+    public static final String USER_EMAIL = "chat.userEmail";
+
+    private static final String CONNECTION = "chat.connection";
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ChatPushService chatPushService;
+
+    @Value("${app.chat.ws.idle-timeout-seconds:300}")
+    private long idleTimeoutSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        String email = (String) config.getUserProperties().get(USER_EMAIL);
+        User user = email != null ? userService.findByEmailSafe(email) : null;
+        if (user == null) {
+            closeQuietly(session, new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Unauthorized"));
+            return;
+        }
+
+        session.setMaxIdleTimeout(idleTimeoutSeconds * 1000);
+        ChatPushService.Connection connection = chatPushService.register(session, user);
+        session.getUserProperties().put(CONNECTION, connection);
+        session.addMessageHandler(String.class, (MessageHandler.Whole<String>) text -> handle(connection, text));
+
+        Map<String, Object> connected = new HashMap<>();
+        connected.put("type", "connected");
+        connected.put("email", user.getEmail());
+        if (!chatService.isSupportStaff(user)) {
+            try {
+                connected.put("chatRoomId", chatService.getUserChatRoomId(user));
+            } catch (Exception e) {
+                System.err.println("No support chat room for " + user.getEmail() + ": " + e.getMessage());
+            }
+        }
+        chatPushService.send(connection, connected);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        unregister(session);
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        unregister(session);
+    }
+
+    private void handle(ChatPushService.Connection connection, String text) {
+        Map<String, Object> frame;
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> parsed = objectMapper.readValue(text, Map.class);
+            frame = parsed;
+        } catch (Exception e) {
+            sendError(connection, null, "Invalid JSON frame");
+            return;
+        }
+
+        String type = stringValue(frame.get("type"));
+        Object ref = frame.get("ref");
+        User user = connection.getUser();
+        try {
+            if ("send".equals(type)) {
+                String message = stringValue(frame.get("message"));
+                if (message == null || message.trim().isEmpty()) {
+                    sendError(connection, ref, "Message cannot be empty");
+                    return;
+                }
+                // ChatService pushes the saved message to both participants, including this connection
+                ChatMessage saved = chatService.sendChatMessage(user, message.trim(), stringValue(frame.get("chatRoomId")));
+                Map<String, Object> ack = new HashMap<>();
+                ack.put("type", "ack");
+                ack.put("ref", ref);
+                ack.put("id", saved.getId());
+                ack.put("chatRoomId", saved.getChatRoomId());
+                chatPushService.send(connection, ack);
+            } else if ("subscribe".equals(type) || "unsubscribe".equals(type)) {
+                String chatRoomId = stringValue(frame.get("chatRoomId"));
+                if (!chatService.canAccessRoom(user, chatRoomId)) {
+                    sendError(connection, ref, "Not allowed to follow this chat room");
+                    return;
+                }
+                if ("subscribe".equals(type)) {
+                    chatPushService.subscribe(connection, chatRoomId);
+                } else {
+                    chatPushService.unsubscribe(connection, chatRoomId);
+                }
+                Map<String, Object> ack = new HashMap<>();
+                ack.put("type", type + "d");
+                ack.put("ref", ref);
+                ack.put("chatRoomId", chatRoomId);
+                chatPushService.send(connection, ack);
+            } else if ("read".equals(type)) {
+                String chatRoomId = stringValue(frame.get("chatRoomId"));
+                if (chatRoomId == null) {
+                    chatRoomId = chatService.getUserChatRoomId(user);
+                }
+                chatService.markMessagesAsRead(chatRoomId, user);
+            } else if ("ping".equals(type)) {
+                Map<String, Object> pong = new HashMap<>();
+                pong.put("type", "pong");
+                pong.put("ref", ref);
+                chatPushService.send(connection, pong);
+            } else {
+                sendError(connection, ref, "Unknown frame type: " + type);
+            }
+        } catch (Exception e) {
+            System.err.println("Chat socket error for " + user.getEmail() + ": " + e.getMessage());
+            sendError(connection, ref, "Failed to process " + type + ": " + e.getMessage());
+        }
+    }
+
+    private void sendError(ChatPushService.Connection connection, Object ref, String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("type", "error");
+        error.put("ref", ref);
+        error.put("message", message);
+        chatPushService.send(connection, error);
+    }
+
+    private void unregister(Session session) {
+        Object connection = session.getUserProperties().remove(CONNECTION);
+        if (connection != null) {
+            chatPushService.unregister((ChatPushService.Connection) connection);
+        }
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static void closeQuietly(Session session, CloseReason reason) {
+        try {
+            session.close(reason);
+        } catch (Exception ignored) {
+            // Already closed
+        }
+    }
+}
@@ -24,9 +24,9 @@ public class ExcelExportController {
     private ExcelExportService excelExportService;
 
     @GetMapping("/admin/export/all-bookings")
-    public ResponseEntity<?> exportAllBookings() {
+    public ResponseEntity<?> exportAllBookings(@RequestParam(defaultValue = "false") boolean includeArchived) {
         try {
-            byte[] excelData = excelExportService.exportAllBookingsToExcel();
+            byte[] excelData = excelExportService.exportAllBookingsToExcel(includeArchived);
             
             String filename = "all-bookings-" + 
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm")) + ".xlsx";
@@ -47,13 +47,14 @@ public class ExcelExportController {
     }
 
     @GetMapping("/owner/export/bookings")
-    public ResponseEntity<?> exportOwnerBookings(Authentication authentication) {
+    public ResponseEntity<?> exportOwnerBookings(Authentication authentication,
+                                                 @RequestParam(defaultValue = "false") boolean includeArchived) {
         try {
             com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
                 (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) authentication.getPrincipal();
             User owner = userPrincipal.getUser();
             
-            byte[] excelData = excelExportService.exportBookingsToExcel(owner.getId(), "OWNER");
+            byte[] excelData = excelExportService.exportBookingsToExcel(owner.getId(), "OWNER", includeArchived);
             
             String filename = "owner-bookings-" + owner.getId() + "-" +
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm")) + ".xlsx";
@@ -74,13 +75,14 @@ public class ExcelExportController {
     }
 
     @GetMapping("/user/export/bookings")
-    public ResponseEntity<?> exportUserBookings(Authentication authentication) {
+    public ResponseEntity<?> exportUserBookings(Authentication authentication,
+                                                @RequestParam(defaultValue = "false") boolean includeArchived) {
         try {
             com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
                 (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) authentication.getPrincipal();
             User user = userPrincipal.getUser();
             
-            byte[] excelData = excelExportService.exportUserBookings(user.getId());
+            byte[] excelData = excelExportService.exportUserBookings(user.getId(), includeArchived);
             
             String filename = "my-bookings-" + user.getId() + "-" +
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm")) + ".xlsx";
@@ -1,11 +1,13 @@
 package com.opennova.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.opennova.service.UserService;
 import com.opennova.service.EstablishmentService;
 import com.opennova.service.BookingService;
@@ -17,6 +19,7 @@ import com.opennova.service.EmailService;
 import com.opennova.service.ReviewService;
 import com.opennova.service.SharedStateService;
 import com.opennova.service.RealTimeUpdateService;
+import com.opennova.service.UpdateStreamService;
 import com.opennova.service.FileStorageService;
 import com.opennova.model.User;
 import com.opennova.model.Establishment;
@@ -70,12 +73,21 @@ public class OwnerController {
     @Autowired
     private RealTimeUpdateService realTimeUpdateService;
 
+    @Autowired
+    private UpdateStreamService updateStreamService;
+
     @Autowired
     private FileStorageService fileStorageService;
 
     @Autowired
     private com.opennova.service.ExcelExportService excelExportService;
 
+    @Autowired
+    private com.opennova.service.BulkBookingService bulkBookingService;
+
+    @Autowired
+    private com.opennova.service.BookingStatsService bookingStatsService;
+
 
 
 
@@ -702,10 +714,13 @@ public class OwnerController {
     }
 
     /**
-     * Get owner's bookings
+     * Get owner's bookings; with from/to (yyyy-MM-dd, inclusive) only those visiting in that range, e.g. a day or week view.
+     * Archived (old completed/cancelled) bookings are left out unless includeArchived=true.
      */
     @GetMapping("/bookings")
-    public ResponseEntity<?> getOwnerBookings() {
+    public ResponseEntity<?> getOwnerBookings(@RequestParam(required = false) String from,
+                                              @RequestParam(required = false) String to,
+                                              @RequestParam(defaultValue = "false") boolean includeArchived) {
         try {
             com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
                 (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) 
@@ -723,7 +738,21 @@ public class OwnerController {
             }
             
             // Get bookings for this establishment
-            List<Booking> bookings = bookingService.getEstablishmentBookings(establishment.getId());
+            List<Booking> bookings;
+            if (from != null || to != null) {
+                java.time.LocalDate fromDate = Booking.parseVisitDate(from != null ? from : to);
+                java.time.LocalDate toDate = Booking.parseVisitDate(to != null ? to : from);
+                if (fromDate == null || toDate == null || toDate.isBefore(fromDate)) {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("message", "from and to must be dates (yyyy-MM-dd) with from not after to");
+                    response.put("bookings", new ArrayList<>());
+                    return ResponseEntity.badRequest().body(response);
+                }
+                bookings = bookingService.getEstablishmentBookingsBetween(establishment.getId(), fromDate, toDate);
+            } else {
+                bookings = bookingService.getEstablishmentBookings(establishment.getId(), includeArchived);
+            }
             
             // Convert to DTOs to avoid circular reference issues
             List<BookingResponseDTO> bookingDTOs = bookings.stream()
@@ -748,6 +777,45 @@ public class OwnerController {
         }
     }
 
+    /**
+     * Bookings, status and schedule changes after the given journal sequence number
+     */
+    @GetMapping("/updates")
+    public ResponseEntity<?> getUpdates(@RequestParam(defaultValue = "0") long since,
+                                        @RequestParam(required = false) String epoch) {
+        try {
+            com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
+                (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) 
+                SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            Establishment establishment = establishmentService.findByOwner(userPrincipal.getUser());
+            if (establishment == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "No establishment found for this owner");
+                return ResponseEntity.status(404).body(error);
+            }
+            return ResponseEntity.ok(realTimeUpdateService.getUpdatesSince(establishment.getId(), since, epoch, true));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch updates: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Live booking and establishment updates for the owner dashboard (Server-Sent Events)
+     */
+    @GetMapping(value = "/updates/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUpdates() {
+        com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
+            (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) 
+            SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Establishment establishment = establishmentService.findByOwner(userPrincipal.getUser());
+        if (establishment == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(updateStreamService.subscribe(UpdateStreamService.Topic.ESTABLISHMENT, establishment.getId()));
+    }
+
     /**
      * Confirm booking and generate QR code
      */
@@ -853,6 +921,65 @@ public class OwnerController {
         }
     }
 
+    /**
+     * Confirm, reject or complete several bookings in one go.
+     * Body: {"action": "confirm" | "reject" | "complete", "bookingIds": [...], "reason": "..." (reject only)}
+     */
+    @PostMapping("/bookings/bulk")
+    public ResponseEntity<?> bulkBookingAction(@RequestBody Map<String, Object> requestData) {
+        try {
+            com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
+                (com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) 
+                SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            User owner = userPrincipal.getUser();
+            
+            Establishment establishment = establishmentService.findByOwner(owner);
+            if (establishment == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "No establishment found for this owner");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            String actionName = requestData.get("action") != null ? requestData.get("action").toString().trim().toLowerCase() : "";
+            com.opennova.service.BookingStateMachine.Action action;
+            switch (actionName) {
+                case "confirm":
+                    action = com.opennova.service.BookingStateMachine.Action.CONFIRM;
+                    break;
+                case "reject":
+                    action = com.opennova.service.BookingStateMachine.Action.REJECT;
+                    break;
+                case "complete":
+                    action = com.opennova.service.BookingStateMachine.Action.COMPLETE;
+                    break;
+                default:
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("message", "Action must be confirm, reject or complete");
+                    return ResponseEntity.badRequest().body(response);
+            }
+            
+            List<Long> bookingIds = new ArrayList<>();
+            if (requestData.get("bookingIds") instanceof List) {
+                for (Object id : (List<?>) requestData.get("bookingIds")) {
+                    bookingIds.add(Long.valueOf(id.toString()));
+                }
+            }
+            String reason = requestData.get("reason") != null ? requestData.get("reason").toString() : null;
+            
+            Map<String, Object> response = bulkBookingService.apply(establishment.getId(), action, bookingIds, reason);
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to apply bulk booking action: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     /**
      * Delete booking
      */
@@ -1506,18 +1633,15 @@ public class OwnerController {
                 return ResponseEntity.status(404).body(error);
             }
             
-            // Get bookings for statistics
-            List<Booking> bookings = bookingService.getBookingsByEstablishmentId(establishment.getId());
+            // One counters row, however many bookings the establishment has had
+            com.opennova.model.EstablishmentBookingStats counters = bookingStatsService.getStats(establishment.getId());
             
-            long totalBookings = bookings.size();
-            long confirmedBookings = bookings.stream().filter(b -> "CONFIRMED".equals(b.getStatus().toString())).count();
-            long completedVisits = bookings.stream().filter(b -> "COMPLETED".equals(b.getStatus().toString())).count();
+            long totalBookings = counters.getTotalCount();
+            long confirmedBookings = counters.getConfirmedCount();
+            long completedVisits = counters.getCompletedCount();
             long pendingVisits = confirmedBookings - completedVisits;
             
-            double totalRevenue = bookings.stream()
-                .filter(b -> "CONFIRMED".equals(b.getStatus().toString()))
-                .mapToDouble(b -> b.getPaymentAmount() != null ? b.getPaymentAmount().doubleValue() : 0.0)
-                .sum();
+            double totalRevenue = counters.getConfirmedAmount().doubleValue();
             
             double visitCompletionRate = totalBookings > 0 ? (completedVisits * 100.0 / totalBookings) : 0.0;
             
@@ -1527,6 +1651,8 @@ public class OwnerController {
             stats.put("completedVisits", completedVisits);
             stats.put("pendingVisits", pendingVisits);
             stats.put("totalRevenue", totalRevenue);
+            stats.put("paidRevenue", counters.getPaidRevenue().doubleValue());
+            stats.put("refundsOwed", counters.getRefundsOwed().doubleValue());
             stats.put("visitCompletionRate", Math.round(visitCompletionRate * 100.0) / 100.0);
             
             return ResponseEntity.ok(stats);
@@ -1853,7 +1979,7 @@ public class OwnerController {
      * Export bookings to Excel
      */
     @GetMapping("/export-bookings")
-    public ResponseEntity<?> exportBookings() {
+    public ResponseEntity<?> exportBookings(@RequestParam(defaultValue = "false") boolean includeArchived) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String email = authentication.getName();
@@ -1868,7 +1994,7 @@ public class OwnerController {
             System.out.println("📊 Generating Excel export for owner: " + email);
             
             // Generate Excel file using the service
-            byte[] excelData = excelExportService.exportBookingsToExcel(owner.getId(), "OWNER");
+            byte[] excelData = excelExportService.exportBookingsToExcel(owner.getId(), "OWNER", includeArchived);
             
             String fileName = "bookings-export-" + java.time.LocalDateTime.now().format(
                 java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss")) + ".xlsx";
@@ -6,6 +6,7 @@ import com.opennova.service.UserService;
 import com.opennova.model.User;
 import com.opennova.model.Establishment;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -27,6 +28,9 @@ public class PaymentController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private com.opennova.service.IdempotencyService idempotencyService;
+
     /**
      * Generate secure payment request
      */
@@ -112,7 +116,15 @@ public class PaymentController {
      */
     @PostMapping("/verify")
     public ResponseEntity<?> verifyPayment(@RequestBody Map<String, Object> verificationData, 
+                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                          Authentication authentication) {
+        // Retries carrying the same Idempotency-Key get the first verdict without verifying again
+        Long userId = ((com.opennova.security.CustomUserDetailsService.CustomUserPrincipal) authentication.getPrincipal()).getUser().getId();
+        return idempotencyService.execute("POST /api/payment/verify", userId, idempotencyKey, verificationData, () ->
+            verifyPaymentOnce(verificationData, authentication));
+    }
+
+    private ResponseEntity<?> verifyPaymentOnce(Map<String, Object> verificationData, Authentication authentication) {
         try {
             // Get authenticated user
             com.opennova.security.CustomUserDetailsService.CustomUserPrincipal userPrincipal = 
@@ -158,7 +170,8 @@ public class PaymentController {
             e.printStackTrace();
             Map<String, String> error = new HashMap<>();
             error.put("message", "Payment verification failed: " + e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            // A 5xx releases the Idempotency-Key so a retry verifies again instead of replaying this failure
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
     
@@ -6,11 +6,14 @@ import org.springframework.web.bind.annotation.*;
 import com.opennova.service.RealTimeUpdateService;
 import com.opennova.service.EstablishmentService;
 import com.opennova.service.MenuService;
+import com.opennova.service.PublicCatalogService;
+import com.opennova.service.GeoIndexService;
+import com.opennova.service.SearchIndexService;
+import com.opennova.service.EstablishmentDetailService;
 import com.opennova.service.DoctorService;
 import com.opennova.service.CollectionService;
 import com.opennova.service.SharedStateService;
 import com.opennova.model.Establishment;
-import com.opennova.model.Menu;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -42,6 +45,18 @@ public class PublicController {
     
     @Autowired
     private com.opennova.service.UserService userService;
+    
+    @Autowired
+    private PublicCatalogService publicCatalogService;
+    
+    @Autowired
+    private GeoIndexService geoIndexService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private EstablishmentDetailService establishmentDetailService;
 
     @GetMapping("/health")
     public ResponseEntity<?> healthCheck() {
@@ -109,166 +124,118 @@ public class PublicController {
     public ResponseEntity<?> getPublicEstablishments(
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String location,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Boolean openNow) {
         try {
-            List<Map<String, Object>> establishments = new ArrayList<>();
-            
-            // Try to get real establishments from database first
+            // Serve from the precomputed catalog snapshot - no per-request queries
+            PublicCatalogService.CatalogSnapshot catalog = null;
             try {
-                List<Establishment> dbEstablishments = establishmentService.findAll();
-                
-                if (dbEstablishments != null && !dbEstablishments.isEmpty()) {
-                    System.out.println("✅ Found " + dbEstablishments.size() + " establishments in database");
-                    
-                    for (Establishment est : dbEstablishments) {
-                        try {
-                            if (est.getIsActive() != null && est.getIsActive()) { // Only include active establishments
-                                System.out.println("📝 Processing establishment: " + est.getName() + " (ID: " + est.getId() + ")");
-                                System.out.println("   - Operating Hours: " + est.getOperatingHours());
-                                System.out.println("   - Status: " + est.getStatus());
-                                System.out.println("   - Address: " + est.getAddress());
-                                Map<String, Object> estData = new HashMap<>();
-                                estData.put("id", est.getId());
-                                estData.put("name", est.getName());
-                                estData.put("type", est.getType() != null ? est.getType().toString() : "UNKNOWN");
-                                estData.put("address", est.getAddress());
-                                estData.put("contactNumber", est.getContactNumber());
-                                estData.put("operatingHours", est.getOperatingHours());
-                                estData.put("status", est.getStatus() != null ? est.getStatus().toString() : "OPEN");
-                                estData.put("email", est.getEmail());
-                                estData.put("latitude", est.getLatitude());
-                                estData.put("longitude", est.getLongitude());
-                                estData.put("upiId", est.getUpiId());
-                                estData.put("profileImagePath", est.getProfileImagePath());
-                                estData.put("weeklySchedule", est.getWeeklySchedule());
-                                
-                                // Get real-time status if available (with error handling)
-                                try {
-                                    String realTimeStatus = realTimeUpdateService.getEstablishmentStatus(est.getId());
-                                    if (realTimeStatus != null && !realTimeStatus.equals("ERROR") && !realTimeStatus.equals("UNKNOWN")) {
-                                        estData.put("status", realTimeStatus);
-                                    }
-                                } catch (Exception e) {
-                                    System.err.println("Failed to get real-time status for establishment " + est.getId() + ": " + e.getMessage());
-                                }
-                                
-                                // Calculate average rating and review count (with error handling)
-                                try {
-                                    estData.put("averageRating", establishmentService.calculateAverageRating(est.getId()));
-                                    estData.put("reviewCount", establishmentService.getTotalReviews(est.getId()));
-                                } catch (Exception e) {
-                                    System.err.println("Failed to calculate ratings for establishment " + est.getId() + ": " + e.getMessage());
-                                    estData.put("averageRating", 0.0);
-                                    estData.put("reviewCount", 0);
-                                }
-                                
-                                establishments.add(estData);
-                                System.out.println("✅ Added establishment to response: " + est.getName());
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Error processing establishment " + est.getId() + ": " + e.getMessage());
-                            // Continue with next establishment
-                        }
-                    }
-                }
+                catalog = publicCatalogService.getSnapshot();
             } catch (Exception e) {
-                System.err.println("Failed to fetch establishments from database: " + e.getMessage());
+                System.err.println("Failed to load public catalog snapshot: " + e.getMessage());
                 e.printStackTrace();
             }
             
-            boolean foundRealData = !establishments.isEmpty();
+            if (catalog != null && !catalog.isEmpty()) {
+                List<Map<String, Object>> establishments = catalog.find(type, status);
+                if (Boolean.TRUE.equals(openNow)) {
+                    establishments = catalog.filterOpenAt(establishments, java.time.LocalDateTime.now());
+                }
+                return ResponseEntity.ok()
+                    .header("X-Catalog-Version", String.valueOf(catalog.getVersion()))
+                    .body(establishments);
+            }
             
             // If no real data found, create default establishments for demo
-            if (!foundRealData) {
-                System.out.println("No establishments found in database, creating default establishments for demo");
-                
-                // Default Hotel
-                Map<String, Object> hotel = new HashMap<>();
-                hotel.put("id", 1L);
-                hotel.put("name", "Grand Hotel Karur");
-                hotel.put("type", "HOTEL");
-                hotel.put("address", "Thangavel Nagar, 4/122, Covai Road, PO, Reddipalayam, Andankoll East, Karur, Tamil Nadu 639008");
-                hotel.put("contactNumber", "8012975411");
-                hotel.put("operatingHours", "9:00 AM - 10:00 PM");
-                hotel.put("status", "OPEN");
-                hotel.put("email", "hotel@example.com");
-                hotel.put("latitude", 10.963788560368593);
-                hotel.put("longitude", 78.0483853359511);
-                hotel.put("averageRating", 4.5);
-                hotel.put("reviewCount", 25);
-                establishments.add(hotel);
-                
-                // Default Hospital
-                Map<String, Object> hospital = new HashMap<>();
-                hospital.put("id", 2L);
-                hospital.put("name", "City Hospital Namakkal");
-                hospital.put("type", "HOSPITAL");
-                hospital.put("address", "6/288, Trichy Rd, Andavar Nagar, Namakkal, Tamil Nadu 637001");
-                hospital.put("contactNumber", "8012975411");
-                hospital.put("operatingHours", "24 Hours");
-                hospital.put("status", "OPEN");
-                hospital.put("email", "hospital@example.com");
-                hospital.put("latitude", 11.2189);
-                hospital.put("longitude", 78.1677);
-                hospital.put("averageRating", 4.2);
-                hospital.put("reviewCount", 18);
-                hospital.put("upiId", "hospital@upi");
-                
-                // Add default doctors for the hospital
-                List<Map<String, Object>> defaultDoctors = new ArrayList<>();
-                
-                Map<String, Object> doctor1 = new HashMap<>();
-                doctor1.put("id", 1L);
-                doctor1.put("name", "Dr. Rajesh Kumar");
-                doctor1.put("specialization", "Cardiology");
-                doctor1.put("consultationFee", 500);
-                doctor1.put("price", 500);
-                doctor1.put("availabilityTime", "9:00 AM - 5:00 PM");
-                doctor1.put("available", true);
-                doctor1.put("imagePath", null);
-                defaultDoctors.add(doctor1);
-                
-                Map<String, Object> doctor2 = new HashMap<>();
-                doctor2.put("id", 2L);
-                doctor2.put("name", "Dr. Priya Sharma");
-                doctor2.put("specialization", "Pediatrics");
-                doctor2.put("consultationFee", 400);
-                doctor2.put("price", 400);
-                doctor2.put("availabilityTime", "10:00 AM - 6:00 PM");
-                doctor2.put("available", true);
-                doctor2.put("imagePath", null);
-                defaultDoctors.add(doctor2);
-                
-                Map<String, Object> doctor3 = new HashMap<>();
-                doctor3.put("id", 3L);
-                doctor3.put("name", "Dr. Arun Patel");
-                doctor3.put("specialization", "General Medicine");
-                doctor3.put("consultationFee", 300);
-                doctor3.put("price", 300);
-                doctor3.put("availabilityTime", "8:00 AM - 8:00 PM");
-                doctor3.put("available", true);
-                doctor3.put("imagePath", null);
-                defaultDoctors.add(doctor3);
-                
-                hospital.put("doctors", defaultDoctors);
-                establishments.add(hospital);
-                
-                // Default Shop
-                Map<String, Object> shop = new HashMap<>();
-                shop.put("id", 3L);
-                shop.put("name", "Fashion Plaza");
-                shop.put("type", "SHOP");
-                shop.put("address", "CP City center 6/98+H4F Salem, Road, R.P.Pudur, Namakkal, Tamil Nadu 637001");
-                shop.put("contactNumber", "8012975411");
-                shop.put("operatingHours", "10:00 AM - 9:00 PM");
-                shop.put("status", "OPEN");
-                shop.put("email", "shop@example.com");
-                shop.put("latitude", 11.2189);
-                shop.put("longitude", 78.1677);
-                shop.put("averageRating", 4.0);
-                shop.put("reviewCount", 12);
-                establishments.add(shop);
-            }
+            List<Map<String, Object>> establishments = new ArrayList<>();
+            System.out.println("No establishments in public catalog, creating default establishments for demo");
+            
+            // Default Hotel
+            Map<String, Object> hotel = new HashMap<>();
+            hotel.put("id", 1L);
+            hotel.put("name", "Grand Hotel Karur");
+            hotel.put("type", "HOTEL");
+            hotel.put("address", "Thangavel Nagar, 4/122, Covai Road, PO, Reddipalayam, Andankoll East, Karur, Tamil Nadu 639008");
+            hotel.put("contactNumber", "8012975411");
+            hotel.put("operatingHours", "9:00 AM - 10:00 PM");
+            hotel.put("status", "OPEN");
+            hotel.put("email", "hotel@example.com");
+            hotel.put("latitude", 10.963788560368593);
+            hotel.put("longitude", 78.0483853359511);
+            hotel.put("averageRating", 4.5);
+            hotel.put("reviewCount", 25);
+            establishments.add(hotel);
+            
+            // Default Hospital
+            Map<String, Object> hospital = new HashMap<>();
+            hospital.put("id", 2L);
+            hospital.put("name", "City Hospital Namakkal");
+            hospital.put("type", "HOSPITAL");
+            hospital.put("address", "6/288, Trichy Rd, Andavar Nagar, Namakkal, Tamil Nadu 637001");
+            hospital.put("contactNumber", "8012975411");
+            hospital.put("operatingHours", "24 Hours");
+            hospital.put("status", "OPEN");
+            hospital.put("email", "hospital@example.com");
+            hospital.put("latitude", 11.2189);
+            hospital.put("longitude", 78.1677);
+            hospital.put("averageRating", 4.2);
+            hospital.put("reviewCount", 18);
+            hospital.put("upiId", "hospital@upi");
+            
+            // Add default doctors for the hospital
+            List<Map<String, Object>> defaultDoctors = new ArrayList<>();
+            
+            Map<String, Object> doctor1 = new HashMap<>();
+            doctor1.put("id", 1L);
+            doctor1.put("name", "Dr. Rajesh Kumar");
+            doctor1.put("specialization", "Cardiology");
+            doctor1.put("consultationFee", 500);
+            doctor1.put("price", 500);
+            doctor1.put("availabilityTime", "9:00 AM - 5:00 PM");
+            doctor1.put("available", true);
+            doctor1.put("imagePath", null);
+            defaultDoctors.add(doctor1);
+            
+            Map<String, Object> doctor2 = new HashMap<>();
+            doctor2.put("id", 2L);
+            doctor2.put("name", "Dr. Priya Sharma");
+            doctor2.put("specialization", "Pediatrics");
+            doctor2.put("consultationFee", 400);
+            doctor2.put("price", 400);
+            doctor2.put("availabilityTime", "10:00 AM - 6:00 PM");
+            doctor2.put("available", true);
+            doctor2.put("imagePath", null);
+            defaultDoctors.add(doctor2);
+            
+            Map<String, Object> doctor3 = new HashMap<>();
+            doctor3.put("id", 3L);
+            doctor3.put("name", "Dr. Arun Patel");
+            doctor3.put("specialization", "General Medicine");
+            doctor3.put("consultationFee", 300);
+            doctor3.put("price", 300);
+            doctor3.put("availabilityTime", "8:00 AM - 8:00 PM");
+            doctor3.put("available", true);
+            doctor3.put("imagePath", null);
+            defaultDoctors.add(doctor3);
+            
+            hospital.put("doctors", defaultDoctors);
+            establishments.add(hospital);
+            
+            // Default Shop
+            Map<String, Object> shop = new HashMap<>();
+            shop.put("id", 3L);
+            shop.put("name", "Fashion Plaza");
+            shop.put("type", "SHOP");
+            shop.put("address", "CP City center 6/98+H4F Salem, Road, R.P.Pudur, Namakkal, Tamil Nadu 637001");
+            shop.put("contactNumber", "8012975411");
+            shop.put("operatingHours", "10:00 AM - 9:00 PM");
+            shop.put("status", "OPEN");
+            shop.put("email", "shop@example.com");
+            shop.put("latitude", 11.2189);
+            shop.put("longitude", 78.1677);
+            shop.put("averageRating", 4.0);
+            shop.put("reviewCount", 12);
+            establishments.add(shop);
             
             // Apply filters
             if (type != null && !type.isEmpty()) {
@@ -328,129 +295,120 @@ public class PublicController {
         }
     }
 
-    @GetMapping("/establishments/{id}")
-    public ResponseEntity<?> getEstablishmentDetails(@PathVariable Long id) {
+    @GetMapping("/establishments/page")
+    public ResponseEntity<?> getPublicEstablishmentsPage(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false, defaultValue = "id") String sort,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude) {
         try {
-            System.out.println("🔍 Fetching establishment details for ID: " + id);
-            
-            // Get actual establishment from database - always fresh data
-            Establishment establishment = establishmentService.findById(id);
-            if (establishment == null) {
-                System.err.println("❌ Establishment not found with ID: " + id);
+            Map<String, Object> page = publicCatalogService.getPage(type, status, sort, size, cursor, latitude, longitude);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid page request: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            System.err.println("Failed to fetch establishments page: " + e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch establishments page: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/establishments/nearby")
+    public ResponseEntity<?> getNearbyEstablishments(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status) {
+        try {
+            if (radiusKm == null && limit == null) {
                 Map<String, String> error = new HashMap<>();
-                error.put("message", "Establishment not found");
-                return ResponseEntity.notFound().build();
+                error.put("message", "Either radiusKm or limit is required");
+                return ResponseEntity.badRequest().body(error);
             }
             
-            System.out.println("✅ Found establishment: " + establishment.getName() + " (Type: " + establishment.getType() + ")");
-            System.out.println("📝 Operating Hours: " + establishment.getOperatingHours());
-            System.out.println("📅 Weekly Schedule: " + (establishment.getWeeklySchedule() != null ? "Present" : "Not set"));
-            
-            // Build establishment response with fresh database data
-            Map<String, Object> establishmentData = new HashMap<>();
-            establishmentData.put("id", establishment.getId());
-            establishmentData.put("name", establishment.getName());
-            establishmentData.put("type", establishment.getType().toString());
-            establishmentData.put("address", establishment.getAddress());
-            establishmentData.put("contactNumber", establishment.getContactNumber());
-            establishmentData.put("operatingHours", establishment.getOperatingHours());
-            establishmentData.put("weeklySchedule", establishment.getWeeklySchedule());
-            establishmentData.put("status", establishment.getStatus().toString());
-            establishmentData.put("upiId", establishment.getUpiId());
-            establishmentData.put("email", establishment.getEmail());
-            establishmentData.put("latitude", establishment.getLatitude());
-            establishmentData.put("longitude", establishment.getLongitude());
-            establishmentData.put("profileImagePath", establishment.getProfileImagePath());
-            
-            // Get menu items for this establishment
-            System.out.println("🍽️ Fetching menus for establishment: " + establishment.getName() + " (ID: " + establishment.getId() + ")");
-            List<Menu> menus = menuService.getMenusByEstablishmentId(establishment.getId());
-            List<Map<String, Object>> menuItems = new ArrayList<>();
-            
-            System.out.println("📝 Processing " + menus.size() + " menus for user portal");
-            for (Menu menu : menus) {
-                Map<String, Object> menuItem = new HashMap<>();
-                menuItem.put("id", menu.getId());
-                menuItem.put("name", menu.getName());
-                menuItem.put("description", menu.getDescription());
-                menuItem.put("price", menu.getPrice());
-                menuItem.put("isAvailable", menu.getIsAvailable());
-                menuItem.put("availabilityTime", menu.getAvailabilityTime());
-                menuItem.put("category", menu.getCategory());
-                menuItem.put("preparationTime", menu.getPreparationTime());
-                menuItem.put("isVegetarian", menu.getIsVegetarian());
-                menuItem.put("isSpecial", menu.getIsSpecial());
-                menuItem.put("imagePath", menu.getImagePath());
-                
-                // Add default availability schedule
-                Map<String, Object> schedule = new HashMap<>();
-                schedule.put("monday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
-                schedule.put("tuesday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
-                schedule.put("wednesday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
-                schedule.put("thursday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
-                schedule.put("friday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
-                schedule.put("saturday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
-                schedule.put("sunday", Map.of("isAvailable", true, "startTime", "10:00", "endTime", "20:00"));
-                menuItem.put("availabilitySchedule", schedule);
-                
-                menuItems.add(menuItem);
-                System.out.println("  ✅ Added menu item: " + menu.getName() + " - ₹" + menu.getPrice());
+            com.opennova.model.EstablishmentType typeFilter = type != null && !type.isEmpty()
+                ? com.opennova.model.EstablishmentType.valueOf(type.toUpperCase()) : null;
+            com.opennova.model.EstablishmentStatus statusFilter = status != null && !status.isEmpty()
+                ? com.opennova.model.EstablishmentStatus.valueOf(status.toUpperCase()) : null;
+            
+            // Radius search when a radius is given (optionally capped by limit), k-nearest otherwise
+            List<GeoIndexService.NearbyResult> nearby;
+            if (radiusKm != null) {
+                nearby = geoIndexService.findWithinRadius(latitude, longitude, radiusKm, typeFilter, statusFilter);
+                if (limit != null && limit >= 0 && nearby.size() > limit) {
+                    nearby = nearby.subList(0, limit);
+                }
+            } else {
+                nearby = geoIndexService.findNearest(latitude, longitude, limit, typeFilter, statusFilter);
             }
             
-            establishmentData.put("menuItems", menuItems);
-            System.out.println("🍽️ Added " + menuItems.size() + " menu items to establishment data");
-            
-            // Get doctors for hospitals
-            if (establishment.getType().toString().equals("HOSPITAL")) {
-                System.out.println("👨‍⚕️ Fetching doctors for hospital: " + establishment.getName());
-                List<com.opennova.model.Doctor> doctors = doctorService.getDoctorsByEstablishmentId(establishment.getId());
-                List<Map<String, Object>> doctorItems = new ArrayList<>();
-                
-                System.out.println("📝 Found " + doctors.size() + " doctors for hospital");
-                for (com.opennova.model.Doctor doctor : doctors) {
-                    if (doctor.getIsActive()) {
-                        Map<String, Object> doctorItem = new HashMap<>();
-                        doctorItem.put("id", doctor.getId());
-                        doctorItem.put("name", doctor.getName());
-                        doctorItem.put("specialization", doctor.getSpecialization());
-                        doctorItem.put("consultationFee", doctor.getPrice()); // Use consultationFee for frontend compatibility
-                        doctorItem.put("price", doctor.getPrice()); // Keep price for backward compatibility
-                        doctorItem.put("availabilityTime", doctor.getAvailabilityTime());
-                        doctorItem.put("available", true); // Default to available
-                        doctorItem.put("imagePath", doctor.getImagePath());
-                        doctorItems.add(doctorItem);
-                        System.out.println("  ✅ Added doctor: " + doctor.getName() + " - ₹" + doctor.getPrice());
-                    }
+            PublicCatalogService.CatalogSnapshot catalog = publicCatalogService.getSnapshot();
+            List<Map<String, Object>> establishments = new ArrayList<>();
+            for (GeoIndexService.NearbyResult result : nearby) {
+                Map<String, Object> entry = catalog.getById(result.getEstablishmentId());
+                if (entry != null) {
+                    Map<String, Object> estData = new HashMap<>(entry);
+                    estData.put("distanceKm", Math.round(result.getDistanceKm() * 100.0) / 100.0);
+                    establishments.add(estData);
                 }
-                establishmentData.put("doctors", doctorItems);
-                System.out.println("👨‍⚕️ Added " + doctorItems.size() + " doctors to hospital data");
             }
             
-            // Get collections for shops
-            if (establishment.getType().toString().equals("SHOP")) {
-                List<com.opennova.model.Collection> collections = collectionService.getCollectionsByEstablishmentId(establishment.getId());
-                List<Map<String, Object>> collectionItems = new ArrayList<>();
-                
-                for (com.opennova.model.Collection collection : collections) {
-                    if (collection.getIsActive()) {
-                        Map<String, Object> collectionItem = new HashMap<>();
-                        collectionItem.put("id", collection.getId());
-                        collectionItem.put("itemName", collection.getItemName());
-                        collectionItem.put("description", collection.getDescription());
-                        collectionItem.put("price", collection.getPrice());
-                        collectionItem.put("sizes", collection.getSizes());
-                        collectionItem.put("color", collection.getColors());
-                        collectionItem.put("fabric", collection.getFabric());
-                        collectionItem.put("brand", collection.getBrand());
-                        collectionItem.put("stock", collection.getStock());
-                        collectionItem.put("imagePath", collection.getImagePath());
-                        collectionItem.put("isSpecialOffer", collection.getIsSpecialOffer());
-                        collectionItems.add(collectionItem);
+            return ResponseEntity.ok(establishments);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid type or status filter");
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch nearby establishments: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam String q,
+            @RequestParam(required = false) List<String> kinds,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            java.util.Set<SearchIndexService.DocumentKind> kindFilter = new java.util.HashSet<>();
+            if (kinds != null) {
+                for (String kind : kinds) {
+                    if (kind != null && !kind.isBlank()) {
+                        kindFilter.add(SearchIndexService.DocumentKind.valueOf(kind.trim().toUpperCase()));
                     }
                 }
-                establishmentData.put("collections", collectionItems);
             }
-            
+            return ResponseEntity.ok(searchIndexService.search(q, kindFilter, page, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid search kind, expected ESTABLISHMENT, MENU, DOCTOR or COLLECTION");
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            System.err.println("Search failed: " + e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Search failed: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    @GetMapping("/establishments/{id}")
+    public ResponseEntity<?> getEstablishmentDetails(@PathVariable Long id) {
+        try {
+            Map<String, Object> establishmentData = establishmentDetailService.getDetail(id);
+            if (establishmentData == null) {
+                System.err.println("❌ Establishment not found with ID: " + id);
+                return ResponseEntity.notFound().build();
+            }
             return ResponseEntity.ok(establishmentData);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -478,6 +436,46 @@ public class PublicController {
         }
     }
 
+    /**
+     * Status and schedule changes after the given journal sequence number (booking events are not public)
+     */
+    @GetMapping("/establishments/{id}/updates")
+    public ResponseEntity<?> getEstablishmentUpdates(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch) {
+        try {
+            return ResponseEntity.ok(realTimeUpdateService.getUpdatesSince(id, since, epoch, false));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch establishment updates: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/establishments/{id}/hours")
+    public ResponseEntity<?> getEstablishmentHours(
+            @PathVariable Long id,
+            @RequestParam(required = false) String at) {
+        try {
+            java.time.LocalDateTime time = at != null && !at.isEmpty()
+                ? java.time.LocalDateTime.parse(at) : java.time.LocalDateTime.now();
+            Map<String, Object> hours = establishmentService.getOpeningInfo(id, time);
+            if (hours == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(hours);
+        } catch (java.time.format.DateTimeParseException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid time, expected ISO format like 2024-01-31T18:30");
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to fetch establishment hours: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @GetMapping("/generate-password-hash")
     public ResponseEntity<?> generatePasswordHash(@RequestParam String password) {
         try {
@@ -6,7 +6,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import com.opennova.service.UserService;
-import com.opennova.service.SharedStateService;
 import com.opennova.service.ReviewService;
 import com.opennova.service.EstablishmentRequestService;
 import com.opennova.model.User;
@@ -26,9 +25,6 @@ public class UserController {
     @Autowired
     private UserService userService;
     
-    @Autowired
-    private SharedStateService sharedStateService;
-    
     @Autowired
     private ReviewService reviewService;
     
@@ -41,6 +37,9 @@ public class UserController {
     @Autowired
     private com.opennova.service.SavedEstablishmentService savedEstablishmentService;
     
+    @Autowired
+    private com.opennova.service.UserStatsService userStatsService;
+    
     @Autowired
     private com.opennova.service.EmailService emailService;
 
@@ -59,99 +58,27 @@ public class UserController {
             
             System.out.println("📊 Fetching comprehensive stats for user: " + email);
             
-            // Get real stats from database
-            Map<String, Object> stats = new HashMap<>();
-            
+            // One aggregate query per entity, cached per user until the user's next write
+            Map<String, Object> stats;
             try {
-                // Booking statistics
-                List<com.opennova.model.Booking> userBookings = bookingRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
-                long totalBookings = userBookings.size();
-                long activeBookings = userBookings.stream().filter(b -> 
-                    b.getStatus() == com.opennova.model.BookingStatus.PENDING || 
-                    b.getStatus() == com.opennova.model.BookingStatus.CONFIRMED).count();
-                long completedBookings = userBookings.stream().filter(b -> 
-                    b.getStatus() == com.opennova.model.BookingStatus.COMPLETED).count();
-                long cancelledBookings = userBookings.stream().filter(b -> 
-                    b.getStatus() == com.opennova.model.BookingStatus.CANCELLED).count();
-                
-                stats.put("totalBookings", totalBookings);
-                stats.put("activeBookings", activeBookings);
-                stats.put("completedBookings", completedBookings);
-                stats.put("cancelledBookings", cancelledBookings);
-                stats.put("pendingBookings", userBookings.stream().filter(b -> 
-                    b.getStatus() == com.opennova.model.BookingStatus.PENDING).count());
-                
-                // Calculate total spent
-                double totalSpent = userBookings.stream()
-                    .filter(b -> b.getPaymentAmount() != null)
-                    .mapToDouble(b -> b.getPaymentAmount().doubleValue())
-                    .sum();
-                stats.put("totalSpent", totalSpent);
-                
-                System.out.println("✅ Booking stats - Total: " + totalBookings + ", Active: " + activeBookings + ", Completed: " + completedBookings);
-                
+                stats = userStatsService.getStats(user.getId());
+                System.out.println("✅ Stats - Bookings: " + stats.get("totalBookings") + ", Reviews: " + stats.get("totalReviews") +
+                    ", Requests: " + stats.get("totalEstablishmentRequests") + ", Saved: " + stats.get("savedEstablishments"));
             } catch (Exception e) {
-                System.err.println("❌ Error fetching booking stats: " + e.getMessage());
+                System.err.println("❌ Error fetching user stats: " + e.getMessage());
                 // Fallback to default values
+                stats = new HashMap<>();
                 stats.put("totalBookings", 0);
                 stats.put("activeBookings", 0);
                 stats.put("completedBookings", 0);
                 stats.put("cancelledBookings", 0);
                 stats.put("pendingBookings", 0);
                 stats.put("totalSpent", 0.0);
-            }
-            
-            try {
-                // Review statistics
-                List<com.opennova.model.Review> userReviews = reviewService.getUserReviews(user.getId());
-                long totalReviews = userReviews.size();
-                double averageRating = userReviews.stream()
-                    .mapToInt(com.opennova.model.Review::getRating)
-                    .average()
-                    .orElse(0.0);
-                
-                stats.put("totalReviews", totalReviews);
-                stats.put("averageRatingGiven", Math.round(averageRating * 10.0) / 10.0);
-                
-                System.out.println("✅ Review stats - Total: " + totalReviews + ", Avg Rating: " + averageRating);
-                
-            } catch (Exception e) {
-                System.err.println("❌ Error fetching review stats: " + e.getMessage());
                 stats.put("totalReviews", 0);
                 stats.put("averageRatingGiven", 0.0);
-            }
-            
-            try {
-                // Establishment request statistics
-                List<EstablishmentRequest> userRequests = establishmentRequestService.getUserRequests(user.getId());
-                long totalRequests = userRequests.size();
-                long pendingRequests = userRequests.stream().filter(r -> 
-                    r.getStatus() == com.opennova.model.RequestStatus.PENDING).count();
-                long approvedRequests = userRequests.stream().filter(r -> 
-                    r.getStatus() == com.opennova.model.RequestStatus.APPROVED).count();
-                
-                stats.put("totalEstablishmentRequests", totalRequests);
-                stats.put("pendingEstablishmentRequests", pendingRequests);
-                stats.put("approvedEstablishmentRequests", approvedRequests);
-                
-                System.out.println("✅ Request stats - Total: " + totalRequests + ", Pending: " + pendingRequests);
-                
-            } catch (Exception e) {
-                System.err.println("❌ Error fetching request stats: " + e.getMessage());
                 stats.put("totalEstablishmentRequests", 0);
                 stats.put("pendingEstablishmentRequests", 0);
                 stats.put("approvedEstablishmentRequests", 0);
-            }
-            
-            try {
-                // Saved establishments count
-                List<com.opennova.model.SavedEstablishment> savedEstablishments = savedEstablishmentService.getUserSavedEstablishments(user.getId());
-                stats.put("savedEstablishments", savedEstablishments.size());
-                
-                System.out.println("✅ Saved establishments: " + savedEstablishments.size());
-                
-            } catch (Exception e) {
-                System.err.println("❌ Error fetching saved establishments: " + e.getMessage());
                 stats.put("savedEstablishments", 0);
             }
             
@@ -598,22 +525,6 @@ public class UserController {
                 return ResponseEntity.status(500).body(error);
             }
             
-            // Also add to shared state for backward compatibility
-            Map<String, Object> sharedRequest = new HashMap<>();
-            sharedRequest.put("id", savedRequest.getId());
-            sharedRequest.put("name", savedRequest.getName());
-            sharedRequest.put("type", savedRequest.getType().name());
-            sharedRequest.put("email", savedRequest.getEmail());
-            sharedRequest.put("address", savedRequest.getAddress());
-            sharedRequest.put("notes", savedRequest.getNotes());
-            sharedRequest.put("status", savedRequest.getStatus().name());
-            sharedRequest.put("requestedBy", user.getId());
-            sharedRequest.put("requestedByName", user.getName());
-            sharedRequest.put("requestedByEmail", user.getEmail());
-            sharedRequest.put("createdAt", savedRequest.getCreatedAt().toString());
-            
-            sharedStateService.addEstablishmentRequest(sharedRequest);
-            
             System.out.println("DEBUG: Added establishment request with ID=" + savedRequest.getId() + ", Name=" + name);
             
             Map<String, Object> response = new HashMap<>();
@@ -646,7 +557,7 @@ public class UserController {
             }
             
             // Get user's establishment requests
-            List<Map<String, Object>> userRequests = sharedStateService.getUserEstablishmentRequests(user.getId());
+            List<Map<String, Object>> userRequests = establishmentRequestService.getUserRequestViews(user.getId());
             
             return ResponseEntity.ok(userRequests);
         } catch (Exception e) {
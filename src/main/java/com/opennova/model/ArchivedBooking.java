@@ -0,0 +1,44 @@
+package com.opennova.model;
+
+import jakarta.persistence.*;
+import org.springframework.beans.BeanUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * A completed or cancelled booking moved out of the bookings table by BookingArchiveService.
+ * Keeps its original id; rows are only ever written by the archive mover.
+ */
+@Entity
+@Table(name = "bookings_archive", indexes = {
+    @Index(name = "idx_bookings_archive_establishment_created", columnList = "establishment_id, created_at"),
+    @Index(name = "idx_bookings_archive_user_created", columnList = "user_id, created_at")
+})
+public class ArchivedBooking extends BookingBase {
+
+    @Id
+    private Long id;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
+    // Constructors
+    public ArchivedBooking() {}
+
+    @Override
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+
+    /**
+     * Detached Booking copy for code that reads bookings (exports, history views); not meant to be saved
+     */
+    public Booking toBooking() {
+        Booking booking = new Booking();
+        // totalAmount/paidAmount are Double views of amount/paymentAmount
+        BeanUtils.copyProperties(this, booking, "totalAmount", "paidAmount");
+        return booking;
+    }
+}
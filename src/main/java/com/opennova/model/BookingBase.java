@@ -0,0 +1,292 @@
+package com.opennova.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Columns shared by live bookings (Booking, table bookings) and archived ones (ArchivedBooking, table bookings_archive),
+ * so both tables keep the same shape as the model changes
+ */
+@MappedSuperclass
+public abstract class BookingBase {
+
+    private static final DateTimeFormatter TWELVE_HOUR = DateTimeFormatter.ofPattern("h:mm a", Locale.ENGLISH);
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "bookings"})
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "establishment_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "bookings", "owner"})
+    private Establishment establishment;
+
+    @Column(name = "booking_date")
+    private LocalDateTime bookingDate;
+
+    @Column(name = "booking_time")
+    private String bookingTime;
+
+    @Column(name = "visiting_hours")
+    private Integer visitingHours = 2;
+
+    @NotNull
+    @Positive
+    @Column(name = "total_amount", precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @NotNull
+    @Column(name = "paid_amount", precision = 10, scale = 2, nullable = false)
+    private BigDecimal paymentAmount; // 70% of total amount
+
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status = BookingStatus.PENDING;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus paymentStatus = PaymentStatus.PENDING;
+
+    @Enumerated(EnumType.STRING)
+    private RefundStatus refundStatus = RefundStatus.NOT_APPLICABLE;
+
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "qr_code")
+    private String qrCode;
+
+    @Column(name = "item_details", columnDefinition = "TEXT")
+    private String itemDetails; // JSON string for menu/doctor/collection details
+
+    // Payment screenshot removed - now using secure UPI transaction verification
+
+    @Column(name = "cancellation_reason")
+    private String cancellationReason;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Column(name = "visiting_date")
+    private String visitingDate;
+
+    @Column(name = "visiting_time")
+    private String visitingTime;
+
+    // Typed copies of visitingDate/visitingTime, kept in step by their setters, for indexed range queries.
+    // Null when the text cannot be read.
+    @JsonIgnore
+    @Column(name = "visit_date")
+    private LocalDate visitDate;
+
+    @JsonIgnore
+    @Column(name = "visit_time")
+    private LocalTime visitTime;
+
+    @Column(name = "selected_items", columnDefinition = "TEXT")
+    private String selectedItems;
+
+    @Column(name = "confirmed_at")
+    private LocalDateTime confirmedAt;
+
+    @Column(name = "cancelled_at")
+    private LocalDateTime cancelledAt;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    // Bumped by every write, including BookingStateMachine's conditional updates, so stale saves fail instead of overwriting
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // Getters and Setters
+    public abstract Long getId();
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Establishment getEstablishment() { return establishment; }
+    public void setEstablishment(Establishment establishment) { this.establishment = establishment; }
+
+    public LocalDateTime getBookingDate() { return bookingDate; }
+    public void setBookingDate(LocalDateTime bookingDate) { this.bookingDate = bookingDate; }
+
+    public String getBookingTime() { return bookingTime; }
+    public void setBookingTime(String bookingTime) { this.bookingTime = bookingTime; }
+
+    public Integer getVisitingHours() { return visitingHours; }
+    public void setVisitingHours(Integer visitingHours) { this.visitingHours = visitingHours; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public BigDecimal getPaymentAmount() { return paymentAmount; }
+    public void setPaymentAmount(BigDecimal paymentAmount) { this.paymentAmount = paymentAmount; }
+
+    public BookingStatus getStatus() { return status; }
+    public void setStatus(BookingStatus status) { this.status = status; }
+
+    public PaymentStatus getPaymentStatus() { return paymentStatus; }
+    public void setPaymentStatus(PaymentStatus paymentStatus) { this.paymentStatus = paymentStatus; }
+
+    public RefundStatus getRefundStatus() { return refundStatus; }
+    public void setRefundStatus(RefundStatus refundStatus) { this.refundStatus = refundStatus; }
+
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+
+    public String getQrCode() { return qrCode; }
+    public void setQrCode(String qrCode) { this.qrCode = qrCode; }
+
+    public String getItemDetails() { return itemDetails; }
+    public void setItemDetails(String itemDetails) { this.itemDetails = itemDetails; }
+
+    // Payment screenshot methods removed - using secure UPI verification instead
+
+    public String getCancellationReason() { return cancellationReason; }
+    public void setCancellationReason(String cancellationReason) { this.cancellationReason = cancellationReason; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public String getVisitingDate() { return visitingDate; }
+    public void setVisitingDate(String visitingDate) {
+        this.visitingDate = visitingDate;
+        this.visitDate = parseVisitDate(visitingDate);
+    }
+
+    public String getVisitingTime() { return visitingTime; }
+    public void setVisitingTime(String visitingTime) {
+        this.visitingTime = visitingTime;
+        this.visitTime = parseVisitTime(visitingTime);
+    }
+
+    public LocalDate getVisitDate() { return visitDate; }
+    public LocalTime getVisitTime() { return visitTime; }
+
+    /**
+     * Visit date and time together, or null if either is unknown
+     */
+    @JsonIgnore
+    public LocalDateTime getVisitDateTime() {
+        return visitDate != null && visitTime != null ? LocalDateTime.of(visitDate, visitTime) : null;
+    }
+
+    public String getSelectedItems() { return selectedItems; }
+    public void setSelectedItems(String selectedItems) { this.selectedItems = selectedItems; }
+
+    public LocalDateTime getConfirmedAt() { return confirmedAt; }
+    public void setConfirmedAt(LocalDateTime confirmedAt) { this.confirmedAt = confirmedAt; }
+
+    public LocalDateTime getCancelledAt() { return cancelledAt; }
+    public void setCancelledAt(LocalDateTime cancelledAt) { this.cancelledAt = cancelledAt; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+
+    // Helper methods for frontend
+    public String getCustomerName() {
+        return user != null ? user.getName() : null;
+    }
+
+    public String getCustomerEmail() {
+        return user != null ? user.getEmail() : null;
+    }
+
+    public String getEstablishmentName() {
+        return establishment != null ? establishment.getName() : null;
+    }
+
+    public String getEstablishmentType() {
+        return establishment != null ? establishment.getType().toString() : null;
+    }
+
+    public String getEstablishmentAddress() {
+        return establishment != null ? establishment.getAddress() : null;
+    }
+
+    // Convert BigDecimal to Double for frontend compatibility
+    @Transient
+    public Double getTotalAmount() {
+        return amount != null ? amount.doubleValue() : null;
+    }
+
+    public void setTotalAmount(Double totalAmount) {
+        this.amount = totalAmount != null ? BigDecimal.valueOf(totalAmount) : null;
+    }
+
+    @Transient
+    public Double getPaidAmount() {
+        return paymentAmount != null ? paymentAmount.doubleValue() : null;
+    }
+
+    public void setPaidAmount(Double paidAmount) {
+        this.paymentAmount = paidAmount != null ? BigDecimal.valueOf(paidAmount) : null;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "id=" + getId() +
+                ", userEmail='" + userEmail + '\'' +
+                ", visitingDate='" + visitingDate + '\'' +
+                ", visitingTime='" + visitingTime + '\'' +
+                ", amount=" + amount +
+                ", paymentAmount=" + paymentAmount +
+                ", transactionId='" + transactionId + '\'' +
+                ", status=" + status +
+                ", paymentStatus=" + paymentStatus +
+                ", refundStatus=" + refundStatus +
+                '}';
+    }
+
+    // "2024-05-01"; null if unreadable
+    public static LocalDate parseVisitDate(String value) {
+        try {
+            return value != null ? LocalDate.parse(value.trim()) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // "14:30", "14:30:00" or "2:30 PM"; null if unreadable
+    public static LocalTime parseVisitTime(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return LocalTime.parse(trimmed);
+        } catch (Exception e) {
+            try {
+                return LocalTime.parse(trimmed.toUpperCase(Locale.ENGLISH), TWELVE_HOUR);
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.opennova.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bookings of one establishment created within one hour or one day (live and archived), by their current
+ * status, maintained by delta updates alongside EstablishmentBookingStats
+ */
+@Entity
+@Table(name = "booking_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_booking_rollups_granularity_establishment_bucket",
+                                             columnNames = {"granularity", "establishment_id", "bucket_start"}),
+       indexes = {
+           @Index(name = "idx_booking_rollups_granularity_bucket", columnList = "granularity, bucket_start"),
+           @Index(name = "idx_booking_rollups_granularity_type_bucket", columnList = "granularity, establishment_type, bucket_start")
+       })
+public class BookingRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "establishment_id", nullable = false)
+    private Long establishmentId;
+
+    // Copied from the establishment when the row is created, for the per-type charts
+    @Enumerated(EnumType.STRING)
+    @Column(name = "establishment_type")
+    private EstablishmentType establishmentType;
+
+    @Column(name = "pending_count", nullable = false)
+    private long pendingCount;
+
+    @Column(name = "confirmed_count", nullable = false)
+    private long confirmedCount;
+
+    @Column(name = "completed_count", nullable = false)
+    private long completedCount;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private long cancelledCount;
+
+    // Total amount of all bookings, whatever their status
+    @Column(name = "gross_amount", precision = 14, scale = 2, nullable = false)
+    private BigDecimal grossAmount = BigDecimal.ZERO;
+
+    // Paid amount of bookings whose payment status is PAID
+    @Column(name = "paid_amount", precision = 14, scale = 2, nullable = false)
+    private BigDecimal paidAmount = BigDecimal.ZERO;
+
+    // Paid amount of bookings with a pending or approved refund, or a refunded payment
+    @Column(name = "refund_amount", precision = 14, scale = 2, nullable = false)
+    private BigDecimal refundAmount = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    // Constructors
+    public BookingRollup() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public RollupGranularity getGranularity() { return granularity; }
+    public void setGranularity(RollupGranularity granularity) { this.granularity = granularity; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public Long getEstablishmentId() { return establishmentId; }
+    public void setEstablishmentId(Long establishmentId) { this.establishmentId = establishmentId; }
+
+    public EstablishmentType getEstablishmentType() { return establishmentType; }
+    public void setEstablishmentType(EstablishmentType establishmentType) { this.establishmentType = establishmentType; }
+
+    public long getPendingCount() { return pendingCount; }
+    public void setPendingCount(long pendingCount) { this.pendingCount = pendingCount; }
+
+    public long getConfirmedCount() { return confirmedCount; }
+    public void setConfirmedCount(long confirmedCount) { this.confirmedCount = confirmedCount; }
+
+    public long getCompletedCount() { return completedCount; }
+    public void setCompletedCount(long completedCount) { this.completedCount = completedCount; }
+
+    public long getCancelledCount() { return cancelledCount; }
+    public void setCancelledCount(long cancelledCount) { this.cancelledCount = cancelledCount; }
+
+    public BigDecimal getGrossAmount() { return grossAmount; }
+    public void setGrossAmount(BigDecimal grossAmount) { this.grossAmount = grossAmount; }
+
+    public BigDecimal getPaidAmount() { return paidAmount; }
+    public void setPaidAmount(BigDecimal paidAmount) { this.paidAmount = paidAmount; }
+
+    public BigDecimal getRefundAmount() { return refundAmount; }
+    public void setRefundAmount(BigDecimal refundAmount) { this.refundAmount = refundAmount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
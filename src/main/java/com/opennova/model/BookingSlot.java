@@ -0,0 +1,66 @@
+package com.opennova.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Check;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Seats taken in one time slot of one establishment on one day.
+ * reserved is only changed by conditional updates, and the check constraint keeps it within capacity.
+ */
+@Entity
+@Table(name = "booking_slots",
+       uniqueConstraints = @UniqueConstraint(name = "uk_booking_slots_establishment_date_time",
+                                             columnNames = {"establishment_id", "slot_date", "slot_time"}))
+@Check(constraints = "reserved >= 0 AND reserved <= capacity")
+public class BookingSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "establishment_id", nullable = false)
+    private Long establishmentId;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(name = "slot_time", nullable = false)
+    private LocalTime slotTime;
+
+    @Column(name = "capacity", nullable = false)
+    private int capacity;
+
+    @Column(name = "reserved", nullable = false)
+    private int reserved;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    // Constructors
+    public BookingSlot() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getEstablishmentId() { return establishmentId; }
+    public void setEstablishmentId(Long establishmentId) { this.establishmentId = establishmentId; }
+
+    public LocalDate getSlotDate() { return slotDate; }
+    public void setSlotDate(LocalDate slotDate) { this.slotDate = slotDate; }
+
+    public LocalTime getSlotTime() { return slotTime; }
+    public void setSlotTime(LocalTime slotTime) { this.slotTime = slotTime; }
+
+    public int getCapacity() { return capacity; }
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+
+    public int getReserved() { return reserved; }
+    public void setReserved(int reserved) { this.reserved = reserved; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
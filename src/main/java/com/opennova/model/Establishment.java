@@ -10,7 +10,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "establishments")
+@Table(name = "establishments", indexes = {
+    @Index(name = "idx_establishments_active_type_status_id", columnList = "is_active, type, status, id"),
+    @Index(name = "idx_establishments_name_id", columnList = "name, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Establishment {
     @Id
@@ -57,6 +60,10 @@ public class Establishment {
     @Column(name = "upi_id")
     private String upiId;
 
+    // Bookings accepted per time slot; null falls back to app.slots.capacity-per-slot, 0 is no limit
+    @Column(name = "slot_capacity")
+    private Integer slotCapacity;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -93,6 +100,10 @@ public class Establishment {
     @JsonIgnore
     private List<Booking> bookings;
 
+    @OneToMany(mappedBy = "establishment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private List<ArchivedBooking> archivedBookings;
+
     @OneToMany(mappedBy = "establishment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Review> reviews;
@@ -148,6 +159,9 @@ public class Establishment {
     public String getUpiId() { return upiId; }
     public void setUpiId(String upiId) { this.upiId = upiId; }
 
+    public Integer getSlotCapacity() { return slotCapacity; }
+    public void setSlotCapacity(Integer slotCapacity) { this.slotCapacity = slotCapacity; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -169,6 +183,9 @@ public class Establishment {
     public List<Booking> getBookings() { return bookings; }
     public void setBookings(List<Booking> bookings) { this.bookings = bookings; }
 
+    public List<ArchivedBooking> getArchivedBookings() { return archivedBookings; }
+    public void setArchivedBookings(List<ArchivedBooking> archivedBookings) { this.archivedBookings = archivedBookings; }
+
     public List<Review> getReviews() { return reviews; }
     public void setReviews(List<Review> reviews) { this.reviews = reviews; }
 
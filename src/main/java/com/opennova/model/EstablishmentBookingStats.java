@@ -0,0 +1,116 @@
+package com.opennova.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Booking counters per establishment (live and archived bookings), maintained by delta updates
+ */
+@Entity
+@Table(name = "establishment_booking_stats")
+public class EstablishmentBookingStats {
+    @Id
+    @Column(name = "establishment_id")
+    private Long establishmentId;
+
+    @Column(name = "pending_count", nullable = false)
+    private long pendingCount;
+
+    @Column(name = "confirmed_count", nullable = false)
+    private long confirmedCount;
+
+    @Column(name = "completed_count", nullable = false)
+    private long completedCount;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private long cancelledCount;
+
+    // Paid amount of bookings currently CONFIRMED
+    @Column(name = "confirmed_amount", precision = 14, scale = 2, nullable = false)
+    private BigDecimal confirmedAmount = BigDecimal.ZERO;
+
+    // Paid amount of bookings whose payment status is PAID
+    @Column(name = "paid_revenue", precision = 14, scale = 2, nullable = false)
+    private BigDecimal paidRevenue = BigDecimal.ZERO;
+
+    // Paid amount of bookings with a pending or approved refund not yet marked refunded
+    @Column(name = "refunds_owed", precision = 14, scale = 2, nullable = false)
+    private BigDecimal refundsOwed = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+
+    // When the establishment's booking rollups were last rebuilt from its bookings; null until then
+    @Column(name = "rollups_backfilled_at")
+    private LocalDateTime rollupsBackfilledAt;
+
+    // When the establishment's booking_slots were seeded from its active bookings; null until then
+    @Column(name = "slots_backfilled_at")
+    private LocalDateTime slotsBackfilledAt;
+
+    // Constructors
+    public EstablishmentBookingStats() {}
+
+    public EstablishmentBookingStats(Long establishmentId) {
+        this.establishmentId = establishmentId;
+    }
+
+    public long getTotalCount() {
+        return pendingCount + confirmedCount + completedCount + cancelledCount;
+    }
+
+    /**
+     * Adds another establishment's counters into this one (owner totals)
+     */
+    public void add(EstablishmentBookingStats other) {
+        pendingCount += other.pendingCount;
+        confirmedCount += other.confirmedCount;
+        completedCount += other.completedCount;
+        cancelledCount += other.cancelledCount;
+        confirmedAmount = confirmedAmount.add(other.confirmedAmount);
+        paidRevenue = paidRevenue.add(other.paidRevenue);
+        refundsOwed = refundsOwed.add(other.refundsOwed);
+    }
+
+    // Getters and Setters
+    public Long getEstablishmentId() { return establishmentId; }
+    public void setEstablishmentId(Long establishmentId) { this.establishmentId = establishmentId; }
+
+    public long getPendingCount() { return pendingCount; }
+    public void setPendingCount(long pendingCount) { this.pendingCount = pendingCount; }
+
+    public long getConfirmedCount() { return confirmedCount; }
+    public void setConfirmedCount(long confirmedCount) { this.confirmedCount = confirmedCount; }
+
+    public long getCompletedCount() { return completedCount; }
+    public void setCompletedCount(long completedCount) { this.completedCount = completedCount; }
+
+    public long getCancelledCount() { return cancelledCount; }
+    public void setCancelledCount(long cancelledCount) { this.cancelledCount = cancelledCount; }
+
+    public BigDecimal getConfirmedAmount() { return confirmedAmount; }
+    public void setConfirmedAmount(BigDecimal confirmedAmount) { this.confirmedAmount = confirmedAmount; }
+
+    public BigDecimal getPaidRevenue() { return paidRevenue; }
+    public void setPaidRevenue(BigDecimal paidRevenue) { this.paidRevenue = paidRevenue; }
+
+    public BigDecimal getRefundsOwed() { return refundsOwed; }
+    public void setRefundsOwed(BigDecimal refundsOwed) { this.refundsOwed = refundsOwed; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getReconciledAt() { return reconciledAt; }
+    public void setReconciledAt(LocalDateTime reconciledAt) { this.reconciledAt = reconciledAt; }
+
+    public LocalDateTime getRollupsBackfilledAt() { return rollupsBackfilledAt; }
+    public void setRollupsBackfilledAt(LocalDateTime rollupsBackfilledAt) { this.rollupsBackfilledAt = rollupsBackfilledAt; }
+
+    public LocalDateTime getSlotsBackfilledAt() { return slotsBackfilledAt; }
+    public void setSlotsBackfilledAt(LocalDateTime slotsBackfilledAt) { this.slotsBackfilledAt = slotsBackfilledAt; }
+}
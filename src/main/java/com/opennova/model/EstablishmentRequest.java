@@ -7,7 +7,7 @@ import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "establishment_requests")
+@Table(name = "establishment_requests", indexes = @Index(name = "idx_establishment_requests_user", columnList = "requested_by"))
 public class EstablishmentRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
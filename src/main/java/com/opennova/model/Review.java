@@ -8,7 +8,7 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = @Index(name = "idx_reviews_user", columnList = "user_id"))
 public class Review {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,20 @@
+package com.opennova.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    HOUR,
+    DAY;
+
+    /**
+     * Start of the bucket containing the given time
+     */
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return this == HOUR ? time.truncatedTo(ChronoUnit.HOURS) : time.truncatedTo(ChronoUnit.DAYS);
+    }
+
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return this == HOUR ? bucketStart.plusHours(1) : bucketStart.plusDays(1);
+    }
+}
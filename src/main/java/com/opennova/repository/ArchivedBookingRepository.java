@@ -0,0 +1,25 @@
+package com.opennova.repository;
+
+import com.opennova.model.ArchivedBooking;
+import com.opennova.model.BookingStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    List<ArchivedBooking> findAllByOrderByCreatedAtDesc();
+
+    List<ArchivedBooking> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    List<ArchivedBooking> findByEstablishmentIdOrderByCreatedAtDesc(Long establishmentId);
+
+    @Query("SELECT b FROM ArchivedBooking b WHERE b.establishment.owner.id = :ownerId ORDER BY b.createdAt DESC")
+    List<ArchivedBooking> findByEstablishmentOwnerIdOrderByCreatedAtDesc(@Param("ownerId") Long ownerId);
+
+    long countByStatus(BookingStatus status);
+}
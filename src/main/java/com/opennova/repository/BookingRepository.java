@@ -3,10 +3,13 @@ package com.opennova.repository;
 import com.opennova.model.Booking;
 import com.opennova.model.Establishment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -28,12 +31,92 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("SELECT b FROM Booking b WHERE b.establishment.owner.id = :ownerId ORDER BY b.createdAt DESC")
     List<Booking> findByEstablishmentOwnerIdOrderByCreatedAtDesc(@Param("ownerId") Long ownerId);
     
+    // Day and week views; served by idx_bookings_establishment_visit as a range scan
+    List<Booking> findByEstablishmentIdAndVisitDateBetweenOrderByVisitDateAscVisitTimeAsc(Long establishmentId, java.time.LocalDate from, java.time.LocalDate to);
+    
+    List<Booking> findByEstablishmentIdAndVisitDateOrderByVisitTimeAsc(Long establishmentId, java.time.LocalDate visitDate);
+    
+    /**
+     * [id, visitingDate, visitingTime] of bookings after afterId whose text has no typed copy yet, in id order,
+     * for the visit column backfill. Text that never parses stays behind the keyset instead of coming back.
+     */
+    @Query("SELECT b.id, b.visitingDate, b.visitingTime FROM Booking b WHERE b.id > :afterId " +
+           "AND ((b.visitDate IS NULL AND b.visitingDate IS NOT NULL) OR (b.visitTime IS NULL AND b.visitingTime IS NOT NULL)) " +
+           "ORDER BY b.id")
+    List<Object[]> findVisitTextAfter(@Param("afterId") Long afterId, org.springframework.data.domain.Pageable pageable);
+    
+    // Fills whichever typed visit column is still empty; a value written by the setters in the meantime wins
+    @Modifying
+    @Query("UPDATE Booking b SET b.visitDate = COALESCE(b.visitDate, :visitDate), " +
+           "b.visitTime = COALESCE(b.visitTime, :visitTime) WHERE b.id = :id")
+    int fillVisitColumns(@Param("id") Long id, @Param("visitDate") java.time.LocalDate visitDate,
+                         @Param("visitTime") java.time.LocalTime visitTime);
+    
     @Query("SELECT b FROM Booking b WHERE b.establishment.id = :establishmentId AND b.visitingTime = :visitingTime")
     List<Booking> findByEstablishmentIdAndVisitingTime(@Param("establishmentId") Long establishmentId, @Param("visitingTime") String visitingTime);
     
     List<Booking> findByEstablishmentIdOrderByCreatedAtDesc(Long establishmentId);
     
+    // Per-status count and paid total of one user's live and archived bookings, for the user stats
+    @Query(value = "SELECT status, COUNT(*), SUM(paid_amount) FROM (" +
+                   "SELECT status, paid_amount FROM bookings WHERE user_id = :userId " +
+                   "UNION ALL SELECT status, paid_amount FROM bookings_archive WHERE user_id = :userId) b " +
+                   "GROUP BY status", nativeQuery = true)
+    List<Object[]> countAndSumPaidByStatusForUser(@Param("userId") Long userId);
+    
+    // visitingDate, visitingTime of one establishment's bookings in the given statuses, to seed its booking_slots
+    @Query("SELECT b.visitingDate, b.visitingTime FROM Booking b " +
+           "WHERE b.establishment.id = :establishmentId AND b.status IN :statuses")
+    List<Object[]> findSlotRowsByEstablishment(@Param("establishmentId") Long establishmentId,
+                                               @Param("statuses") java.util.Collection<com.opennova.model.BookingStatus> statuses);
+    
     List<Booking> findTop10ByUserIdOrderByCreatedAtDesc(Long userId);
     
     List<Booking> findTop5ByUserIdOrderByCreatedAtDesc(Long userId);
-}
\ No newline at end of file
+    
+    java.util.Optional<Booking> findFirstByUserIdAndTransactionId(Long userId, String transactionId);
+    
+    // Everything the booking mails read, for use outside a transaction
+    @Query("SELECT b FROM Booking b JOIN FETCH b.user JOIN FETCH b.establishment e LEFT JOIN FETCH e.owner WHERE b.id = :bookingId")
+    java.util.Optional<Booking> findWithDetailsById(@Param("bookingId") Long bookingId);
+    
+    // Row locks for a bulk status change, taken in id order so overlapping batches cannot deadlock
+    @Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids AND b.establishment.id = :establishmentId ORDER BY b.id")
+    List<Booking> lockAllByIdInAndEstablishmentId(@Param("ids") java.util.Collection<Long> ids, @Param("establishmentId") Long establishmentId);
+    
+    // Same for the lifecycle scheduler; rows that left the status in the meantime are not returned
+    @Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids AND b.status = :status ORDER BY b.id")
+    List<Booking> lockAllByIdInAndStatus(@Param("ids") java.util.Collection<Long> ids, @Param("status") com.opennova.model.BookingStatus status);
+
+    // id, status, createdAt, visitDate, visitTime of open bookings, a page at a time by id, to load the lifecycle timers
+    @Query("SELECT b.id, b.status, b.createdAt, b.visitDate, b.visitTime FROM Booking b " +
+           "WHERE b.status IN :statuses AND b.id > :afterId ORDER BY b.id")
+    List<Object[]> findLifecycleRowsAfter(@Param("statuses") java.util.Collection<com.opennova.model.BookingStatus> statuses,
+                                          @Param("afterId") Long afterId,
+                                          org.springframework.data.domain.Pageable pageable);
+
+    @Query("SELECT b FROM Booking b JOIN FETCH b.user JOIN FETCH b.establishment e LEFT JOIN FETCH e.owner WHERE b.id IN :ids")
+    List<Booking> findAllWithDetailsByIdIn(@Param("ids") java.util.Collection<Long> ids);
+    
+    /**
+     * Move a booking out of an expected status; returns 0 if its status is no longer the expected one.
+     * Null values leave the column unchanged.
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :toStatus, b.updatedAt = :now, b.version = b.version + 1, " +
+           "b.confirmedAt = COALESCE(:confirmedAt, b.confirmedAt), " +
+           "b.cancelledAt = COALESCE(:cancelledAt, b.cancelledAt), " +
+           "b.cancellationReason = COALESCE(:cancellationReason, b.cancellationReason), " +
+           "b.refundStatus = COALESCE(:refundStatus, b.refundStatus) " +
+           "WHERE b.id = :bookingId AND b.status = :fromStatus")
+    int transitionStatus(@Param("bookingId") Long bookingId,
+                         @Param("fromStatus") com.opennova.model.BookingStatus fromStatus,
+                         @Param("toStatus") com.opennova.model.BookingStatus toStatus,
+                         @Param("now") LocalDateTime now,
+                         @Param("confirmedAt") LocalDateTime confirmedAt,
+                         @Param("cancelledAt") LocalDateTime cancelledAt,
+                         @Param("cancellationReason") String cancellationReason,
+                         @Param("refundStatus") com.opennova.model.RefundStatus refundStatus);
+}
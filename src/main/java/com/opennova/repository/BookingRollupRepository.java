@@ -0,0 +1,119 @@
+package com.opennova.repository;
+
+import com.opennova.model.BookingRollup;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BookingRollupRepository extends JpaRepository<BookingRollup, Long> {
+
+    /**
+     * Add a delta to one bucket, creating it on first use; does nothing once the establishment is gone
+     */
+    @Modifying
+    @Query(value = "INSERT INTO booking_rollups (granularity, bucket_start, establishment_id, establishment_type, " +
+                   "pending_count, confirmed_count, completed_count, cancelled_count, " +
+                   "gross_amount, paid_amount, refund_amount, updated_at) " +
+                   "SELECT :granularity, :bucketStart, e.id, e.type, :pending, :confirmed, :completed, :cancelled, " +
+                   ":grossAmount, :paidAmount, :refundAmount, NOW() FROM establishments e WHERE e.id = :establishmentId " +
+                   "ON CONFLICT (granularity, establishment_id, bucket_start) DO UPDATE SET " +
+                   "pending_count = booking_rollups.pending_count + EXCLUDED.pending_count, " +
+                   "confirmed_count = booking_rollups.confirmed_count + EXCLUDED.confirmed_count, " +
+                   "completed_count = booking_rollups.completed_count + EXCLUDED.completed_count, " +
+                   "cancelled_count = booking_rollups.cancelled_count + EXCLUDED.cancelled_count, " +
+                   "gross_amount = booking_rollups.gross_amount + EXCLUDED.gross_amount, " +
+                   "paid_amount = booking_rollups.paid_amount + EXCLUDED.paid_amount, " +
+                   "refund_amount = booking_rollups.refund_amount + EXCLUDED.refund_amount, " +
+                   "updated_at = NOW()", nativeQuery = true)
+    int applyDelta(@Param("granularity") String granularity, @Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("establishmentId") Long establishmentId,
+                   @Param("pending") long pending, @Param("confirmed") long confirmed,
+                   @Param("completed") long completed, @Param("cancelled") long cancelled,
+                   @Param("grossAmount") BigDecimal grossAmount,
+                   @Param("paidAmount") BigDecimal paidAmount,
+                   @Param("refundAmount") BigDecimal refundAmount);
+
+    @Modifying
+    @Query("DELETE FROM BookingRollup r WHERE r.establishmentId = :establishmentId")
+    int deleteByEstablishmentId(@Param("establishmentId") Long establishmentId);
+
+    /**
+     * Hourly buckets of one establishment recomputed from its live and archived bookings
+     */
+    @Modifying
+    @Query(value = "INSERT INTO booking_rollups (granularity, bucket_start, establishment_id, establishment_type, " +
+                   "pending_count, confirmed_count, completed_count, cancelled_count, " +
+                   "gross_amount, paid_amount, refund_amount, updated_at) " +
+                   "SELECT 'HOUR', date_trunc('hour', b.created_at), e.id, e.type, " +
+                   "COUNT(*) FILTER (WHERE b.status = 'PENDING'), " +
+                   "COUNT(*) FILTER (WHERE b.status = 'CONFIRMED'), " +
+                   "COUNT(*) FILTER (WHERE b.status = 'COMPLETED'), " +
+                   "COUNT(*) FILTER (WHERE b.status = 'CANCELLED'), " +
+                   "COALESCE(SUM(b.total_amount), 0), " +
+                   "COALESCE(SUM(b.paid_amount) FILTER (WHERE b.payment_status = 'PAID'), 0), " +
+                   "COALESCE(SUM(b.paid_amount) FILTER (WHERE b.refund_status IN ('PENDING', 'APPROVED') " +
+                   "OR b.payment_status = 'REFUNDED'), 0), " +
+                   "NOW() " +
+                   "FROM (SELECT created_at, status, payment_status, refund_status, total_amount, paid_amount " +
+                   "FROM bookings WHERE establishment_id = :establishmentId AND created_at IS NOT NULL " +
+                   "UNION ALL SELECT created_at, status, payment_status, refund_status, total_amount, paid_amount " +
+                   "FROM bookings_archive WHERE establishment_id = :establishmentId AND created_at IS NOT NULL) b " +
+                   "JOIN establishments e ON e.id = :establishmentId " +
+                   "GROUP BY date_trunc('hour', b.created_at), e.id, e.type", nativeQuery = true)
+    int insertHourlyFromBookings(@Param("establishmentId") Long establishmentId);
+
+    // Daily buckets of one establishment summed from its hourly ones
+    @Modifying
+    @Query(value = "INSERT INTO booking_rollups (granularity, bucket_start, establishment_id, establishment_type, " +
+                   "pending_count, confirmed_count, completed_count, cancelled_count, " +
+                   "gross_amount, paid_amount, refund_amount, updated_at) " +
+                   "SELECT 'DAY', date_trunc('day', bucket_start), establishment_id, MAX(establishment_type), " +
+                   "SUM(pending_count), SUM(confirmed_count), SUM(completed_count), SUM(cancelled_count), " +
+                   "SUM(gross_amount), SUM(paid_amount), SUM(refund_amount), NOW() " +
+                   "FROM booking_rollups WHERE granularity = 'HOUR' AND establishment_id = :establishmentId " +
+                   "GROUP BY date_trunc('day', bucket_start), establishment_id", nativeQuery = true)
+    int insertDailyFromHourly(@Param("establishmentId") Long establishmentId);
+
+    // The series queries: bucketStart followed by the counter sums, in entity field order
+
+    @Query("SELECT r.bucketStart, SUM(r.pendingCount), SUM(r.confirmedCount), SUM(r.completedCount), SUM(r.cancelledCount), " +
+           "SUM(r.grossAmount), SUM(r.paidAmount), SUM(r.refundAmount) FROM BookingRollup r " +
+           "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.bucketStart ORDER BY r.bucketStart")
+    List<Object[]> sumByBucket(@Param("granularity") RollupGranularity granularity,
+                               @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT r.bucketStart, SUM(r.pendingCount), SUM(r.confirmedCount), SUM(r.completedCount), SUM(r.cancelledCount), " +
+           "SUM(r.grossAmount), SUM(r.paidAmount), SUM(r.refundAmount) FROM BookingRollup r " +
+           "WHERE r.granularity = :granularity AND r.establishmentType = :type " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.bucketStart ORDER BY r.bucketStart")
+    List<Object[]> sumByBucketForType(@Param("granularity") RollupGranularity granularity,
+                                      @Param("type") EstablishmentType type,
+                                      @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT r.bucketStart, r.pendingCount, r.confirmedCount, r.completedCount, r.cancelledCount, " +
+           "r.grossAmount, r.paidAmount, r.refundAmount FROM BookingRollup r " +
+           "WHERE r.granularity = :granularity AND r.establishmentId = :establishmentId " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<Object[]> findByBucketForEstablishment(@Param("granularity") RollupGranularity granularity,
+                                                @Param("establishmentId") Long establishmentId,
+                                                @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Same sums per establishment type over the whole range, type first
+    @Query("SELECT r.establishmentType, SUM(r.pendingCount), SUM(r.confirmedCount), SUM(r.completedCount), SUM(r.cancelledCount), " +
+           "SUM(r.grossAmount), SUM(r.paidAmount), SUM(r.refundAmount) FROM BookingRollup r " +
+           "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.establishmentType")
+    List<Object[]> sumByType(@Param("granularity") RollupGranularity granularity,
+                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,57 @@
+package com.opennova.repository;
+
+import com.opennova.model.BookingSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Repository
+public interface BookingSlotRepository extends JpaRepository<BookingSlot, Long> {
+
+    List<BookingSlot> findByEstablishmentIdAndSlotDate(Long establishmentId, LocalDate slotDate);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO booking_slots (establishment_id, slot_date, slot_time, capacity, reserved, updated_at) " +
+                   "VALUES (:establishmentId, :slotDate, :slotTime, :capacity, 0, NOW()) " +
+                   "ON CONFLICT (establishment_id, slot_date, slot_time) DO NOTHING", nativeQuery = true)
+    int ensureSlot(@Param("establishmentId") Long establishmentId, @Param("slotDate") LocalDate slotDate,
+                   @Param("slotTime") LocalTime slotTime, @Param("capacity") int capacity);
+
+    // Returns 0 when the slot already holds capacity seats; the row takes the establishment's current capacity
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE booking_slots SET reserved = reserved + 1, capacity = :capacity, updated_at = NOW() " +
+                   "WHERE establishment_id = :establishmentId AND slot_date = :slotDate AND slot_time = :slotTime " +
+                   "AND reserved < :capacity", nativeQuery = true)
+    int tryReserve(@Param("establishmentId") Long establishmentId, @Param("slotDate") LocalDate slotDate,
+                   @Param("slotTime") LocalTime slotTime, @Param("capacity") int capacity);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE booking_slots SET reserved = reserved - 1, updated_at = NOW() " +
+                   "WHERE establishment_id = :establishmentId AND slot_date = :slotDate AND slot_time = :slotTime " +
+                   "AND reserved > 0", nativeQuery = true)
+    int release(@Param("establishmentId") Long establishmentId, @Param("slotDate") LocalDate slotDate,
+                @Param("slotTime") LocalTime slotTime);
+
+    // Seeds one slot for the backfill. A slot that already exists (created by reserve() or an earlier, interrupted
+    // backfill) is raised to at least the counted bookings, never lowered, so running the seed again is harmless
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO booking_slots (establishment_id, slot_date, slot_time, capacity, reserved, updated_at) " +
+                   "VALUES (:establishmentId, :slotDate, :slotTime, :capacity, :reserved, NOW()) " +
+                   "ON CONFLICT (establishment_id, slot_date, slot_time) DO UPDATE SET " +
+                   "capacity = GREATEST(booking_slots.capacity, EXCLUDED.reserved), " +
+                   "reserved = GREATEST(booking_slots.reserved, EXCLUDED.reserved), updated_at = NOW()", nativeQuery = true)
+    int seedSlot(@Param("establishmentId") Long establishmentId, @Param("slotDate") LocalDate slotDate,
+                 @Param("slotTime") LocalTime slotTime, @Param("capacity") int capacity,
+                 @Param("reserved") int reserved);
+}
@@ -33,4 +33,7 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     List<String> findDistinctChatRoomIds();
     
     List<ChatMessage> findByChatRoomIdOrderByCreatedAtDesc(String chatRoomId);
+    
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatRoomId = :chatRoomId AND cm.recipient = :recipient AND cm.isRead = false")
+    List<ChatMessage> findUnreadMessagesInRoom(@Param("chatRoomId") String chatRoomId, @Param("recipient") User recipient);
 }
\ No newline at end of file
@@ -21,4 +21,6 @@ public interface CollectionRepository extends JpaRepository<Collection, Long> {
     List<Collection> findByEstablishmentIdAndItemNameAndIsActive(@Param("establishmentId") Long establishmentId, @Param("itemName") String itemName);
     
     boolean existsByEstablishmentIdAndItemName(Long establishmentId, String itemName);
+    
+    List<Collection> findByIsActiveTrue();
 }
\ No newline at end of file
@@ -21,4 +21,6 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findByEstablishmentIdAndNameAndIsActive(@Param("establishmentId") Long establishmentId, @Param("name") String name);
     
     boolean existsByEstablishmentIdAndName(Long establishmentId, String name);
+    
+    List<Doctor> findByIsActiveTrue();
 }
\ No newline at end of file
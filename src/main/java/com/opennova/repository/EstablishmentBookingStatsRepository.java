@@ -0,0 +1,91 @@
+package com.opennova.repository;
+
+import com.opennova.model.EstablishmentBookingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstablishmentBookingStatsRepository extends JpaRepository<EstablishmentBookingStats, Long> {
+
+    @Query("SELECT s FROM EstablishmentBookingStats s WHERE s.establishmentId IN " +
+           "(SELECT e.id FROM Establishment e WHERE e.owner.id = :ownerId)")
+    List<EstablishmentBookingStats> findByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM EstablishmentBookingStats s WHERE s.establishmentId = :establishmentId")
+    Optional<EstablishmentBookingStats> lockByEstablishmentId(@Param("establishmentId") Long establishmentId);
+
+    @Modifying
+    @Query(value = "INSERT INTO establishment_booking_stats " +
+                   "(establishment_id, pending_count, confirmed_count, completed_count, cancelled_count, " +
+                   "confirmed_amount, paid_revenue, refunds_owed, updated_at) " +
+                   "VALUES (:establishmentId, 0, 0, 0, 0, 0, 0, 0, NOW()) " +
+                   "ON CONFLICT (establishment_id) DO NOTHING", nativeQuery = true)
+    int ensureRow(@Param("establishmentId") Long establishmentId);
+
+    @Modifying
+    @Query(value = "UPDATE establishment_booking_stats SET " +
+                   "pending_count = pending_count + :pending, " +
+                   "confirmed_count = confirmed_count + :confirmed, " +
+                   "completed_count = completed_count + :completed, " +
+                   "cancelled_count = cancelled_count + :cancelled, " +
+                   "confirmed_amount = confirmed_amount + :confirmedAmount, " +
+                   "paid_revenue = paid_revenue + :paidRevenue, " +
+                   "refunds_owed = refunds_owed + :refundsOwed, " +
+                   "updated_at = NOW() " +
+                   "WHERE establishment_id = :establishmentId", nativeQuery = true)
+    int applyDelta(@Param("establishmentId") Long establishmentId,
+                   @Param("pending") long pending, @Param("confirmed") long confirmed,
+                   @Param("completed") long completed, @Param("cancelled") long cancelled,
+                   @Param("confirmedAmount") BigDecimal confirmedAmount,
+                   @Param("paidRevenue") BigDecimal paidRevenue,
+                   @Param("refundsOwed") BigDecimal refundsOwed);
+
+    @Query("SELECT SUM(s.pendingCount), SUM(s.confirmedCount), SUM(s.completedCount), SUM(s.cancelledCount), " +
+           "SUM(s.confirmedAmount), SUM(s.paidRevenue), SUM(s.refundsOwed) FROM EstablishmentBookingStats s")
+    List<Object[]> sumAll();
+
+    // Establishments whose rollups have not been built from their bookings yet
+    @Query("SELECT e.id FROM Establishment e WHERE e.id NOT IN " +
+           "(SELECT s.establishmentId FROM EstablishmentBookingStats s WHERE s.rollupsBackfilledAt IS NOT NULL) ORDER BY e.id")
+    List<Long> findIdsWithoutRollups();
+
+    @Modifying
+    @Query("UPDATE EstablishmentBookingStats s SET s.rollupsBackfilledAt = NULL")
+    int clearRollupsBackfilled();
+
+    // Establishments whose booking_slots have not been seeded from their bookings yet
+    @Query("SELECT e.id FROM Establishment e WHERE e.id NOT IN " +
+           "(SELECT s.establishmentId FROM EstablishmentBookingStats s WHERE s.slotsBackfilledAt IS NOT NULL) ORDER BY e.id")
+    List<Long> findIdsWithoutSlots();
+
+    @Modifying
+    @Query("UPDATE EstablishmentBookingStats s SET s.slotsBackfilledAt = :now WHERE s.establishmentId = :establishmentId")
+    int markSlotsBackfilled(@Param("establishmentId") Long establishmentId, @Param("now") LocalDateTime now);
+
+    /**
+     * Counters recomputed from live and archived bookings, in the column order of applyDelta
+     */
+    @Query(value = "SELECT COUNT(*) FILTER (WHERE status = 'PENDING'), " +
+                   "COUNT(*) FILTER (WHERE status = 'CONFIRMED'), " +
+                   "COUNT(*) FILTER (WHERE status = 'COMPLETED'), " +
+                   "COUNT(*) FILTER (WHERE status = 'CANCELLED'), " +
+                   "COALESCE(SUM(paid_amount) FILTER (WHERE status = 'CONFIRMED'), 0), " +
+                   "COALESCE(SUM(paid_amount) FILTER (WHERE payment_status = 'PAID'), 0), " +
+                   "COALESCE(SUM(paid_amount) FILTER (WHERE refund_status IN ('PENDING', 'APPROVED') " +
+                   "AND payment_status IS DISTINCT FROM 'REFUNDED'), 0) " +
+                   "FROM (SELECT status, payment_status, refund_status, paid_amount FROM bookings " +
+                   "WHERE establishment_id = :establishmentId " +
+                   "UNION ALL SELECT status, payment_status, refund_status, paid_amount FROM bookings_archive " +
+                   "WHERE establishment_id = :establishmentId) b", nativeQuery = true)
+    List<Object[]> countFromBookings(@Param("establishmentId") Long establishmentId);
+}
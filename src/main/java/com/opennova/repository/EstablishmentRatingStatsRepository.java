@@ -0,0 +1,88 @@
+package com.opennova.repository;
+
+import com.opennova.model.EstablishmentRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstablishmentRatingStatsRepository extends JpaRepository<EstablishmentRatingStats, Long> {
+
+    List<EstablishmentRatingStats> findByEstablishmentIdIn(Collection<Long> establishmentIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO establishment_rating_stats " +
+                   "(establishment_id, review_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at) " +
+                   "VALUES (:establishmentId, 0, 0, 0, 0, 0, 0, 0, NOW()) " +
+                   "ON CONFLICT (establishment_id) DO NOTHING", nativeQuery = true)
+    int ensureRow(@Param("establishmentId") Long establishmentId);
+
+    @Modifying
+    @Query(value = "UPDATE establishment_rating_stats SET " +
+                   "review_count = review_count + :countDelta, " +
+                   "rating_sum = rating_sum + :sumDelta, " +
+                   "stars_1 = stars_1 + :d1, stars_2 = stars_2 + :d2, stars_3 = stars_3 + :d3, " +
+                   "stars_4 = stars_4 + :d4, stars_5 = stars_5 + :d5, " +
+                   "updated_at = NOW() " +
+                   "WHERE establishment_id = :establishmentId", nativeQuery = true)
+    int applyDelta(@Param("establishmentId") Long establishmentId,
+                   @Param("countDelta") long countDelta, @Param("sumDelta") long sumDelta,
+                   @Param("d1") long d1, @Param("d2") long d2, @Param("d3") long d3,
+                   @Param("d4") long d4, @Param("d5") long d5);
+
+    @Modifying
+    @Query(value = "DELETE FROM establishment_rating_stats", nativeQuery = true)
+    int deleteAllRows();
+
+    @Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM EstablishmentRatingStats s WHERE s.establishmentId = :establishmentId")
+    Optional<EstablishmentRatingStats> lockByEstablishmentId(@Param("establishmentId") Long establishmentId);
+
+    // Establishments with reviews whose aggregate has not been recounted from them yet
+    @Query("SELECT DISTINCT r.establishment.id FROM Review r WHERE r.establishment.id NOT IN " +
+           "(SELECT s.establishmentId FROM EstablishmentRatingStats s WHERE s.backfilledAt IS NOT NULL)")
+    List<Long> findIdsNotBackfilled();
+
+    /**
+     * Recount every establishment with approved reviews, overwriting rows that already exist
+     */
+    @Modifying
+    @Query(value = "INSERT INTO establishment_rating_stats " +
+                   "(establishment_id, review_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at, backfilled_at) " +
+                   "SELECT r.establishment_id, COUNT(*), COALESCE(SUM(r.rating), 0), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 1), COUNT(*) FILTER (WHERE r.rating = 2), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 3), COUNT(*) FILTER (WHERE r.rating = 4), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 5), NOW(), NOW() " +
+                   "FROM reviews r WHERE r.status = 'APPROVED' GROUP BY r.establishment_id " +
+                   "ON CONFLICT (establishment_id) DO UPDATE SET " +
+                   "review_count = EXCLUDED.review_count, rating_sum = EXCLUDED.rating_sum, " +
+                   "stars_1 = EXCLUDED.stars_1, stars_2 = EXCLUDED.stars_2, stars_3 = EXCLUDED.stars_3, " +
+                   "stars_4 = EXCLUDED.stars_4, stars_5 = EXCLUDED.stars_5, " +
+                   "updated_at = EXCLUDED.updated_at, backfilled_at = EXCLUDED.backfilled_at", nativeQuery = true)
+    int backfillFromReviews();
+
+    /**
+     * Recount one establishment; the aggregate without GROUP BY yields a zero row when it has no approved reviews
+     */
+    @Modifying
+    @Query(value = "INSERT INTO establishment_rating_stats " +
+                   "(establishment_id, review_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at, backfilled_at) " +
+                   "SELECT :establishmentId, COUNT(*), COALESCE(SUM(r.rating), 0), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 1), COUNT(*) FILTER (WHERE r.rating = 2), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 3), COUNT(*) FILTER (WHERE r.rating = 4), " +
+                   "COUNT(*) FILTER (WHERE r.rating = 5), NOW(), NOW() " +
+                   "FROM reviews r WHERE r.status = 'APPROVED' AND r.establishment_id = :establishmentId " +
+                   "ON CONFLICT (establishment_id) DO UPDATE SET " +
+                   "review_count = EXCLUDED.review_count, rating_sum = EXCLUDED.rating_sum, " +
+                   "stars_1 = EXCLUDED.stars_1, stars_2 = EXCLUDED.stars_2, stars_3 = EXCLUDED.stars_3, " +
+                   "stars_4 = EXCLUDED.stars_4, stars_5 = EXCLUDED.stars_5, " +
+                   "updated_at = EXCLUDED.updated_at, backfilled_at = EXCLUDED.backfilled_at", nativeQuery = true)
+    int backfillEstablishment(@Param("establishmentId") Long establishmentId);
+}
@@ -3,6 +3,8 @@ package com.opennova.repository;
 import com.opennova.model.Establishment;
 import com.opennova.model.EstablishmentStatus;
 import com.opennova.model.EstablishmentType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -20,12 +22,39 @@ public interface EstablishmentRepository extends JpaRepository<Establishment, Lo
     List<Establishment> findByTypeAndStatus(EstablishmentType type, EstablishmentStatus status);
     List<Establishment> findByIsActiveTrue();
     
+    // Establishment plus its menus in one round trip, for the public detail page
+    @EntityGraph(attributePaths = "menus")
+    @Query("SELECT e FROM Establishment e WHERE e.id = :id")
+    Optional<Establishment> findWithMenusById(@Param("id") Long id);
+    
     @Query("SELECT e FROM Establishment e WHERE e.isActive = true AND " +
            "(:type IS NULL OR e.type = :type) AND " +
            "(:status IS NULL OR e.status = :status)")
     List<Establishment> findByFilters(@Param("type") EstablishmentType type, 
                                     @Param("status") EstablishmentStatus status);
     
+    // Keyset-paginated variants of findByFilters: pass the last (id) / (name, id) seen, null for the first page
+    @Query("SELECT e FROM Establishment e WHERE e.isActive = true AND " +
+           "(:type IS NULL OR e.type = :type) AND " +
+           "(:status IS NULL OR e.status = :status) AND " +
+           "(:afterId IS NULL OR e.id > :afterId) " +
+           "ORDER BY e.id ASC")
+    List<Establishment> findByFiltersAfterId(@Param("type") EstablishmentType type,
+                                             @Param("status") EstablishmentStatus status,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+    
+    @Query("SELECT e FROM Establishment e WHERE e.isActive = true AND " +
+           "(:type IS NULL OR e.type = :type) AND " +
+           "(:status IS NULL OR e.status = :status) AND " +
+           "(:afterName IS NULL OR e.name > :afterName OR (e.name = :afterName AND e.id > :afterId)) " +
+           "ORDER BY e.name ASC, e.id ASC")
+    List<Establishment> findByFiltersAfterName(@Param("type") EstablishmentType type,
+                                               @Param("status") EstablishmentStatus status,
+                                               @Param("afterName") String afterName,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+    
     // Search methods
     List<Establishment> findByNameContainingIgnoreCaseOrAddressContainingIgnoreCase(String name, String address);
     
@@ -33,6 +62,9 @@ public interface EstablishmentRepository extends JpaRepository<Establishment, Lo
     List<Establishment> findByOwnerId(Long ownerId);
     List<Establishment> findByOwner(com.opennova.model.User owner);
     
+    @Query("SELECT e.id FROM Establishment e ORDER BY e.id")
+    List<Long> findAllIds();
+    
     // Count methods
     long countByType(EstablishmentType type);
     long countByStatus(EstablishmentStatus status);
@@ -3,6 +3,8 @@ package com.opennova.repository;
 import com.opennova.model.EstablishmentRequest;
 import com.opennova.model.RequestStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -23,4 +25,10 @@ public interface EstablishmentRequestRepository extends JpaRepository<Establishm
     long countByStatus(RequestStatus status);
     
     List<EstablishmentRequest> findByUser_IdOrderByCreatedAtDesc(Long userId);
+    
+    @Query("SELECT r.status, COUNT(r) FROM EstablishmentRequest r WHERE r.user.id = :userId GROUP BY r.status")
+    List<Object[]> countByStatusForUser(@Param("userId") Long userId);
+    
+    @Query("SELECT r FROM EstablishmentRequest r LEFT JOIN FETCH r.user")
+    List<EstablishmentRequest> findAllWithUser();
 }
\ No newline at end of file
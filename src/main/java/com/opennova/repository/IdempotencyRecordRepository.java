@@ -0,0 +1,54 @@
+package com.opennova.repository;
+
+import com.opennova.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByRecordKey(String recordKey);
+
+    /**
+     * Status code and body as currently stored, read as plain columns so a record already loaded in the
+     * persistence context is not handed back unchanged; no row if the key was released
+     */
+    @Query("SELECT r.statusCode, r.responseBody FROM IdempotencyRecord r WHERE r.recordKey = :recordKey")
+    List<Object[]> findResponse(@Param("recordKey") String recordKey);
+
+    /**
+     * Take ownership of a key; returns 0 if another request (on any instance) already holds it
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_records (record_key, fingerprint, created_at, expires_at) " +
+                   "VALUES (:recordKey, :fingerprint, :now, :expiresAt) " +
+                   "ON CONFLICT (record_key) DO NOTHING", nativeQuery = true)
+    int claim(@Param("recordKey") String recordKey, @Param("fingerprint") String fingerprint,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.responseBody = :responseBody " +
+           "WHERE r.recordKey = :recordKey")
+    int complete(@Param("recordKey") String recordKey, @Param("statusCode") int statusCode,
+                 @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.recordKey = :recordKey AND r.statusCode IS NULL")
+    int release(@Param("recordKey") String recordKey);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
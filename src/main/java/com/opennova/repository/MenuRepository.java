@@ -24,4 +24,6 @@ public interface MenuRepository extends JpaRepository<Menu, Long> {
     long countByEstablishmentId(Long establishmentId);
     
     boolean existsByEstablishmentIdAndName(Long establishmentId, String name);
+    
+    List<Menu> findByIsActiveTrue();
 }
\ No newline at end of file
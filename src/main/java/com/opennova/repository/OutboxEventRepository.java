@@ -0,0 +1,55 @@
+package com.opennova.repository;
+
+import com.opennova.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Tag up to batchSize due events (or ones whose previous claim expired) with a claim token.
+     * SKIP LOCKED lets several dispatchers claim disjoint batches.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE outbox_events SET status = 'IN_PROGRESS', claim_token = :token, " +
+                   "locked_until = :lockedUntil, attempts = attempts + 1 " +
+                   "WHERE id IN (SELECT id FROM outbox_events " +
+                   "WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+                   "OR (status = 'IN_PROGRESS' AND locked_until < :now) " +
+                   "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int claimBatch(@Param("token") String token, @Param("now") LocalDateTime now,
+                   @Param("lockedUntil") LocalDateTime lockedUntil, @Param("batchSize") int batchSize);
+
+    List<OutboxEvent> findByClaimTokenOrderByIdAsc(String claimToken);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = com.opennova.model.OutboxEvent$Status.DONE, e.processedAt = :now, " +
+           "e.claimToken = NULL, e.lockedUntil = NULL, e.lastError = NULL " +
+           "WHERE e.id = :id AND e.claimToken = :token")
+    int markDone(@Param("id") Long id, @Param("token") String token, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, e.lastError = :error, " +
+           "e.claimToken = NULL, e.lockedUntil = NULL " +
+           "WHERE e.id = :id AND e.claimToken = :token")
+    int markFailed(@Param("id") Long id, @Param("token") String token, @Param("status") OutboxEvent.Status status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    long countByStatus(OutboxEvent.Status status);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = com.opennova.model.OutboxEvent$Status.DONE AND e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
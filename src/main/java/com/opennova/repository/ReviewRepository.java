@@ -32,4 +32,7 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     Double getAverageRatingByEstablishmentId(@Param("establishmentId") Long establishmentId);
     
     List<Review> findByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    @Query("SELECT COUNT(r), AVG(r.rating) FROM Review r WHERE r.user.id = :userId")
+    List<Object[]> countAndAverageRatingByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.opennova.service;
+
+import com.opennova.model.ArchivedBooking;
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.repository.ArchivedBookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Hot/cold booking storage. Completed and cancelled bookings untouched for app.bookings.archive-after-days
+ * are moved from bookings to bookings_archive in batches, so the live table (and every owner dashboard
+ * query on it) only holds recent and open bookings. Reads stay hot-only unless history is asked for.
+ */
+@Service
+public class BookingArchiveService {
+
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.bookings.archive-after-days:180}")
+    private int archiveAfterDays;
+
+    @Value("${app.bookings.archive-batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.bookings.archive-interval-minutes:60}")
+    private long intervalMinutes;
+
+    private ScheduledExecutorService archiver;
+
+    private final AtomicLong archived = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+
+    @PostConstruct
+    public void start() {
+        archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        archiver.scheduleWithFixedDelay(this::archiveOldBookings, 5, Math.max(1, intervalMinutes), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        archiver.shutdownNow();
+    }
+
+    /**
+     * Move every eligible booking, a batch per transaction; returns how many were moved
+     */
+    public int archiveOldBookings() {
+        int moved = 0;
+        try {
+            String sql = moveStatement();
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            while (true) {
+                Integer rows = transaction.execute(status -> entityManager.createNativeQuery(sql)
+                    .setParameter("cutoff", cutoff)
+                    .setParameter("batchSize", batchSize)
+                    .setParameter("now", LocalDateTime.now())
+                    .executeUpdate());
+                moved += rows != null ? rows : 0;
+                if (rows == null || rows < batchSize) {
+                    break;
+                }
+            }
+            archived.addAndGet(moved);
+            lastRunAt = LocalDateTime.now();
+            if (moved > 0) {
+                System.out.println("✅ Archived " + moved + " bookings older than " + archiveAfterDays + " days");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to archive bookings: " + e.getMessage());
+        }
+        return moved;
+    }
+
+    // Archived bookings as detached Booking copies, newest first
+
+    public List<Booking> findAllArchived() {
+        return toBookings(archivedBookingRepository.findAllByOrderByCreatedAtDesc());
+    }
+
+    public List<Booking> findArchivedByUser(Long userId) {
+        return toBookings(archivedBookingRepository.findByUserIdOrderByCreatedAtDesc(userId));
+    }
+
+    public List<Booking> findArchivedByEstablishment(Long establishmentId) {
+        return toBookings(archivedBookingRepository.findByEstablishmentIdOrderByCreatedAtDesc(establishmentId));
+    }
+
+    public List<Booking> findArchivedByOwner(Long ownerId) {
+        return toBookings(archivedBookingRepository.findByEstablishmentOwnerIdOrderByCreatedAtDesc(ownerId));
+    }
+
+    /**
+     * Live and archived bookings in one list, newest first like the single-table finders
+     */
+    public static List<Booking> merge(List<Booking> hot, List<Booking> archived) {
+        List<Booking> all = new ArrayList<>(hot);
+        all.addAll(archived);
+        all.sort(Comparator.comparing(Booking::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return all;
+    }
+
+    public long countArchived() {
+        return archivedBookingRepository.count();
+    }
+
+    public long countArchivedByStatus(BookingStatus status) {
+        return archivedBookingRepository.countByStatus(status);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("archivedRows", archivedBookingRepository.count());
+        stats.put("archivedSinceStart", archived.get());
+        stats.put("archiveAfterDays", archiveAfterDays);
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    private static List<Booking> toBookings(List<ArchivedBooking> archived) {
+        return archived.stream().map(ArchivedBooking::toBooking).collect(Collectors.toList());
+    }
+
+    // Built from the columns both tables have, so it keeps working as ddl-auto adds columns to the model
+    @SuppressWarnings("unchecked")
+    private String moveStatement() {
+        List<String> columns = entityManager.createNativeQuery(
+                "SELECT a.column_name FROM information_schema.columns a " +
+                "JOIN information_schema.columns h ON h.table_schema = a.table_schema AND h.column_name = a.column_name " +
+                "AND h.table_name = 'bookings' " +
+                "WHERE a.table_schema = current_schema() AND a.table_name = 'bookings_archive' " +
+                "AND a.column_name <> 'archived_at' ORDER BY a.ordinal_position")
+            .getResultList();
+        if (columns.isEmpty()) {
+            throw new RuntimeException("bookings_archive table not found");
+        }
+        String list = columns.stream().map(column -> "\"" + column + "\"").collect(Collectors.joining(", "));
+        return "WITH moved AS (DELETE FROM bookings WHERE id IN (" +
+               "SELECT id FROM bookings WHERE status IN ('COMPLETED', 'CANCELLED') " +
+               "AND updated_at < :cutoff " +
+               "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+               "RETURNING " + list + ") " +
+               "INSERT INTO bookings_archive (" + list + ", archived_at) SELECT " + list + ", :now FROM moved";
+    }
+}
@@ -0,0 +1,393 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.OutboxEvent;
+import com.opennova.model.RefundStatus;
+import com.opennova.repository.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-driven booking changes. Every open booking has one timer in a hierarchical timing wheel: PENDING ones
+ * expire if nobody confirms them in time (once a TTL is configured), CONFIRMED ones whose visit passed without a
+ * check-in are marked no-show. Timers are loaded once at startup and then fed by booking creation and confirmation;
+ * due timers are applied in batches, each batch one transaction that re-checks the rows, so there is no periodic
+ * table scan. The same wheel runs the payment-session cleanup.
+ */
+@Service
+public class BookingLifecycleService {
+
+    public static final String EXPIRED_REASON = "Expired: not confirmed by the establishment in time";
+    public static final String NO_SHOW_REASON = "No-show: visit not checked in";
+
+    private enum Kind {
+        EXPIRE_PENDING,
+        MARK_NO_SHOW,
+        PAYMENT_CLEANUP
+    }
+
+    private static final class Timer {
+        final Kind kind;
+        final long bookingId;
+
+        Timer(Kind kind, long bookingId) {
+            this.kind = kind;
+            this.bookingId = bookingId;
+        }
+    }
+
+    // 64 buckets a level, 5 levels: a 1 second tick reaches about 34 years ahead
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 5;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SlotInventoryService slotInventoryService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PaymentVerificationService paymentVerificationService;
+
+    @Autowired
+    private BookingStatsService bookingStatsService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.lifecycle.tick-millis:1000}")
+    private long tickMillis;
+
+    // 0 turns PENDING expiry off; bookings made before it was switched on are expired too once past the window
+    @Value("${app.lifecycle.pending-ttl-hours:0}")
+    private long pendingTtlHours;
+
+    // Time after the visit starts before an unchecked CONFIRMED booking counts as a no-show
+    @Value("${app.lifecycle.no-show-grace-hours:4}")
+    private long noShowGraceHours;
+
+    @Value("${app.lifecycle.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.lifecycle.load-batch-size:5000}")
+    private int loadBatchSize;
+
+    @Value("${app.lifecycle.payment-cleanup-minutes:5}")
+    private long paymentCleanupMinutes;
+
+    // Delay before a failed batch, or a booking whose visit time is not known yet, is looked at again
+    @Value("${app.lifecycle.retry-seconds:60}")
+    private long retrySeconds;
+
+    private TimingWheel<Timer> wheel;
+    private ScheduledExecutorService ticker;
+
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong noShows = new AtomicLong();
+    private final AtomicLong paymentsRemoved = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        wheel = new TimingWheel<>(Math.max(1, tickMillis), WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, Math.max(1, tickMillis), TimeUnit.MILLISECONDS);
+        schedule(Kind.PAYMENT_CLEANUP, 0, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(paymentCleanupMinutes));
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    // On the ticker thread, so nothing fires until the wheel holds every open booking
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTimers() {
+        ticker.execute(this::loadFromDatabase);
+    }
+
+    /**
+     * A new PENDING booking; expires unless confirmed before its deadline
+     */
+    public void bookingCreated(Booking booking) {
+        LocalDateTime deadline = pendingDeadline(booking.getCreatedAt(), visitOf(booking));
+        if (deadline != null) {
+            schedule(Kind.EXPIRE_PENDING, booking.getId(), toMillis(deadline));
+        }
+    }
+
+    /**
+     * A booking just confirmed; marked no-show if its visit passes without a check-in
+     */
+    public void bookingConfirmed(Booking booking) {
+        LocalDateTime deadline = noShowDeadline(visitOf(booking));
+        if (deadline != null) {
+            schedule(Kind.MARK_NO_SHOW, booking.getId(), toMillis(deadline));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (wheel) {
+            stats.put("timers", wheel.size());
+        }
+        stats.put("loaded", loaded.get());
+        stats.put("expired", expired.get());
+        stats.put("noShows", noShows.get());
+        stats.put("paymentSessionsRemoved", paymentsRemoved.get());
+        stats.put("failedBatches", failedBatches.get());
+        return stats;
+    }
+
+    private void schedule(Kind kind, long bookingId, long deadlineMillis) {
+        synchronized (wheel) {
+            wheel.add(deadlineMillis, new Timer(kind, bookingId));
+        }
+    }
+
+    private void tick() {
+        try {
+            List<Timer> due;
+            synchronized (wheel) {
+                due = wheel.advance(System.currentTimeMillis());
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            List<Long> pending = new ArrayList<>();
+            List<Long> confirmed = new ArrayList<>();
+            boolean cleanup = false;
+            for (Timer timer : due) {
+                switch (timer.kind) {
+                    case EXPIRE_PENDING:
+                        pending.add(timer.bookingId);
+                        break;
+                    case MARK_NO_SHOW:
+                        confirmed.add(timer.bookingId);
+                        break;
+                    default:
+                        cleanup = true;
+                        break;
+                }
+            }
+            runBatches(Kind.EXPIRE_PENDING, pending);
+            runBatches(Kind.MARK_NO_SHOW, confirmed);
+            if (cleanup) {
+                cleanupPayments();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Booking lifecycle tick failed: " + e.getMessage());
+        }
+    }
+
+    private void runBatches(Kind kind, List<Long> ids) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < ids.size(); from += Math.max(1, batchSize)) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + Math.max(1, batchSize)));
+            try {
+                Integer changed = transaction.execute(status ->
+                    kind == Kind.EXPIRE_PENDING ? expirePending(batch) : markNoShows(batch));
+                if (changed != null && changed > 0) {
+                    System.out.println((kind == Kind.EXPIRE_PENDING ? "Expired " : "Marked no-show for ")
+                        + changed + " of " + batch.size() + " due bookings");
+                }
+            } catch (Exception e) {
+                failedBatches.incrementAndGet();
+                System.err.println("❌ Failed to apply " + kind + " to " + batch.size() + " bookings, retrying in "
+                    + retrySeconds + "s: " + e.getMessage());
+                long retryAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retrySeconds);
+                for (Long id : batch) {
+                    schedule(kind, id, retryAt);
+                }
+            }
+        }
+    }
+
+    private int expirePending(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> changed = new ArrayList<>();
+        Map<Long, BookingStatsService.Delta> statsDeltas = new HashMap<>();
+        // Confirmed or cancelled in the meantime: not returned, the timer is simply dropped
+        for (Booking booking : bookingRepository.lockAllByIdInAndStatus(ids, BookingStatus.PENDING)) {
+            LocalDateTime deadline = pendingDeadline(booking.getCreatedAt(), visitOf(booking));
+            if (deadline == null) {
+                // Expiry switched off since the timer was set
+                continue;
+            }
+            if (deadline.isAfter(now)) {
+                schedule(Kind.EXPIRE_PENDING, booking.getId(), toMillis(deadline));
+                continue;
+            }
+            // Never accepted, so the advance is refunded in full like a rejection
+            BookingStatsService.Snapshot before = BookingStatsService.Snapshot.of(booking);
+            booking.setStatus(BookingStatus.CANCELLED);
+            booking.setUpdatedAt(now);
+            booking.setCancelledAt(now);
+            booking.setCancellationReason(EXPIRED_REASON);
+            booking.setRefundStatus(RefundStatus.APPROVED);
+            statsDeltas.computeIfAbsent(booking.getEstablishment().getId(), id -> new BookingStatsService.Delta())
+                .change(before, BookingStatsService.Snapshot.of(booking));
+            changed.add(booking);
+        }
+        entityManager.flush();
+        bookingStatsService.apply(statsDeltas);
+        userStatsService.invalidateCustomersOf(changed);
+        for (Booking booking : changed) {
+            slotInventoryService.release(booking.getEstablishment().getId(), booking.getVisitingDate(), booking.getVisitingTime());
+            outboxService.enqueue(OutboxEvent.Type.BOOKING_REALTIME_UPDATE, booking);
+        }
+        expired.addAndGet(changed.size());
+        return changed.size();
+    }
+
+    private int markNoShows(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> changed = new ArrayList<>();
+        Map<Long, BookingStatsService.Delta> statsDeltas = new HashMap<>();
+        for (Booking booking : bookingRepository.lockAllByIdInAndStatus(ids, BookingStatus.CONFIRMED)) {
+            LocalDateTime deadline = noShowDeadline(visitOf(booking));
+            if (deadline == null) {
+                // A visit time that does not parse is left for the owner to settle
+                continue;
+            }
+            if (deadline.isAfter(now)) {
+                schedule(Kind.MARK_NO_SHOW, booking.getId(), toMillis(deadline));
+                continue;
+            }
+            // The slot is in the past, so there is nothing to release
+            BookingStatsService.Snapshot before = BookingStatsService.Snapshot.of(booking);
+            booking.setStatus(BookingStatus.CANCELLED);
+            booking.setUpdatedAt(now);
+            booking.setCancelledAt(now);
+            booking.setCancellationReason(NO_SHOW_REASON);
+            booking.setRefundStatus(RefundStatus.NOT_ELIGIBLE);
+            statsDeltas.computeIfAbsent(booking.getEstablishment().getId(), id -> new BookingStatsService.Delta())
+                .change(before, BookingStatsService.Snapshot.of(booking));
+            changed.add(booking);
+        }
+        entityManager.flush();
+        bookingStatsService.apply(statsDeltas);
+        userStatsService.invalidateCustomersOf(changed);
+        for (Booking booking : changed) {
+            outboxService.enqueue(OutboxEvent.Type.BOOKING_REALTIME_UPDATE, booking);
+        }
+        noShows.addAndGet(changed.size());
+        return changed.size();
+    }
+
+    private void cleanupPayments() {
+        try {
+            int removed = paymentVerificationService.cleanupExpiredPayments();
+            paymentsRemoved.addAndGet(removed);
+            if (removed > 0) {
+                System.out.println("Removed " + removed + " expired payment sessions");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to clean up payment sessions: " + e.getMessage());
+        }
+        schedule(Kind.PAYMENT_CLEANUP, 0, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(paymentCleanupMinutes));
+    }
+
+    private void loadFromDatabase() {
+        try {
+            List<BookingStatus> open = List.of(BookingStatus.PENDING, BookingStatus.CONFIRMED);
+            long retryAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retrySeconds);
+            long afterId = 0;
+            long count = 0;
+            while (true) {
+                List<Object[]> rows = bookingRepository.findLifecycleRowsAfter(open, afterId, PageRequest.of(0, Math.max(1, loadBatchSize)));
+                for (Object[] row : rows) {
+                    Long id = (Long) row[0];
+                    LocalDate visitDate = (LocalDate) row[3];
+                    LocalTime visitTime = (LocalTime) row[4];
+                    LocalDateTime visit = visitDate != null && visitTime != null ? LocalDateTime.of(visitDate, visitTime) : null;
+                    if (row[1] == BookingStatus.PENDING) {
+                        LocalDateTime deadline = pendingDeadline((LocalDateTime) row[2], visit);
+                        if (deadline != null) {
+                            schedule(Kind.EXPIRE_PENDING, id, toMillis(deadline));
+                        }
+                    } else if (visit != null) {
+                        schedule(Kind.MARK_NO_SHOW, id, toMillis(noShowDeadline(visit)));
+                    } else {
+                        // visit_date/visit_time may still be waiting for the backfill
+                        schedule(Kind.MARK_NO_SHOW, id, retryAt);
+                    }
+                    afterId = id;
+                    count++;
+                }
+                if (rows.size() < Math.max(1, loadBatchSize)) {
+                    break;
+                }
+            }
+            loaded.addAndGet(count);
+            System.out.println("✅ Loaded " + count + " booking lifecycle timers");
+        } catch (Exception e) {
+            System.err.println("❌ Failed to load booking lifecycle timers: " + e.getMessage());
+        }
+    }
+
+    // The earlier of the confirmation window closing and the visit starting; null while expiry is off
+    private LocalDateTime pendingDeadline(LocalDateTime createdAt, LocalDateTime visit) {
+        if (pendingTtlHours <= 0) {
+            return null;
+        }
+        LocalDateTime deadline = (createdAt != null ? createdAt : LocalDateTime.now()).plusHours(pendingTtlHours);
+        return visit != null && visit.isBefore(deadline) ? visit : deadline;
+    }
+
+    // Rows the visit_date/visit_time backfill has not reached yet still have the text columns
+    private static LocalDateTime visitOf(Booking booking) {
+        if (booking.getVisitDateTime() != null) {
+            return booking.getVisitDateTime();
+        }
+        LocalDate date = Booking.parseVisitDate(booking.getVisitingDate());
+        LocalTime time = Booking.parseVisitTime(booking.getVisitingTime());
+        return date != null && time != null ? LocalDateTime.of(date, time) : null;
+    }
+
+    private LocalDateTime noShowDeadline(LocalDateTime visit) {
+        return visit != null ? visit.plusHours(noShowGraceHours) : null;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,327 @@
+package com.opennova.service;
+
+import com.opennova.model.BookingStatus;
+import com.opennova.model.EstablishmentBookingStats;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.RollupGranularity;
+import com.opennova.repository.BookingRollupRepository;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hourly and daily booking rollups per establishment, for the admin analytics charts. Bookings count in the
+ * bucket of their creation time under their current status, so a status change moves counts between columns
+ * of the same bucket. Deltas arrive through BookingStatsService in the transaction of the change; each
+ * establishment is backfilled once from its bookings.
+ */
+@Service
+public class BookingRollupService {
+
+    /**
+     * Rollup changes for one establishment, by hour of booking creation
+     */
+    public static final class Delta {
+        private final Map<LocalDateTime, Change> byHour = new HashMap<>();
+
+        void add(LocalDateTime createdAt, BookingStatus status, BigDecimal gross, BigDecimal paid, BigDecimal refund, int sign) {
+            if (createdAt == null) {
+                return;
+            }
+            Change change = byHour.computeIfAbsent(RollupGranularity.HOUR.bucketOf(createdAt), hour -> new Change());
+            change.add(status, gross, paid, refund, sign);
+        }
+
+        boolean isEmpty() {
+            return byHour.values().stream().allMatch(Change::isEmpty);
+        }
+    }
+
+    static final class Change {
+        long pending;
+        long confirmed;
+        long completed;
+        long cancelled;
+        BigDecimal gross = BigDecimal.ZERO;
+        BigDecimal paid = BigDecimal.ZERO;
+        BigDecimal refund = BigDecimal.ZERO;
+
+        void add(BookingStatus status, BigDecimal grossAmount, BigDecimal paidAmount, BigDecimal refundAmount, int sign) {
+            if (status != null) {
+                switch (status) {
+                    case PENDING:
+                        pending += sign;
+                        break;
+                    case CONFIRMED:
+                        confirmed += sign;
+                        break;
+                    case COMPLETED:
+                        completed += sign;
+                        break;
+                    case CANCELLED:
+                        cancelled += sign;
+                        break;
+                }
+            }
+            gross = sign > 0 ? gross.add(grossAmount) : gross.subtract(grossAmount);
+            paid = sign > 0 ? paid.add(paidAmount) : paid.subtract(paidAmount);
+            refund = sign > 0 ? refund.add(refundAmount) : refund.subtract(refundAmount);
+        }
+
+        void add(Change other) {
+            pending += other.pending;
+            confirmed += other.confirmed;
+            completed += other.completed;
+            cancelled += other.cancelled;
+            gross = gross.add(other.gross);
+            paid = paid.add(other.paid);
+            refund = refund.add(other.refund);
+        }
+
+        boolean isEmpty() {
+            return pending == 0 && confirmed == 0 && completed == 0 && cancelled == 0
+                && gross.signum() == 0 && paid.signum() == 0 && refund.signum() == 0;
+        }
+
+        // From a series query row: a key, then the four counts and three amounts
+        static Change of(Object[] row) {
+            Change change = new Change();
+            change.pending = toLong(row[1]);
+            change.confirmed = toLong(row[2]);
+            change.completed = toLong(row[3]);
+            change.cancelled = toLong(row[4]);
+            change.gross = toAmount(row[5]);
+            change.paid = toAmount(row[6]);
+            change.refund = toAmount(row[7]);
+            return change;
+        }
+    }
+
+    private static final Change EMPTY = new Change();
+
+    @Autowired
+    private BookingRollupRepository rollupRepository;
+
+    @Autowired
+    private EstablishmentBookingStatsRepository statsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.analytics.max-buckets:2000}")
+    private int maxBuckets;
+
+    private ExecutorService backfiller;
+
+    private final AtomicLong backfilled = new AtomicLong();
+    private volatile LocalDateTime lastBackfilledAt;
+
+    @PostConstruct
+    public void start() {
+        backfiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-rollup-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        backfiller.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleBackfill() {
+        backfiller.execute(this::backfillAll);
+    }
+
+    /**
+     * Apply one establishment's delta to its hourly and daily buckets. Called by BookingStatsService after it
+     * has updated (and so locked) the establishment's counters row, which orders it against a backfill.
+     */
+    @Transactional
+    public void apply(Long establishmentId, Delta delta) {
+        Map<LocalDateTime, Change> byDay = new TreeMap<>();
+        for (Map.Entry<LocalDateTime, Change> entry : new TreeMap<>(delta.byHour).entrySet()) {
+            Change change = entry.getValue();
+            if (change.isEmpty()) {
+                continue;
+            }
+            write(RollupGranularity.HOUR, entry.getKey(), establishmentId, change);
+            byDay.computeIfAbsent(RollupGranularity.DAY.bucketOf(entry.getKey()), day -> new Change()).add(change);
+        }
+        for (Map.Entry<LocalDateTime, Change> entry : byDay.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                write(RollupGranularity.DAY, entry.getKey(), establishmentId, entry.getValue());
+            }
+        }
+    }
+
+    @Transactional
+    public void removeRollups(Long establishmentId) {
+        if (establishmentId != null) {
+            rollupRepository.deleteByEstablishmentId(establishmentId);
+        }
+    }
+
+    /**
+     * Rebuild the rollups of every establishment not backfilled yet, one transaction each; returns how many
+     */
+    public int backfillAll() {
+        int rebuilt = 0;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            for (Long establishmentId : statsRepository.findIdsWithoutRollups()) {
+                if (Boolean.TRUE.equals(transaction.execute(status -> backfill(establishmentId)))) {
+                    rebuilt++;
+                }
+            }
+            backfilled.addAndGet(rebuilt);
+            lastBackfilledAt = LocalDateTime.now();
+            if (rebuilt > 0) {
+                System.out.println("✅ Backfilled booking rollups for " + rebuilt + " establishments");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to backfill booking rollups: " + e.getMessage());
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Recompute every establishment's rollups from the bookings
+     */
+    public int rebuildAll() {
+        new TransactionTemplate(transactionManager).execute(status -> statsRepository.clearRollupsBackfilled());
+        return backfillAll();
+    }
+
+    public Map<String, Object> getBackfillStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rows", rollupRepository.count());
+        stats.put("backfilledSinceStart", backfilled.get());
+        stats.put("lastBackfilledAt", lastBackfilledAt);
+        return stats;
+    }
+
+    /**
+     * Buckets of [from, to) at the given granularity, empty ones included, for all establishments, one type or one
+     * establishment, with totals over the range (and per type when unfiltered)
+     */
+    public Map<String, Object> getSeries(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                         EstablishmentType type, Long establishmentId) {
+        LocalDateTime start = granularity.bucketOf(from);
+        if (!to.isAfter(start)) {
+            throw new RuntimeException("'to' must be after 'from'");
+        }
+        Duration bucket = granularity == RollupGranularity.HOUR ? Duration.ofHours(1) : Duration.ofDays(1);
+        long buckets = (Duration.between(start, to).toMinutes() + bucket.toMinutes() - 1) / bucket.toMinutes();
+        if (buckets > maxBuckets) {
+            throw new RuntimeException("Range covers " + buckets + " " + granularity.name().toLowerCase()
+                + " buckets, at most " + maxBuckets + " allowed");
+        }
+
+        List<Object[]> rows;
+        if (establishmentId != null) {
+            rows = rollupRepository.findByBucketForEstablishment(granularity, establishmentId, start, to);
+        } else if (type != null) {
+            rows = rollupRepository.sumByBucketForType(granularity, type, start, to);
+        } else {
+            rows = rollupRepository.sumByBucket(granularity, start, to);
+        }
+        Map<LocalDateTime, Change> byBucket = new HashMap<>();
+        for (Object[] row : rows) {
+            byBucket.put((LocalDateTime) row[0], Change.of(row));
+        }
+
+        List<Map<String, Object>> series = new ArrayList<>();
+        Change totals = new Change();
+        for (LocalDateTime bucketStart = start; bucketStart.isBefore(to); bucketStart = granularity.next(bucketStart)) {
+            Change change = byBucket.getOrDefault(bucketStart, EMPTY);
+            Map<String, Object> point = toPoint(change);
+            point.put("bucketStart", bucketStart);
+            series.add(point);
+            totals.add(change);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("granularity", granularity.name());
+        result.put("from", start);
+        result.put("to", to);
+        result.put("establishmentId", establishmentId);
+        result.put("type", establishmentId == null && type != null ? type.name() : null);
+        result.put("totals", toPoint(totals));
+        if (establishmentId == null && type == null) {
+            Map<String, Object> byType = new HashMap<>();
+            for (Object[] row : rollupRepository.sumByType(granularity, start, to)) {
+                byType.put(row[0] != null ? row[0].toString() : "UNKNOWN", toPoint(Change.of(row)));
+            }
+            result.put("byType", byType);
+        }
+        result.put("series", series);
+        return result;
+    }
+
+    // Runs with the counters row locked: deltas committed before are in the bookings read here, later ones
+    // wait for the lock and apply on top of the rebuilt rows
+    private boolean backfill(Long establishmentId) {
+        statsRepository.ensureRow(establishmentId);
+        EstablishmentBookingStats row = statsRepository.lockByEstablishmentId(establishmentId)
+            .orElseThrow(() -> new RuntimeException("Booking stats row missing for establishment " + establishmentId));
+        if (row.getRollupsBackfilledAt() != null) {
+            return false;
+        }
+        rollupRepository.deleteByEstablishmentId(establishmentId);
+        rollupRepository.insertHourlyFromBookings(establishmentId);
+        rollupRepository.insertDailyFromHourly(establishmentId);
+        row.setRollupsBackfilledAt(LocalDateTime.now());
+        return true;
+    }
+
+    private void write(RollupGranularity granularity, LocalDateTime bucketStart, Long establishmentId, Change change) {
+        rollupRepository.applyDelta(granularity.name(), bucketStart, establishmentId,
+            change.pending, change.confirmed, change.completed, change.cancelled,
+            change.gross, change.paid, change.refund);
+    }
+
+    private static Map<String, Object> toPoint(Change change) {
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("totalBookings", change.pending + change.confirmed + change.completed + change.cancelled);
+        point.put("pendingBookings", change.pending);
+        point.put("confirmedBookings", change.confirmed);
+        point.put("completedBookings", change.completed);
+        point.put("cancelledBookings", change.cancelled);
+        point.put("grossAmount", change.gross.doubleValue());
+        point.put("paidAmount", change.paid.doubleValue());
+        point.put("refundAmount", change.refund.doubleValue());
+        return point;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal toAmount(Object value) {
+        return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+}
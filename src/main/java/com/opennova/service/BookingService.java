@@ -2,6 +2,7 @@ package com.opennova.service;
 
 import com.opennova.model.Booking;
 import com.opennova.model.BookingStatus;
+import com.opennova.model.OutboxEvent;
 import com.opennova.model.PaymentStatus;
 import com.opennova.model.RefundStatus;
 import com.opennova.model.Establishment;
@@ -10,11 +11,20 @@ import com.opennova.repository.BookingRepository;
 import com.opennova.repository.EstablishmentRepository;
 import com.opennova.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +62,34 @@ public class BookingService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private SlotInventoryService slotInventoryService;
+
+    @Autowired
+    private BookingStateMachine bookingStateMachine;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private BookingArchiveService bookingArchiveService;
+
+    @Autowired
+    private BookingLifecycleService bookingLifecycleService;
+
+    @Autowired
+    private BookingStatsService bookingStatsService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.bookings.visit-backfill-batch-size:1000}")
+    private int visitBackfillBatchSize;
+
+    @Transactional
     public Booking createBooking(Long userId, Long establishmentId, String visitingDate, 
                                String visitingTime, String selectedItems, Double totalAmount, 
                                Double paymentAmount, String transactionId, MultipartFile paymentScreenshot) {
@@ -59,6 +97,15 @@ public class BookingService {
         try {
             System.out.println("Creating booking for userId: " + userId + ", establishmentId: " + establishmentId);
             
+            // A retry of an already booked payment (e.g. sent without an Idempotency-Key) gets the existing booking
+            if (transactionId != null && !transactionId.trim().isEmpty()) {
+                Optional<Booking> existing = bookingRepository.findFirstByUserIdAndTransactionId(userId, transactionId);
+                if (existing.isPresent()) {
+                    System.out.println("Booking " + existing.get().getId() + " already exists for transaction " + transactionId);
+                    return existing.get();
+                }
+            }
+            
             User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
             
@@ -133,32 +180,26 @@ public class BookingService {
 
             System.out.println("Creating booking with data: " + booking.toString());
 
+            // Full slots are rejected here
+            if (!slotInventoryService.reserve(establishment, visitingDate, visitingTime)) {
+                throw new RuntimeException("Time slot is not available");
+            }
             
+            // Same transaction as the seat: a failed insert gives the seat back on rollback
             Booking savedBooking = bookingRepository.save(booking);
             
             System.out.println("Booking created successfully with ID: " + savedBooking.getId());
+            bookingStatsService.recordChange(establishmentId, null, BookingStatsService.Snapshot.of(savedBooking));
+            userStatsService.invalidate(userId);
             
-            // Notify real-time updates
-            realTimeUpdateService.notifyBookingUpdate(savedBooking);
+            // Expires unless the establishment confirms it in time; a rollback leaves a timer that finds nothing to do
+            bookingLifecycleService.bookingCreated(savedBooking);
             
-            // Send booking confirmation email to customer IMMEDIATELY
-            try {
-                emailService.sendBookingConfirmation(savedBooking);
-                System.out.println("✅ Sent booking confirmation to customer: " + savedBooking.getUserEmail());
-            } catch (Exception e) {
-                System.err.println("❌ Failed to send booking confirmation to customer: " + e.getMessage());
-                e.printStackTrace();
-            }
-            
-            // Send notification to establishment owner
+            // Real-time update and mails go out from the outbox once this transaction commits
+            outboxService.enqueue(OutboxEvent.Type.BOOKING_REALTIME_UPDATE, savedBooking);
+            outboxService.enqueue(OutboxEvent.Type.BOOKING_CREATED_CUSTOMER_EMAIL, savedBooking);
             if (establishment.getOwner() != null && establishment.getOwner().getEmail() != null) {
-                try {
-                    emailService.sendNewBookingNotificationToOwner(savedBooking);
-                    System.out.println("✅ Sent booking notification to owner: " + establishment.getOwner().getEmail());
-                } catch (Exception e) {
-                    System.err.println("❌ Failed to send booking notification to owner: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                outboxService.enqueue(OutboxEvent.Type.BOOKING_CREATED_OWNER_EMAIL, savedBooking);
             } else {
                 System.err.println("⚠️ Cannot send owner notification - owner or owner email is null");
             }
@@ -176,11 +217,77 @@ public class BookingService {
         return bookingRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
+    // The includeArchived variants add bookings moved to bookings_archive; see BookingArchiveService
+    public List<Booking> getUserBookings(Long userId, boolean includeArchived) {
+        List<Booking> bookings = getUserBookings(userId);
+        return includeArchived ? BookingArchiveService.merge(bookings, bookingArchiveService.findArchivedByUser(userId)) : bookings;
+    }
+
     public List<Booking> getEstablishmentBookings(Long establishmentId) {
         // Get bookings for a specific establishment
         return bookingRepository.findByEstablishmentIdOrderByCreatedAtDesc(establishmentId);
     }
 
+    public List<Booking> getEstablishmentBookings(Long establishmentId, boolean includeArchived) {
+        List<Booking> bookings = getEstablishmentBookings(establishmentId);
+        return includeArchived ? BookingArchiveService.merge(bookings, bookingArchiveService.findArchivedByEstablishment(establishmentId)) : bookings;
+    }
+
+    /**
+     * Bookings visiting between two dates, both inclusive, in visit order
+     */
+    public List<Booking> getEstablishmentBookingsBetween(Long establishmentId, LocalDate from, LocalDate to) {
+        return bookingRepository.findByEstablishmentIdAndVisitDateBetweenOrderByVisitDateAscVisitTimeAsc(establishmentId, from, to);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleVisitBackfill() {
+        Thread thread = new Thread(() -> {
+            try {
+                int filled = backfillVisitColumns();
+                if (filled > 0) {
+                    System.out.println("✅ Backfilled visit date/time on " + filled + " bookings");
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Failed to backfill booking visit columns: " + e.getMessage());
+            }
+        }, "visit-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Fills the typed visit columns of bookings saved before they existed, one transaction per batch, parsing
+     * the text with the same rules as the setters; returns how many bookings got a value
+     */
+    public int backfillVisitColumns() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int filled = 0;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> rows = bookingRepository.findVisitTextAfter(afterId, PageRequest.of(0, visitBackfillBatchSize));
+            if (rows.isEmpty()) {
+                return filled;
+            }
+            Integer updated = transaction.execute(status -> {
+                int count = 0;
+                for (Object[] row : rows) {
+                    LocalDate visitDate = Booking.parseVisitDate((String) row[1]);
+                    LocalTime visitTime = Booking.parseVisitTime((String) row[2]);
+                    if (visitDate != null || visitTime != null) {
+                        count += bookingRepository.fillVisitColumns((Long) row[0], visitDate, visitTime);
+                    }
+                }
+                return count;
+            });
+            filled += updated != null ? updated : 0;
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            if (rows.size() < visitBackfillBatchSize) {
+                return filled;
+            }
+        }
+    }
+
     public List<Booking> getBookingsByEstablishmentId(Long establishmentId) {
         // Alias method for consistency with controller usage
         return getEstablishmentBookings(establishmentId);
@@ -191,47 +298,33 @@ public class BookingService {
         return bookingRepository.findByEstablishmentOwnerIdOrderByCreatedAtDesc(ownerId);
     }
 
+    public List<Booking> getOwnerBookings(Long ownerId, boolean includeArchived) {
+        List<Booking> bookings = getOwnerBookings(ownerId);
+        return includeArchived ? BookingArchiveService.merge(bookings, bookingArchiveService.findArchivedByOwner(ownerId)) : bookings;
+    }
+
     public List<Booking> getAllBookings() {
         return bookingRepository.findAllByOrderByCreatedAtDesc();
     }
 
-    public Booking cancelBooking(Long bookingId, Long userId) {
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        if (!booking.getUser().getId().equals(userId)) {
-            throw new RuntimeException("Unauthorized to cancel this booking");
-        }
-
-        if (booking.getStatus() != BookingStatus.PENDING && booking.getStatus() != BookingStatus.CONFIRMED) {
-            throw new RuntimeException("Cannot cancel booking with status: " + booking.getStatus());
-        }
-
-        // Check if cancellation is within 2 hours of booking time
-        LocalDateTime bookingDateTime;
-        try {
-            bookingDateTime = LocalDateTime.parse(booking.getVisitingDate() + "T" + booking.getVisitingTime());
-        } catch (Exception e) {
-            // Fallback parsing if format is different
-            bookingDateTime = LocalDateTime.now().plusHours(3); // Assume future booking
-        }
-        
-        LocalDateTime now = LocalDateTime.now();
-        long hoursUntilBooking = java.time.Duration.between(now, bookingDateTime).toHours();
-
-        // Set cancellation details
-        booking.setStatus(BookingStatus.CANCELLED);
-        booking.setCancelledAt(LocalDateTime.now());
-        booking.setCancellationReason("Cancelled by customer");
-
-        // Apply refund policy: Cancel before 2 hours → Refund, Cancel within 2 hours → No refund
-        if (hoursUntilBooking >= 2) {
-            booking.setRefundStatus(RefundStatus.APPROVED);
-        } else {
-            booking.setRefundStatus(RefundStatus.NOT_ELIGIBLE);
-        }
+    public List<Booking> getAllBookings(boolean includeArchived) {
+        List<Booking> bookings = getAllBookings();
+        return includeArchived ? BookingArchiveService.merge(bookings, bookingArchiveService.findAllArchived()) : bookings;
+    }
 
-        Booking savedBooking = bookingRepository.save(booking);
+    public Booking cancelBooking(Long bookingId, Long userId) {
+        Booking savedBooking = bookingStateMachine.apply(bookingId, BookingStateMachine.Action.CUSTOMER_CANCEL,
+            booking -> {
+                if (!booking.getUser().getId().equals(userId)) {
+                    throw new RuntimeException("Unauthorized to cancel this booking");
+                }
+            },
+            // Apply refund policy: Cancel before 2 hours → Refund, Cancel within 2 hours → No refund
+            booking -> new BookingStateMachine.Changes()
+                .cancelledAt(LocalDateTime.now())
+                .cancellationReason("Cancelled by customer")
+                .refundStatus(hoursUntilVisit(booking) >= 2 ? RefundStatus.APPROVED : RefundStatus.NOT_ELIGIBLE));
+        long hoursUntilBooking = hoursUntilVisit(savedBooking);
 
         // Send email notifications
         try {
@@ -259,32 +352,34 @@ public class BookingService {
         return savedBooking;
     }
 
-    public Booking confirmBooking(Long bookingId, Long establishmentId) {
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        if (!booking.getEstablishment().getId().equals(establishmentId)) {
-            throw new RuntimeException("Unauthorized to confirm this booking");
-        }
-
-        if (booking.getStatus() != BookingStatus.PENDING) {
-            throw new RuntimeException("Cannot confirm booking with status: " + booking.getStatus());
+    // Hours left before the visit, used by the 2 hour refund rule
+    private long hoursUntilVisit(Booking booking) {
+        LocalDateTime bookingDateTime = booking.getVisitDateTime();
+        if (bookingDateTime == null) {
+            // Unreadable date or time
+            bookingDateTime = LocalDateTime.now().plusHours(3); // Assume future booking
         }
+        return java.time.Duration.between(LocalDateTime.now(), bookingDateTime).toHours();
+    }
 
-        BookingStatus oldStatus = booking.getStatus();
-        booking.setStatus(BookingStatus.CONFIRMED);
-        booking.setConfirmedAt(LocalDateTime.now());
+    public Booking confirmBooking(Long bookingId, Long establishmentId) {
+        Booking savedBooking = bookingStateMachine.apply(bookingId, BookingStateMachine.Action.CONFIRM,
+            booking -> {
+                if (!booking.getEstablishment().getId().equals(establishmentId)) {
+                    throw new RuntimeException("Unauthorized to confirm this booking");
+                }
+            },
+            booking -> new BookingStateMachine.Changes().confirmedAt(LocalDateTime.now()));
+        bookingLifecycleService.bookingConfirmed(savedBooking);
         
         // Generate QR code for the booking
         try {
-            String qrCodeData = qrCodeService.generateBookingQRCode(booking);
-            booking.setQrCode(qrCodeData);
+            savedBooking.setQrCode(qrCodeService.generateBookingQRCode(savedBooking));
+            savedBooking = bookingRepository.save(savedBooking);
         } catch (Exception e) {
             System.err.println("Failed to generate QR code: " + e.getMessage());
             // Continue without QR code
         }
-
-        Booking savedBooking = bookingRepository.save(booking);
         
         // Send detailed confirmation email with all booking details and QR code
         try {
@@ -309,6 +404,10 @@ public class BookingService {
         return savedBooking;
     }
     
+    private void releaseSlot(Booking booking) {
+        slotInventoryService.release(booking.getEstablishment().getId(), booking.getVisitingDate(), booking.getVisitingTime());
+    }
+    
     private String generateQRCodeData(Booking booking) {
         // Generate QR code data containing booking information
         return String.format("BOOKING_%d_%s_%s", 
@@ -320,32 +419,25 @@ public class BookingService {
 
 
     public Booking ownerCancelBooking(Long bookingId, Long ownerId, String reason) {
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        if (!booking.getEstablishment().getOwner().getId().equals(ownerId)) {
-            throw new RuntimeException("Unauthorized to cancel this booking");
-        }
-
-        if (booking.getStatus() == BookingStatus.CANCELLED || booking.getStatus() == BookingStatus.COMPLETED) {
-            throw new RuntimeException("Cannot cancel booking with status: " + booking.getStatus());
-        }
-
-        BookingStatus oldStatus = booking.getStatus();
-        booking.setStatus(BookingStatus.CANCELLED);
-        booking.setCancelledAt(LocalDateTime.now());
-        booking.setCancellationReason(reason);
-        
-        // Owner cancellation always results in full refund
-        booking.setRefundStatus(RefundStatus.APPROVED);
-
-        Booking savedBooking = bookingRepository.save(booking);
+        Booking savedBooking = bookingStateMachine.apply(bookingId, BookingStateMachine.Action.OWNER_CANCEL,
+            booking -> {
+                if (!booking.getEstablishment().getOwner().getId().equals(ownerId)) {
+                    throw new RuntimeException("Unauthorized to cancel this booking");
+                }
+            },
+            // Owner cancellation always results in full refund
+            booking -> new BookingStateMachine.Changes()
+                .cancelledAt(LocalDateTime.now())
+                .cancellationReason(reason)
+                .refundStatus(RefundStatus.APPROVED));
         
-        // Notifications can be added here if needed
+        // Notify real-time updates
+        realTimeUpdateService.notifyBookingUpdate(savedBooking);
         
         return savedBooking;
     }
 
+    @Transactional
     public void deleteBooking(Long bookingId, Long establishmentId) {
         Booking booking = bookingRepository.findById(bookingId)
             .orElseThrow(() -> new RuntimeException("Booking not found"));
@@ -364,6 +456,11 @@ public class BookingService {
         }
         
         bookingRepository.delete(booking);
+        bookingStatsService.recordChange(booking.getEstablishment().getId(), BookingStatsService.Snapshot.of(booking), null);
+        userStatsService.invalidate(booking.getUser().getId());
+        if (booking.getStatus() == BookingStatus.PENDING || booking.getStatus() == BookingStatus.CONFIRMED) {
+            releaseSlot(booking);
+        }
     }
 
     public Booking updateBooking(Booking booking) {
@@ -378,6 +475,7 @@ public class BookingService {
         return validationService.validateBookingAgainstMenu(establishmentId, selectedItems, visitingTime);
     }
 
+    @Transactional
     public void adminDeleteBooking(Long bookingId, Long adminId) {
         Booking booking = bookingRepository.findById(bookingId)
             .orElseThrow(() -> new RuntimeException("Booking not found"));
@@ -392,29 +490,27 @@ public class BookingService {
         }
         
         bookingRepository.delete(booking);
+        bookingStatsService.recordChange(booking.getEstablishment().getId(), BookingStatsService.Snapshot.of(booking), null);
+        userStatsService.invalidate(booking.getUser().getId());
+        if (booking.getStatus() == BookingStatus.PENDING || booking.getStatus() == BookingStatus.CONFIRMED) {
+            releaseSlot(booking);
+        }
     }
 
     public Booking rejectBooking(Long bookingId, Long establishmentId, String reason) {
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        if (!booking.getEstablishment().getId().equals(establishmentId)) {
-            throw new RuntimeException("Unauthorized to reject this booking");
-        }
-
-        if (booking.getStatus() != BookingStatus.PENDING) {
-            throw new RuntimeException("Cannot reject booking with status: " + booking.getStatus());
-        }
-
-        BookingStatus oldStatus = booking.getStatus();
-        booking.setStatus(BookingStatus.CANCELLED);
-        booking.setCancelledAt(LocalDateTime.now());
-        booking.setCancellationReason(reason);
-        
-        // Rejected bookings get full refund
-        booking.setRefundStatus(RefundStatus.APPROVED);
-
-        Booking savedBooking = bookingRepository.save(booking);
+        // Only pending bookings can be rejected
+        BookingStatus oldStatus = BookingStatus.PENDING;
+        Booking savedBooking = bookingStateMachine.apply(bookingId, BookingStateMachine.Action.REJECT,
+            booking -> {
+                if (!booking.getEstablishment().getId().equals(establishmentId)) {
+                    throw new RuntimeException("Unauthorized to reject this booking");
+                }
+            },
+            // Rejected bookings get full refund
+            booking -> new BookingStateMachine.Changes()
+                .cancelledAt(LocalDateTime.now())
+                .cancellationReason(reason)
+                .refundStatus(RefundStatus.APPROVED));
         
         // Send detailed rejection email with reason and refund information
         try {
@@ -425,6 +521,7 @@ public class BookingService {
         
         // Send notifications
         notificationService.notifyBookingStatusChange(savedBooking, oldStatus, BookingStatus.CANCELLED);
+        realTimeUpdateService.notifyBookingUpdate(savedBooking);
         
         return savedBooking;
     }
@@ -480,21 +577,15 @@ public class BookingService {
     public Map<String, Object> getBookingStatistics() {
         Map<String, Object> stats = new HashMap<>();
         
-        long totalBookings = bookingRepository.count();
-        long pendingBookings = bookingRepository.countByStatus(BookingStatus.PENDING);
-        long confirmedBookings = bookingRepository.countByStatus(BookingStatus.CONFIRMED);
-        long cancelledBookings = bookingRepository.countByStatus(BookingStatus.CANCELLED);
-        long completedBookings = bookingRepository.countByStatus(BookingStatus.COMPLETED);
-        
-        BigDecimal totalRevenueBD = bookingRepository.sumPaidAmountByStatus(BookingStatus.CONFIRMED);
-        Double totalRevenue = totalRevenueBD != null ? totalRevenueBD.doubleValue() : 0.0;
+        // One read of the per-establishment counters, which cover archived bookings too
+        com.opennova.model.EstablishmentBookingStats totals = bookingStatsService.getTotals();
 
-        stats.put("totalBookings", totalBookings);
-        stats.put("pendingBookings", pendingBookings);
-        stats.put("confirmedBookings", confirmedBookings);
-        stats.put("cancelledBookings", cancelledBookings);
-        stats.put("completedBookings", completedBookings);
-        stats.put("totalRevenue", totalRevenue);
+        stats.put("totalBookings", totals.getTotalCount());
+        stats.put("pendingBookings", totals.getPendingCount());
+        stats.put("confirmedBookings", totals.getConfirmedCount());
+        stats.put("cancelledBookings", totals.getCancelledCount());
+        stats.put("completedBookings", totals.getCompletedCount());
+        stats.put("totalRevenue", totals.getConfirmedAmount().doubleValue());
 
         return stats;
     }
@@ -546,21 +637,13 @@ public class BookingService {
 
     public boolean markVisitCompleted(Long bookingId, Long establishmentId) {
         try {
-            Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-            if (!booking.getEstablishment().getId().equals(establishmentId)) {
-                return false;
-            }
-
-            if (booking.getStatus() != BookingStatus.CONFIRMED) {
-                return false;
-            }
-
-            // Mark as completed - no setVisited method needed
-            booking.setStatus(BookingStatus.COMPLETED);
-            booking.setUpdatedAt(LocalDateTime.now());
-            bookingRepository.save(booking);
+            Booking booking = bookingStateMachine.apply(bookingId, BookingStateMachine.Action.COMPLETE,
+                current -> {
+                    if (!current.getEstablishment().getId().equals(establishmentId)) {
+                        throw new RuntimeException("Booking belongs to another establishment");
+                    }
+                },
+                null);
 
             // Send notification to customer
             try {
@@ -591,20 +674,13 @@ public class BookingService {
             }
             User owner = ownerOpt.get();
 
-            Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-            if (!booking.getEstablishment().getOwner().getId().equals(owner.getId())) {
-                throw new RuntimeException("Unauthorized to mark this booking as visited");
-            }
-
-            if (booking.getStatus() != BookingStatus.CONFIRMED) {
-                throw new RuntimeException("Only confirmed bookings can be marked as visited");
-            }
-
-            booking.setStatus(BookingStatus.COMPLETED);
-            booking.setUpdatedAt(LocalDateTime.now());
-            bookingRepository.save(booking);
+            Booking booking = bookingStateMachine.apply(bookingId, BookingStateMachine.Action.COMPLETE,
+                current -> {
+                    if (!current.getEstablishment().getOwner().getId().equals(owner.getId())) {
+                        throw new RuntimeException("Unauthorized to mark this booking as visited");
+                    }
+                },
+                null);
 
             // Send notification to customer
             try {
@@ -631,27 +707,24 @@ public class BookingService {
             }
             User owner = ownerOpt.get();
 
-            List<Booking> allBookings = bookingRepository.findByEstablishmentOwnerIdOrderByCreatedAtDesc(owner.getId());
+            // Counters rows of the owner's establishments instead of every booking
+            com.opennova.model.EstablishmentBookingStats counters = bookingStatsService.getOwnerStats(owner.getId());
             
             Map<String, Object> stats = new HashMap<>();
             
-            long totalBookings = allBookings.size();
-            long confirmedBookings = allBookings.stream().mapToLong(b -> 
-                b.getStatus() == BookingStatus.CONFIRMED ? 1 : 0).sum();
-            long completedVisits = allBookings.stream().mapToLong(b -> 
-                b.getStatus() == BookingStatus.COMPLETED ? 1 : 0).sum();
+            long totalBookings = counters.getTotalCount();
+            long confirmedBookings = counters.getConfirmedCount();
+            long completedVisits = counters.getCompletedCount();
             long pendingVisits = confirmedBookings - completedVisits;
             
-            double totalRevenue = allBookings.stream()
-                .filter(b -> b.getPaymentStatus() == PaymentStatus.PAID)
-                .mapToDouble(b -> b.getPaymentAmount() != null ? b.getPaymentAmount().doubleValue() : 0.0)
-                .sum();
+            double totalRevenue = counters.getPaidRevenue().doubleValue();
             
             stats.put("totalBookings", totalBookings);
             stats.put("confirmedBookings", confirmedBookings);
             stats.put("completedVisits", completedVisits);
             stats.put("pendingVisits", pendingVisits);
             stats.put("totalRevenue", totalRevenue);
+            stats.put("refundsOwed", counters.getRefundsOwed().doubleValue());
             stats.put("visitCompletionRate", confirmedBookings > 0 ? 
                 (double) completedVisits / confirmedBookings * 100 : 0.0);
             
@@ -0,0 +1,139 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.RefundStatus;
+import com.opennova.repository.BookingRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Booking status changes. Every action declares which statuses it may start from; a change is applied
+ * with a conditional UPDATE on the status read, so two actors racing on one booking cannot both win.
+ * The loser re-reads the booking and re-checks its action against the new status, a bounded number of times.
+ * Counters and the slot seat of a cancelled booking change in the same transaction as the status.
+ */
+@Service
+public class BookingStateMachine {
+
+    public enum Action {
+        CONFIRM(BookingStatus.CONFIRMED, BookingStatus.PENDING),
+        REJECT(BookingStatus.CANCELLED, BookingStatus.PENDING),
+        CUSTOMER_CANCEL(BookingStatus.CANCELLED, BookingStatus.PENDING, BookingStatus.CONFIRMED),
+        OWNER_CANCEL(BookingStatus.CANCELLED, BookingStatus.PENDING, BookingStatus.CONFIRMED),
+        COMPLETE(BookingStatus.COMPLETED, BookingStatus.CONFIRMED);
+
+        private final BookingStatus target;
+        private final Set<BookingStatus> from;
+
+        Action(BookingStatus target, BookingStatus first, BookingStatus... rest) {
+            this.target = target;
+            this.from = EnumSet.of(first, rest);
+        }
+
+        public BookingStatus getTarget() { return target; }
+
+        public boolean allowedFrom(BookingStatus status) {
+            return status != null && from.contains(status);
+        }
+    }
+
+    /**
+     * Columns written together with the status; null fields are left as they are
+     */
+    public static final class Changes {
+        private LocalDateTime confirmedAt;
+        private LocalDateTime cancelledAt;
+        private String cancellationReason;
+        private RefundStatus refundStatus;
+
+        public Changes confirmedAt(LocalDateTime confirmedAt) { this.confirmedAt = confirmedAt; return this; }
+        public Changes cancelledAt(LocalDateTime cancelledAt) { this.cancelledAt = cancelledAt; return this; }
+        public Changes cancellationReason(String cancellationReason) { this.cancellationReason = cancellationReason; return this; }
+        public Changes refundStatus(RefundStatus refundStatus) { this.refundStatus = refundStatus; return this; }
+    }
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingStatsService bookingStatsService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private SlotInventoryService slotInventoryService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.bookings.transition-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * Apply an action and return the updated booking.
+     * check runs against the current row before every attempt and throws to refuse (ownership and the like);
+     * changes is worked out from that same row, so e.g. refund policy follows the status actually replaced.
+     */
+    @Transactional
+    public Booking apply(Long bookingId, Action action, Consumer<Booking> check, Function<Booking, Changes> changes) {
+        for (int attempt = 1; ; attempt++) {
+            Booking current = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+            // The persistence context may hold a copy read earlier in the request
+            entityManager.refresh(current);
+
+            check.accept(current);
+            BookingStatus from = current.getStatus();
+            if (!action.allowedFrom(from)) {
+                throw new RuntimeException("Cannot " + describe(action) + " booking with status: " + from);
+            }
+
+            Changes change = changes != null ? changes.apply(current) : new Changes();
+            BookingStatsService.Snapshot before = BookingStatsService.Snapshot.of(current);
+            int updated = bookingRepository.transitionStatus(bookingId, from, action.getTarget(), LocalDateTime.now(),
+                change.confirmedAt, change.cancelledAt, change.cancellationReason, change.refundStatus);
+            if (updated == 1) {
+                entityManager.refresh(current);
+                // Same transaction as the status change
+                bookingStatsService.recordChange(current.getEstablishment().getId(), before, BookingStatsService.Snapshot.of(current));
+                if (action.getTarget() == BookingStatus.CANCELLED) {
+                    // Every cancelling action starts from PENDING or CONFIRMED, which hold a seat; it is freed in
+                    // this transaction too, so a failed release rolls the cancellation back instead of leaking the seat
+                    slotInventoryService.release(current.getEstablishment().getId(), current.getVisitingDate(),
+                        current.getVisitingTime());
+                }
+                userStatsService.invalidate(current.getUser().getId());
+                return current;
+            }
+            if (attempt >= Math.max(1, maxAttempts)) {
+                throw new RuntimeException("Booking " + bookingId + " is being changed by someone else, please try again");
+            }
+            System.out.println("Booking " + bookingId + " changed during " + action + " (attempt " + attempt + "), re-reading");
+        }
+    }
+
+    private static String describe(Action action) {
+        switch (action) {
+            case CONFIRM:
+                return "confirm";
+            case REJECT:
+                return "reject";
+            case COMPLETE:
+                return "complete";
+            default:
+                return "cancel";
+        }
+    }
+}
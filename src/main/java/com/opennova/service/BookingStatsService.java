@@ -0,0 +1,313 @@
+package com.opennova.service;
+
+import com.opennova.model.BookingBase;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.EstablishmentBookingStats;
+import com.opennova.model.PaymentStatus;
+import com.opennova.model.RefundStatus;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains the establishment_booking_stats counters. Every booking insert, status change and delete applies
+ * its delta to the establishment's row in the same transaction, so dashboards read one row; a reconciler
+ * recomputes each row from the bookings now and then and corrects any drift.
+ */
+@Service
+public class BookingStatsService {
+
+    /**
+     * The fields the counters depend on, taken before a booking is changed
+     */
+    public static final class Snapshot {
+        private final BookingStatus status;
+        private final PaymentStatus paymentStatus;
+        private final RefundStatus refundStatus;
+        private final BigDecimal paidAmount;
+        private final BigDecimal grossAmount;
+        private final LocalDateTime createdAt;
+
+        private Snapshot(BookingBase booking) {
+            this.status = booking.getStatus();
+            this.paymentStatus = booking.getPaymentStatus();
+            this.refundStatus = booking.getRefundStatus();
+            this.paidAmount = booking.getPaymentAmount() != null ? booking.getPaymentAmount() : BigDecimal.ZERO;
+            this.grossAmount = booking.getAmount() != null ? booking.getAmount() : BigDecimal.ZERO;
+            this.createdAt = booking.getCreatedAt();
+        }
+
+        public static Snapshot of(BookingBase booking) {
+            return booking != null ? new Snapshot(booking) : null;
+        }
+    }
+
+    /**
+     * Counter and rollup changes for one establishment, summed over any number of bookings
+     */
+    public static final class Delta {
+        private long pending;
+        private long confirmed;
+        private long completed;
+        private long cancelled;
+        private BigDecimal confirmedAmount = BigDecimal.ZERO;
+        private BigDecimal paidRevenue = BigDecimal.ZERO;
+        private BigDecimal refundsOwed = BigDecimal.ZERO;
+        private final BookingRollupService.Delta rollup = new BookingRollupService.Delta();
+
+        /**
+         * A booking going from before to after; null on either side for "did not exist"
+         */
+        public Delta change(Snapshot before, Snapshot after) {
+            add(before, -1);
+            add(after, 1);
+            return this;
+        }
+
+        private void add(Snapshot booking, int sign) {
+            if (booking == null) {
+                return;
+            }
+            BigDecimal amount = sign > 0 ? booking.paidAmount : booking.paidAmount.negate();
+            if (booking.status != null) {
+                switch (booking.status) {
+                    case PENDING:
+                        pending += sign;
+                        break;
+                    case CONFIRMED:
+                        confirmed += sign;
+                        confirmedAmount = confirmedAmount.add(amount);
+                        break;
+                    case COMPLETED:
+                        completed += sign;
+                        break;
+                    case CANCELLED:
+                        cancelled += sign;
+                        break;
+                }
+            }
+            boolean refundDue = booking.refundStatus == RefundStatus.PENDING || booking.refundStatus == RefundStatus.APPROVED;
+            if (booking.paymentStatus == PaymentStatus.PAID) {
+                paidRevenue = paidRevenue.add(amount);
+            }
+            if (refundDue && booking.paymentStatus != PaymentStatus.REFUNDED) {
+                refundsOwed = refundsOwed.add(amount);
+            }
+            // The rollups count refunds already paid out as well
+            boolean refunded = refundDue || booking.paymentStatus == PaymentStatus.REFUNDED;
+            rollup.add(booking.createdAt, booking.status, booking.grossAmount,
+                booking.paymentStatus == PaymentStatus.PAID ? booking.paidAmount : BigDecimal.ZERO,
+                refunded ? booking.paidAmount : BigDecimal.ZERO, sign);
+        }
+
+        boolean isEmpty() {
+            return pending == 0 && confirmed == 0 && completed == 0 && cancelled == 0
+                && confirmedAmount.signum() == 0 && paidRevenue.signum() == 0 && refundsOwed.signum() == 0;
+        }
+    }
+
+    @Autowired
+    private EstablishmentBookingStatsRepository statsRepository;
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    @Autowired
+    private BookingRollupService bookingRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.bookings.stats-reconcile-minutes:60}")
+    private long reconcileMinutes;
+
+    private ScheduledExecutorService reconciler;
+
+    private final AtomicLong corrected = new AtomicLong();
+    private volatile LocalDateTime lastReconciledAt;
+
+    @PostConstruct
+    public void start() {
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-stats-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        reconciler.shutdownNow();
+    }
+
+    // The first run also fills the table on databases that predate it
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleReconciliation() {
+        reconciler.scheduleWithFixedDelay(this::reconcileAll, 0, Math.max(1, reconcileMinutes), TimeUnit.MINUTES);
+    }
+
+    @Transactional
+    public void recordChange(Long establishmentId, Snapshot before, Snapshot after) {
+        if (establishmentId == null) {
+            return;
+        }
+        Map<Long, Delta> deltas = new HashMap<>();
+        deltas.put(establishmentId, new Delta().change(before, after));
+        apply(deltas);
+    }
+
+    /**
+     * Apply the deltas of a batch; rows are updated in establishment id order so concurrent batches cannot deadlock.
+     * The counters row is updated first even when only the rollups change, so its lock covers both.
+     */
+    @Transactional
+    public void apply(Map<Long, Delta> deltas) {
+        for (Map.Entry<Long, Delta> entry : new TreeMap<>(deltas).entrySet()) {
+            Delta delta = entry.getValue();
+            if (delta.isEmpty() && delta.rollup.isEmpty()) {
+                continue;
+            }
+            statsRepository.ensureRow(entry.getKey());
+            statsRepository.applyDelta(entry.getKey(), delta.pending, delta.confirmed, delta.completed, delta.cancelled,
+                delta.confirmedAmount, delta.paidRevenue, delta.refundsOwed);
+            bookingRollupService.apply(entry.getKey(), delta.rollup);
+        }
+    }
+
+    public EstablishmentBookingStats getStats(Long establishmentId) {
+        return statsRepository.findById(establishmentId)
+            .orElseGet(() -> new EstablishmentBookingStats(establishmentId));
+    }
+
+    /**
+     * Counters summed over every establishment
+     */
+    public EstablishmentBookingStats getTotals() {
+        EstablishmentBookingStats total = new EstablishmentBookingStats();
+        List<Object[]> result = statsRepository.sumAll();
+        if (!result.isEmpty() && result.get(0)[0] != null) {
+            Object[] sums = result.get(0);
+            total.setPendingCount(((Number) sums[0]).longValue());
+            total.setConfirmedCount(((Number) sums[1]).longValue());
+            total.setCompletedCount(((Number) sums[2]).longValue());
+            total.setCancelledCount(((Number) sums[3]).longValue());
+            total.setConfirmedAmount(toAmount(sums[4]));
+            total.setPaidRevenue(toAmount(sums[5]));
+            total.setRefundsOwed(toAmount(sums[6]));
+        }
+        return total;
+    }
+
+    /**
+     * Counters summed over every establishment of an owner
+     */
+    public EstablishmentBookingStats getOwnerStats(Long ownerId) {
+        EstablishmentBookingStats total = new EstablishmentBookingStats();
+        for (EstablishmentBookingStats row : statsRepository.findByOwnerId(ownerId)) {
+            total.add(row);
+        }
+        return total;
+    }
+
+    // Drops the establishment's rollups too
+    @Transactional
+    public void removeStats(Long establishmentId) {
+        if (establishmentId != null && statsRepository.existsById(establishmentId)) {
+            statsRepository.deleteById(establishmentId);
+        }
+        bookingRollupService.removeRollups(establishmentId);
+    }
+
+    /**
+     * Recompute every establishment's row, one transaction each; returns how many rows were wrong
+     */
+    public int reconcileAll() {
+        int drifted = 0;
+        int checked = 0;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            for (Long establishmentId : establishmentRepository.findAllIds()) {
+                if (Boolean.TRUE.equals(transaction.execute(status -> reconcile(establishmentId)))) {
+                    drifted++;
+                }
+                checked++;
+            }
+            corrected.addAndGet(drifted);
+            lastReconciledAt = LocalDateTime.now();
+            if (drifted > 0) {
+                System.out.println("✅ Reconciled booking stats: corrected " + drifted + " of " + checked + " establishments");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to reconcile booking stats: " + e.getMessage());
+        }
+        return drifted;
+    }
+
+    public Map<String, Object> getReconcileStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rows", statsRepository.count());
+        stats.put("correctedSinceStart", corrected.get());
+        stats.put("lastReconciledAt", lastReconciledAt);
+        return stats;
+    }
+
+    // The row is locked before the bookings are counted: a transition either committed before the count
+    // (and is in it) or applies its delta after this transaction, on top of the corrected row
+    private boolean reconcile(Long establishmentId) {
+        statsRepository.ensureRow(establishmentId);
+        EstablishmentBookingStats row = statsRepository.lockByEstablishmentId(establishmentId)
+            .orElseThrow(() -> new RuntimeException("Booking stats row missing for establishment " + establishmentId));
+        List<Object[]> result = statsRepository.countFromBookings(establishmentId);
+        Object[] counts = result.get(0);
+
+        long pending = ((Number) counts[0]).longValue();
+        long confirmed = ((Number) counts[1]).longValue();
+        long completed = ((Number) counts[2]).longValue();
+        long cancelled = ((Number) counts[3]).longValue();
+        BigDecimal confirmedAmount = toAmount(counts[4]);
+        BigDecimal paidRevenue = toAmount(counts[5]);
+        BigDecimal refundsOwed = toAmount(counts[6]);
+
+        boolean drifted = row.getPendingCount() != pending || row.getConfirmedCount() != confirmed
+            || row.getCompletedCount() != completed || row.getCancelledCount() != cancelled
+            || row.getConfirmedAmount().compareTo(confirmedAmount) != 0
+            || row.getPaidRevenue().compareTo(paidRevenue) != 0
+            || row.getRefundsOwed().compareTo(refundsOwed) != 0;
+        if (drifted) {
+            row.setPendingCount(pending);
+            row.setConfirmedCount(confirmed);
+            row.setCompletedCount(completed);
+            row.setCancelledCount(cancelled);
+            row.setConfirmedAmount(confirmedAmount);
+            row.setPaidRevenue(paidRevenue);
+            row.setRefundsOwed(refundsOwed);
+            row.setUpdatedAt(LocalDateTime.now());
+        }
+        row.setReconciledAt(LocalDateTime.now());
+        return drifted;
+    }
+
+    private static BigDecimal toAmount(Object value) {
+        return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+}
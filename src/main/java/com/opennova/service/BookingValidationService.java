@@ -4,16 +4,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.opennova.model.Booking;
 import com.opennova.model.Establishment;
-import com.opennova.repository.BookingRepository;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.List;
 
 @Service
 public class BookingValidationService {
 
     @Autowired
-    private BookingRepository bookingRepository;
+    private SlotInventoryService slotInventoryService;
 
     public static class ValidationResult {
         private boolean valid;
@@ -40,10 +38,8 @@ public class BookingValidationService {
         public void addMetadata(String key, Object value) { this.metadata.put(key, value); }
     }
 
-    public boolean isTimeSlotAvailable(Long establishmentId, String visitingTime) {
-        List<Booking> existingBookings = bookingRepository.findByEstablishmentIdAndVisitingTime(
-            establishmentId, visitingTime);
-        return existingBookings.isEmpty();
+    public boolean isTimeSlotAvailable(Establishment establishment, String visitingDate, String visitingTime) {
+        return slotInventoryService.hasCapacity(establishment, visitingDate, visitingTime);
     }
 
     public boolean isValidBookingTime(String time, Establishment establishment) {
@@ -105,8 +101,8 @@ public class BookingValidationService {
             return "Invalid booking time";
         }
         
-        if (!isTimeSlotAvailable(booking.getEstablishment().getId(), 
-                                booking.getVisitingTime())) {
+        if (!isTimeSlotAvailable(booking.getEstablishment(), 
+                                booking.getVisitingDate(), booking.getVisitingTime())) {
             return "Time slot is not available";
         }
         
@@ -0,0 +1,271 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.RefundStatus;
+import com.opennova.repository.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owner actions on many bookings at once. The whole list is locked and checked in one query, changed
+ * in one transaction and flushed as batched UPDATEs; QR codes for confirmed bookings are rendered in
+ * parallel on a small pool, and customer notifications go out together once the transaction commits.
+ */
+@Service
+public class BulkBookingService {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private RealTimeUpdateService realTimeUpdateService;
+
+    @Autowired
+    private SlotInventoryService slotInventoryService;
+
+    @Autowired
+    private BookingLifecycleService bookingLifecycleService;
+
+    @Autowired
+    private BookingStatsService bookingStatsService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.bookings.bulk-max-items:500}")
+    private int maxItems;
+
+    @Value("${app.bookings.bulk-qr-threads:4}")
+    private int qrThreads;
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(1, qrThreads), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-booking-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Confirm, reject or complete the given bookings of one establishment.
+     * Bookings that cannot take the action are reported and skipped; the rest are applied together.
+     */
+    @Transactional
+    public Map<String, Object> apply(Long establishmentId, BookingStateMachine.Action action, List<Long> bookingIds, String reason) {
+        if (action != BookingStateMachine.Action.CONFIRM && action != BookingStateMachine.Action.REJECT
+                && action != BookingStateMachine.Action.COMPLETE) {
+            throw new RuntimeException("Unsupported bulk action: " + action);
+        }
+        if (bookingIds == null || bookingIds.isEmpty()) {
+            throw new RuntimeException("No bookings given");
+        }
+        Set<Long> ids = new LinkedHashSet<>(bookingIds);
+        ids.remove(null);
+        if (ids.size() > maxItems) {
+            throw new RuntimeException("At most " + maxItems + " bookings can be changed at once");
+        }
+        if (action == BookingStateMachine.Action.REJECT && (reason == null || reason.trim().isEmpty())) {
+            throw new RuntimeException("Rejection reason is required");
+        }
+
+        Map<Long, Booking> locked = new HashMap<>();
+        for (Booking booking : bookingRepository.lockAllByIdInAndEstablishmentId(ids, establishmentId)) {
+            locked.put(booking.getId(), booking);
+        }
+        if (!locked.isEmpty()) {
+            // Same persistence context: fills in user, establishment and owner for the QR codes and mails
+            bookingRepository.findAllWithDetailsByIdIn(locked.keySet());
+        }
+
+        Map<Long, Map<String, Object>> results = new LinkedHashMap<>();
+        List<Booking> changed = new ArrayList<>();
+        BookingStatsService.Delta statsDelta = new BookingStatsService.Delta();
+        LocalDateTime now = LocalDateTime.now();
+        for (Long id : ids) {
+            Booking booking = locked.get(id);
+            if (booking == null) {
+                results.put(id, result(id, false, null, "Booking not found"));
+                continue;
+            }
+            BookingStatus from = booking.getStatus();
+            if (!action.allowedFrom(from)) {
+                results.put(id, result(id, false, from, "Cannot " + action.name().toLowerCase() + " booking with status: " + from));
+                continue;
+            }
+            BookingStatsService.Snapshot before = BookingStatsService.Snapshot.of(booking);
+            booking.setStatus(action.getTarget());
+            booking.setUpdatedAt(now);
+            if (action == BookingStateMachine.Action.CONFIRM) {
+                booking.setConfirmedAt(now);
+            } else if (action == BookingStateMachine.Action.REJECT) {
+                // Rejected bookings get full refund
+                booking.setCancelledAt(now);
+                booking.setCancellationReason(reason);
+                booking.setRefundStatus(RefundStatus.APPROVED);
+            }
+            statsDelta.change(before, BookingStatsService.Snapshot.of(booking));
+            changed.add(booking);
+            results.put(id, result(id, true, action.getTarget(), null));
+        }
+
+        if (action == BookingStateMachine.Action.CONFIRM) {
+            renderQrCodes(changed, results);
+            for (Booking booking : changed) {
+                bookingLifecycleService.bookingConfirmed(booking);
+            }
+        }
+        // One round of batched UPDATEs for everything changed above
+        entityManager.flush();
+        // and one counters update for the whole batch
+        Map<Long, BookingStatsService.Delta> statsDeltas = new HashMap<>();
+        statsDeltas.put(establishmentId, statsDelta);
+        bookingStatsService.apply(statsDeltas);
+        // Once per customer, however many of their bookings the batch changed
+        userStatsService.invalidateCustomersOf(changed);
+        if (action == BookingStateMachine.Action.REJECT) {
+            // After the flush: the slot updates are native queries and would flush each booking on its own
+            for (Booking booking : changed) {
+                slotInventoryService.release(establishmentId, booking.getVisitingDate(), booking.getVisitingTime());
+            }
+        }
+
+        notifyAfterCommit(action, changed, reason);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("action", action.name());
+        report.put("requested", ids.size());
+        report.put("succeeded", changed.size());
+        report.put("failed", ids.size() - changed.size());
+        report.put("results", new ArrayList<>(results.values()));
+        return report;
+    }
+
+    // QR rendering is CPU bound; the workers only read the already loaded bookings
+    private void renderQrCodes(List<Booking> bookings, Map<Long, Map<String, Object>> results) {
+        List<Future<String>> codes = new ArrayList<>();
+        for (Booking booking : bookings) {
+            codes.add(workers.submit(() -> qrCodeService.generateBookingQRCode(booking)));
+        }
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            try {
+                booking.setQrCode(codes.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while generating QR codes");
+            } catch (Exception e) {
+                // Same as a single confirmation: the booking stays confirmed without a QR code
+                System.err.println("Failed to generate QR code for booking " + booking.getId() + ": " + e.getMessage());
+                results.get(booking.getId()).put("message", "Confirmed without QR code");
+            }
+        }
+    }
+
+    private void notifyAfterCommit(BookingStateMachine.Action action, List<Booking> bookings, String reason) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        Runnable notify = () -> workers.execute(() -> sendNotifications(action, bookings, reason));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notify.run();
+                }
+            });
+        } else {
+            notify.run();
+        }
+    }
+
+    // One task per batch: live updates first so dashboards settle, then the customer mails
+    private void sendNotifications(BookingStateMachine.Action action, List<Booking> bookings, String reason) {
+        for (Booking booking : bookings) {
+            realTimeUpdateService.notifyBookingUpdate(booking);
+        }
+        for (Booking booking : bookings) {
+            try {
+                switch (action) {
+                    case CONFIRM:
+                        if (booking.getQrCode() != null && !booking.getQrCode().trim().isEmpty()) {
+                            emailService.sendBookingConfirmationWithQR(booking);
+                        } else {
+                            emailService.sendBookingConfirmation(booking);
+                        }
+                        break;
+                    case REJECT:
+                        emailService.sendBookingRejectionWithDetails(booking, reason);
+                        notificationService.notifyBookingStatusChange(booking, BookingStatus.PENDING, BookingStatus.CANCELLED);
+                        break;
+                    case COMPLETE:
+                        notificationService.sendUserNotification(
+                            booking.getUser().getId(),
+                            "Visit Completed",
+                            "Your visit to " + booking.getEstablishment().getName() + " has been marked as completed.",
+                            NotificationService.NotificationType.BOOKING_CONFIRMATION
+                        );
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to notify booking " + booking.getId() + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Sent bulk " + action + " notifications for " + bookings.size() + " bookings");
+    }
+
+    private static Map<String, Object> result(Long bookingId, boolean success, BookingStatus status, String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("bookingId", bookingId);
+        result.put("success", success);
+        result.put("status", status);
+        if (message != null) {
+            result.put("message", message);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,252 @@
+package com.opennova.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.model.User;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open chat WebSocket connections, indexed by user email and by subscribed chat room.
+ * Every connection has a bounded outbound queue written with one async send in flight at a time;
+ * a connection that lets its queue fill up is closed rather than buffered without limit.
+ */
+@Service
+public class ChatPushService {
+
+    private static final CloseReason SLOW_CONSUMER =
+        new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Outbound queue full");
+
+    @Value("${app.chat.ws.queue-size:128}")
+    private int queueSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Set<Connection>> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<Connection>> byRoom = new ConcurrentHashMap<>();
+
+    private final AtomicLong pushed = new AtomicLong();
+    private final AtomicLong slowConsumersClosed = new AtomicLong();
+
+    /**
+     * One authenticated socket
+     */
+    public final class Connection {
+        private final Session session;
+        private final User user;
+        private final Set<String> rooms = ConcurrentHashMap.newKeySet();
+        private final ArrayBlockingQueue<String> outbound;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(Session session, User user) {
+            this.session = session;
+            this.user = user;
+            this.outbound = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public Session getSession() {
+            return session;
+        }
+
+        private void enqueue(String frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (!outbound.offer(frame)) {
+                slowConsumersClosed.incrementAndGet();
+                close(SLOW_CONSUMER);
+                return;
+            }
+            flush();
+        }
+
+        // At most one async send is in flight; its completion handler sends the next queued frame
+        private void flush() {
+            if (closed.get() || !sending.compareAndSet(false, true)) {
+                return;
+            }
+            String frame = outbound.poll();
+            if (frame == null) {
+                sending.set(false);
+                // A frame may have been queued between the poll and releasing the flag
+                if (!outbound.isEmpty()) {
+                    flush();
+                }
+                return;
+            }
+            try {
+                session.getAsyncRemote().sendText(frame, result -> {
+                    sending.set(false);
+                    if (result.isOK()) {
+                        pushed.incrementAndGet();
+                        flush();
+                    } else {
+                        close(null);
+                    }
+                });
+            } catch (Exception e) {
+                sending.set(false);
+                close(null);
+            }
+        }
+
+        private void close(CloseReason reason) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            outbound.clear();
+            unregister(this);
+            if (reason != null && session.isOpen()) {
+                try {
+                    session.close(reason);
+                } catch (Exception ignored) {
+                    // Socket already gone
+                }
+            }
+        }
+    }
+
+    public Connection register(Session session, User user) {
+        Connection connection = new Connection(session, user);
+        addTo(byUser, user.getEmail(), connection);
+        return connection;
+    }
+
+    public void unregister(Connection connection) {
+        connection.closed.set(true);
+        removeFrom(byUser, connection.user.getEmail(), connection);
+        for (String room : connection.rooms) {
+            removeFrom(byRoom, room, connection);
+        }
+        connection.rooms.clear();
+    }
+
+    public void subscribe(Connection connection, String chatRoomId) {
+        if (connection.rooms.add(chatRoomId)) {
+            addTo(byRoom, chatRoomId, connection);
+        }
+    }
+
+    public void unsubscribe(Connection connection, String chatRoomId) {
+        if (connection.rooms.remove(chatRoomId)) {
+            removeFrom(byRoom, chatRoomId, connection);
+        }
+    }
+
+    /**
+     * Deliver a saved message to both participants and to anyone watching the room
+     */
+    public void pushMessage(String chatRoomId, String senderEmail, String recipientEmail, Map<String, Object> messageView) {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "message");
+        frame.put("chatMessage", messageView);
+        broadcast(targets(chatRoomId, senderEmail, recipientEmail), frame);
+    }
+
+    /**
+     * Tell the other participant (and room watchers) which of their messages were read
+     */
+    public void pushReadReceipt(String chatRoomId, String readerEmail, String otherEmail, List<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "read");
+        frame.put("chatRoomId", chatRoomId);
+        frame.put("readerEmail", readerEmail);
+        frame.put("messageIds", messageIds);
+        broadcast(targets(chatRoomId, readerEmail, otherEmail), frame);
+    }
+
+    /**
+     * Reply to a single connection (acks, errors)
+     */
+    public void send(Connection connection, Map<String, Object> frame) {
+        String text = serialize(frame);
+        if (text != null) {
+            connection.enqueue(text);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        int connections = 0;
+        for (Set<Connection> set : byUser.values()) {
+            connections += set.size();
+        }
+        stats.put("connections", connections);
+        stats.put("users", byUser.size());
+        stats.put("watchedRooms", byRoom.size());
+        stats.put("framesSent", pushed.get());
+        stats.put("slowConsumersClosed", slowConsumersClosed.get());
+        return stats;
+    }
+
+    private Set<Connection> targets(String chatRoomId, String email, String otherEmail) {
+        Set<Connection> targets = new LinkedHashSet<>();
+        addAll(targets, byRoom.get(chatRoomId));
+        addAll(targets, email != null ? byUser.get(email) : null);
+        addAll(targets, otherEmail != null ? byUser.get(otherEmail) : null);
+        return targets;
+    }
+
+    // Serialized once, then queued on every target connection
+    private void broadcast(Set<Connection> targets, Map<String, Object> frame) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        String text = serialize(frame);
+        if (text == null) {
+            return;
+        }
+        for (Connection connection : targets) {
+            connection.enqueue(text);
+        }
+    }
+
+    private String serialize(Map<String, Object> frame) {
+        try {
+            return objectMapper.writeValueAsString(frame);
+        } catch (Exception e) {
+            System.err.println("Failed to serialize chat frame: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void addAll(Set<Connection> targets, Set<Connection> source) {
+        if (source != null) {
+            targets.addAll(source);
+        }
+    }
+
+    // Add and remove both run inside compute() so a set is never dropped while a connection is being added to it
+    private static void addTo(Map<String, Set<Connection>> index, String key, Connection connection) {
+        index.compute(key, (k, set) -> {
+            Set<Connection> connections = set != null ? set : ConcurrentHashMap.newKeySet();
+            connections.add(connection);
+            return connections;
+        });
+    }
+
+    private static void removeFrom(Map<String, Set<Connection>> index, String key, Connection connection) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
@@ -8,7 +8,10 @@ import com.opennova.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,6 +23,9 @@ public class ChatService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ChatPushService chatPushService;
+
     public ChatMessage sendMessage(User sender, String message, String recipientEmail) {
         // Generate chat room ID
         String chatRoomId = generateChatRoomId(sender.getEmail(), recipientEmail);
@@ -28,7 +34,9 @@ public class ChatService {
         User recipient = userRepository.findByEmail(recipientEmail).orElse(null);
         
         ChatMessage chatMessage = new ChatMessage(sender, recipient, message, chatRoomId);
-        return chatMessageRepository.save(chatMessage);
+        ChatMessage saved = chatMessageRepository.save(chatMessage);
+        chatPushService.pushMessage(chatRoomId, sender.getEmail(), recipientEmail, toMessageView(saved));
+        return saved;
     }
 
     public ChatMessage sendMessageToSupport(User sender, String message) {
@@ -38,7 +46,67 @@ public class ChatService {
         String chatRoomId = generateChatRoomId(sender.getEmail(), supportUser.getEmail());
         
         ChatMessage chatMessage = new ChatMessage(sender, supportUser, message, chatRoomId);
-        return chatMessageRepository.save(chatMessage);
+        ChatMessage saved = chatMessageRepository.save(chatMessage);
+        chatPushService.pushMessage(chatRoomId, sender.getEmail(), supportUser.getEmail(), toMessageView(saved));
+        return saved;
+    }
+
+    /**
+     * Support staff replying in a given room write to the other participant; everyone else writes to support
+     */
+    public ChatMessage sendChatMessage(User sender, String message, String chatRoomId) {
+        if (chatRoomId != null && !chatRoomId.trim().isEmpty() && isSupportStaff(sender)) {
+            System.out.println("Admin/Owner sending message to chat room: " + chatRoomId);
+            String recipientEmail = getOtherParticipant(chatRoomId, sender.getEmail());
+            if (recipientEmail == null) {
+                // Staff answering a room they are not part of write to its first participant
+                int separator = chatRoomId.indexOf('_');
+                recipientEmail = separator > 0 ? chatRoomId.substring(0, separator) : null;
+            }
+            if (recipientEmail != null) {
+                return sendMessage(sender, message, recipientEmail);
+            }
+            System.out.println("Could not find recipient in chat room, falling back to support");
+        }
+        return sendMessageToSupport(sender, message);
+    }
+
+    public boolean isSupportStaff(User user) {
+        UserRole role = user.getRole();
+        return role == UserRole.ADMIN || role == UserRole.OWNER || role == UserRole.HOTEL_OWNER
+            || role == UserRole.HOSPITAL_OWNER || role == UserRole.SHOP_OWNER;
+    }
+
+    /**
+     * Participants of a room and support staff may follow it
+     */
+    public boolean canAccessRoom(User user, String chatRoomId) {
+        return chatRoomId != null
+            && (isSupportStaff(user) || getOtherParticipant(chatRoomId, user.getEmail()) != null);
+    }
+
+    // Room ids are "<email>_<email>"; returns the email that is not the given one, or null if it is not in the room
+    public String getOtherParticipant(String chatRoomId, String email) {
+        if (chatRoomId.startsWith(email + "_")) {
+            return chatRoomId.substring(email.length() + 1);
+        }
+        if (chatRoomId.endsWith("_" + email)) {
+            return chatRoomId.substring(0, chatRoomId.length() - email.length() - 1);
+        }
+        return null;
+    }
+
+    public Map<String, Object> toMessageView(ChatMessage message) {
+        Map<String, Object> formatted = new HashMap<>();
+        formatted.put("id", message.getId());
+        formatted.put("message", message.getMessage());
+        formatted.put("sender", message.getSender().getRole().toString().toLowerCase());
+        formatted.put("senderName", message.getSender().getName());
+        formatted.put("senderEmail", message.getSender().getEmail());
+        formatted.put("timestamp", message.getCreatedAt().toString());
+        formatted.put("isRead", message.getIsRead());
+        formatted.put("chatRoomId", message.getChatRoomId());
+        return formatted;
     }
 
     public List<ChatMessage> getChatHistory(String chatRoomId) {
@@ -71,13 +139,18 @@ public class ChatService {
     }
 
     public void markMessagesAsRead(String chatRoomId, User recipient) {
-        List<ChatMessage> unreadMessages = chatMessageRepository.findUnreadMessages(recipient);
-        unreadMessages.stream()
-            .filter(msg -> msg.getChatRoomId().equals(chatRoomId))
-            .forEach(msg -> {
-                msg.setIsRead(true);
-                chatMessageRepository.save(msg);
-            });
+        List<ChatMessage> unreadMessages = chatMessageRepository.findUnreadMessagesInRoom(chatRoomId, recipient);
+        if (unreadMessages.isEmpty()) {
+            return;
+        }
+        List<Long> messageIds = new ArrayList<>(unreadMessages.size());
+        for (ChatMessage msg : unreadMessages) {
+            msg.setIsRead(true);
+            messageIds.add(msg.getId());
+        }
+        chatMessageRepository.saveAll(unreadMessages);
+        chatPushService.pushReadReceipt(chatRoomId, recipient.getEmail(),
+            getOtherParticipant(chatRoomId, recipient.getEmail()), messageIds);
     }
 
     private User findAvailableSupport() {
@@ -20,6 +20,12 @@ public class CollectionService {
     @Autowired
     private EstablishmentRepository establishmentRepository;
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private EstablishmentDetailService establishmentDetailService;
+
     public List<Collection> getCollectionsByEstablishmentId(Long establishmentId) {
         return collectionRepository.findActiveCollectionsByEstablishmentIdOrderByCreatedAtDesc(establishmentId);
     }
@@ -31,7 +37,10 @@ public class CollectionService {
             collection.setCreatedAt(LocalDateTime.now());
             collection.setUpdatedAt(LocalDateTime.now());
             collection.setIsActive(true);
-            return collectionRepository.save(collection);
+            Collection savedCollection = collectionRepository.save(collection);
+            searchIndexService.indexCollection(savedCollection);
+            establishmentDetailService.evict(savedCollection.getEstablishment().getId());
+            return savedCollection;
         }
         throw new RuntimeException("Establishment not found");
     }
@@ -57,7 +66,10 @@ public class CollectionService {
             collection.setImagePath(collectionData.getImagePath());
             collection.setUpdatedAt(LocalDateTime.now());
             
-            return collectionRepository.save(collection);
+            Collection savedCollection = collectionRepository.save(collection);
+            searchIndexService.indexCollection(savedCollection);
+            establishmentDetailService.evict(savedCollection.getEstablishment().getId());
+            return savedCollection;
         }
         throw new RuntimeException("Collection item not found");
     }
@@ -75,6 +87,8 @@ public class CollectionService {
             collection.setIsActive(false);
             collection.setUpdatedAt(LocalDateTime.now());
             collectionRepository.save(collection);
+            searchIndexService.remove(SearchIndexService.DocumentKind.COLLECTION, collectionId);
+            establishmentDetailService.evict(establishmentId);
             return true;
         }
         return false;
@@ -20,6 +20,12 @@ public class DoctorService {
     @Autowired
     private EstablishmentRepository establishmentRepository;
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private EstablishmentDetailService establishmentDetailService;
+
     public List<Doctor> getDoctorsByEstablishmentId(Long establishmentId) {
         return doctorRepository.findActiveDoctorsByEstablishmentIdOrderByCreatedAtDesc(establishmentId);
     }
@@ -31,7 +37,10 @@ public class DoctorService {
             doctor.setCreatedAt(LocalDateTime.now());
             doctor.setUpdatedAt(LocalDateTime.now());
             doctor.setIsActive(true);
-            return doctorRepository.save(doctor);
+            Doctor savedDoctor = doctorRepository.save(doctor);
+            searchIndexService.indexDoctor(savedDoctor);
+            establishmentDetailService.evict(savedDoctor.getEstablishment().getId());
+            return savedDoctor;
         }
         throw new RuntimeException("Establishment not found");
     }
@@ -53,7 +62,10 @@ public class DoctorService {
             doctor.setImagePath(doctorData.getImagePath());
             doctor.setUpdatedAt(LocalDateTime.now());
             
-            return doctorRepository.save(doctor);
+            Doctor savedDoctor = doctorRepository.save(doctor);
+            searchIndexService.indexDoctor(savedDoctor);
+            establishmentDetailService.evict(savedDoctor.getEstablishment().getId());
+            return savedDoctor;
         }
         throw new RuntimeException("Doctor not found");
     }
@@ -71,6 +83,8 @@ public class DoctorService {
             doctor.setIsActive(false);
             doctor.setUpdatedAt(LocalDateTime.now());
             doctorRepository.save(doctor);
+            searchIndexService.remove(SearchIndexService.DocumentKind.DOCTOR, doctorId);
+            establishmentDetailService.evict(establishmentId);
             return true;
         }
         return false;
@@ -526,6 +526,17 @@ public class EmailService {
 
     @Async
     public void sendBookingConfirmation(com.opennova.model.Booking booking) {
+        try {
+            sendBookingConfirmationSync(booking);
+        } catch (Exception e) {
+            System.err.println("Failed to send booking confirmation: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Synchronous variant that throws when the mail cannot be sent, for callers that retry
+     */
+    public void sendBookingConfirmationSync(com.opennova.model.Booking booking) {
         try {
             String subject = "✅ Booking Created Successfully - " + booking.getEstablishment().getName();
             
@@ -590,9 +601,9 @@ public class EmailService {
                 booking.getEstablishment().getEmail() != null ? booking.getEstablishment().getEmail() : "Email not available"
             );
             
-            sendEmail(booking.getUserEmail(), subject, body);
+            sendEmailSync(booking.getUserEmail(), subject, body);
         } catch (Exception e) {
-            System.err.println("Failed to send booking confirmation: " + e.getMessage());
+            throw new RuntimeException("Failed to send booking confirmation: " + e.getMessage(), e);
         }
     }
 
@@ -1166,6 +1177,14 @@ public class EmailService {
 
     @Async
     public void sendNewBookingNotificationToOwner(com.opennova.model.Booking booking) {
+        try {
+            sendNewBookingNotificationToOwnerSync(booking);
+        } catch (Exception e) {
+            System.err.println("Failed to send new booking notification to owner: " + e.getMessage());
+        }
+    }
+
+    public void sendNewBookingNotificationToOwnerSync(com.opennova.model.Booking booking) {
         try {
             String subject = "🔔 New Booking Received - " + booking.getEstablishment().getName();
             
@@ -1220,11 +1239,10 @@ public class EmailService {
                 "http://localhost:3000" // You can make this configurable
             );
             
-            sendEmail(booking.getEstablishment().getOwner().getEmail(), subject, body);
+            sendEmailSync(booking.getEstablishment().getOwner().getEmail(), subject, body);
             System.out.println("✅ Sent new booking notification to owner: " + booking.getEstablishment().getOwner().getEmail());
         } catch (Exception e) {
-            System.err.println("Failed to send new booking notification to owner: " + e.getMessage());
-            e.printStackTrace();
+            throw new RuntimeException("Failed to send new booking notification to owner: " + e.getMessage(), e);
         }
     }
 
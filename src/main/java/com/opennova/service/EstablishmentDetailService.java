@@ -0,0 +1,204 @@
+package com.opennova.service;
+
+import com.opennova.model.Collection;
+import com.opennova.model.Doctor;
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.Menu;
+import com.opennova.repository.CollectionRepository;
+import com.opennova.repository.DoctorRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read model behind the public establishment detail page.
+ * Loaded with at most two queries (establishment + menus, then doctors or collections) and cached per establishment.
+ */
+@Service
+public class EstablishmentDetailService {
+
+    private static final int MAX_CACHED_DETAILS = 2000;
+
+    private static final Map<String, Object> DEFAULT_MENU_SCHEDULE = buildDefaultMenuSchedule();
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private CollectionRepository collectionRepository;
+
+    private final Map<Long, Map<String, Object>> cache = new ConcurrentHashMap<>();
+    // Bumped on every eviction so a load that raced an owner edit is not cached
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+    // Bumped by evictAll, which covers ids that have no generation yet
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * The detail view for an establishment, or null if it does not exist
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDetail(Long establishmentId) {
+        if (establishmentId == null) {
+            return null;
+        }
+        Map<String, Object> cached = cache.get(establishmentId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long startEpoch = epoch.get();
+        long generation = generation(establishmentId).get();
+        Map<String, Object> detail = load(establishmentId);
+        if (detail == null) {
+            return null;
+        }
+        if (cache.size() >= MAX_CACHED_DETAILS) {
+            Iterator<Long> keys = cache.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        // The check and the put run under the key's lock, which evict takes too, so an edit cannot slip in between
+        cache.compute(establishmentId, (id, current) ->
+            epoch.get() == startEpoch && generation(id).get() == generation ? detail : current);
+        return detail;
+    }
+
+    public void evict(Long establishmentId) {
+        if (establishmentId == null) {
+            return;
+        }
+        cache.compute(establishmentId, (id, current) -> {
+            generation(id).incrementAndGet();
+            return null;
+        });
+    }
+
+    public void evictAll() {
+        epoch.incrementAndGet();
+        cache.clear();
+    }
+
+    private AtomicLong generation(Long establishmentId) {
+        return generations.computeIfAbsent(establishmentId, id -> new AtomicLong());
+    }
+
+    private Map<String, Object> load(Long establishmentId) {
+        // Round trip 1: establishment with its menus fetch-joined
+        Establishment establishment = establishmentRepository.findWithMenusById(establishmentId).orElse(null);
+        if (establishment == null) {
+            return null;
+        }
+
+        Map<String, Object> detail = new HashMap<>();
+        detail.put("id", establishment.getId());
+        detail.put("name", establishment.getName());
+        detail.put("type", establishment.getType().toString());
+        detail.put("address", establishment.getAddress());
+        detail.put("contactNumber", establishment.getContactNumber());
+        detail.put("operatingHours", establishment.getOperatingHours());
+        detail.put("weeklySchedule", establishment.getWeeklySchedule());
+        detail.put("status", establishment.getStatus().toString());
+        detail.put("upiId", establishment.getUpiId());
+        detail.put("email", establishment.getEmail());
+        detail.put("latitude", establishment.getLatitude());
+        detail.put("longitude", establishment.getLongitude());
+        detail.put("profileImagePath", establishment.getProfileImagePath());
+
+        List<Menu> menus = new ArrayList<>();
+        if (establishment.getMenus() != null) {
+            for (Menu menu : establishment.getMenus()) {
+                if (Boolean.TRUE.equals(menu.getIsActive())) {
+                    menus.add(menu);
+                }
+            }
+        }
+        menus.sort(Comparator.comparing(Menu::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder())));
+
+        List<Map<String, Object>> menuItems = new ArrayList<>();
+        for (Menu menu : menus) {
+            Map<String, Object> menuItem = new HashMap<>();
+            menuItem.put("id", menu.getId());
+            menuItem.put("name", menu.getName());
+            menuItem.put("description", menu.getDescription());
+            menuItem.put("price", menu.getPrice());
+            menuItem.put("isAvailable", menu.getIsAvailable());
+            menuItem.put("availabilityTime", menu.getAvailabilityTime());
+            menuItem.put("category", menu.getCategory());
+            menuItem.put("preparationTime", menu.getPreparationTime());
+            menuItem.put("isVegetarian", menu.getIsVegetarian());
+            menuItem.put("isSpecial", menu.getIsSpecial());
+            menuItem.put("imagePath", menu.getImagePath());
+            menuItem.put("availabilitySchedule", DEFAULT_MENU_SCHEDULE);
+            menuItems.add(Collections.unmodifiableMap(menuItem));
+        }
+        detail.put("menuItems", Collections.unmodifiableList(menuItems));
+
+        // Round trip 2: only hospitals list doctors and only shops list collections
+        if (establishment.getType() == EstablishmentType.HOSPITAL) {
+            List<Map<String, Object>> doctorItems = new ArrayList<>();
+            for (Doctor doctor : doctorRepository.findActiveDoctorsByEstablishmentIdOrderByCreatedAtDesc(establishmentId)) {
+                Map<String, Object> doctorItem = new HashMap<>();
+                doctorItem.put("id", doctor.getId());
+                doctorItem.put("name", doctor.getName());
+                doctorItem.put("specialization", doctor.getSpecialization());
+                doctorItem.put("consultationFee", doctor.getPrice()); // Use consultationFee for frontend compatibility
+                doctorItem.put("price", doctor.getPrice()); // Keep price for backward compatibility
+                doctorItem.put("availabilityTime", doctor.getAvailabilityTime());
+                doctorItem.put("available", true);
+                doctorItem.put("imagePath", doctor.getImagePath());
+                doctorItems.add(Collections.unmodifiableMap(doctorItem));
+            }
+            detail.put("doctors", Collections.unmodifiableList(doctorItems));
+        } else if (establishment.getType() == EstablishmentType.SHOP) {
+            List<Map<String, Object>> collectionItems = new ArrayList<>();
+            for (Collection collection : collectionRepository.findActiveCollectionsByEstablishmentIdOrderByCreatedAtDesc(establishmentId)) {
+                Map<String, Object> collectionItem = new HashMap<>();
+                collectionItem.put("id", collection.getId());
+                collectionItem.put("itemName", collection.getItemName());
+                collectionItem.put("description", collection.getDescription());
+                collectionItem.put("price", collection.getPrice());
+                collectionItem.put("sizes", collection.getSizes());
+                collectionItem.put("color", collection.getColors());
+                collectionItem.put("fabric", collection.getFabric());
+                collectionItem.put("brand", collection.getBrand());
+                collectionItem.put("stock", collection.getStock());
+                collectionItem.put("imagePath", collection.getImagePath());
+                collectionItem.put("isSpecialOffer", collection.getIsSpecialOffer());
+                collectionItems.add(Collections.unmodifiableMap(collectionItem));
+            }
+            detail.put("collections", Collections.unmodifiableList(collectionItems));
+        }
+
+        return Collections.unmodifiableMap(detail);
+    }
+
+    private static Map<String, Object> buildDefaultMenuSchedule() {
+        Map<String, Object> schedule = new HashMap<>();
+        schedule.put("monday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
+        schedule.put("tuesday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
+        schedule.put("wednesday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
+        schedule.put("thursday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
+        schedule.put("friday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
+        schedule.put("saturday", Map.of("isAvailable", true, "startTime", "09:00", "endTime", "21:00"));
+        schedule.put("sunday", Map.of("isAvailable", true, "startTime", "10:00", "endTime", "20:00"));
+        return Collections.unmodifiableMap(schedule);
+    }
+}
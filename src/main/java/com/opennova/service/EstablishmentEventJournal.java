@@ -0,0 +1,153 @@
+package com.opennova.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, sequenced journal of recent events per establishment.
+ * Clients keep the last sequence number they saw and ask for everything after it;
+ * once their cursor has fallen off the ring (or the server restarted) they are told to resync.
+ */
+@Service
+public class EstablishmentEventJournal {
+
+    public enum EventType {
+        BOOKING_CREATED(true),
+        BOOKING_CONFIRMED(true),
+        BOOKING_CANCELLED(true),
+        BOOKING_UPDATED(true),
+        STATUS_CHANGED(false),
+        SCHEDULE_CHANGED(false);
+
+        private final boolean bookingEvent;
+
+        EventType(boolean bookingEvent) {
+            this.bookingEvent = bookingEvent;
+        }
+
+        public boolean isBookingEvent() {
+            return bookingEvent;
+        }
+    }
+
+    @Value("${app.updates.journal-capacity:256}")
+    private int capacity;
+
+    // Sequence numbers restart with the process; the epoch lets clients notice that
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final Map<Long, Ring> journals = new ConcurrentHashMap<>();
+
+    /**
+     * One journal entry; the payload is what clients receive, with seq and type included
+     */
+    public static final class Entry {
+        private final long seq;
+        private final EventType type;
+        private final Map<String, Object> payload;
+
+        private Entry(long seq, EventType type, Map<String, Object> payload) {
+            this.seq = seq;
+            this.type = type;
+            this.payload = payload;
+        }
+
+        public long getSeq() { return seq; }
+        public EventType getType() { return type; }
+        public Map<String, Object> getPayload() { return payload; }
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public Entry append(long establishmentId, EventType type, Map<String, Object> data) {
+        return journals.computeIfAbsent(establishmentId, id -> new Ring(Math.max(1, capacity)))
+            .append(establishmentId, type, data);
+    }
+
+    /**
+     * Events after the given sequence number. Booking events are left out when bookings is false.
+     * resyncRequired is set when events after the cursor are no longer held or the epoch changed.
+     */
+    public Map<String, Object> getUpdatesSince(long establishmentId, long since, String clientEpoch, boolean bookings) {
+        Ring ring = journals.get(establishmentId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("establishmentId", establishmentId);
+        response.put("epoch", epoch);
+
+        List<Map<String, Object>> events = new ArrayList<>();
+        boolean resync;
+        long latestSeq = 0;
+        if (clientEpoch != null && !clientEpoch.isEmpty() && !clientEpoch.equals(epoch)) {
+            resync = true;
+            latestSeq = ring != null ? ring.latestSeq() : 0;
+        } else if (ring == null) {
+            // Nothing recorded since startup; any positive cursor predates this process
+            resync = since > 0;
+        } else {
+            List<Entry> entries = new ArrayList<>();
+            latestSeq = ring.readSince(since, entries);
+            resync = latestSeq < 0;
+            latestSeq = Math.abs(latestSeq);
+            if (!resync) {
+                for (Entry entry : entries) {
+                    if (bookings || !entry.getType().isBookingEvent()) {
+                        events.add(entry.getPayload());
+                    }
+                }
+            }
+        }
+
+        response.put("latestSeq", latestSeq);
+        response.put("resyncRequired", resync);
+        response.put("events", events);
+        return response;
+    }
+
+    public void remove(long establishmentId) {
+        journals.remove(establishmentId);
+    }
+
+    private static final class Ring {
+        private final Entry[] slots;
+        private long lastSeq;
+
+        Ring(int capacity) {
+            this.slots = new Entry[capacity];
+        }
+
+        synchronized Entry append(long establishmentId, EventType type, Map<String, Object> data) {
+            long seq = ++lastSeq;
+            Map<String, Object> payload = new HashMap<>(data);
+            payload.put("seq", seq);
+            payload.put("type", type.name());
+            payload.put("establishmentId", establishmentId);
+            Entry entry = new Entry(seq, type, Collections.unmodifiableMap(payload));
+            slots[(int) ((seq - 1) % slots.length)] = entry;
+            return entry;
+        }
+
+        synchronized long latestSeq() {
+            return lastSeq;
+        }
+
+        // Copies entries after since into out and returns the latest seq, negated if the cursor is unusable
+        synchronized long readSince(long since, List<Entry> out) {
+            long oldest = Math.max(1, lastSeq - slots.length + 1);
+            if (since > lastSeq || since < oldest - 1) {
+                return -lastSeq;
+            }
+            for (long seq = Math.max(since + 1, oldest); seq <= lastSeq; seq++) {
+                out.add(slots[(int) ((seq - 1) % slots.length)]);
+            }
+            return lastSeq;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.opennova.service;
+
+import com.opennova.model.EstablishmentRequest;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.RequestStatus;
+import com.opennova.model.User;
+import com.opennova.repository.EstablishmentRequestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of establishment requests indexed by id, requesting user and status.
+ * Loaded from the database on first use and written through by EstablishmentRequestService.
+ * Reads never lock; each write only locks its own request id.
+ */
+@Service
+public class EstablishmentRequestRegistry {
+
+    private static final Comparator<RequestRecord> NEWEST_FIRST =
+        Comparator.comparing(RequestRecord::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(RequestRecord::getId, Comparator.reverseOrder());
+
+    @Autowired
+    private EstablishmentRequestRepository establishmentRequestRepository;
+
+    private final Map<Long, RequestRecord> byId = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> byUser = new ConcurrentHashMap<>();
+    private final Map<RequestStatus, Set<Long>> byStatus = new EnumMap<>(RequestStatus.class);
+    private volatile boolean loaded = false;
+
+    public EstablishmentRequestRegistry() {
+        for (RequestStatus status : RequestStatus.values()) {
+            byStatus.put(status, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Immutable snapshot of one request, including the requesting user's name and email
+     */
+    public static final class RequestRecord {
+        private final Long id;
+        private final String name;
+        private final EstablishmentType type;
+        private final String email;
+        private final String address;
+        private final String notes;
+        private final RequestStatus status;
+        private final String adminNotes;
+        private final Long requestedBy;
+        private final String requestedByName;
+        private final String requestedByEmail;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+
+        private RequestRecord(Long id, String name, EstablishmentType type, String email, String address, String notes,
+                              RequestStatus status, String adminNotes, Long requestedBy, String requestedByName,
+                              String requestedByEmail, LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.email = email;
+            this.address = address;
+            this.notes = notes;
+            this.status = status;
+            this.adminNotes = adminNotes;
+            this.requestedBy = requestedBy;
+            this.requestedByName = requestedByName;
+            this.requestedByEmail = requestedByEmail;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+
+        static RequestRecord of(EstablishmentRequest request) {
+            User user = request.getUser();
+            return new RequestRecord(request.getId(), request.getName(), request.getType(), request.getEmail(),
+                request.getAddress(), request.getNotes(), request.getStatus(), request.getAdminNotes(),
+                user != null ? user.getId() : null,
+                user != null ? user.getName() : null,
+                user != null ? user.getEmail() : null,
+                request.getCreatedAt(), request.getUpdatedAt());
+        }
+
+        RequestRecord withStatus(RequestStatus newStatus, String newAdminNotes, LocalDateTime newUpdatedAt) {
+            return new RequestRecord(id, name, type, email, address, notes, newStatus, newAdminNotes,
+                requestedBy, requestedByName, requestedByEmail, createdAt, newUpdatedAt);
+        }
+
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public EstablishmentType getType() { return type; }
+        public String getEmail() { return email; }
+        public String getAddress() { return address; }
+        public String getNotes() { return notes; }
+        public RequestStatus getStatus() { return status; }
+        public String getAdminNotes() { return adminNotes; }
+        public Long getRequestedBy() { return requestedBy; }
+        public String getRequestedByName() { return requestedByName; }
+        public String getRequestedByEmail() { return requestedByEmail; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+        /**
+         * Same keys the admin and user request screens have always received
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", id);
+            map.put("name", name);
+            map.put("type", type != null ? type.name() : null);
+            map.put("email", email);
+            map.put("address", address);
+            map.put("notes", notes);
+            map.put("status", status != null ? status.name() : null);
+            map.put("adminNotes", adminNotes);
+            map.put("requestedBy", requestedBy);
+            map.put("requestedByName", requestedByName);
+            map.put("requestedByEmail", requestedByEmail);
+            map.put("createdAt", createdAt != null ? createdAt.toString() : null);
+            return map;
+        }
+    }
+
+    public RequestRecord get(Long id) {
+        ensureLoaded();
+        return id != null ? byId.get(id) : null;
+    }
+
+    public List<RequestRecord> findAll() {
+        ensureLoaded();
+        List<RequestRecord> records = new ArrayList<>(byId.values());
+        records.sort(NEWEST_FIRST);
+        return records;
+    }
+
+    public List<RequestRecord> findByUser(Long userId) {
+        ensureLoaded();
+        List<RequestRecord> records = new ArrayList<>();
+        Set<Long> ids = userId != null ? byUser.get(userId) : null;
+        if (ids != null) {
+            for (Long id : ids) {
+                RequestRecord record = byId.get(id);
+                if (record != null && userId.equals(record.getRequestedBy())) {
+                    records.add(record);
+                }
+            }
+        }
+        records.sort(NEWEST_FIRST);
+        return records;
+    }
+
+    public List<RequestRecord> findByStatus(RequestStatus status) {
+        ensureLoaded();
+        List<RequestRecord> records = new ArrayList<>();
+        for (Long id : byStatus.get(status)) {
+            RequestRecord record = byId.get(id);
+            // Index sets are updated right after the record; re-check so a racing status change is not reported twice
+            if (record != null && record.getStatus() == status) {
+                records.add(record);
+            }
+        }
+        records.sort(NEWEST_FIRST);
+        return records;
+    }
+
+    public long countByStatus(RequestStatus status) {
+        ensureLoaded();
+        return byStatus.get(status).size();
+    }
+
+    /**
+     * Insert or replace a request from its saved entity
+     */
+    public RequestRecord put(EstablishmentRequest request) {
+        if (request == null || request.getId() == null) {
+            return null;
+        }
+        ensureLoaded();
+        return apply(request.getId(), RequestRecord.of(request));
+    }
+
+    /**
+     * Status change for a request already in the registry; keeps the cached user details
+     */
+    public RequestRecord updateStatus(Long id, RequestStatus status, String adminNotes, LocalDateTime updatedAt) {
+        ensureLoaded();
+        RequestRecord[] updated = new RequestRecord[1];
+        byId.computeIfPresent(id, (key, previous) -> {
+            updated[0] = previous.withStatus(status, adminNotes, updatedAt);
+            reindex(previous, updated[0]);
+            return updated[0];
+        });
+        return updated[0];
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        ensureLoaded();
+        byId.computeIfPresent(id, (key, previous) -> {
+            reindex(previous, null);
+            return null;
+        });
+    }
+
+    /**
+     * Rebuild from the database (one query, users fetched in the same join)
+     */
+    public synchronized void reload() {
+        List<EstablishmentRequest> requests = establishmentRequestRepository.findAllWithUser();
+        byId.clear();
+        byUser.clear();
+        byStatus.values().forEach(Set::clear);
+        for (EstablishmentRequest request : requests) {
+            apply(request.getId(), RequestRecord.of(request));
+        }
+        loaded = true;
+        System.out.println("Loaded " + byId.size() + " establishment requests into the request registry");
+    }
+
+    private RequestRecord apply(Long id, RequestRecord record) {
+        byId.compute(id, (key, previous) -> {
+            reindex(previous, record);
+            return record;
+        });
+        return record;
+    }
+
+    // Runs inside compute() for the request id, so index updates for one request never interleave
+    private void reindex(RequestRecord previous, RequestRecord current) {
+        if (previous != null) {
+            if (previous.getStatus() != null && (current == null || previous.getStatus() != current.getStatus())) {
+                byStatus.get(previous.getStatus()).remove(previous.getId());
+            }
+            if (previous.getRequestedBy() != null
+                    && (current == null || !previous.getRequestedBy().equals(current.getRequestedBy()))) {
+                Set<Long> ids = byUser.get(previous.getRequestedBy());
+                if (ids != null) {
+                    ids.remove(previous.getId());
+                }
+            }
+        }
+        if (current != null) {
+            if (current.getStatus() != null) {
+                byStatus.get(current.getStatus()).add(current.getId());
+            }
+            if (current.getRequestedBy() != null) {
+                byUser.computeIfAbsent(current.getRequestedBy(), key -> ConcurrentHashMap.newKeySet()).add(current.getId());
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+}
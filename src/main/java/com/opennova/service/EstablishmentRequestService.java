@@ -8,7 +8,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -17,11 +19,20 @@ public class EstablishmentRequestService {
     @Autowired
     private EstablishmentRequestRepository establishmentRequestRepository;
 
+    @Autowired
+    private EstablishmentRequestRegistry establishmentRequestRegistry;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
     public EstablishmentRequest createRequest(EstablishmentRequest request) {
         request.setStatus(RequestStatus.PENDING);
         request.setCreatedAt(LocalDateTime.now());
         request.setUpdatedAt(LocalDateTime.now());
-        return establishmentRequestRepository.save(request);
+        EstablishmentRequest saved = establishmentRequestRepository.save(request);
+        establishmentRequestRegistry.put(saved);
+        invalidateUserStats(saved);
+        return saved;
     }
 
     public List<EstablishmentRequest> getAllRequests() {
@@ -47,13 +58,46 @@ public class EstablishmentRequestService {
             request.setStatus(status);
             request.setAdminNotes(adminNotes);
             request.setUpdatedAt(LocalDateTime.now());
-            return establishmentRequestRepository.save(request);
+            EstablishmentRequest saved = establishmentRequestRepository.save(request);
+            if (establishmentRequestRegistry.updateStatus(id, status, adminNotes, saved.getUpdatedAt()) == null) {
+                establishmentRequestRegistry.put(saved);
+            }
+            invalidateUserStats(saved);
+            return saved;
         }
         return null;
     }
 
     public void deleteRequest(Long id) {
+        establishmentRequestRepository.findById(id).ifPresent(this::invalidateUserStats);
         establishmentRequestRepository.deleteById(id);
+        establishmentRequestRegistry.remove(id);
+    }
+
+    // Indexed reads served from the request registry
+
+    public EstablishmentRequestRegistry.RequestRecord getRequestRecord(Long id) {
+        return establishmentRequestRegistry.get(id);
+    }
+
+    public List<Map<String, Object>> getAllRequestViews() {
+        return toMaps(establishmentRequestRegistry.findAll());
+    }
+
+    public List<Map<String, Object>> getPendingRequestViews() {
+        return toMaps(establishmentRequestRegistry.findByStatus(RequestStatus.PENDING));
+    }
+
+    public List<Map<String, Object>> getUserRequestViews(Long userId) {
+        return toMaps(establishmentRequestRegistry.findByUser(userId));
+    }
+
+    private List<Map<String, Object>> toMaps(List<EstablishmentRequestRegistry.RequestRecord> records) {
+        List<Map<String, Object>> views = new ArrayList<>(records.size());
+        for (EstablishmentRequestRegistry.RequestRecord record : records) {
+            views.add(record.toMap());
+        }
+        return views;
     }
 
     public boolean existsByEmailAndStatus(String email, RequestStatus status) {
@@ -61,7 +105,7 @@ public class EstablishmentRequestService {
     }
 
     public long countPendingRequests() {
-        return establishmentRequestRepository.countByStatus(RequestStatus.PENDING);
+        return establishmentRequestRegistry.countByStatus(RequestStatus.PENDING);
     }
 
     public long getTotalRequests() {
@@ -77,4 +121,10 @@ public class EstablishmentRequestService {
             return new java.util.ArrayList<>();
         }
     }
-}
\ No newline at end of file
+
+    private void invalidateUserStats(EstablishmentRequest request) {
+        if (request.getUser() != null) {
+            userStatsService.invalidate(request.getUser().getId());
+        }
+    }
+}
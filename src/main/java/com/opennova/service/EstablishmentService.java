@@ -29,7 +29,25 @@ public class EstablishmentService {
     private FileStorageService fileStorageService;
 
     @Autowired
-    private ReviewService reviewService;
+    private PublicCatalogService publicCatalogService;
+
+    @Autowired
+    private RatingStatsService ratingStatsService;
+
+    @Autowired
+    private BookingStatsService bookingStatsService;
+
+    @Autowired
+    private GeoIndexService geoIndexService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private OperatingScheduleService operatingScheduleService;
+
+    @Autowired
+    private EstablishmentDetailService establishmentDetailService;
 
     // Establishment Management
     public Establishment findByEmail(String email) {
@@ -136,6 +154,7 @@ public class EstablishmentService {
         try {
             establishment.setUpdatedAt(LocalDateTime.now());
             Establishment saved = establishmentRepository.save(establishment);
+            onEstablishmentChanged(saved);
             System.out.println("✅ EstablishmentService: Successfully saved establishment " + saved.getId());
             return saved;
         } catch (Exception e) {
@@ -168,6 +187,9 @@ public class EstablishmentService {
             if (updatedEstablishment.getOperatingHours() != null) {
                 establishment.setOperatingHours(updatedEstablishment.getOperatingHours());
             }
+            if (updatedEstablishment.getSlotCapacity() != null) {
+                establishment.setSlotCapacity(Math.max(0, updatedEstablishment.getSlotCapacity()));
+            }
             if (updatedEstablishment.getLatitude() != null) {
                 establishment.setLatitude(updatedEstablishment.getLatitude());
             }
@@ -176,7 +198,9 @@ public class EstablishmentService {
             }
             
             establishment.setUpdatedAt(LocalDateTime.now());
-            return establishmentRepository.save(establishment);
+            Establishment savedEstablishment = establishmentRepository.save(establishment);
+            onEstablishmentChanged(savedEstablishment);
+            return savedEstablishment;
         }
         return null;
     }
@@ -216,6 +240,9 @@ public class EstablishmentService {
             if (updatedEstablishment.getOperatingHours() != null) {
                 establishment.setOperatingHours(updatedEstablishment.getOperatingHours());
             }
+            if (updatedEstablishment.getSlotCapacity() != null) {
+                establishment.setSlotCapacity(Math.max(0, updatedEstablishment.getSlotCapacity()));
+            }
             if (updatedEstablishment.getWeeklySchedule() != null) {
                 establishment.setWeeklySchedule(updatedEstablishment.getWeeklySchedule());
             }
@@ -258,7 +285,9 @@ public class EstablishmentService {
                 realTimeUpdateService.notifyEstablishmentStatusUpdate(establishment);
             }
             
-            return establishmentRepository.save(establishment);
+            Establishment savedEstablishment = establishmentRepository.save(establishment);
+            onEstablishmentChanged(savedEstablishment);
+            return savedEstablishment;
         }
         return null;
     }
@@ -296,6 +325,9 @@ public class EstablishmentService {
             if (updatedEstablishment.getOperatingHours() != null) {
                 establishment.setOperatingHours(updatedEstablishment.getOperatingHours());
             }
+            if (updatedEstablishment.getSlotCapacity() != null) {
+                establishment.setSlotCapacity(Math.max(0, updatedEstablishment.getSlotCapacity()));
+            }
             if (updatedEstablishment.getWeeklySchedule() != null) {
                 establishment.setWeeklySchedule(updatedEstablishment.getWeeklySchedule());
             }
@@ -353,13 +385,22 @@ public class EstablishmentService {
                 realTimeUpdateService.notifyEstablishmentStatusUpdate(establishment);
             }
             
-            return establishmentRepository.save(establishment);
+            Establishment savedEstablishment = establishmentRepository.save(establishment);
+            onEstablishmentChanged(savedEstablishment);
+            return savedEstablishment;
         }
         return null;
     }
 
     public void deleteEstablishment(Long id) {
         establishmentRepository.deleteById(id);
+        ratingStatsService.removeStats(id);
+        bookingStatsService.removeStats(id);
+        publicCatalogService.removeEstablishment(id);
+        geoIndexService.remove(id);
+        searchIndexService.removeEstablishment(id);
+        establishmentDetailService.evict(id);
+        operatingScheduleService.evict(id);
     }
 
     public boolean deleteEstablishmentWithCascade(Long id) {
@@ -414,6 +455,13 @@ public class EstablishmentService {
             
             // Delete the establishment - JPA cascade will handle related entities
             establishmentRepository.deleteById(id);
+            ratingStatsService.removeStats(id);
+            bookingStatsService.removeStats(id);
+            publicCatalogService.removeEstablishment(id);
+            geoIndexService.remove(id);
+            searchIndexService.removeEstablishment(id);
+            establishmentDetailService.evict(id);
+            operatingScheduleService.evict(id);
             System.out.println("Establishment deleted successfully");
             
             return true;
@@ -432,6 +480,7 @@ public class EstablishmentService {
             establishment.setStatus(status);
             establishment.setUpdatedAt(LocalDateTime.now());
             Establishment savedEstablishment = establishmentRepository.save(establishment);
+            onEstablishmentChanged(savedEstablishment);
             
             // Update real-time state
             if (establishment.getOwner() != null) {
@@ -474,13 +523,11 @@ public class EstablishmentService {
 
     // Search and Filter
     public List<Establishment> searchEstablishments(String query) {
-        return establishmentRepository.findByNameContainingIgnoreCaseOrAddressContainingIgnoreCase(query, query);
+        return loadByIdsInOrder(searchIndexService.searchEstablishmentIds(query));
     }
 
     public List<Establishment> findNearbyEstablishments(Double latitude, Double longitude, Double radiusKm) {
-        // Implementation for finding nearby establishments within radius
-        // This would require a spatial query or distance calculation
-        return establishmentRepository.findAll(); // Placeholder
+        return findNearbyEstablishmentsWithCoordinates(latitude, longitude, radiusKm);
     }
 
     // Statistics
@@ -566,15 +613,8 @@ public class EstablishmentService {
 
     public double calculateAverageRating(Long establishmentId) {
         try {
-            // Get actual reviews from ReviewService
-            if (reviewService != null) {
-                List<com.opennova.model.Review> reviews = reviewService.getEstablishmentReviews(establishmentId);
-                if (reviews != null && !reviews.isEmpty()) {
-                    double sum = reviews.stream().mapToInt(com.opennova.model.Review::getRating).sum();
-                    return sum / reviews.size();
-                }
-            }
-            return 0.0; // No reviews yet
+            // O(1) read from the maintained rating aggregate
+            return ratingStatsService.getStats(establishmentId).getAverageRating();
         } catch (Exception e) {
             System.err.println("Error calculating average rating for establishment " + establishmentId + ": " + e.getMessage());
             return 0.0;
@@ -583,33 +623,53 @@ public class EstablishmentService {
 
     public int getTotalReviews(Long establishmentId) {
         try {
-            // Get actual review count from ReviewService
-            if (reviewService != null) {
-                List<com.opennova.model.Review> reviews = reviewService.getEstablishmentReviews(establishmentId);
-                return reviews != null ? reviews.size() : 0;
-            }
-            return 0;
+            return (int) ratingStatsService.getStats(establishmentId).getReviewCount();
         } catch (Exception e) {
             System.err.println("Error getting total reviews for establishment " + establishmentId + ": " + e.getMessage());
             return 0;
         }
     }
 
+    public java.util.Map<Long, EstablishmentRatingStats> getRatingStats(java.util.Collection<Long> establishmentIds) {
+        return ratingStatsService.getStats(establishmentIds);
+    }
+
     // Operating Hours Management
     public boolean isOpenNow(Long establishmentId) {
+        return isOpenAt(establishmentId, LocalDateTime.now());
+    }
+
+    public boolean isOpenAt(Long establishmentId, LocalDateTime time) {
         Establishment establishment = findById(establishmentId);
-        if (establishment == null || establishment.getOperatingHours() == null) {
+        if (establishment == null) {
             return false;
         }
-        
-        // Parse operating hours and check if current time falls within
-        // This is a simplified implementation
-        LocalDateTime now = LocalDateTime.now();
-        int currentHour = now.getHour();
-        
-        // Assuming operating hours format: "9:00 AM - 9:00 PM"
-        // This would need proper parsing logic
-        return establishment.getStatus() == EstablishmentStatus.OPEN && currentHour >= 9 && currentHour < 21;
+        return establishment.getStatus() == EstablishmentStatus.OPEN
+                && operatingScheduleService.compile(establishment).isOpenAt(time);
+    }
+
+    /**
+     * Open-now flag plus the next opening and closing times from the compiled weekly schedule
+     */
+    public java.util.Map<String, Object> getOpeningInfo(Long establishmentId, LocalDateTime time) {
+        Establishment establishment = findById(establishmentId);
+        if (establishment == null) {
+            return null;
+        }
+        OperatingScheduleService.CompiledSchedule schedule = operatingScheduleService.compile(establishment);
+        boolean withinHours = schedule.isOpenAt(time);
+
+        java.util.Map<String, Object> info = new java.util.HashMap<>();
+        info.put("establishmentId", establishmentId);
+        info.put("status", establishment.getStatus() != null ? establishment.getStatus().toString() : null);
+        info.put("time", time);
+        info.put("withinOperatingHours", withinHours);
+        info.put("openNow", establishment.getStatus() == EstablishmentStatus.OPEN && withinHours);
+        info.put("alwaysOpen", schedule.isAlwaysOpen());
+        info.put("nextOpeningAt", withinHours ? null : schedule.nextOpening(time));
+        info.put("nextClosingAt", withinHours ? schedule.nextClosing(time) : null);
+        info.put("defaultHours", schedule.isFromDefault());
+        return info;
     }
 
     // Weekly Schedule Management
@@ -619,7 +679,10 @@ public class EstablishmentService {
             Establishment establishment = existingEstablishment.get();
             establishment.setWeeklySchedule(weeklySchedule);
             establishment.setUpdatedAt(LocalDateTime.now());
-            return establishmentRepository.save(establishment);
+            Establishment savedEstablishment = establishmentRepository.save(establishment);
+            operatingScheduleService.compile(savedEstablishment);
+            onEstablishmentChanged(savedEstablishment);
+            return savedEstablishment;
         }
         return null;
     }
@@ -631,10 +694,9 @@ public class EstablishmentService {
         return List.of(findByEmail(ownerEmail));
     }
 
+    // Live and archived bookings, from the per-establishment counters
     public long getTotalBookings() {
-        // This would require a BookingRepository to get actual count
-        // For now return 0, will be implemented when BookingRepository is available
-        return 0;
+        return bookingStatsService.getTotals().getTotalCount();
     }
 
     public long getActiveEstablishments() {
@@ -652,7 +714,9 @@ public class EstablishmentService {
                 establishment.setAddress(address);
             }
             establishment.setUpdatedAt(LocalDateTime.now());
-            return establishmentRepository.save(establishment);
+            Establishment savedEstablishment = establishmentRepository.save(establishment);
+            onEstablishmentChanged(savedEstablishment);
+            return savedEstablishment;
         }
         return null;
     }
@@ -664,7 +728,9 @@ public class EstablishmentService {
             establishment.setLatitude(null);
             establishment.setLongitude(null);
             establishment.setUpdatedAt(LocalDateTime.now());
-            return establishmentRepository.save(establishment);
+            Establishment savedEstablishment = establishmentRepository.save(establishment);
+            onEstablishmentChanged(savedEstablishment);
+            return savedEstablishment;
         }
         return null;
     }
@@ -687,27 +753,35 @@ public class EstablishmentService {
             return new ArrayList<>();
         }
 
-        return establishmentRepository.findAll().stream()
-                .filter(est -> est.getLatitude() != null && est.getLongitude() != null)
-                .filter(est -> {
-                    double distance = calculateDistance(latitude, longitude, est.getLatitude(), est.getLongitude());
-                    return distance <= radiusKm;
-                })
-                .collect(Collectors.toList());
+        // Only the grid cells around the point are scanned; entities are loaded for the hits only
+        return loadInOrder(geoIndexService.findWithinRadius(latitude, longitude, radiusKm, null, null));
     }
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        // Haversine formula to calculate distance between two points on Earth
-        final int R = 6371; // Radius of the earth in km
+    public List<Establishment> findNearestEstablishments(Double latitude, Double longitude, int limit) {
+        if (latitude == null || longitude == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return loadInOrder(geoIndexService.findNearest(latitude, longitude, limit, null, null));
+    }
+
+    private List<Establishment> loadInOrder(List<GeoIndexService.NearbyResult> nearby) {
+        return loadByIdsInOrder(nearby.stream()
+                .map(GeoIndexService.NearbyResult::getEstablishmentId)
+                .collect(Collectors.toList()));
+    }
 
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c; // Distance in km
+    private List<Establishment> loadByIdsInOrder(List<Long> ids) {
+        java.util.Map<Long, Establishment> byId = establishmentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Establishment::getId, est -> est));
+        return ids.stream()
+                .map(byId::get)
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-        return distance;
+    // Drop the detail cache now so the next read sees the save; catalog, geo and search indexes are rebuilt by the coalesced refresh
+    private void onEstablishmentChanged(Establishment establishment) {
+        establishmentDetailService.evict(establishment.getId());
+        realTimeUpdateService.requestRefresh(establishment.getId());
     }
-}
\ No newline at end of file
+}
@@ -20,7 +20,15 @@ public class ExcelExportService {
     @Autowired
     private BookingRepository bookingRepository;
 
+    @Autowired
+    private BookingArchiveService bookingArchiveService;
+
     public byte[] exportBookingsToExcel(Long ownerId, String reportType) throws IOException {
+        return exportBookingsToExcel(ownerId, reportType, false);
+    }
+
+    // includeArchived adds bookings moved to bookings_archive
+    public byte[] exportBookingsToExcel(Long ownerId, String reportType, boolean includeArchived) throws IOException {
         List<Booking> bookings;
         
         switch (reportType.toUpperCase()) {
@@ -33,12 +41,23 @@ public class ExcelExportService {
             default:
                 bookings = bookingRepository.findByEstablishmentOwnerIdOrderByCreatedAtDesc(ownerId);
         }
+        if (includeArchived) {
+            bookings = BookingArchiveService.merge(bookings, "ALL".equalsIgnoreCase(reportType)
+                ? bookingArchiveService.findAllArchived() : bookingArchiveService.findArchivedByOwner(ownerId));
+        }
 
         return generateExcelFile(bookings, reportType);
     }
 
     public byte[] exportAllBookingsToExcel() throws IOException {
+        return exportAllBookingsToExcel(false);
+    }
+
+    public byte[] exportAllBookingsToExcel(boolean includeArchived) throws IOException {
         List<Booking> bookings = bookingRepository.findAllByOrderByCreatedAtDesc();
+        if (includeArchived) {
+            bookings = BookingArchiveService.merge(bookings, bookingArchiveService.findAllArchived());
+        }
         return generateExcelFile(bookings, "ALL");
     }
 
@@ -147,7 +166,14 @@ public class ExcelExportService {
     }
 
     public byte[] exportUserBookings(Long userId) throws IOException {
+        return exportUserBookings(userId, false);
+    }
+
+    public byte[] exportUserBookings(Long userId, boolean includeArchived) throws IOException {
         List<Booking> bookings = bookingRepository.findByUserIdOrderByCreatedAtDesc(userId);
+        if (includeArchived) {
+            bookings = BookingArchiveService.merge(bookings, bookingArchiveService.findArchivedByUser(userId));
+        }
         return generateExcelFile(bookings, "USER");
     }
 }
\ No newline at end of file
@@ -0,0 +1,346 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.repository.EstablishmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grid-bucketed spatial index of active establishments with coordinates.
+ * Radius and k-nearest queries only visit the cells around the query point.
+ */
+@Service
+public class GeoIndexService {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.toRadians(EARTH_RADIUS_KM);
+
+    // 0.05 degrees is roughly 5.5 km of latitude
+    private static final double CELL_SIZE_DEGREES = 0.05;
+    private static final int LAT_CELLS = (int) Math.ceil(180.0 / CELL_SIZE_DEGREES);
+    private static final int LON_CELLS = (int) Math.ceil(360.0 / CELL_SIZE_DEGREES);
+
+    private static final Comparator<NearbyResult> DISTANCE_ORDER =
+        Comparator.comparingDouble(NearbyResult::getDistanceKm).thenComparingLong(NearbyResult::getEstablishmentId);
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    private final Map<Long, Map<Long, GeoPoint>> cells = new ConcurrentHashMap<>();
+    private final Map<Long, GeoPoint> points = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    public static final class GeoPoint {
+        private final long establishmentId;
+        private final double latitude;
+        private final double longitude;
+        private final EstablishmentType type;
+        private final EstablishmentStatus status;
+
+        GeoPoint(long establishmentId, double latitude, double longitude,
+                 EstablishmentType type, EstablishmentStatus status) {
+            this.establishmentId = establishmentId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.type = type;
+            this.status = status;
+        }
+
+        public long getEstablishmentId() { return establishmentId; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        public EstablishmentType getType() { return type; }
+        public EstablishmentStatus getStatus() { return status; }
+    }
+
+    public static final class NearbyResult {
+        private final long establishmentId;
+        private final double distanceKm;
+
+        NearbyResult(long establishmentId, double distanceKm) {
+            this.establishmentId = establishmentId;
+            this.distanceKm = distanceKm;
+        }
+
+        public long getEstablishmentId() { return establishmentId; }
+        public double getDistanceKm() { return distanceKm; }
+    }
+
+    /**
+     * Add, move or drop a single establishment depending on its current state
+     */
+    public void update(Establishment establishment) {
+        if (establishment == null || establishment.getId() == null) {
+            return;
+        }
+        ensureLoaded();
+        index(establishment);
+    }
+
+    public void remove(Long establishmentId) {
+        if (establishmentId == null) {
+            return;
+        }
+        GeoPoint previous = points.remove(establishmentId);
+        if (previous != null) {
+            Map<Long, GeoPoint> cell = cells.get(cellKey(previous.latitude, previous.longitude));
+            if (cell != null) {
+                cell.remove(establishmentId);
+            }
+        }
+    }
+
+    public synchronized void rebuild() {
+        cells.clear();
+        points.clear();
+        for (Establishment establishment : establishmentRepository.findByIsActiveTrue()) {
+            index(establishment);
+        }
+        loaded = true;
+        System.out.println("Built geo index with " + points.size() + " establishments");
+    }
+
+    public int size() {
+        ensureLoaded();
+        return points.size();
+    }
+
+    /**
+     * All indexed establishments within radiusKm, nearest first
+     */
+    public List<NearbyResult> findWithinRadius(double latitude, double longitude, double radiusKm,
+                                               EstablishmentType type, EstablishmentStatus status) {
+        ensureLoaded();
+        List<NearbyResult> results = new ArrayList<>();
+        if (radiusKm <= 0) {
+            return results;
+        }
+
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double lonSpan = lonSpan(latitude, radiusKm);
+        int minLatCell = latCell(latitude - latSpan);
+        int maxLatCell = latCell(latitude + latSpan);
+        int lonCellCount = lonSpan >= 180.0
+            ? LON_CELLS - 1 : (int) Math.min(LON_CELLS - 1, Math.ceil(2 * lonSpan / CELL_SIZE_DEGREES) + 1);
+        int minLonCell = lonSpan >= 180.0 ? 0 : lonCell(longitude - lonSpan);
+
+        // Very large radius: fewer occupied cells than cells to probe, so scan the points directly
+        long boxCells = (long) (maxLatCell - minLatCell + 1) * (lonCellCount + 1);
+        if (boxCells > 4L * cells.size() + 64) {
+            for (GeoPoint point : points.values()) {
+                if (matches(point, type, status)) {
+                    double distance = haversine(latitude, longitude, point.latitude, point.longitude);
+                    if (distance <= radiusKm) {
+                        results.add(new NearbyResult(point.establishmentId, distance));
+                    }
+                }
+            }
+            results.sort(DISTANCE_ORDER);
+            return results;
+        }
+
+        for (int latIdx = minLatCell; latIdx <= maxLatCell; latIdx++) {
+            for (int step = 0; step <= lonCellCount; step++) {
+                int lonIdx = Math.floorMod(minLonCell + step, LON_CELLS);
+                Map<Long, GeoPoint> cell = cells.get(cellKey(latIdx, lonIdx));
+                if (cell == null) {
+                    continue;
+                }
+                for (GeoPoint point : cell.values()) {
+                    if (!matches(point, type, status)) {
+                        continue;
+                    }
+                    double distance = haversine(latitude, longitude, point.latitude, point.longitude);
+                    if (distance <= radiusKm) {
+                        results.add(new NearbyResult(point.establishmentId, distance));
+                    }
+                }
+            }
+        }
+
+        results.sort(DISTANCE_ORDER);
+        return results;
+    }
+
+    /**
+     * The k nearest indexed establishments, searching outward ring by ring
+     */
+    public List<NearbyResult> findNearest(double latitude, double longitude, int k,
+                                          EstablishmentType type, EstablishmentStatus status) {
+        return findNearest(latitude, longitude, k, type, status, -1.0, 0L);
+    }
+
+    /**
+     * k nearest strictly after the (distance, id) keyset cursor; pass a negative afterDistance for the first page
+     */
+    public List<NearbyResult> findNearest(double latitude, double longitude, int k,
+                                          EstablishmentType type, EstablishmentStatus status,
+                                          double afterDistance, long afterId) {
+        ensureLoaded();
+        List<NearbyResult> results = new ArrayList<>();
+        if (k <= 0 || points.isEmpty()) {
+            return results;
+        }
+
+        // Max-heap on (distance, id) holding the best k seen so far
+        PriorityQueue<NearbyResult> best = new PriorityQueue<>(DISTANCE_ORDER.reversed());
+        int centerLat = latCell(latitude);
+        int centerLon = lonCell(longitude);
+        long occupiedCells = cells.size();
+
+        for (int ring = 0; ; ring++) {
+            if (best.size() == k && unsearchedKm(latitude, ring) > best.peek().getDistanceKm()) {
+                break;
+            }
+            // Sparse data far from the query point: a straight scan is cheaper than walking empty rings.
+            // Also taken before a ring would wrap onto longitudes it has already visited.
+            long ringArea = (2L * ring + 1) * (2L * ring + 1);
+            if (ringArea > 4 * occupiedCells + 64 || 2 * ring + 1 >= LON_CELLS) {
+                best.clear();
+                for (GeoPoint point : points.values()) {
+                    if (matches(point, type, status)) {
+                        offer(best, k, point, haversine(latitude, longitude, point.latitude, point.longitude),
+                            afterDistance, afterId);
+                    }
+                }
+                break;
+            }
+            for (int latIdx = centerLat - ring; latIdx <= centerLat + ring; latIdx++) {
+                if (latIdx < 0 || latIdx >= LAT_CELLS) {
+                    continue;
+                }
+                boolean edgeRow = latIdx == centerLat - ring || latIdx == centerLat + ring;
+                int lonStep = edgeRow ? 1 : Math.max(2 * ring, 1);
+                for (int lonIdx = centerLon - ring; lonIdx <= centerLon + ring; lonIdx += lonStep) {
+                    Map<Long, GeoPoint> cell = cells.get(cellKey(latIdx, Math.floorMod(lonIdx, LON_CELLS)));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (GeoPoint point : cell.values()) {
+                        if (matches(point, type, status)) {
+                            offer(best, k, point, haversine(latitude, longitude, point.latitude, point.longitude),
+                                afterDistance, afterId);
+                        }
+                    }
+                }
+            }
+        }
+
+        results.addAll(best);
+        results.sort(DISTANCE_ORDER);
+        return results;
+    }
+
+    private void offer(PriorityQueue<NearbyResult> best, int k, GeoPoint point, double distance,
+                       double afterDistance, long afterId) {
+        if (distance < afterDistance || (distance == afterDistance && point.establishmentId <= afterId)) {
+            return; // Already returned on an earlier page
+        }
+        if (best.size() < k) {
+            best.add(new NearbyResult(point.establishmentId, distance));
+        } else {
+            NearbyResult candidate = new NearbyResult(point.establishmentId, distance);
+            if (DISTANCE_ORDER.compare(candidate, best.peek()) < 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private void index(Establishment establishment) {
+        remove(establishment.getId());
+        boolean active = establishment.getIsActive() != null && establishment.getIsActive();
+        if (!active || establishment.getLatitude() == null || establishment.getLongitude() == null) {
+            return;
+        }
+        GeoPoint point = new GeoPoint(establishment.getId(), establishment.getLatitude(), establishment.getLongitude(),
+            establishment.getType(), establishment.getStatus());
+        points.put(point.establishmentId, point);
+        cells.computeIfAbsent(cellKey(point.latitude, point.longitude), key -> new ConcurrentHashMap<>())
+            .put(point.establishmentId, point);
+    }
+
+    /**
+     * Half-width in degrees of the longitudes within radiusKm of a point at this latitude; 180 when the circle
+     * reaches a pole and so covers every longitude
+     */
+    private static double lonSpan(double latitude, double radiusKm) {
+        double angular = radiusKm / EARTH_RADIUS_KM;
+        double latRadians = Math.toRadians(latitude);
+        if (Math.abs(latRadians) + angular >= Math.PI / 2) {
+            return 180.0;
+        }
+        return Math.toDegrees(Math.asin(Math.sin(angular) / Math.cos(latRadians)));
+    }
+
+    /**
+     * Lower bound on the distance of any point not yet visited once rings 0 to ring - 1 are done. Those rings cover
+     * (ring - 1) whole cells on every side of the query cell, so an unvisited point is that many degrees away in
+     * latitude, or in longitude; the nearest point that far off in longitude lies on that meridian, or at the pole
+     * once the meridian is more than 90 degrees away.
+     */
+    private static double unsearchedKm(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0.0;
+        }
+        double offsetDegrees = (ring - 1) * CELL_SIZE_DEGREES;
+        double latBound = offsetDegrees * KM_PER_DEGREE;
+        double lonBound;
+        if (offsetDegrees >= 90.0) {
+            lonBound = (90.0 - Math.abs(latitude)) * KM_PER_DEGREE;
+        } else {
+            double sine = Math.cos(Math.toRadians(latitude)) * Math.sin(Math.toRadians(offsetDegrees));
+            lonBound = Math.toDegrees(Math.asin(Math.min(1.0, sine))) * KM_PER_DEGREE;
+        }
+        return Math.min(latBound, lonBound);
+    }
+
+    private boolean matches(GeoPoint point, EstablishmentType type, EstablishmentStatus status) {
+        return (type == null || point.type == type) && (status == null || point.status == status);
+    }
+
+    private static int latCell(double latitude) {
+        double clamped = Math.max(-90.0, Math.min(90.0, latitude));
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((clamped + 90.0) / CELL_SIZE_DEGREES));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / CELL_SIZE_DEGREES), LON_CELLS);
+    }
+
+    private static long cellKey(double latitude, double longitude) {
+        return cellKey(latCell(latitude), lonCell(longitude));
+    }
+
+    private static long cellKey(int latIdx, int lonIdx) {
+        return ((long) latIdx << 32) | (lonIdx & 0xffffffffL);
+    }
+
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
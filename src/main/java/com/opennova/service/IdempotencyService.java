@@ -0,0 +1,307 @@
+package com.opennova.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.model.IdempotencyRecord;
+import com.opennova.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support. The first response to a key is stored (in memory and in idempotency_records)
+ * and replayed to every retry of the same request until it expires; a duplicate arriving while the first
+ * is still running waits for it instead of running the request again. Server errors are not stored,
+ * so a retry after one runs the request again.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // How long a duplicate waits for the first request before giving up with 409
+    @Value("${app.idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    // A claim older than this that never completed belongs to a crashed request and may be taken over
+    @Value("${app.idempotency.abandon-seconds:120}")
+    private long abandonSeconds;
+
+    @Value("${app.idempotency.max-cached:10000}")
+    private int maxCached;
+
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    private ScheduledExecutorService cleaner;
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private static final class Stored {
+        final int status;
+        final String body;
+        final ResponseEntity<?> original;
+        // The key's stored answer, as opposed to a refusal or a server error that a retry should not see again
+        final boolean replayable;
+
+        Stored(int status, String body, ResponseEntity<?> original, boolean replayable) {
+            this.status = status;
+            this.body = body;
+            this.original = original;
+            this.replayable = replayable;
+        }
+    }
+
+    // One request per key on this instance; duplicates wait on result
+    private static final class Execution {
+        final String fingerprint;
+        final CompletableFuture<Stored> result = new CompletableFuture<>();
+        volatile long expiresAtMillis = Long.MAX_VALUE;
+
+        Execution(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::purgeExpired, 10, 10, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        cleaner.shutdownNow();
+    }
+
+    /**
+     * Run action once per (endpoint, user, key). Without a key the action simply runs.
+     * request identifies the parameters, so a key reused for a different request gets 422.
+     */
+    public ResponseEntity<?> execute(String endpoint, Long userId, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.trim().isEmpty()) {
+            return action.get();
+        }
+        if (key.length() > 255) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " must be at most 255 characters");
+        }
+        String recordKey = endpoint + "|" + userId + "|" + key.trim();
+        String fingerprint = fingerprint(request);
+
+        Execution mine = new Execution(fingerprint);
+        Execution existing = executions.putIfAbsent(recordKey, mine);
+        if (existing != null && !(existing.expiresAtMillis < System.currentTimeMillis()
+                && executions.replace(recordKey, existing, mine))) {
+            return awaitLocal(existing, fingerprint);
+        }
+
+        Stored stored;
+        try {
+            stored = executeOnce(recordKey, fingerprint, action);
+        } catch (RuntimeException e) {
+            executions.remove(recordKey, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+        mine.result.complete(stored);
+        if (!stored.replayable || executions.size() > maxCached) {
+            // A full cache leaves replays to the table
+            executions.remove(recordKey, mine);
+        } else {
+            mine.expiresAtMillis = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttlHours);
+        }
+        return stored.original != null ? stored.original : replay(stored);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedKeys", executions.size());
+        stats.put("executed", executed.get());
+        stats.put("replayed", replayed.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private ResponseEntity<?> awaitLocal(Execution execution, String fingerprint) {
+        if (!execution.fingerprint.equals(fingerprint)) {
+            rejected.incrementAndGet();
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+        }
+        try {
+            return replay(execution.result.get(waitSeconds, TimeUnit.SECONDS));
+        } catch (TimeoutException e) {
+            return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed, please retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.CONFLICT, "Interrupted while waiting for the original request");
+        } catch (Exception e) {
+            // The first attempt threw; this duplicate is answered the same way a failed request would be
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "The original request failed, please retry");
+        }
+    }
+
+    // Runs the action under the table claim, or answers from another instance's (or an earlier run's) record
+    private Stored executeOnce(String recordKey, String fingerprint, Supplier<ResponseEntity<?>> action) {
+        for (int attempt = 0; ; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            if (recordRepository.claim(recordKey, fingerprint, now, now.plusHours(ttlHours)) == 1) {
+                break;
+            }
+            IdempotencyRecord record = recordRepository.findByRecordKey(recordKey).orElse(null);
+            if (record == null) {
+                // Deleted between the claim and the read; claim again
+                if (attempt >= 3) {
+                    throw new RuntimeException("Could not claim " + HEADER + ", please retry");
+                }
+                continue;
+            }
+            boolean expired = record.getExpiresAt().isBefore(now);
+            boolean abandoned = record.getStatusCode() == null && record.getCreatedAt().isBefore(now.minusSeconds(abandonSeconds));
+            if ((expired || abandoned) && attempt == 0) {
+                recordRepository.delete(record);
+                continue;
+            }
+            if (!record.getFingerprint().equals(fingerprint)) {
+                rejected.incrementAndGet();
+                return new Stored(HttpStatus.UNPROCESSABLE_ENTITY.value(), null,
+                    error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request"), false);
+            }
+            return awaitRecord(recordKey, record);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            recordRepository.release(recordKey);
+            throw e;
+        }
+        executed.incrementAndGet();
+        int status = response.getStatusCode().value();
+        String body = serialize(response.getBody());
+        if (status >= 500) {
+            recordRepository.release(recordKey);
+        } else {
+            recordRepository.complete(recordKey, status, body);
+        }
+        return new Stored(status, body, response, status < 500);
+    }
+
+    // The key is held elsewhere; poll until its response is stored
+    private Stored awaitRecord(String recordKey, IdempotencyRecord record) {
+        // Polled as columns: with open-session-in-view, re-reading the entity returns this same stale instance
+        boolean present = true;
+        Integer statusCode = record.getStatusCode();
+        String responseBody = record.getResponseBody();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitSeconds);
+        while (present && statusCode == null && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            List<Object[]> rows = recordRepository.findResponse(recordKey);
+            present = !rows.isEmpty();
+            if (present) {
+                statusCode = (Integer) rows.get(0)[0];
+                responseBody = (String) rows.get(0)[1];
+            }
+        }
+        if (!present || statusCode == null) {
+            return new Stored(HttpStatus.CONFLICT.value(), null,
+                error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed, please retry later"), false);
+        }
+        return new Stored(statusCode, responseBody, null, true);
+    }
+
+    private ResponseEntity<?> replay(Stored stored) {
+        if (!stored.replayable) {
+            // A refusal or server error; hand back the same answer without marking it a replay
+            return stored.original;
+        }
+        replayed.incrementAndGet();
+        Object body = null;
+        try {
+            body = stored.body != null ? objectMapper.readValue(stored.body, Object.class) : null;
+        } catch (Exception e) {
+            System.err.println("Failed to read stored idempotent response: " + e.getMessage());
+        }
+        return ResponseEntity.status(stored.status).header(REPLAYED_HEADER, "true").body(body);
+    }
+
+    private String serialize(Object body) {
+        try {
+            return body != null ? objectMapper.writeValueAsString(body) : null;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to store idempotent response: " + e.getMessage());
+        }
+    }
+
+    private String fingerprint(Object request) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(request);
+        } catch (Exception e) {
+            bytes = String.valueOf(request).getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (Exception e) {
+            throw new RuntimeException("SHA-256 not available");
+        }
+    }
+
+    private void purgeExpired() {
+        try {
+            long now = System.currentTimeMillis();
+            executions.entrySet().removeIf(entry -> entry.getValue().expiresAtMillis < now);
+            int removed = recordRepository.deleteExpired(LocalDateTime.now());
+            if (removed > 0) {
+                System.out.println("Purged " + removed + " expired idempotency records");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to purge idempotency records: " + e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
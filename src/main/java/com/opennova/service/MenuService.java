@@ -24,6 +24,12 @@ public class MenuService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private EstablishmentDetailService establishmentDetailService;
+
     public List<Menu> getMenusByEstablishmentId(Long establishmentId) {
         System.out.println("🔍 MenuService: Fetching menus for establishment ID: " + establishmentId);
         List<Menu> menus = menuRepository.findActiveMenusByEstablishmentIdOrderByCreatedAtDesc(establishmentId);
@@ -67,6 +73,8 @@ public class MenuService {
             System.out.println("💾 Saving menu to database...");
             Menu savedMenu = menuRepository.save(menu);
             System.out.println("✅ Menu saved successfully with ID: " + savedMenu.getId());
+            searchIndexService.indexMenu(savedMenu);
+            establishmentDetailService.evict(establishmentId);
             
             return savedMenu;
         }
@@ -108,7 +116,10 @@ public class MenuService {
                 }
             }
 
-            return menuRepository.save(menu);
+            Menu savedMenu = menuRepository.save(menu);
+            searchIndexService.indexMenu(savedMenu);
+            establishmentDetailService.evict(savedMenu.getEstablishment().getId());
+            return savedMenu;
         }
         throw new RuntimeException("Menu not found");
     }
@@ -130,6 +141,8 @@ public class MenuService {
             menuItem.setIsActive(false);
             menuItem.setUpdatedAt(LocalDateTime.now());
             menuRepository.save(menuItem);
+            searchIndexService.remove(SearchIndexService.DocumentKind.MENU, menuId);
+            establishmentDetailService.evict(menuItem.getEstablishment().getId());
             return true;
         }
         return false;
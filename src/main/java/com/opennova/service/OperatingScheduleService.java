@@ -0,0 +1,413 @@
+package com.opennova.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.model.Establishment;
+import com.opennova.repository.EstablishmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles an establishment's weeklySchedule / operatingHours text into a minute-of-week bitmap.
+ * Schedules are compiled once per distinct source text and cached per establishment.
+ */
+@Service
+public class OperatingScheduleService {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    // Old hardcoded hours, still used when the stored text cannot be understood at all
+    private static final int DEFAULT_OPEN_MINUTE = 9 * 60;
+    private static final int DEFAULT_CLOSE_MINUTE = 21 * 60;
+
+    private static final String[] DAY_NAMES = { "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday" };
+
+    private static final String TIME = "(\\d{1,2})(?:[:.](\\d{2}))?\\s*([AaPp]\\.?[Mm]\\.?)?";
+    private static final Pattern TIME_PATTERN = Pattern.compile("^\\s*" + TIME + "\\s*$");
+    private static final Pattern RANGE_PATTERN = Pattern.compile(TIME + "\\s*(?:-|–|—|to)\\s*" + TIME);
+    private static final Pattern ALWAYS_OPEN_PATTERN = Pattern.compile("24\\s*(?:hours|hrs|/\\s*7|x\\s*7)|open\\s*24|always\\s*open", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CLOSED_PATTERN = Pattern.compile("^\\s*(closed|off|holiday|none)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private static final String[] OPEN_FLAGS = { "isOpen", "open", "isAvailable", "available", "enabled", "isWorking" };
+    private static final String[] CLOSED_FLAGS = { "closed", "isClosed", "isHoliday" };
+    private static final String[] START_KEYS = { "openTime", "open", "opens", "startTime", "start", "from", "opening" };
+    private static final String[] END_KEYS = { "closeTime", "close", "closes", "endTime", "end", "to", "closing" };
+    private static final String[] SLOT_KEYS = { "slots", "intervals", "hours", "timings", "shifts" };
+
+    private static final int MAX_CACHED_SCHEDULES = 20000;
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Long, CompiledSchedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * One week of opening minutes, Monday 00:00 = minute 0.
+     * Lookups are a bit test; next opening/closing are a binary search over the week's few transitions.
+     */
+    public static final class CompiledSchedule {
+        private final String weeklySchedule;
+        private final String operatingHours;
+        private final long[] bits;
+        private final int[] openings;
+        private final int[] closings;
+        private final boolean fromDefault;
+
+        private CompiledSchedule(String weeklySchedule, String operatingHours, long[] bits, boolean fromDefault) {
+            this.weeklySchedule = weeklySchedule;
+            this.operatingHours = operatingHours;
+            this.bits = bits;
+            this.fromDefault = fromDefault;
+
+            List<Integer> opens = new ArrayList<>();
+            List<Integer> closes = new ArrayList<>();
+            for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+                boolean open = isSet(bits, minute);
+                boolean wasOpen = isSet(bits, Math.floorMod(minute - 1, MINUTES_PER_WEEK));
+                if (open && !wasOpen) {
+                    opens.add(minute);
+                } else if (!open && wasOpen) {
+                    closes.add(minute);
+                }
+            }
+            this.openings = opens.stream().mapToInt(Integer::intValue).toArray();
+            this.closings = closes.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        public boolean isOpenAt(LocalDateTime time) {
+            return isSet(bits, minuteOfWeek(time));
+        }
+
+        public boolean isAlwaysOpen() {
+            return openings.length == 0 && isSet(bits, 0);
+        }
+
+        public boolean isNeverOpen() {
+            return openings.length == 0 && !isSet(bits, 0);
+        }
+
+        /**
+         * True when the stored text could not be parsed and the default hours were used
+         */
+        public boolean isFromDefault() {
+            return fromDefault;
+        }
+
+        /**
+         * Earliest minute at or after time when the establishment is open, null if it never opens
+         */
+        public LocalDateTime nextOpening(LocalDateTime time) {
+            if (isOpenAt(time)) {
+                return time.truncatedTo(ChronoUnit.MINUTES);
+            }
+            return nextTransition(openings, time);
+        }
+
+        /**
+         * Earliest minute at or after time when the establishment is closed, null if it never closes
+         */
+        public LocalDateTime nextClosing(LocalDateTime time) {
+            if (!isOpenAt(time)) {
+                return time.truncatedTo(ChronoUnit.MINUTES);
+            }
+            return nextTransition(closings, time);
+        }
+
+        private LocalDateTime nextTransition(int[] transitions, LocalDateTime time) {
+            if (transitions.length == 0) {
+                return null;
+            }
+            int minute = minuteOfWeek(time);
+            int index = Arrays.binarySearch(transitions, minute);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            int next = index < transitions.length ? transitions[index] : transitions[0] + MINUTES_PER_WEEK;
+            return time.truncatedTo(ChronoUnit.MINUTES).plusMinutes(next - minute);
+        }
+
+        private boolean sameSource(String weeklySchedule, String operatingHours) {
+            return Objects.equals(this.weeklySchedule, weeklySchedule) && Objects.equals(this.operatingHours, operatingHours);
+        }
+    }
+
+    /**
+     * Compile (or reuse the cached compilation of) an establishment's current schedule text
+     */
+    public CompiledSchedule compile(Establishment establishment) {
+        if (establishment == null) {
+            return null;
+        }
+        return compile(establishment.getId(), establishment.getWeeklySchedule(), establishment.getOperatingHours());
+    }
+
+    public CompiledSchedule compile(Long establishmentId, String weeklySchedule, String operatingHours) {
+        if (establishmentId == null) {
+            return compile(weeklySchedule, operatingHours);
+        }
+
+        CompiledSchedule cached = schedules.get(establishmentId);
+        if (cached != null && cached.sameSource(weeklySchedule, operatingHours)) {
+            return cached;
+        }
+        CompiledSchedule compiled = compile(weeklySchedule, operatingHours);
+        if (cached == null && schedules.size() >= MAX_CACHED_SCHEDULES) {
+            Iterator<Long> keys = schedules.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        schedules.put(establishmentId, compiled);
+        return compiled;
+    }
+
+    /**
+     * Cached schedule for an establishment, loading it once if it has not been compiled yet
+     */
+    public CompiledSchedule getSchedule(Long establishmentId) {
+        if (establishmentId == null) {
+            return null;
+        }
+        CompiledSchedule cached = schedules.get(establishmentId);
+        if (cached != null) {
+            return cached;
+        }
+        return establishmentRepository.findById(establishmentId).map(this::compile).orElse(null);
+    }
+
+    public void evict(Long establishmentId) {
+        if (establishmentId != null) {
+            schedules.remove(establishmentId);
+        }
+    }
+
+    public CompiledSchedule compile(String weeklySchedule, String operatingHours) {
+        long[] bits = new long[(MINUTES_PER_WEEK + 63) / 64];
+        if (weeklySchedule != null && !weeklySchedule.trim().isEmpty() && compileWeekly(weeklySchedule, bits)) {
+            return new CompiledSchedule(weeklySchedule, operatingHours, bits, false);
+        }
+
+        if (operatingHours == null || operatingHours.trim().isEmpty()) {
+            // Nothing configured at all: never reported as open
+            return new CompiledSchedule(weeklySchedule, operatingHours, bits, false);
+        }
+        boolean parsed = false;
+        for (int day = 0; day < 7; day++) {
+            parsed |= applyDayText(operatingHours, day, bits);
+        }
+        if (parsed) {
+            return new CompiledSchedule(weeklySchedule, operatingHours, bits, false);
+        }
+
+        System.err.println("Could not parse operating hours '" + operatingHours + "', using default hours");
+        for (int day = 0; day < 7; day++) {
+            setRange(bits, day, DEFAULT_OPEN_MINUTE, DEFAULT_CLOSE_MINUTE);
+        }
+        return new CompiledSchedule(weeklySchedule, operatingHours, bits, true);
+    }
+
+    // Parsing
+
+    private boolean compileWeekly(String weeklySchedule, long[] bits) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(weeklySchedule);
+        } catch (Exception e) {
+            return false;
+        }
+        if (root == null) {
+            return false;
+        }
+
+        boolean anyDay = false;
+        if (root.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                int day = dayIndex(field.getKey());
+                if (day >= 0) {
+                    applyDay(field.getValue(), day, bits);
+                    anyDay = true;
+                }
+            }
+        } else if (root.isArray()) {
+            // [{ "day": "monday", "openTime": "09:00", ... }, ...]
+            for (JsonNode entry : root) {
+                JsonNode dayNode = entry.isObject() ? entry.get("day") : null;
+                int day = dayNode != null ? dayIndex(dayNode.asText()) : -1;
+                if (day >= 0) {
+                    applyDay(entry, day, bits);
+                    anyDay = true;
+                }
+            }
+        }
+        return anyDay;
+    }
+
+    private void applyDay(JsonNode node, int day, long[] bits) {
+        if (node == null || node.isNull()) {
+            return;
+        }
+        if (node.isBoolean()) {
+            if (node.asBoolean()) {
+                setRange(bits, day, 0, MINUTES_PER_DAY);
+            }
+            return;
+        }
+        if (node.isTextual()) {
+            applyDayText(node.asText(), day, bits);
+            return;
+        }
+        if (node.isArray()) {
+            for (JsonNode slot : node) {
+                applyDay(slot, day, bits);
+            }
+            return;
+        }
+        if (!node.isObject()) {
+            return;
+        }
+
+        for (String flag : CLOSED_FLAGS) {
+            if (node.has(flag) && node.get(flag).isBoolean() && node.get(flag).asBoolean()) {
+                return;
+            }
+        }
+        for (String flag : OPEN_FLAGS) {
+            if (node.has(flag) && node.get(flag).isBoolean() && !node.get(flag).asBoolean()) {
+                return;
+            }
+        }
+        for (String key : SLOT_KEYS) {
+            if (node.has(key) && node.get(key).isArray()) {
+                applyDay(node.get(key), day, bits);
+                return;
+            }
+        }
+
+        Integer start = firstTime(node, START_KEYS);
+        Integer end = firstTime(node, END_KEYS);
+        if (start != null && end != null) {
+            applyRange(bits, day, start, end);
+        } else if (node.has("is24Hours") && node.get("is24Hours").asBoolean()) {
+            setRange(bits, day, 0, MINUTES_PER_DAY);
+        }
+    }
+
+    private boolean applyDayText(String text, int day, long[] bits) {
+        if (CLOSED_PATTERN.matcher(text).matches()) {
+            return true;
+        }
+        if (ALWAYS_OPEN_PATTERN.matcher(text).find()) {
+            setRange(bits, day, 0, MINUTES_PER_DAY);
+            return true;
+        }
+        boolean matched = false;
+        Matcher range = RANGE_PATTERN.matcher(text);
+        while (range.find()) {
+            Integer start = toMinute(range.group(1), range.group(2), range.group(3));
+            Integer end = toMinute(range.group(4), range.group(5), range.group(6));
+            if (start != null && end != null) {
+                // "9 - 5 PM" style ranges borrow the meridiem of the closing time
+                if (range.group(3) == null && range.group(6) != null && start < 12 * 60
+                        && range.group(6).toLowerCase().startsWith("p") && start + 12 * 60 < end) {
+                    start += 12 * 60;
+                }
+                applyRange(bits, day, start, end);
+                matched = true;
+            }
+        }
+        return matched;
+    }
+
+    private Integer firstTime(JsonNode node, String[] keys) {
+        for (String key : keys) {
+            JsonNode value = node.get(key);
+            if (value != null && value.isTextual()) {
+                Matcher matcher = TIME_PATTERN.matcher(value.asText());
+                if (matcher.matches()) {
+                    return toMinute(matcher.group(1), matcher.group(2), matcher.group(3));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Integer toMinute(String hourText, String minuteText, String meridiem) {
+        int hour = Integer.parseInt(hourText);
+        int minute = minuteText != null ? Integer.parseInt(minuteText) : 0;
+        if (minute > 59) {
+            return null;
+        }
+        if (meridiem != null) {
+            if (hour < 1 || hour > 12) {
+                return null;
+            }
+            boolean pm = Character.toLowerCase(meridiem.charAt(0)) == 'p';
+            hour = hour % 12 + (pm ? 12 : 0);
+        } else if (hour > 24 || (hour == 24 && minute > 0)) {
+            return null;
+        }
+        return hour * 60 + minute;
+    }
+
+    private static int dayIndex(String name) {
+        if (name == null) {
+            return -1;
+        }
+        String normalized = name.trim().toLowerCase();
+        if (normalized.length() < 3) {
+            return -1;
+        }
+        for (int day = 0; day < DAY_NAMES.length; day++) {
+            if (DAY_NAMES[day].startsWith(normalized) || normalized.startsWith(DAY_NAMES[day])) {
+                return day;
+            }
+        }
+        return -1;
+    }
+
+    // Bitmap helpers
+
+    private static void applyRange(long[] bits, int day, int start, int end) {
+        if (end == start) {
+            setRange(bits, day, 0, MINUTES_PER_DAY); // "00:00 - 00:00" style round-the-clock hours
+        } else if (end > start) {
+            setRange(bits, day, start, end);
+        } else {
+            // Past midnight: spill into the next day
+            setRange(bits, day, start, MINUTES_PER_DAY);
+            setRange(bits, (day + 1) % 7, 0, end);
+        }
+    }
+
+    private static void setRange(long[] bits, int day, int startMinute, int endMinute) {
+        int base = day * MINUTES_PER_DAY;
+        for (int minute = base + startMinute; minute < base + endMinute; minute++) {
+            bits[minute >>> 6] |= 1L << (minute & 63);
+        }
+    }
+
+    private static boolean isSet(long[] bits, int minute) {
+        return (bits[minute >>> 6] & (1L << (minute & 63))) != 0;
+    }
+
+    private static int minuteOfWeek(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+}
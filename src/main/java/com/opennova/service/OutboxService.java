@@ -0,0 +1,203 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.OutboxEvent;
+import com.opennova.repository.BookingRepository;
+import com.opennova.repository.OutboxEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox. Side effects are written as outbox_events rows inside the transaction that causes them
+ * and delivered afterwards by a background dispatcher: claimed in batches, retried with backoff, and marked done
+ * per idempotency key so a committed event is delivered even after a crash and a delivered one is not resent.
+ */
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private RealTimeUpdateService realTimeUpdateService;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.outbox.poll-millis:2000}")
+    private long pollMillis;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    // A claimed event not finished within the lease (dispatcher died mid-batch) is claimed again
+    @Value("${app.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${app.outbox.retention-hours:72}")
+    private long retentionHours;
+
+    private ScheduledExecutorService dispatcher;
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::drain, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        dispatcher.scheduleWithFixedDelay(this::purgeDelivered, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Record a side effect of a booking change; must run inside the transaction that writes the change, after it
+     * is flushed, so the key carries the version that change wrote.
+     * The dispatcher is woken once that transaction commits, so delivery normally starts right away.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(OutboxEvent.Type type, Booking booking) {
+        outboxRepository.save(new OutboxEvent(type, booking.getId(), booking.getVersion()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", outboxRepository.countByStatus(OutboxEvent.Status.PENDING));
+        stats.put("inProgress", outboxRepository.countByStatus(OutboxEvent.Status.IN_PROGRESS));
+        stats.put("failed", outboxRepository.countByStatus(OutboxEvent.Status.FAILED));
+        stats.put("delivered", delivered.get());
+        stats.put("failedAttempts", failedAttempts.get());
+        return stats;
+    }
+
+    private void wakeUp() {
+        // Several commits in a row share one extra drain
+        if (drainQueued.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> {
+                    drainQueued.set(false);
+                    drain();
+                });
+            } catch (Exception e) {
+                drainQueued.set(false);
+            }
+        }
+    }
+
+    // Claims and delivers batches until nothing is due
+    private void drain() {
+        try {
+            while (true) {
+                String token = UUID.randomUUID().toString();
+                LocalDateTime now = LocalDateTime.now();
+                int claimed = outboxRepository.claimBatch(token, now, now.plusSeconds(leaseSeconds), batchSize);
+                if (claimed == 0) {
+                    return;
+                }
+                for (OutboxEvent event : outboxRepository.findByClaimTokenOrderByIdAsc(token)) {
+                    process(event, token);
+                }
+                if (claimed < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Outbox dispatch failed: " + e.getMessage());
+        }
+    }
+
+    private void process(OutboxEvent event, String token) {
+        try {
+            deliver(event);
+            outboxRepository.markDone(event.getId(), token, LocalDateTime.now());
+            delivered.incrementAndGet();
+        } catch (Exception e) {
+            failedAttempts.incrementAndGet();
+            boolean giveUp = event.getAttempts() >= maxAttempts;
+            // Exponential backoff: 2s, 4s, 8s ... capped at 10 minutes
+            long delaySeconds = Math.min(600, 1L << Math.min(event.getAttempts(), 10));
+            String error = e.getMessage() != null && e.getMessage().length() > 1000
+                ? e.getMessage().substring(0, 1000) : e.getMessage();
+            outboxRepository.markFailed(event.getId(), token,
+                giveUp ? OutboxEvent.Status.FAILED : OutboxEvent.Status.PENDING,
+                LocalDateTime.now().plusSeconds(delaySeconds), error);
+            System.err.println("Outbox event " + event.getIdempotencyKey() + " failed (attempt " + event.getAttempts()
+                + (giveUp ? ", giving up" : ", retrying in " + delaySeconds + "s") + "): " + e.getMessage());
+        }
+    }
+
+    private void deliver(OutboxEvent event) {
+        Booking booking = bookingRepository.findWithDetailsById(event.getAggregateId()).orElse(null);
+        if (booking == null) {
+            // Booking deleted before delivery; nothing left to tell anyone
+            return;
+        }
+        switch (event.getType()) {
+            case BOOKING_CREATED_CUSTOMER_EMAIL:
+                emailService.sendBookingConfirmationSync(booking);
+                break;
+            case BOOKING_CREATED_OWNER_EMAIL:
+                if (booking.getEstablishment().getOwner() != null && booking.getEstablishment().getOwner().getEmail() != null) {
+                    emailService.sendNewBookingNotificationToOwnerSync(booking);
+                }
+                break;
+            case BOOKING_REALTIME_UPDATE:
+                realTimeUpdateService.notifyBookingUpdate(booking);
+                break;
+            default:
+                throw new RuntimeException("Unknown outbox event type: " + event.getType());
+        }
+    }
+
+    private void purgeDelivered() {
+        try {
+            int removed = outboxRepository.deleteProcessedBefore(LocalDateTime.now().minusHours(retentionHours));
+            if (removed > 0) {
+                System.out.println("Purged " + removed + " delivered outbox events");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to purge outbox events: " + e.getMessage());
+        }
+    }
+}
@@ -731,12 +731,14 @@ public class PaymentVerificationService {
     }
 
     /**
-     * Clean up expired payments (call this periodically)
+     * Clean up expired payments (run periodically by BookingLifecycleService); returns how many were removed
      */
-    public void cleanupExpiredPayments() {
+    public int cleanupExpiredPayments() {
         LocalDateTime now = LocalDateTime.now();
-        pendingPayments.entrySet().removeIf(entry -> 
+        int before = pendingPayments.size();
+        pendingPayments.entrySet().removeIf(entry ->
             now.isAfter(entry.getValue().getExpiryTime()));
+        return Math.max(0, before - pendingPayments.size());
     }
     
     // Inner classes for data structures
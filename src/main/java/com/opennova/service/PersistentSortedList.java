@@ -0,0 +1,270 @@
+package com.opennova.service;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable sorted list backed by a persistent treap. with and without return a new version in O(log n) that shares
+ * every node off the path to the changed element, so old versions stay valid for readers that still hold them.
+ * Each node's priority is a hash of the element's id, which keeps the tree shape the same for the same elements
+ * however they got there. The order must be total: elements that compare equal replace each other.
+ */
+final class PersistentSortedList<T> {
+
+    private static final class Node<T> {
+        final T value;
+        final long priority;
+        final Node<T> left;
+        final Node<T> right;
+        final int size;
+
+        Node(T value, long priority, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        }
+    }
+
+    private final Comparator<? super T> order;
+    private final ToLongFunction<? super T> idOf;
+    private final Node<T> root;
+    private final List<T> view;
+
+    private PersistentSortedList(Comparator<? super T> order, ToLongFunction<? super T> idOf, Node<T> root) {
+        this.order = order;
+        this.idOf = idOf;
+        this.root = root;
+        this.view = new View();
+    }
+
+    static <T> PersistentSortedList<T> empty(Comparator<? super T> order, ToLongFunction<? super T> idOf) {
+        return new PersistentSortedList<>(order, idOf, null);
+    }
+
+    /**
+     * Built in linear time after the sort; the input collection is not kept
+     */
+    static <T> PersistentSortedList<T> of(Comparator<? super T> order, ToLongFunction<? super T> idOf,
+                                          Collection<? extends T> values) {
+        List<T> sorted = new ArrayList<>(values);
+        sorted.sort(order);
+        int n = sorted.size();
+        long[] priorities = new long[n];
+        int[] left = new int[n];
+        int[] right = new int[n];
+        int[] stack = new int[n];
+        int top = -1;
+        // Cartesian tree over the sorted elements: each new element pops the lower-priority right spine
+        for (int i = 0; i < n; i++) {
+            priorities[i] = priority(idOf.applyAsLong(sorted.get(i)));
+            right[i] = -1;
+            int last = -1;
+            while (top >= 0 && priorities[stack[top]] < priorities[i]) {
+                last = stack[top--];
+            }
+            left[i] = last;
+            if (top >= 0) {
+                right[stack[top]] = i;
+            }
+            stack[++top] = i;
+        }
+        return new PersistentSortedList<>(order, idOf, top >= 0 ? build(stack[0], sorted, priorities, left, right) : null);
+    }
+
+    private static <T> Node<T> build(int index, List<T> sorted, long[] priorities, int[] left, int[] right) {
+        if (index < 0) {
+            return null;
+        }
+        return new Node<>(sorted.get(index), priorities[index],
+            build(left[index], sorted, priorities, left, right), build(right[index], sorted, priorities, left, right));
+    }
+
+    int size() {
+        return sizeOf(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Read-only list view of this version; the same instance for the life of the version
+     */
+    List<T> asList() {
+        return view;
+    }
+
+    /**
+     * The element the target points at, or null. target returns the target's order relative to the given element,
+     * negative when the target sorts before it, so no probe element has to be built.
+     */
+    T find(ToIntFunction<? super T> target) {
+        Node<T> node = root;
+        while (node != null) {
+            int c = target.applyAsInt(node.value);
+            if (c == 0) {
+                return node.value;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * This list with value added, or replacing the element that compares equal to it
+     */
+    PersistentSortedList<T> with(T value) {
+        return new PersistentSortedList<>(order, idOf, insert(root, value, priority(idOf.applyAsLong(value))));
+    }
+
+    /**
+     * This list without the element that compares equal to value; this same list if there is none
+     */
+    PersistentSortedList<T> without(T value) {
+        Node<T> next = remove(root, value);
+        return next == root ? this : new PersistentSortedList<>(order, idOf, next);
+    }
+
+    private Node<T> insert(Node<T> node, T value, long priority) {
+        if (node == null) {
+            return new Node<>(value, priority, null, null);
+        }
+        if (priority > node.priority) {
+            Node<T>[] parts = split(node, value);
+            return new Node<>(value, priority, parts[0], parts[1]);
+        }
+        int c = order.compare(value, node.value);
+        if (c < 0) {
+            return new Node<>(node.value, node.priority, insert(node.left, value, priority), node.right);
+        }
+        if (c > 0) {
+            return new Node<>(node.value, node.priority, node.left, insert(node.right, value, priority));
+        }
+        return new Node<>(value, priority, node.left, node.right);
+    }
+
+    // Elements below and above value; one that compares equal is dropped
+    @SuppressWarnings("unchecked")
+    private Node<T>[] split(Node<T> node, T value) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+        int c = order.compare(value, node.value);
+        if (c < 0) {
+            Node<T>[] parts = split(node.left, value);
+            return new Node[] { parts[0], new Node<>(node.value, node.priority, parts[1], node.right) };
+        }
+        if (c > 0) {
+            Node<T>[] parts = split(node.right, value);
+            return new Node[] { new Node<>(node.value, node.priority, node.left, parts[0]), parts[1] };
+        }
+        return new Node[] { node.left, node.right };
+    }
+
+    private Node<T> remove(Node<T> node, T value) {
+        if (node == null) {
+            return null;
+        }
+        int c = order.compare(value, node.value);
+        if (c < 0) {
+            Node<T> left = remove(node.left, value);
+            return left == node.left ? node : new Node<>(node.value, node.priority, left, node.right);
+        }
+        if (c > 0) {
+            Node<T> right = remove(node.right, value);
+            return right == node.right ? node : new Node<>(node.value, node.priority, node.left, right);
+        }
+        return merge(node.left, node.right);
+    }
+
+    // Every element of low sorts before every element of high
+    private static <T> Node<T> merge(Node<T> low, Node<T> high) {
+        if (low == null) {
+            return high;
+        }
+        if (high == null) {
+            return low;
+        }
+        if (low.priority >= high.priority) {
+            return new Node<>(low.value, low.priority, low.left, merge(low.right, high));
+        }
+        return new Node<>(high.value, high.priority, merge(low, high.left), high.right);
+    }
+
+    private static int sizeOf(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    // SplitMix64 finalizer: ids in sequence get priorities that look random
+    private static long priority(long id) {
+        long z = id + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private final class View extends AbstractList<T> {
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            Node<T> node = root;
+            while (true) {
+                int leftSize = sizeOf(node.left);
+                if (index < leftSize) {
+                    node = node.left;
+                } else if (index > leftSize) {
+                    index -= leftSize + 1;
+                    node = node.right;
+                } else {
+                    return node.value;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return PersistentSortedList.this.size();
+        }
+
+        // In-order walk, O(1) amortized per element instead of a descent per get
+        @Override
+        public Iterator<T> iterator() {
+            Deque<Node<T>> path = new ArrayDeque<>();
+            for (Node<T> node = root; node != null; node = node.left) {
+                path.push(node);
+            }
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Node<T> node = path.pop();
+                    for (Node<T> next = node.right; next != null; next = next.left) {
+                        path.push(next);
+                    }
+                    return node.value;
+                }
+            };
+        }
+    }
+}
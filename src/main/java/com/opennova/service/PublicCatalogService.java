@@ -0,0 +1,590 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentRatingStats;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.repository.EstablishmentRatingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputed, versioned view of the public establishment catalog.
+ * Readers get an immutable snapshot; writers rebuild single entries and swap the snapshot in atomically.
+ */
+@Service
+public class PublicCatalogService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Comparator<Map<String, Object>> RATING_ORDER =
+        Comparator.comparingDouble((Map<String, Object> entry) -> (Double) entry.get("averageRating")).reversed()
+            .thenComparingLong(entry -> (Long) entry.get("id"));
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    @Autowired
+    private EstablishmentRatingStatsRepository ratingStatsRepository;
+
+    @Autowired
+    private GeoIndexService geoIndexService;
+
+    @Autowired
+    private OperatingScheduleService operatingScheduleService;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            // Readers that queued behind the first build take its result instead of building again
+            current = snapshot.get();
+            return current != null ? current : rebuildAll();
+        }
+    }
+
+    /**
+     * Public establishment views, optionally filtered by type and status using the prebuilt indexes
+     */
+    public List<Map<String, Object>> getEstablishments(String type, String status) {
+        return getSnapshot().find(type, status);
+    }
+
+    public Map<String, Object> getEstablishment(Long establishmentId) {
+        return getSnapshot().getById(establishmentId);
+    }
+
+    /**
+     * Keyset-paginated listing. Sort keys: id, name (index range scans on the establishments table),
+     * rating (sorted catalog view) and distance (geo index). The cursor is the opaque token from the previous page.
+     */
+    public Map<String, Object> getPage(String type, String status, String sort, Integer size, String cursor,
+                                       Double latitude, Double longitude) {
+        String sortKey = sort != null && !sort.isEmpty() ? sort.toLowerCase() : "id";
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        EstablishmentType typeFilter = type != null && !type.isEmpty() ? EstablishmentType.valueOf(type.toUpperCase()) : null;
+        EstablishmentStatus statusFilter = status != null && !status.isEmpty() ? EstablishmentStatus.valueOf(status.toUpperCase()) : null;
+        String[] after = decodeCursor(cursor, sortKey);
+
+        CatalogSnapshot catalog = getSnapshot();
+        List<Map<String, Object>> items = new ArrayList<>();
+        String nextCursor = null;
+
+        switch (sortKey) {
+            case "id":
+            case "name": {
+                Long afterId = after != null ? Long.valueOf(after[0]) : null;
+                List<Establishment> rows = "id".equals(sortKey)
+                    ? establishmentRepository.findByFiltersAfterId(typeFilter, statusFilter, afterId, PageRequest.of(0, pageSize + 1))
+                    : establishmentRepository.findByFiltersAfterName(typeFilter, statusFilter,
+                        after != null ? after[1] : null, afterId, PageRequest.of(0, pageSize + 1));
+                boolean hasMore = rows.size() > pageSize;
+                if (hasMore) {
+                    rows = rows.subList(0, pageSize);
+                }
+                items = toEntries(catalog, rows);
+                if (hasMore) {
+                    Establishment last = rows.get(rows.size() - 1);
+                    nextCursor = encodeCursor(sortKey, last.getId(), "name".equals(sortKey) ? last.getName() : "");
+                }
+                break;
+            }
+            case "rating": {
+                List<Map<String, Object>> ordered = catalog.sortedByRating(
+                    typeFilter != null ? typeFilter.name() : null, statusFilter != null ? statusFilter.name() : null);
+                int from = 0;
+                if (after != null) {
+                    Map<String, Object> probe = new HashMap<>();
+                    probe.put("id", Long.valueOf(after[0]));
+                    probe.put("averageRating", Double.valueOf(after[1]));
+                    from = firstAfter(ordered, probe, RATING_ORDER);
+                }
+                int to = Math.min(ordered.size(), from + pageSize);
+                items = new ArrayList<>(ordered.subList(from, to));
+                if (to < ordered.size() && !items.isEmpty()) {
+                    Map<String, Object> last = items.get(items.size() - 1);
+                    nextCursor = encodeCursor(sortKey, (Long) last.get("id"), Double.toHexString((Double) last.get("averageRating")));
+                }
+                break;
+            }
+            case "distance": {
+                if (latitude == null || longitude == null) {
+                    throw new IllegalArgumentException("latitude and longitude are required for distance sort");
+                }
+                double afterDistance = after != null ? Double.parseDouble(after[1]) : -1.0;
+                long afterId = after != null ? Long.parseLong(after[0]) : 0L;
+                List<GeoIndexService.NearbyResult> nearby = geoIndexService.findNearest(
+                    latitude, longitude, pageSize + 1, typeFilter, statusFilter, afterDistance, afterId);
+                boolean hasMore = nearby.size() > pageSize;
+                if (hasMore) {
+                    nearby = nearby.subList(0, pageSize);
+                }
+                for (GeoIndexService.NearbyResult result : nearby) {
+                    Map<String, Object> entry = catalog.getById(result.getEstablishmentId());
+                    if (entry != null) {
+                        Map<String, Object> estData = new HashMap<>(entry);
+                        estData.put("distanceKm", Math.round(result.getDistanceKm() * 100.0) / 100.0);
+                        items.add(estData);
+                    }
+                }
+                if (hasMore && !nearby.isEmpty()) {
+                    GeoIndexService.NearbyResult last = nearby.get(nearby.size() - 1);
+                    nextCursor = encodeCursor(sortKey, last.getEstablishmentId(), Double.toHexString(last.getDistanceKm()));
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", nextCursor);
+        page.put("hasMore", nextCursor != null);
+        page.put("sort", sortKey);
+        page.put("size", pageSize);
+        page.put("catalogVersion", catalog.getVersion());
+        return page;
+    }
+
+    /**
+     * Full rebuild: one query for establishments, one for the rating aggregates
+     */
+    public synchronized CatalogSnapshot rebuildAll() {
+        Map<Long, EstablishmentRatingStats> ratings = new HashMap<>();
+        for (EstablishmentRatingStats stats : ratingStatsRepository.findAll()) {
+            ratings.put(stats.getEstablishmentId(), stats);
+        }
+
+        TreeMap<Long, Map<String, Object>> entries = new TreeMap<>();
+        Map<Long, OperatingScheduleService.CompiledSchedule> schedules = new HashMap<>();
+        for (Establishment establishment : establishmentRepository.findAll()) {
+            if (!isPublic(establishment)) {
+                continue;
+            }
+            EstablishmentRatingStats stats = ratings.get(establishment.getId());
+            entries.put(establishment.getId(), stats != null
+                ? buildEntry(establishment, stats.getAverageRating(), (int) stats.getReviewCount())
+                : buildEntry(establishment, 0.0, 0));
+            putSchedule(schedules, establishment.getId(), operatingScheduleService.compile(establishment));
+        }
+
+        CatalogSnapshot previous = snapshot.get();
+        CatalogSnapshot rebuilt = new CatalogSnapshot(previous != null ? previous.getVersion() + 1 : 1,
+            new ArrayList<>(entries.values()), schedules);
+        snapshot.set(rebuilt);
+        System.out.println("Rebuilt public catalog snapshot v" + rebuilt.getVersion() + " with " + entries.size() + " establishments");
+        return rebuilt;
+    }
+
+    /**
+     * Re-project a single establishment from the given (already updated) entity
+     */
+    public synchronized void refreshEstablishment(Establishment establishment) {
+        if (establishment == null || establishment.getId() == null) {
+            return;
+        }
+        CatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            return; // Nothing built yet, the first read will do a full build
+        }
+        try {
+            Map<String, Object> entry = null;
+            OperatingScheduleService.CompiledSchedule schedule = null;
+            if (isPublic(establishment)) {
+                EstablishmentRatingStats stats = loadStats(establishment.getId());
+                entry = buildEntry(establishment, stats.getAverageRating(), (int) stats.getReviewCount());
+                schedule = operatingScheduleService.compile(establishment);
+            }
+            snapshot.set(current.withEntry(establishment.getId(), entry, schedule));
+        } catch (Exception e) {
+            System.err.println("Failed to refresh catalog entry for establishment " + establishment.getId() + ": " + e.getMessage());
+        }
+    }
+
+    public void refreshEstablishment(Long establishmentId) {
+        if (establishmentId == null) {
+            return;
+        }
+        Establishment establishment = establishmentRepository.findById(establishmentId).orElse(null);
+        if (establishment != null) {
+            refreshEstablishment(establishment);
+        } else {
+            removeEstablishment(establishmentId);
+        }
+    }
+
+    /**
+     * Re-read only the rating columns of an existing entry (after review approval, edit or deletion)
+     */
+    public synchronized void refreshRating(Long establishmentId) {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null || current.getById(establishmentId) == null) {
+            return;
+        }
+        try {
+            EstablishmentRatingStats stats = loadStats(establishmentId);
+            Map<String, Object> entry = new HashMap<>(current.getById(establishmentId));
+            entry.put("averageRating", stats.getAverageRating());
+            entry.put("reviewCount", (int) stats.getReviewCount());
+            // Same schedule text, so the compiled schedule carries over
+            snapshot.set(current.withEntry(establishmentId, Collections.unmodifiableMap(entry), current.getSchedule(establishmentId)));
+        } catch (Exception e) {
+            System.err.println("Failed to refresh catalog rating for establishment " + establishmentId + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void removeEstablishment(Long establishmentId) {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null || current.getById(establishmentId) == null) {
+            return;
+        }
+        snapshot.set(current.withEntry(establishmentId, null, null));
+    }
+
+    private List<Map<String, Object>> toEntries(CatalogSnapshot catalog, List<Establishment> rows) {
+        // Rows the snapshot has not picked up yet get their rating from one bulk lookup
+        List<Long> missing = rows.stream()
+            .map(Establishment::getId)
+            .filter(id -> catalog.getById(id) == null)
+            .collect(Collectors.toList());
+        Map<Long, EstablishmentRatingStats> stats = new HashMap<>();
+        if (!missing.isEmpty()) {
+            for (EstablishmentRatingStats row : ratingStatsRepository.findByEstablishmentIdIn(missing)) {
+                stats.put(row.getEstablishmentId(), row);
+            }
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Establishment establishment : rows) {
+            Map<String, Object> entry = catalog.getById(establishment.getId());
+            if (entry == null) {
+                EstablishmentRatingStats rating = stats.getOrDefault(establishment.getId(),
+                    new EstablishmentRatingStats(establishment.getId()));
+                entry = buildEntry(establishment, rating.getAverageRating(), (int) rating.getReviewCount());
+            }
+            items.add(entry);
+        }
+        return items;
+    }
+
+    private static int firstAfter(List<Map<String, Object>> ordered, Map<String, Object> probe,
+                                  Comparator<Map<String, Object>> order) {
+        int low = 0;
+        int high = ordered.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(ordered.get(mid), probe) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Cursor layout: base64url("sort|id|key"); the key goes last because names may contain '|'.
+    // Rating and distance keys are written with Double.toHexString so they read back to the exact same double.
+    private static String encodeCursor(String sort, Long id, String key) {
+        String raw = sort + "|" + id + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor, String sort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = raw.split("\\|", 3);
+        if (parts.length != 3 || !parts[0].equals(sort)) {
+            throw new IllegalArgumentException("Cursor does not match sort " + sort);
+        }
+        try {
+            Long.parseLong(parts[1]);
+            if (("rating".equals(sort) || "distance".equals(sort)) && !Double.isFinite(Double.parseDouble(parts[2]))) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new String[] { parts[1], parts[2] };
+    }
+
+    private boolean isPublic(Establishment establishment) {
+        return establishment.getIsActive() != null && establishment.getIsActive();
+    }
+
+    private EstablishmentRatingStats loadStats(Long establishmentId) {
+        return ratingStatsRepository.findById(establishmentId)
+            .orElseGet(() -> new EstablishmentRatingStats(establishmentId));
+    }
+
+    private static void putSchedule(Map<Long, OperatingScheduleService.CompiledSchedule> schedules, Long establishmentId,
+                                    OperatingScheduleService.CompiledSchedule schedule) {
+        if (schedule != null) {
+            schedules.put(establishmentId, schedule);
+        } else {
+            schedules.remove(establishmentId);
+        }
+    }
+
+    private Map<String, Object> buildEntry(Establishment est, double averageRating, int reviewCount) {
+        Map<String, Object> estData = new HashMap<>();
+        estData.put("id", est.getId());
+        estData.put("name", est.getName());
+        estData.put("type", est.getType() != null ? est.getType().toString() : "UNKNOWN");
+        estData.put("address", est.getAddress());
+        estData.put("contactNumber", est.getContactNumber());
+        estData.put("operatingHours", est.getOperatingHours());
+        estData.put("status", est.getStatus() != null ? est.getStatus().toString() : "OPEN");
+        estData.put("email", est.getEmail());
+        estData.put("latitude", est.getLatitude());
+        estData.put("longitude", est.getLongitude());
+        estData.put("upiId", est.getUpiId());
+        estData.put("profileImagePath", est.getProfileImagePath());
+        estData.put("weeklySchedule", est.getWeeklySchedule());
+        estData.put("averageRating", averageRating);
+        estData.put("reviewCount", reviewCount);
+        return Collections.unmodifiableMap(estData);
+    }
+
+    /**
+     * Immutable catalog version with per-type, per-status and per-type+status indexes, all in id order,
+     * and every entry's compiled weekly schedule, built when the entry is. Each list is a persistent tree, so
+     * withEntry derives the next version in O(log n): it rebuilds only the path to the changed entry in the
+     * lists that entry is in, and shares every other list and node with this version.
+     */
+    public static final class CatalogSnapshot {
+
+        private static final Comparator<Map<String, Object>> ID_ORDER =
+            Comparator.comparingLong(CatalogSnapshot::idOf);
+        private static final Comparator<Map.Entry<Long, OperatingScheduleService.CompiledSchedule>> SCHEDULE_ORDER =
+            Map.Entry.comparingByKey();
+
+        private final long version;
+        private final PersistentSortedList<Map<String, Object>> all;
+        private final Map<String, PersistentSortedList<Map<String, Object>>> byType;
+        private final Map<String, PersistentSortedList<Map<String, Object>>> byStatus;
+        private final Map<String, PersistentSortedList<Map<String, Object>>> byTypeAndStatus;
+        // Rating-sorted views, built on first use per filter and then kept up to date entry by entry
+        private final Map<String, PersistentSortedList<Map<String, Object>>> ratingViews;
+        private final PersistentSortedList<Map.Entry<Long, OperatingScheduleService.CompiledSchedule>> schedules;
+
+        private CatalogSnapshot(long version, List<Map<String, Object>> entriesById,
+                                Map<Long, OperatingScheduleService.CompiledSchedule> schedules) {
+            Map<String, List<Map<String, Object>>> types = new HashMap<>();
+            Map<String, List<Map<String, Object>>> statuses = new HashMap<>();
+            Map<String, List<Map<String, Object>>> typeStatuses = new HashMap<>();
+            for (Map<String, Object> entry : entriesById) {
+                types.computeIfAbsent(typeOf(entry), k -> new ArrayList<>()).add(entry);
+                statuses.computeIfAbsent(statusOf(entry), k -> new ArrayList<>()).add(entry);
+                typeStatuses.computeIfAbsent(typeOf(entry) + ":" + statusOf(entry), k -> new ArrayList<>()).add(entry);
+            }
+
+            this.version = version;
+            this.all = byId(entriesById);
+            this.byType = freeze(types);
+            this.byStatus = freeze(statuses);
+            this.byTypeAndStatus = freeze(typeStatuses);
+            this.ratingViews = new ConcurrentHashMap<>();
+            this.schedules = PersistentSortedList.of(SCHEDULE_ORDER, Map.Entry::getKey, schedules.entrySet().stream()
+                .map(schedule -> Map.entry(schedule.getKey(), schedule.getValue()))
+                .collect(Collectors.toList()));
+        }
+
+        private CatalogSnapshot(long version, PersistentSortedList<Map<String, Object>> all,
+                                Map<String, PersistentSortedList<Map<String, Object>>> byType,
+                                Map<String, PersistentSortedList<Map<String, Object>>> byStatus,
+                                Map<String, PersistentSortedList<Map<String, Object>>> byTypeAndStatus,
+                                Map<String, PersistentSortedList<Map<String, Object>>> ratingViews,
+                                PersistentSortedList<Map.Entry<Long, OperatingScheduleService.CompiledSchedule>> schedules) {
+            this.version = version;
+            this.all = all;
+            this.byType = byType;
+            this.byStatus = byStatus;
+            this.byTypeAndStatus = byTypeAndStatus;
+            this.ratingViews = ratingViews;
+            this.schedules = schedules;
+        }
+
+        private static PersistentSortedList<Map<String, Object>> byId(List<Map<String, Object>> entries) {
+            return PersistentSortedList.of(ID_ORDER, CatalogSnapshot::idOf, entries);
+        }
+
+        private static Map<String, PersistentSortedList<Map<String, Object>>> freeze(Map<String, List<Map<String, Object>>> index) {
+            Map<String, PersistentSortedList<Map<String, Object>>> frozen = new HashMap<>();
+            index.forEach((key, list) -> frozen.put(key, byId(list)));
+            return Collections.unmodifiableMap(frozen);
+        }
+
+        /**
+         * The next version with one entry and its compiled schedule replaced, added or (entry null) removed.
+         * The index maps are copied (one key per type, status and pair, so a handful), the lists are not.
+         */
+        CatalogSnapshot withEntry(Long establishmentId, Map<String, Object> entry,
+                                  OperatingScheduleService.CompiledSchedule schedule) {
+            Map<String, Object> previous = getById(establishmentId);
+            if (previous == null && entry == null) {
+                return this;
+            }
+            PersistentSortedList<Map.Entry<Long, OperatingScheduleService.CompiledSchedule>> nextSchedules =
+                entry != null && schedule != null
+                    ? schedules.with(Map.entry(establishmentId, schedule))
+                    : schedules.without(new AbstractMap.SimpleImmutableEntry<>(establishmentId, null));
+            PersistentSortedList<Map<String, Object>> nextAll = entry != null ? all.with(entry) : all.without(previous);
+            Map<String, PersistentSortedList<Map<String, Object>>> nextByType =
+                reindex(byType, previous, entry, CatalogSnapshot::typeOf);
+            Map<String, PersistentSortedList<Map<String, Object>>> nextByStatus =
+                reindex(byStatus, previous, entry, CatalogSnapshot::statusOf);
+            Map<String, PersistentSortedList<Map<String, Object>>> nextByTypeAndStatus =
+                reindex(byTypeAndStatus, previous, entry, e -> typeOf(e) + ":" + statusOf(e));
+
+            Map<String, PersistentSortedList<Map<String, Object>>> views = new ConcurrentHashMap<>();
+            ratingViews.forEach((key, view) -> {
+                String[] filter = key.split(":", -1);
+                PersistentSortedList<Map<String, Object>> next = view;
+                if (matches(previous, filter[0], filter[1])) {
+                    next = next.without(previous);
+                }
+                if (matches(entry, filter[0], filter[1])) {
+                    next = next.with(entry);
+                }
+                views.put(key, next);
+            });
+            return new CatalogSnapshot(version + 1, nextAll, nextByType, nextByStatus, nextByTypeAndStatus, views,
+                nextSchedules);
+        }
+
+        // Touches only the lists the old or new entry belongs to
+        private static Map<String, PersistentSortedList<Map<String, Object>>> reindex(
+                Map<String, PersistentSortedList<Map<String, Object>>> index,
+                Map<String, Object> previous,
+                Map<String, Object> entry,
+                java.util.function.Function<Map<String, Object>, String> keyOf) {
+            Map<String, PersistentSortedList<Map<String, Object>>> next = new HashMap<>(index);
+            String newKey = entry != null ? keyOf.apply(entry) : null;
+            if (previous != null && !keyOf.apply(previous).equals(newKey)) {
+                String oldKey = keyOf.apply(previous);
+                PersistentSortedList<Map<String, Object>> list = index.get(oldKey).without(previous);
+                if (list.isEmpty()) {
+                    next.remove(oldKey);
+                } else {
+                    next.put(oldKey, list);
+                }
+            }
+            if (newKey != null) {
+                PersistentSortedList<Map<String, Object>> list = index.get(newKey);
+                next.put(newKey, (list != null ? list : PersistentSortedList.empty(ID_ORDER, CatalogSnapshot::idOf)).with(entry));
+            }
+            return Collections.unmodifiableMap(next);
+        }
+
+        private static long idOf(Map<String, Object> entry) {
+            return (Long) entry.get("id");
+        }
+
+        private static String typeOf(Map<String, Object> entry) {
+            return (String) entry.get("type");
+        }
+
+        private static String statusOf(Map<String, Object> entry) {
+            return (String) entry.get("status");
+        }
+
+        // Whether an entry is in find(type, status); empty strings mean "any"
+        private static boolean matches(Map<String, Object> entry, String type, String status) {
+            return entry != null
+                && (type.isEmpty() || type.equals(typeOf(entry)))
+                && (status.isEmpty() || status.equals(statusOf(entry)));
+        }
+
+        public long getVersion() { return version; }
+
+        public int size() { return all.size(); }
+
+        public boolean isEmpty() { return all.isEmpty(); }
+
+        public List<Map<String, Object>> getAll() { return all.asList(); }
+
+        public Map<String, Object> getById(Long establishmentId) {
+            if (establishmentId == null) {
+                return null;
+            }
+            return all.find(entry -> Long.compare(establishmentId, idOf(entry)));
+        }
+
+        public OperatingScheduleService.CompiledSchedule getSchedule(Long establishmentId) {
+            if (establishmentId == null) {
+                return null;
+            }
+            Map.Entry<Long, OperatingScheduleService.CompiledSchedule> schedule =
+                schedules.find(entry -> Long.compare(establishmentId, entry.getKey()));
+            return schedule != null ? schedule.getValue() : null;
+        }
+
+        /**
+         * Entries of this snapshot that are open at the given time: status OPEN and inside their compiled
+         * weekly schedule. Nothing is parsed here; an entry without a compiled schedule counts as closed.
+         */
+        public List<Map<String, Object>> filterOpenAt(List<Map<String, Object>> entries, LocalDateTime time) {
+            List<Map<String, Object>> open = new ArrayList<>();
+            for (Map<String, Object> entry : entries) {
+                if (!EstablishmentStatus.OPEN.name().equals(entry.get("status"))) {
+                    continue;
+                }
+                OperatingScheduleService.CompiledSchedule schedule = getSchedule(idOf(entry));
+                if (schedule != null && schedule.isOpenAt(time)) {
+                    open.add(entry);
+                }
+            }
+            return open;
+        }
+
+        public List<Map<String, Object>> find(String type, String status) {
+            boolean hasType = type != null && !type.isEmpty();
+            boolean hasStatus = status != null && !status.isEmpty();
+            PersistentSortedList<Map<String, Object>> list = all;
+            if (hasType && hasStatus) {
+                list = byTypeAndStatus.get(type + ":" + status);
+            } else if (hasType) {
+                list = byType.get(type);
+            } else if (hasStatus) {
+                list = byStatus.get(status);
+            }
+            return list != null ? list.asList() : Collections.emptyList();
+        }
+
+        public List<Map<String, Object>> sortedByRating(String type, String status) {
+            String key = (type != null ? type : "") + ":" + (status != null ? status : "");
+            return ratingViews.computeIfAbsent(key,
+                k -> PersistentSortedList.of(RATING_ORDER, CatalogSnapshot::idOf, find(type, status))).asList();
+        }
+    }
+}
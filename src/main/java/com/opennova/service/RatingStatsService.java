@@ -0,0 +1,169 @@
+package com.opennova.service;
+
+import com.opennova.model.EstablishmentRatingStats;
+import com.opennova.repository.EstablishmentRatingStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maintains the establishment_rating_stats aggregate (count, sum, 1-5 star histogram of approved reviews)
+ */
+@Service
+public class RatingStatsService {
+
+    @Autowired
+    private EstablishmentRatingStatsRepository ratingStatsRepository;
+
+    @Autowired
+    private PublicCatalogService publicCatalogService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Apply the delta of one review changing its approved rating.
+     * Pass null for "not counted" (not approved / not existing) on either side.
+     */
+    @Transactional
+    public void recordChange(Long establishmentId, Integer oldApprovedRating, Integer newApprovedRating) {
+        if (establishmentId == null || Objects.equals(oldApprovedRating, newApprovedRating)) {
+            return;
+        }
+
+        long[] starDeltas = new long[5];
+        long countDelta = 0;
+        long sumDelta = 0;
+        if (isValidRating(oldApprovedRating)) {
+            countDelta--;
+            sumDelta -= oldApprovedRating;
+            starDeltas[oldApprovedRating - 1]--;
+        }
+        if (isValidRating(newApprovedRating)) {
+            countDelta++;
+            sumDelta += newApprovedRating;
+            starDeltas[newApprovedRating - 1]++;
+        }
+        if (countDelta == 0 && sumDelta == 0) {
+            return;
+        }
+
+        ratingStatsRepository.ensureRow(establishmentId);
+        ratingStatsRepository.applyDelta(establishmentId, countDelta, sumDelta,
+            starDeltas[0], starDeltas[1], starDeltas[2], starDeltas[3], starDeltas[4]);
+
+        refreshCatalogAfterCommit(establishmentId);
+    }
+
+    public EstablishmentRatingStats getStats(Long establishmentId) {
+        return ratingStatsRepository.findById(establishmentId)
+            .orElseGet(() -> new EstablishmentRatingStats(establishmentId));
+    }
+
+    /**
+     * Bulk lookup for listing pages; establishments without reviews get an empty aggregate
+     */
+    public Map<Long, EstablishmentRatingStats> getStats(Collection<Long> establishmentIds) {
+        Map<Long, EstablishmentRatingStats> stats = new HashMap<>();
+        if (establishmentIds == null || establishmentIds.isEmpty()) {
+            return stats;
+        }
+        for (EstablishmentRatingStats row : ratingStatsRepository.findByEstablishmentIdIn(establishmentIds)) {
+            stats.put(row.getEstablishmentId(), row);
+        }
+        for (Long establishmentId : establishmentIds) {
+            stats.computeIfAbsent(establishmentId, EstablishmentRatingStats::new);
+        }
+        return stats;
+    }
+
+    @Transactional
+    public void removeStats(Long establishmentId) {
+        if (establishmentId != null && ratingStatsRepository.existsById(establishmentId)) {
+            ratingStatsRepository.deleteById(establishmentId);
+        }
+    }
+
+    /**
+     * Recompute every aggregate from the reviews table
+     */
+    @Transactional
+    public int rebuildAll() {
+        ratingStatsRepository.deleteAllRows();
+        int rows = ratingStatsRepository.backfillFromReviews();
+        System.out.println("✅ Rebuilt rating stats for " + rows + " establishments");
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publicCatalogService.rebuildAll();
+                }
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * Recount establishments whose aggregate predates the table or was started by a delta before any recount,
+     * one transaction each
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        int rebuilt = 0;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            for (Long establishmentId : ratingStatsRepository.findIdsNotBackfilled()) {
+                if (Boolean.TRUE.equals(transaction.execute(status -> backfill(establishmentId)))) {
+                    rebuilt++;
+                }
+            }
+            if (rebuilt > 0) {
+                System.out.println("✅ Backfilled rating stats for " + rebuilt + " establishments");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to backfill rating stats: " + e.getMessage());
+        }
+    }
+
+    // Runs with the aggregate row locked: deltas committed before are in the reviews counted here, later ones
+    // wait for the lock and apply on top of the recount
+    private boolean backfill(Long establishmentId) {
+        ratingStatsRepository.ensureRow(establishmentId);
+        EstablishmentRatingStats row = ratingStatsRepository.lockByEstablishmentId(establishmentId)
+            .orElseThrow(() -> new RuntimeException("Rating stats row missing for establishment " + establishmentId));
+        if (row.getBackfilledAt() != null) {
+            return false;
+        }
+        ratingStatsRepository.backfillEstablishment(establishmentId);
+        return true;
+    }
+
+    private boolean isValidRating(Integer rating) {
+        return rating != null && rating >= 1 && rating <= 5;
+    }
+
+    private void refreshCatalogAfterCommit(Long establishmentId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publicCatalogService.refreshRating(establishmentId);
+                }
+            });
+        } else {
+            publicCatalogService.refreshRating(establishmentId);
+        }
+    }
+}
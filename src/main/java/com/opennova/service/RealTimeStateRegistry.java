@@ -0,0 +1,358 @@
+package com.opennova.service;
+
+import com.opennova.model.BookingStatus;
+import com.opennova.model.EstablishmentStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Typed real-time state keyed by (entity kind, long id, attribute).
+ * Each kind/attribute pair is its own open-addressing table on primitive long ids,
+ * so reads need no string keys, no boxing and no instanceof checks.
+ */
+@Service
+public class RealTimeStateRegistry {
+
+    public enum EntityKind {
+        ESTABLISHMENT,
+        BOOKING,
+        USER
+    }
+
+    public enum Attribute {
+        STATUS,
+        LAST_UPDATE,
+        LATEST_BOOKING_EVENT,
+        LATEST_ESTABLISHMENT_EVENT
+    }
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final LongKeyedTable[][] tables;
+
+    public RealTimeStateRegistry() {
+        tables = new LongKeyedTable[EntityKind.values().length][Attribute.values().length];
+        for (LongKeyedTable[] row : tables) {
+            for (int attribute = 0; attribute < row.length; attribute++) {
+                row[attribute] = new LongKeyedTable();
+            }
+        }
+    }
+
+    /**
+     * Latest booking change seen for an establishment
+     */
+    public static final class BookingEvent {
+        private final long bookingId;
+        private final long establishmentId;
+        private final BookingStatus status;
+        private final LocalDateTime timestamp;
+
+        public BookingEvent(long bookingId, long establishmentId, BookingStatus status, LocalDateTime timestamp) {
+            this.bookingId = bookingId;
+            this.establishmentId = establishmentId;
+            this.status = status;
+            this.timestamp = timestamp;
+        }
+
+        public long getBookingId() { return bookingId; }
+        public long getEstablishmentId() { return establishmentId; }
+        public BookingStatus getStatus() { return status; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+    }
+
+    /**
+     * Latest status or profile/hours change pushed for an establishment
+     */
+    public static final class EstablishmentEvent {
+        public enum Type { STATUS, UPDATE }
+
+        private final Type type;
+        private final long establishmentId;
+        private final String name;
+        private final EstablishmentStatus status;
+        private final String operatingHours;
+        private final String weeklySchedule;
+        private final LocalDateTime timestamp;
+
+        public EstablishmentEvent(Type type, long establishmentId, String name, EstablishmentStatus status,
+                                  String operatingHours, String weeklySchedule, LocalDateTime timestamp) {
+            this.type = type;
+            this.establishmentId = establishmentId;
+            this.name = name;
+            this.status = status;
+            this.operatingHours = operatingHours;
+            this.weeklySchedule = weeklySchedule;
+            this.timestamp = timestamp;
+        }
+
+        public Type getType() { return type; }
+        public long getEstablishmentId() { return establishmentId; }
+        public String getName() { return name; }
+        public EstablishmentStatus getStatus() { return status; }
+        public String getOperatingHours() { return operatingHours; }
+        public String getWeeklySchedule() { return weeklySchedule; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+    }
+
+    // Establishment status
+
+    public EstablishmentStatus getEstablishmentStatus(long establishmentId) {
+        return (EstablishmentStatus) table(EntityKind.ESTABLISHMENT, Attribute.STATUS).get(establishmentId);
+    }
+
+    public void setEstablishmentStatus(long establishmentId, EstablishmentStatus status) {
+        table(EntityKind.ESTABLISHMENT, Attribute.STATUS).put(establishmentId, status);
+    }
+
+    // Last update timestamps, kept as epoch millis
+
+    public void touch(EntityKind kind, long id) {
+        table(kind, Attribute.LAST_UPDATE).putLong(id, System.currentTimeMillis());
+    }
+
+    /**
+     * Epoch millis of the last update, or Long.MIN_VALUE if none was recorded
+     */
+    public long getLastUpdateMillis(EntityKind kind, long id) {
+        return table(kind, Attribute.LAST_UPDATE).getLong(id, NO_TIMESTAMP);
+    }
+
+    public boolean hasUpdateSince(EntityKind kind, long id, LocalDateTime since) {
+        long lastUpdate = getLastUpdateMillis(kind, id);
+        return lastUpdate != NO_TIMESTAMP
+            && lastUpdate > since.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public LocalDateTime getLastUpdate(EntityKind kind, long id) {
+        long lastUpdate = getLastUpdateMillis(kind, id);
+        return lastUpdate == NO_TIMESTAMP ? null
+            : LocalDateTime.ofInstant(Instant.ofEpochMilli(lastUpdate), ZoneId.systemDefault());
+    }
+
+    // Events
+
+    public BookingEvent getLatestBookingEvent(long establishmentId) {
+        return (BookingEvent) table(EntityKind.ESTABLISHMENT, Attribute.LATEST_BOOKING_EVENT).get(establishmentId);
+    }
+
+    public void recordBookingEvent(BookingEvent event) {
+        table(EntityKind.ESTABLISHMENT, Attribute.LATEST_BOOKING_EVENT).put(event.getEstablishmentId(), event);
+    }
+
+    public EstablishmentEvent getLatestEstablishmentEvent(long establishmentId) {
+        return (EstablishmentEvent) table(EntityKind.ESTABLISHMENT, Attribute.LATEST_ESTABLISHMENT_EVENT).get(establishmentId);
+    }
+
+    public void recordEstablishmentEvent(EstablishmentEvent event) {
+        table(EntityKind.ESTABLISHMENT, Attribute.LATEST_ESTABLISHMENT_EVENT).put(event.getEstablishmentId(), event);
+    }
+
+    /**
+     * Drop every attribute held for one entity
+     */
+    public void clear(EntityKind kind, long id) {
+        for (LongKeyedTable table : tables[kind.ordinal()]) {
+            table.remove(id);
+        }
+    }
+
+    public int size(EntityKind kind, Attribute attribute) {
+        return table(kind, attribute).size();
+    }
+
+    private LongKeyedTable table(EntityKind kind, Attribute attribute) {
+        return tables[kind.ordinal()][attribute.ordinal()];
+    }
+
+    /**
+     * Linear-probing hash table on primitive long keys holding an object and/or a long per key.
+     * Writers take the write lock; readers probe optimistically and only fall back to the read lock
+     * if a write raced them.
+     */
+    static final class LongKeyedTable {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private static final class Slots {
+            final long[] keys;
+            final Object[] values;
+            final long[] longs;
+            final boolean[] used;
+            final int mask;
+
+            Slots(int capacity) {
+                keys = new long[capacity];
+                values = new Object[capacity];
+                longs = new long[capacity];
+                used = new boolean[capacity];
+                mask = capacity - 1;
+            }
+        }
+
+        private final StampedLock lock = new StampedLock();
+        private volatile Slots slots = new Slots(INITIAL_CAPACITY);
+        private int size;
+
+        Object get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            Object value = null;
+            try {
+                Slots current = slots;
+                int index = find(current, key);
+                value = index >= 0 ? current.values[index] : null;
+            } catch (RuntimeException ignored) {
+                // Torn read during a concurrent write; retried below under the read lock
+            }
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                int index = find(slots, key);
+                return index >= 0 ? slots.values[index] : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long getLong(long key, long defaultValue) {
+            long stamp = lock.tryOptimisticRead();
+            long value = defaultValue;
+            try {
+                Slots current = slots;
+                int index = find(current, key);
+                value = index >= 0 ? current.longs[index] : defaultValue;
+            } catch (RuntimeException ignored) {
+                // Torn read during a concurrent write; retried below under the read lock
+            }
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                int index = find(slots, key);
+                return index >= 0 ? slots.longs[index] : defaultValue;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(long key, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                int index = insert(key);
+                slots.values[index] = value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void putLong(long key, long value) {
+            long stamp = lock.writeLock();
+            try {
+                int index = insert(key);
+                slots.longs[index] = value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long key) {
+            long stamp = lock.writeLock();
+            try {
+                Slots current = slots;
+                int index = find(current, key);
+                if (index < 0) {
+                    return;
+                }
+                // Backward-shift deletion keeps probe chains intact without tombstones
+                int hole = index;
+                int next = (hole + 1) & current.mask;
+                while (current.used[next]) {
+                    int home = home(current.keys[next], current.mask);
+                    boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+                    if (movable) {
+                        current.keys[hole] = current.keys[next];
+                        current.values[hole] = current.values[next];
+                        current.longs[hole] = current.longs[next];
+                        hole = next;
+                    }
+                    next = (next + 1) & current.mask;
+                }
+                current.used[hole] = false;
+                current.values[hole] = null;
+                current.longs[hole] = 0L;
+                size--;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Caller holds the write lock; returns the slot for key, claiming one if needed
+        private int insert(long key) {
+            int index = find(slots, key);
+            if (index >= 0) {
+                return index;
+            }
+            if ((size + 1) * 2 > slots.keys.length) {
+                resize(slots.keys.length * 2);
+            }
+            Slots current = slots;
+            index = home(key, current.mask);
+            while (current.used[index]) {
+                index = (index + 1) & current.mask;
+            }
+            current.used[index] = true;
+            current.keys[index] = key;
+            size++;
+            return index;
+        }
+
+        private void resize(int capacity) {
+            Slots previous = slots;
+            Slots resized = new Slots(capacity);
+            for (int i = 0; i < previous.keys.length; i++) {
+                if (previous.used[i]) {
+                    int index = home(previous.keys[i], resized.mask);
+                    while (resized.used[index]) {
+                        index = (index + 1) & resized.mask;
+                    }
+                    resized.used[index] = true;
+                    resized.keys[index] = previous.keys[i];
+                    resized.values[index] = previous.values[i];
+                    resized.longs[index] = previous.longs[i];
+                }
+            }
+            slots = resized;
+        }
+
+        private static int find(Slots current, long key) {
+            int index = home(key, current.mask);
+            for (int probes = 0; probes <= current.mask && current.used[index]; probes++) {
+                if (current.keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & current.mask;
+            }
+            return -1;
+        }
+
+        private static int home(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
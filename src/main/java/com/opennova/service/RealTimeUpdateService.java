@@ -3,26 +3,107 @@ package com.opennova.service;
 import com.opennova.model.Establishment;
 import com.opennova.model.Booking;
 import com.opennova.repository.EstablishmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class RealTimeUpdateService {
     
+    private static final String PUBLIC_LIST_KEY = "public_establishments_list";
+    
+    // What a pending refresh has to announce once it is flushed
+    private enum Change { REFRESH, DETAILS, STATUS }
+    
     @Autowired
     private EstablishmentRepository establishmentRepository;
     
     @Autowired
     private SharedStateService sharedStateService;
     
-    // Cache for real-time updates
-    private final Map<Long, LocalDateTime> lastUpdateCache = new ConcurrentHashMap<>();
+    @Autowired
+    private PublicCatalogService publicCatalogService;
+    
+    @Autowired
+    private GeoIndexService geoIndexService;
+    
+    @Autowired
+    private EstablishmentDetailService establishmentDetailService;
+    
+    @Autowired
+    private RealTimeStateRegistry stateRegistry;
+    
+    @Autowired
+    private UpdateStreamService updateStreamService;
+    
+    @Autowired
+    private EstablishmentEventJournal eventJournal;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Value("${app.updates.coalesce-window-millis:250}")
+    private long coalesceWindowMillis;
+    
+    @Value("${app.updates.coalesce-max-delay-millis:2000}")
+    private long coalesceMaxDelayMillis;
+    
+    // Refreshes waiting out the coalescing window, one per establishment
+    private final Map<Long, PendingRefresh> pendingRefreshes = new ConcurrentHashMap<>();
+    private final AtomicLong refreshesRequested = new AtomicLong();
+    private final AtomicLong refreshesFlushed = new AtomicLong();
+    private ScheduledExecutorService refreshScheduler;
+    
+    /**
+     * Changes merged for one establishment; only touched inside pendingRefreshes.compute()
+     */
+    private static final class PendingRefresh {
+        final long firstAt;
+        long lastAt;
+        boolean statusChanged;
+        boolean detailsChanged;
+        int merged;
+        
+        PendingRefresh(long now) {
+            this.firstAt = now;
+        }
+        
+        void merge(Change change, long now) {
+            lastAt = now;
+            merged++;
+            statusChanged |= change == Change.STATUS;
+            detailsChanged |= change == Change.DETAILS;
+        }
+    }
+    
+    @PostConstruct
+    public void startRefreshScheduler() {
+        refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "establishment-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void stopRefreshScheduler() {
+        refreshScheduler.shutdownNow();
+    }
     
     @Transactional
     public void updateEstablishmentStatus(Long establishmentId, String status, Long ownerId) {
@@ -44,12 +125,9 @@ public class RealTimeUpdateService {
             // Save to database
             establishmentRepository.save(establishment);
             
-            // Update shared state for real-time sync
-            String stateKey = "establishment_" + establishmentId + "_status";
-            sharedStateService.setState(stateKey, status);
-            
-            // Update cache
-            lastUpdateCache.put(establishmentId, LocalDateTime.now());
+            // Update real-time state; caches and subscribers follow once the change settles
+            stateRegistry.setEstablishmentStatus(establishmentId, establishmentStatus);
+            scheduleRefresh(establishmentId, Change.STATUS);
             
             System.out.println("Updated establishment " + establishmentId + " status to: " + status);
             
@@ -61,12 +139,11 @@ public class RealTimeUpdateService {
     
     public String getEstablishmentStatus(Long establishmentId) {
         try {
-            // First check shared state for real-time updates
-            String stateKey = "establishment_" + establishmentId + "_status";
-            String cachedStatus = sharedStateService.getState(stateKey, String.class);
+            // First check real-time state
+            com.opennova.model.EstablishmentStatus cachedStatus = stateRegistry.getEstablishmentStatus(establishmentId);
             
             if (cachedStatus != null) {
-                return cachedStatus;
+                return cachedStatus.name();
             }
             
             // Fallback to database
@@ -74,10 +151,9 @@ public class RealTimeUpdateService {
                 .orElse(null);
             
             if (establishment != null) {
-                String status = establishment.getStatus().toString();
                 // Cache it for next time
-                sharedStateService.setState(stateKey, status);
-                return status;
+                stateRegistry.setEstablishmentStatus(establishmentId, establishment.getStatus());
+                return establishment.getStatus().toString();
             }
             
             return "UNKNOWN";
@@ -88,37 +164,24 @@ public class RealTimeUpdateService {
     }
     
     public void syncEstablishmentData(Long establishmentId) {
-        try {
-            Establishment establishment = establishmentRepository.findById(establishmentId)
-                .orElse(null);
-            
-            if (establishment != null) {
-                // Update all cached data
-                String statusKey = "establishment_" + establishmentId + "_status";
-                String dataKey = "establishment_" + establishmentId + "_data";
-                
-                sharedStateService.setState(statusKey, establishment.getStatus().toString());
-                sharedStateService.setState(dataKey, establishment);
-                
-                lastUpdateCache.put(establishmentId, LocalDateTime.now());
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to sync establishment data: " + e.getMessage());
-        }
+        scheduleRefresh(establishmentId, Change.REFRESH);
+    }
+    
+    /**
+     * Rebuild the cached views of an establishment without announcing a change (plain saves)
+     */
+    public void requestRefresh(Long establishmentId) {
+        scheduleRefresh(establishmentId, Change.REFRESH);
     }
     
     public void notifyBookingUpdate(Booking booking) {
         try {
             Long establishmentId = booking.getEstablishment().getId();
-            String notificationKey = "booking_update_" + establishmentId;
-            
-            Map<String, Object> updateData = new ConcurrentHashMap<>();
-            updateData.put("bookingId", booking.getId());
-            updateData.put("status", booking.getStatus().toString());
-            updateData.put("timestamp", LocalDateTime.now());
-            updateData.put("establishmentId", establishmentId);
             
-            sharedStateService.setState(notificationKey, updateData);
+            RealTimeStateRegistry.BookingEvent event = new RealTimeStateRegistry.BookingEvent(
+                booking.getId(), establishmentId, booking.getStatus(), LocalDateTime.now());
+            stateRegistry.recordBookingEvent(event);
+            publishBookingEvent(event);
             
             System.out.println("Notified booking update for establishment: " + establishmentId);
         } catch (Exception e) {
@@ -126,30 +189,33 @@ public class RealTimeUpdateService {
         }
     }
     
+    /**
+     * Journal entries after the given sequence number; see EstablishmentEventJournal
+     */
+    public Map<String, Object> getUpdatesSince(Long establishmentId, long since, String epoch, boolean includeBookings) {
+        return eventJournal.getUpdatesSince(establishmentId, since, epoch, includeBookings);
+    }
+    
     public boolean hasRecentUpdates(Long establishmentId, LocalDateTime since) {
-        LocalDateTime lastUpdate = lastUpdateCache.get(establishmentId);
-        return lastUpdate != null && lastUpdate.isAfter(since);
+        return stateRegistry.hasUpdateSince(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, establishmentId, since);
     }
     
     public void clearCache(Long establishmentId) {
-        lastUpdateCache.remove(establishmentId);
-        
-        // Clear shared state
-        String statusKey = "establishment_" + establishmentId + "_status";
-        String dataKey = "establishment_" + establishmentId + "_data";
-        String notificationKey = "booking_update_" + establishmentId;
-        
-        sharedStateService.removeState(statusKey);
-        sharedStateService.removeState(dataKey);
-        sharedStateService.removeState(notificationKey);
+        stateRegistry.clear(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, establishmentId);
+        eventJournal.remove(establishmentId);
     }
     
     public void refreshAllEstablishments() {
         try {
             List<Establishment> establishments = establishmentRepository.findAll();
             for (Establishment establishment : establishments) {
-                syncEstablishmentData(establishment.getId());
+                stateRegistry.setEstablishmentStatus(establishment.getId(), establishment.getStatus());
+                stateRegistry.touch(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, establishment.getId());
             }
+            publicCatalogService.rebuildAll();
+            geoIndexService.rebuild();
+            establishmentDetailService.evictAll();
+            sharedStateService.removeState(PUBLIC_LIST_KEY);
             System.out.println("Refreshed " + establishments.size() + " establishments");
         } catch (Exception e) {
             System.err.println("Failed to refresh all establishments: " + e.getMessage());
@@ -158,20 +224,9 @@ public class RealTimeUpdateService {
     
     public void notifyEstablishmentStatusUpdate(Establishment establishment) {
         try {
-            Long establishmentId = establishment.getId();
-            String notificationKey = "status_update_" + establishmentId;
-            
-            Map<String, Object> updateData = new ConcurrentHashMap<>();
-            updateData.put("establishmentId", establishmentId);
-            updateData.put("status", establishment.getStatus().toString());
-            updateData.put("timestamp", LocalDateTime.now());
-            updateData.put("name", establishment.getName());
-            
-            sharedStateService.setState(notificationKey, updateData);
-            
-            // Also update the main status cache
-            String statusKey = "establishment_" + establishmentId + "_status";
-            sharedStateService.setState(statusKey, establishment.getStatus().toString());
+            // Status reads see the new value at once; the rest is coalesced
+            stateRegistry.setEstablishmentStatus(establishment.getId(), establishment.getStatus());
+            scheduleRefresh(establishment.getId(), Change.STATUS);
             
             System.out.println("Notified status update for establishment: " + establishment.getName());
         } catch (Exception e) {
@@ -181,30 +236,193 @@ public class RealTimeUpdateService {
     
     public void notifyEstablishmentUpdate(Establishment establishment) {
         try {
-            Long establishmentId = establishment.getId();
-            String notificationKey = "establishment_update_" + establishmentId;
-            
-            Map<String, Object> updateData = new ConcurrentHashMap<>();
-            updateData.put("establishmentId", establishmentId);
-            updateData.put("name", establishment.getName());
-            updateData.put("operatingHours", establishment.getOperatingHours());
-            updateData.put("weeklySchedule", establishment.getWeeklySchedule());
-            updateData.put("status", establishment.getStatus().toString());
-            updateData.put("timestamp", LocalDateTime.now());
+            scheduleRefresh(establishment.getId(), Change.DETAILS);
             
-            sharedStateService.setState(notificationKey, updateData);
+            System.out.println("Notified establishment update (including operating hours) for: " + establishment.getName());
+        } catch (Exception e) {
+            System.err.println("Failed to notify establishment update: " + e.getMessage());
+        }
+    }
+    
+    public Map<String, Object> getRefreshStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pendingRefreshes.size());
+        stats.put("requested", refreshesRequested.get());
+        stats.put("flushed", refreshesFlushed.get());
+        stats.put("windowMillis", coalesceWindowMillis);
+        stats.put("maxDelayMillis", coalesceMaxDelayMillis);
+        return stats;
+    }
+    
+    /**
+     * Owners tend to save profile, schedule and location back to back. Every change request for an
+     * establishment is held for the coalescing window after commit, and each further request within it
+     * extends the wait (up to the max delay). One flush then reloads the row once, rebuilds every cache
+     * and publishes one event per kind of change: a status change, a schedule/detail change, or both.
+     */
+    private void scheduleRefresh(Long establishmentId, Change change) {
+        if (establishmentId == null) {
+            return;
+        }
+        refreshesRequested.incrementAndGet();
+        afterCommit(() -> {
+            if (coalesceWindowMillis <= 0) {
+                PendingRefresh single = new PendingRefresh(System.currentTimeMillis());
+                single.merge(change, single.firstAt);
+                flushRefresh(establishmentId, single);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            boolean[] opened = new boolean[1];
+            pendingRefreshes.compute(establishmentId, (id, pending) -> {
+                if (pending == null) {
+                    pending = new PendingRefresh(now);
+                    opened[0] = true;
+                }
+                pending.merge(change, now);
+                return pending;
+            });
+            if (opened[0]) {
+                scheduleFlushCheck(establishmentId, coalesceWindowMillis);
+            }
+        });
+    }
+    
+    private void scheduleFlushCheck(Long establishmentId, long delayMillis) {
+        try {
+            refreshScheduler.schedule(() -> flushIfQuiet(establishmentId), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Shutting down; drop the pending refresh rather than leave it stranded
+            PendingRefresh pending = pendingRefreshes.remove(establishmentId);
+            System.err.println("Could not schedule refresh for establishment " + establishmentId + ": " + e.getMessage());
+            if (pending != null) {
+                flushRefresh(establishmentId, pending);
+            }
+        }
+    }
+    
+    // Flushes once the establishment has been quiet for a full window or the max delay has passed
+    private void flushIfQuiet(Long establishmentId) {
+        long now = System.currentTimeMillis();
+        PendingRefresh[] due = new PendingRefresh[1];
+        long[] wait = new long[1];
+        pendingRefreshes.computeIfPresent(establishmentId, (id, pending) -> {
+            long dueAt = Math.min(pending.lastAt + coalesceWindowMillis, pending.firstAt + coalesceMaxDelayMillis);
+            if (now >= dueAt) {
+                due[0] = pending;
+                return null;
+            }
+            wait[0] = dueAt - now;
+            return pending;
+        });
+        if (due[0] != null) {
+            flushRefresh(establishmentId, due[0]);
+        } else if (wait[0] > 0) {
+            scheduleFlushCheck(establishmentId, wait[0]);
+        }
+    }
+    
+    private void flushRefresh(Long establishmentId, PendingRefresh pending) {
+        try {
+            sharedStateService.removeState(PUBLIC_LIST_KEY); // Force refresh on next request
+            establishmentDetailService.evict(establishmentId);
             
-            // Also update the main establishment data cache
-            String dataKey = "establishment_" + establishmentId + "_data";
-            sharedStateService.setState(dataKey, establishment);
+            Establishment establishment = establishmentRepository.findById(establishmentId).orElse(null);
+            if (establishment == null) {
+                // Deleted while the refresh was pending
+                publicCatalogService.removeEstablishment(establishmentId);
+                geoIndexService.remove(establishmentId);
+                searchIndexService.removeEstablishment(establishmentId);
+                return;
+            }
             
-            // Update the public establishments list cache to force refresh
-            String publicListKey = "public_establishments_list";
-            sharedStateService.removeState(publicListKey); // Force refresh on next request
+            stateRegistry.setEstablishmentStatus(establishmentId, establishment.getStatus());
+            stateRegistry.touch(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, establishmentId);
+            publicCatalogService.refreshEstablishment(establishment);
+            geoIndexService.update(establishment);
+            searchIndexService.indexEstablishment(establishment);
             
-            System.out.println("Notified establishment update (including operating hours) for: " + establishment.getName());
+            // A merged status change and schedule/detail change each keep their own event
+            if (pending.statusChanged) {
+                announce(RealTimeStateRegistry.EstablishmentEvent.Type.STATUS, establishment, pending.merged);
+            }
+            if (pending.detailsChanged) {
+                announce(RealTimeStateRegistry.EstablishmentEvent.Type.UPDATE, establishment, pending.merged);
+            }
         } catch (Exception e) {
-            System.err.println("Failed to notify establishment update: " + e.getMessage());
+            System.err.println("Failed to refresh establishment " + establishmentId + ": " + e.getMessage());
+        } finally {
+            // Counted once the flush is done, so the count never runs ahead of what readers can see
+            refreshesFlushed.incrementAndGet();
+        }
+    }
+    
+    private void announce(RealTimeStateRegistry.EstablishmentEvent.Type type, Establishment establishment, int coalesced) {
+        RealTimeStateRegistry.EstablishmentEvent event = new RealTimeStateRegistry.EstablishmentEvent(
+            type, establishment.getId(), establishment.getName(), establishment.getStatus(),
+            establishment.getOperatingHours(), establishment.getWeeklySchedule(), LocalDateTime.now());
+        stateRegistry.recordEstablishmentEvent(event);
+        publishEstablishmentEvent(event, coalesced);
+    }
+    
+    // Journal the event and push it to open SSE streams once the change is committed
+    private void publishBookingEvent(RealTimeStateRegistry.BookingEvent event) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("bookingId", event.getBookingId());
+        data.put("status", event.getStatus() != null ? event.getStatus().name() : null);
+        data.put("timestamp", event.getTimestamp().toString());
+        EstablishmentEventJournal.EventType type = journalType(event.getStatus());
+        afterCommit(() -> {
+            EstablishmentEventJournal.Entry entry = eventJournal.append(event.getEstablishmentId(), type, data);
+            updateStreamService.publish(UpdateStreamService.Topic.ESTABLISHMENT, event.getEstablishmentId(), "booking", entry.getPayload());
+            updateStreamService.publish(UpdateStreamService.Topic.BOOKING, event.getBookingId(), "booking", entry.getPayload());
+        });
+    }
+    
+    private void publishEstablishmentEvent(RealTimeStateRegistry.EstablishmentEvent event, int coalesced) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("coalesced", coalesced);
+        data.put("name", event.getName());
+        data.put("status", event.getStatus() != null ? event.getStatus().name() : null);
+        data.put("operatingHours", event.getOperatingHours());
+        data.put("weeklySchedule", event.getWeeklySchedule());
+        data.put("timestamp", event.getTimestamp().toString());
+        boolean statusChange = event.getType() == RealTimeStateRegistry.EstablishmentEvent.Type.STATUS;
+        EstablishmentEventJournal.EventType type = statusChange
+            ? EstablishmentEventJournal.EventType.STATUS_CHANGED : EstablishmentEventJournal.EventType.SCHEDULE_CHANGED;
+        afterCommit(() -> {
+            EstablishmentEventJournal.Entry entry = eventJournal.append(event.getEstablishmentId(), type, data);
+            updateStreamService.publish(UpdateStreamService.Topic.ESTABLISHMENT, event.getEstablishmentId(),
+                statusChange ? "establishment-status" : "establishment-update", entry.getPayload());
+        });
+    }
+    
+    private static EstablishmentEventJournal.EventType journalType(com.opennova.model.BookingStatus status) {
+        if (status == null) {
+            return EstablishmentEventJournal.EventType.BOOKING_UPDATED;
+        }
+        switch (status) {
+            case PENDING:
+                return EstablishmentEventJournal.EventType.BOOKING_CREATED;
+            case CONFIRMED:
+                return EstablishmentEventJournal.EventType.BOOKING_CONFIRMED;
+            case CANCELLED:
+                return EstablishmentEventJournal.EventType.BOOKING_CANCELLED;
+            default:
+                return EstablishmentEventJournal.EventType.BOOKING_UPDATED;
+        }
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
-}
\ No newline at end of file
+}
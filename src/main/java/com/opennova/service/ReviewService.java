@@ -8,6 +8,9 @@ import com.opennova.repository.EstablishmentRepository;
 import com.opennova.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,6 +31,13 @@ public class ReviewService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private RatingStatsService ratingStatsService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Transactional
     public Review createReview(Long userId, Long establishmentId, int rating, String comment) {
         try {
             User user = userRepository.findById(userId)
@@ -45,14 +55,16 @@ public class ReviewService {
             review.setCreatedAt(LocalDateTime.now());
 
             Review savedReview = reviewRepository.save(review);
+            ratingStatsService.recordChange(establishmentId, null, approvedRating(savedReview));
+            userStatsService.invalidate(user.getId());
 
             // Send notification to owner for approval
-            notificationService.sendOwnerNotification(
+            afterCommit(() -> notificationService.sendOwnerNotification(
                 establishment.getOwner().getId(),
                 "New Review Pending Approval",
                 String.format("New %d-star review from %s requires your approval", rating, user.getName()),
                 NotificationService.NotificationType.SYSTEM_ALERT
-            );
+            ));
 
             return savedReview;
         } catch (Exception e) {
@@ -85,6 +97,7 @@ public class ReviewService {
         return reviewRepository.findAllByOrderByCreatedAtDesc();
     }
 
+    @Transactional
     public boolean deleteReview(Long reviewId, Long requesterId, String requesterRole) {
         try {
             Optional<Review> reviewOpt = reviewRepository.findById(reviewId);
@@ -110,24 +123,26 @@ public class ReviewService {
             }
 
             reviewRepository.delete(review);
+            ratingStatsService.recordChange(review.getEstablishment().getId(), approvedRating(review), null);
+            userStatsService.invalidate(review.getUser().getId());
 
             // Send notification
             if ("OWNER".equals(requesterRole) || "ADMIN".equals(requesterRole)) {
-                notificationService.sendUserNotification(
+                afterCommit(() -> notificationService.sendUserNotification(
                     review.getUser().getId(),
                     "Review Deleted",
                     "Your review has been deleted by " + requesterRole.toLowerCase(),
                     NotificationService.NotificationType.SYSTEM_ALERT
-                );
+                ));
             }
 
             return true;
         } catch (Exception e) {
-            System.err.println("Failed to delete review: " + e.getMessage());
-            return false;
+            throw new RuntimeException("Failed to delete review: " + e.getMessage(), e);
         }
     }
 
+    @Transactional
     public Review updateReview(Long reviewId, Long userId, int rating, String comment) {
         try {
             Review review = reviewRepository.findById(reviewId)
@@ -137,19 +152,22 @@ public class ReviewService {
                 throw new RuntimeException("Unauthorized to update this review");
             }
 
+            Integer previousRating = approvedRating(review);
             review.setRating(rating);
             review.setComment(comment);
             review.setUpdatedAt(LocalDateTime.now());
 
-            return reviewRepository.save(review);
+            Review savedReview = reviewRepository.save(review);
+            ratingStatsService.recordChange(savedReview.getEstablishment().getId(), previousRating, approvedRating(savedReview));
+            userStatsService.invalidate(userId);
+            return savedReview;
         } catch (Exception e) {
             throw new RuntimeException("Failed to update review: " + e.getMessage(), e);
         }
     }
 
     public double getAverageRating(Long establishmentId) {
-        Double average = reviewRepository.getAverageRatingByEstablishmentId(establishmentId);
-        return average != null ? average : 0.0;
+        return ratingStatsService.getStats(establishmentId).getAverageRating();
     }
 
     public long getReviewCount(Long establishmentId) {
@@ -160,6 +178,7 @@ public class ReviewService {
         return reviewRepository.count();
     }
 
+    @Transactional
     public Review approveReview(Long reviewId, Long ownerId) {
         try {
             Review review = reviewRepository.findById(reviewId)
@@ -178,14 +197,15 @@ public class ReviewService {
             review.setApprovedAt(LocalDateTime.now());
 
             Review savedReview = reviewRepository.save(review);
+            ratingStatsService.recordChange(review.getEstablishment().getId(), null, approvedRating(savedReview));
 
             // Send notification to user
-            notificationService.sendUserNotification(
+            afterCommit(() -> notificationService.sendUserNotification(
                 review.getUser().getId(),
                 "Review Approved",
                 "Your review for " + review.getEstablishment().getName() + " has been approved and is now visible to other users",
                 NotificationService.NotificationType.SYSTEM_ALERT
-            );
+            ));
 
             return savedReview;
         } catch (Exception e) {
@@ -193,6 +213,7 @@ public class ReviewService {
         }
     }
 
+    @Transactional
     public Review rejectReview(Long reviewId, Long ownerId, String reason) {
         try {
             Review review = reviewRepository.findById(reviewId)
@@ -207,19 +228,21 @@ public class ReviewService {
                 throw new RuntimeException("Review is not pending approval");
             }
 
+            Integer previousRating = approvedRating(review);
             review.setStatus(com.opennova.model.ReviewStatus.REJECTED);
             review.setRejectedAt(LocalDateTime.now());
             review.setRejectionReason(reason);
 
             Review savedReview = reviewRepository.save(review);
+            ratingStatsService.recordChange(review.getEstablishment().getId(), previousRating, null);
 
             // Send notification to user
-            notificationService.sendUserNotification(
+            afterCommit(() -> notificationService.sendUserNotification(
                 review.getUser().getId(),
                 "Review Rejected",
                 "Your review for " + review.getEstablishment().getName() + " was not approved. Reason: " + reason,
                 NotificationService.NotificationType.SYSTEM_ALERT
-            );
+            ));
 
             return savedReview;
         } catch (Exception e) {
@@ -273,4 +296,23 @@ public class ReviewService {
             return new java.util.ArrayList<>();
         }
     }
+
+    // Notifications describe committed changes, so they wait for the commit
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Rating that counts towards the public aggregate, null when the review is not approved
+    private Integer approvedRating(Review review) {
+        return review.getStatus() == com.opennova.model.ReviewStatus.APPROVED ? review.getRating() : null;
+    }
 }
\ No newline at end of file
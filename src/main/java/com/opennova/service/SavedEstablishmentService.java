@@ -27,6 +27,9 @@ public class SavedEstablishmentService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserStatsService userStatsService;
+
     /**
      * Save an establishment for a user
      */
@@ -43,7 +46,9 @@ public class SavedEstablishmentService {
                 .orElseThrow(() -> new RuntimeException("Establishment not found"));
 
         SavedEstablishment savedEstablishment = new SavedEstablishment(user, establishment);
-        return savedEstablishmentRepository.save(savedEstablishment);
+        SavedEstablishment saved = savedEstablishmentRepository.save(savedEstablishment);
+        userStatsService.invalidate(userId);
+        return saved;
     }
 
     /**
@@ -55,6 +60,7 @@ public class SavedEstablishmentService {
         
         if (savedEstablishment.isPresent()) {
             savedEstablishmentRepository.delete(savedEstablishment.get());
+            userStatsService.invalidate(userId);
         } else {
             throw new RuntimeException("Saved establishment not found");
         }
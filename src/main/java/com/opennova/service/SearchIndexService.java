@@ -0,0 +1,438 @@
+package com.opennova.service;
+
+import com.opennova.model.Collection;
+import com.opennova.model.Doctor;
+import com.opennova.model.Establishment;
+import com.opennova.model.Menu;
+import com.opennova.repository.CollectionRepository;
+import com.opennova.repository.DoctorRepository;
+import com.opennova.repository.EstablishmentRepository;
+import com.opennova.repository.MenuRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-process inverted index over establishments, menus, doctors and shop collections.
+ * Exact and prefix matches come from the term postings; typo tolerance from a trigram index over the vocabulary.
+ */
+@Service
+public class SearchIndexService {
+
+    public enum DocumentKind {
+        ESTABLISHMENT,
+        MENU,
+        DOCTOR,
+        COLLECTION
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 50;
+
+    private static final int TITLE_FIELD = 2;
+    private static final int BODY_FIELD = 1;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.4;
+    private static final int MAX_FUZZY_TERMS = 20;
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private CollectionRepository collectionRepository;
+
+    @Autowired
+    private PublicCatalogService publicCatalogService;
+
+    private final Map<String, SearchDocument> documents = new ConcurrentHashMap<>();
+    // term -> (document key -> field mask)
+    private final Map<String, Map<String, Integer>> postings = new ConcurrentHashMap<>();
+    private final NavigableSet<String> vocabulary = new ConcurrentSkipListSet<>();
+    private final Map<String, Set<String>> trigramTerms = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> documentsByEstablishment = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    private static final class SearchDocument {
+        private final String key;
+        private final DocumentKind kind;
+        private final long id;
+        private final long establishmentId;
+        private final String title;
+        private final String subtitle;
+        private final Map<String, Integer> terms;
+
+        SearchDocument(DocumentKind kind, long id, long establishmentId, String title, String subtitle,
+                       Map<String, Integer> terms) {
+            this.key = kind + ":" + id;
+            this.kind = kind;
+            this.id = id;
+            this.establishmentId = establishmentId;
+            this.title = title;
+            this.subtitle = subtitle;
+            this.terms = terms;
+        }
+    }
+
+    // Indexing
+
+    public void indexEstablishment(Establishment establishment) {
+        // Before the first full load there is nothing to update incrementally
+        if (loaded) {
+            addEstablishment(establishment);
+        }
+    }
+
+    private void addEstablishment(Establishment establishment) {
+        if (establishment == null || establishment.getId() == null) {
+            return;
+        }
+        boolean active = establishment.getIsActive() != null && establishment.getIsActive();
+        String key = DocumentKind.ESTABLISHMENT + ":" + establishment.getId();
+        if (!active) {
+            removeDocument(key);
+            return;
+        }
+        String type = establishment.getType() != null ? establishment.getType().name() : null;
+        put(DocumentKind.ESTABLISHMENT, establishment.getId(), establishment.getId(),
+            establishment.getName(), establishment.getAddress(),
+            new String[] { establishment.getName() },
+            new String[] { establishment.getAddress(), type });
+    }
+
+    public void indexMenu(Menu menu) {
+        if (loaded) {
+            addMenu(menu);
+        }
+    }
+
+    private void addMenu(Menu menu) {
+        if (menu == null || menu.getId() == null || menu.getEstablishment() == null) {
+            return;
+        }
+        if (menu.getIsActive() == null || !menu.getIsActive()) {
+            removeDocument(DocumentKind.MENU + ":" + menu.getId());
+            return;
+        }
+        put(DocumentKind.MENU, menu.getId(), menu.getEstablishment().getId(),
+            menu.getName(), menu.getCategory(),
+            new String[] { menu.getName() },
+            new String[] { menu.getCategory(), menu.getDescription() });
+    }
+
+    public void indexDoctor(Doctor doctor) {
+        if (loaded) {
+            addDoctor(doctor);
+        }
+    }
+
+    private void addDoctor(Doctor doctor) {
+        if (doctor == null || doctor.getId() == null || doctor.getEstablishment() == null) {
+            return;
+        }
+        if (doctor.getIsActive() == null || !doctor.getIsActive()) {
+            removeDocument(DocumentKind.DOCTOR + ":" + doctor.getId());
+            return;
+        }
+        put(DocumentKind.DOCTOR, doctor.getId(), doctor.getEstablishment().getId(),
+            doctor.getName(), doctor.getSpecialization(),
+            new String[] { doctor.getName(), doctor.getSpecialization() },
+            new String[0]);
+    }
+
+    public void indexCollection(Collection collection) {
+        if (loaded) {
+            addCollection(collection);
+        }
+    }
+
+    private void addCollection(Collection collection) {
+        if (collection == null || collection.getId() == null || collection.getEstablishment() == null) {
+            return;
+        }
+        if (collection.getIsActive() == null || !collection.getIsActive()) {
+            removeDocument(DocumentKind.COLLECTION + ":" + collection.getId());
+            return;
+        }
+        put(DocumentKind.COLLECTION, collection.getId(), collection.getEstablishment().getId(),
+            collection.getItemName(), collection.getBrand(),
+            new String[] { collection.getItemName(), collection.getBrand() },
+            new String[] { collection.getDescription(), collection.getFabric(), collection.getColors() });
+    }
+
+    public void remove(DocumentKind kind, Long id) {
+        if (kind != null && id != null) {
+            removeDocument(kind + ":" + id);
+        }
+    }
+
+    /**
+     * Drop an establishment together with its menus, doctors and collections
+     */
+    public synchronized void removeEstablishment(Long establishmentId) {
+        Set<String> keys = documentsByEstablishment.get(establishmentId);
+        if (keys != null) {
+            for (String key : new ArrayList<>(keys)) {
+                removeDocument(key);
+            }
+        }
+    }
+
+    public synchronized void rebuild() {
+        documents.clear();
+        postings.clear();
+        vocabulary.clear();
+        trigramTerms.clear();
+        documentsByEstablishment.clear();
+
+        establishmentRepository.findByIsActiveTrue().forEach(this::addEstablishment);
+        menuRepository.findByIsActiveTrue().forEach(this::addMenu);
+        doctorRepository.findByIsActiveTrue().forEach(this::addDoctor);
+        collectionRepository.findByIsActiveTrue().forEach(this::addCollection);
+        loaded = true;
+        System.out.println("Built search index with " + documents.size() + " documents and " + vocabulary.size() + " terms");
+    }
+
+    // Querying
+
+    /**
+     * Ranked search; kinds may be null for all document kinds. Results from inactive establishments are skipped.
+     */
+    public Map<String, Object> search(String query, Set<DocumentKind> kinds, Integer page, Integer size) {
+        ensureLoaded();
+        int pageNumber = page == null || page < 0 ? 0 : page;
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        Map<String, Double> scores = new HashMap<>();
+        boolean first = true;
+        for (String term : queryTerms) {
+            Map<String, Double> termScores = scoreTerm(term);
+            if (first) {
+                scores.putAll(termScores);
+                first = false;
+            } else {
+                // Every query term has to match (exactly, by prefix or fuzzily)
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((key, score) -> score + termScores.get(key));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        PublicCatalogService.CatalogSnapshot catalog = publicCatalogService.getSnapshot();
+        List<Map<String, Object>> hits = new ArrayList<>();
+        scores.entrySet().stream()
+            .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .forEach(entry -> {
+                SearchDocument document = documents.get(entry.getKey());
+                if (document == null || (kinds != null && !kinds.isEmpty() && !kinds.contains(document.kind))) {
+                    return;
+                }
+                Map<String, Object> establishment = catalog.getById(document.establishmentId);
+                if (establishment == null) {
+                    return;
+                }
+                Map<String, Object> hit = new HashMap<>();
+                hit.put("kind", document.kind.name());
+                hit.put("id", document.id);
+                hit.put("establishmentId", document.establishmentId);
+                hit.put("establishmentName", establishment.get("name"));
+                hit.put("establishmentType", establishment.get("type"));
+                hit.put("title", document.title);
+                hit.put("subtitle", document.subtitle);
+                hit.put("score", Math.round(entry.getValue() * 100.0) / 100.0);
+                hits.add(hit);
+            });
+
+        int from = Math.min(hits.size(), pageNumber * pageSize);
+        int to = Math.min(hits.size(), from + pageSize);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("query", query);
+        result.put("results", new ArrayList<>(hits.subList(from, to)));
+        result.put("total", hits.size());
+        result.put("page", pageNumber);
+        result.put("size", pageSize);
+        result.put("hasMore", to < hits.size());
+        return result;
+    }
+
+    public List<Long> searchEstablishmentIds(String query) {
+        Map<String, Object> result = search(query, Set.of(DocumentKind.ESTABLISHMENT), 0, MAX_PAGE_SIZE);
+        List<Long> ids = new ArrayList<>();
+        for (Object hit : (List<?>) result.get("results")) {
+            ids.add((Long) ((Map<?, ?>) hit).get("id"));
+        }
+        return ids;
+    }
+
+    private Map<String, Double> scoreTerm(String term) {
+        Map<String, Double> scores = new HashMap<>();
+
+        // Exact match
+        accumulate(scores, term, 10.0, 4.0);
+
+        // Prefix matches ("bir" -> "biryani")
+        if (term.length() >= MIN_PREFIX_LENGTH) {
+            for (String candidate : vocabulary.subSet(term, false, term + Character.MAX_VALUE, false)) {
+                double closeness = (double) term.length() / candidate.length();
+                accumulate(scores, candidate, 4.0 + 2.0 * closeness, 1.5 + closeness);
+            }
+        }
+
+        // Typo tolerance through shared trigrams ("biriyani" -> "biryani")
+        if (term.length() >= 3) {
+            for (Map.Entry<String, Double> fuzzy : fuzzyTerms(term).entrySet()) {
+                accumulate(scores, fuzzy.getKey(), 6.0 * fuzzy.getValue(), 2.0 * fuzzy.getValue());
+            }
+        }
+        return scores;
+    }
+
+    private void accumulate(Map<String, Double> scores, String term, double titleWeight, double bodyWeight) {
+        Map<String, Integer> posting = postings.get(term);
+        if (posting == null) {
+            return;
+        }
+        posting.forEach((key, fields) -> {
+            double weight = (fields & TITLE_FIELD) != 0 ? titleWeight : bodyWeight;
+            scores.merge(key, weight, Math::max);
+        });
+    }
+
+    private Map<String, Double> fuzzyTerms(String term) {
+        Set<String> queryGrams = trigrams(term);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            Set<String> terms = trigramTerms.get(gram);
+            if (terms != null) {
+                for (String candidate : terms) {
+                    shared.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<String, Double> matches = new HashMap<>();
+        shared.entrySet().stream()
+            .filter(entry -> !entry.getKey().equals(term))
+            .map(entry -> {
+                // Dice coefficient over the padded trigram sets
+                int candidateGrams = trigrams(entry.getKey()).size();
+                double similarity = 2.0 * entry.getValue() / (queryGrams.size() + candidateGrams);
+                return Map.entry(entry.getKey(), similarity);
+            })
+            .filter(entry -> entry.getValue() >= MIN_TRIGRAM_SIMILARITY)
+            .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+            .limit(MAX_FUZZY_TERMS)
+            .forEach(entry -> matches.put(entry.getKey(), entry.getValue()));
+        return matches;
+    }
+
+    // Index maintenance
+
+    private synchronized void put(DocumentKind kind, long id, long establishmentId, String title, String subtitle,
+                                  String[] titleFields, String[] bodyFields) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String field : titleFields) {
+            for (String term : tokenize(field)) {
+                terms.merge(term, TITLE_FIELD, (a, b) -> a | b);
+            }
+        }
+        for (String field : bodyFields) {
+            for (String term : tokenize(field)) {
+                terms.merge(term, BODY_FIELD, (a, b) -> a | b);
+            }
+        }
+
+        SearchDocument document = new SearchDocument(kind, id, establishmentId, title, subtitle, terms);
+        removeDocument(document.key);
+        documents.put(document.key, document);
+        documentsByEstablishment.computeIfAbsent(establishmentId, k -> ConcurrentHashMap.newKeySet()).add(document.key);
+        terms.forEach((term, fields) -> {
+            postings.computeIfAbsent(term, k -> new ConcurrentHashMap<>()).put(document.key, fields);
+            if (vocabulary.add(term)) {
+                for (String gram : trigrams(term)) {
+                    trigramTerms.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(term);
+                }
+            }
+        });
+    }
+
+    private synchronized void removeDocument(String key) {
+        SearchDocument previous = documents.remove(key);
+        if (previous == null) {
+            return;
+        }
+        Set<String> siblings = documentsByEstablishment.get(previous.establishmentId);
+        if (siblings != null) {
+            siblings.remove(key);
+        }
+        for (String term : previous.terms.keySet()) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(key);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                vocabulary.remove(term);
+                for (String gram : trigrams(term)) {
+                    Set<String> terms = trigramTerms.get(gram);
+                    if (terms != null) {
+                        terms.remove(term);
+                    }
+                }
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
@@ -1,20 +1,38 @@
 package com.opennova.service;
 
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
 import java.util.Map;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.stream.Collectors;
 
 @Service
 public class SharedStateService {
     
-    private final Map<String, Object> sharedState = new ConcurrentHashMap<>();
-    private final List<Map<String, Object>> establishmentRequests = new ArrayList<>();
+    @Value("${app.shared-state.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${app.shared-state.ttl-seconds:1800}")
+    private long defaultTtlSeconds;
+    
+    // Cached JPA entities go stale quickly, so they get a shorter lifetime
+    @Value("${app.shared-state.entity-ttl-seconds:300}")
+    private long entityTtlSeconds;
+    
+    private StateCache sharedState;
+    
+    @PostConstruct
+    public void initCache() {
+        sharedState = new StateCache(maxEntries);
+    }
     
     public void setState(String key, Object value) {
-        sharedState.put(key, value);
+        long ttlSeconds = value != null && StateCache.isEntity(value) ? entityTtlSeconds : defaultTtlSeconds;
+        sharedState.put(key, value, Duration.ofSeconds(ttlSeconds).toNanos());
+    }
+    
+    public void setState(String key, Object value, Duration ttl) {
+        sharedState.put(key, value, ttl != null ? ttl.toNanos() : 0L);
     }
     
     public Object getState(String key) {
@@ -41,60 +59,10 @@ public class SharedStateService {
         sharedState.clear();
     }
     
-    // Establishment Request Management
-    public synchronized void addEstablishmentRequest(Map<String, Object> request) {
-        establishmentRequests.add(request);
-    }
-    
-    public synchronized List<Map<String, Object>> getAllEstablishmentRequests() {
-        return new ArrayList<>(establishmentRequests);
-    }
-    
-    public synchronized List<Map<String, Object>> getUserEstablishmentRequests(Long userId) {
-        return establishmentRequests.stream()
-            .filter(request -> userId.equals(request.get("requestedBy")))
-            .collect(Collectors.toList());
-    }
-    
-    public synchronized boolean removeEstablishmentRequest(Long requestId) {
-        return establishmentRequests.removeIf(request -> {
-            Object id = request.get("id");
-            if (id instanceof Long) {
-                return requestId.equals(id);
-            } else if (id instanceof Number) {
-                return requestId.equals(((Number) id).longValue());
-            }
-            return false;
-        });
-    }
-    
-    public synchronized Map<String, Object> getEstablishmentRequest(Long requestId) {
-        return establishmentRequests.stream()
-            .filter(request -> {
-                Object id = request.get("id");
-                if (id instanceof Long) {
-                    return requestId.equals(id);
-                } else if (id instanceof Number) {
-                    return requestId.equals(((Number) id).longValue());
-                }
-                return false;
-            })
-            .findFirst()
-            .orElse(null);
-    }
-    
-    public synchronized void updateEstablishmentRequestStatus(Long requestId, String status) {
-        establishmentRequests.stream()
-            .filter(request -> {
-                Object id = request.get("id");
-                if (id instanceof Long) {
-                    return requestId.equals(id);
-                } else if (id instanceof Number) {
-                    return requestId.equals(((Number) id).longValue());
-                }
-                return false;
-            })
-            .findFirst()
-            .ifPresent(request -> request.put("status", status));
+    /**
+     * Size, hit/miss and eviction/expiration counters of the state cache
+     */
+    public Map<String, Object> getCacheStats() {
+        return sharedState.stats();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,339 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingSlot;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.Establishment;
+import com.opennova.repository.BookingRepository;
+import com.opennova.repository.BookingSlotRepository;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seat inventory per establishment, date and time slot.
+ * A CAS counter per slot admits or rejects a reservation without touching the database when the slot is
+ * known to be full; admitted reservations are then taken on the booking_slots row with a conditional
+ * UPDATE, which stays the arbiter when several instances share the database.
+ * The limit is the establishment's slot capacity, else app.slots.capacity-per-slot; seats are counted
+ * even without a limit, so one set later starts from the right numbers.
+ */
+@Service
+public class SlotInventoryService {
+
+    @Autowired
+    private BookingSlotRepository slotRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EstablishmentBookingStatsRepository statsRepository;
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final List<BookingStatus> ACTIVE = List.copyOf(EnumSet.of(BookingStatus.PENDING, BookingStatus.CONFIRMED));
+
+    // Capacity of establishments that have not set their own; 0 or less is no limit
+    @Value("${app.slots.capacity-per-slot:0}")
+    private int defaultCapacity;
+
+    // No limit, still within the booking_slots integer column
+    static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // Day views older than this are reloaded so bookings taken by other instances are seen
+    @Value("${app.slots.reload-seconds:60}")
+    private long reloadSeconds;
+
+    // Keyed by establishment id and epoch day packed into one long
+    private final Map<Long, DayOccupancy> days = new ConcurrentHashMap<>();
+
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong rejectedInMemory = new AtomicLong();
+    private final AtomicLong rejectedByDatabase = new AtomicLong();
+
+    // Set once a backfill pass has finished on this instance; until then day views are not loaded
+    private volatile boolean backfilled;
+    private final Object backfillLock = new Object();
+
+    // Seats taken in one slot; the capacity comes from the establishment on every check, so a changed limit applies at once
+    private static final class SlotCounter {
+        final AtomicInteger taken;
+
+        SlotCounter(int taken) {
+            this.taken = new AtomicInteger(taken);
+        }
+
+        boolean tryAcquire(int capacity) {
+            while (true) {
+                int current = taken.get();
+                if (current >= capacity) {
+                    return false;
+                }
+                if (taken.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            while (true) {
+                int current = taken.get();
+                if (current <= 0 || taken.compareAndSet(current, current - 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counters for one establishment on one day, keyed by minute of day
+     */
+    private static final class DayOccupancy {
+        final long loadedAt = System.currentTimeMillis();
+        final Map<Integer, SlotCounter> slots = new ConcurrentHashMap<>();
+
+        boolean fresh(long reloadMillis) {
+            return System.currentTimeMillis() - loadedAt < reloadMillis;
+        }
+    }
+
+    /**
+     * Take one seat in the slot. Returns false when it is full; throws if the date or time cannot be read.
+     */
+    public boolean reserve(Establishment establishment, String visitingDate, String visitingTime) {
+        LocalDate date = parseDate(visitingDate);
+        LocalTime time = parseTime(visitingTime);
+        if (date == null || time == null) {
+            throw new RuntimeException("Invalid visiting date or time: " + visitingDate + " " + visitingTime);
+        }
+        Long establishmentId = establishment.getId();
+        int capacity = capacityOf(establishment);
+
+        SlotCounter counter = counter(establishmentId, date, time);
+        if (!counter.tryAcquire(capacity)) {
+            rejectedInMemory.incrementAndGet();
+            return false;
+        }
+
+        boolean taken = false;
+        try {
+            slotRepository.ensureSlot(establishmentId, date, time, capacity);
+            taken = slotRepository.tryReserve(establishmentId, date, time, capacity) == 1;
+        } finally {
+            if (!taken) {
+                counter.release();
+            }
+        }
+        if (!taken) {
+            // Another instance filled it; reload this day on the next request
+            rejectedByDatabase.incrementAndGet();
+            days.remove(dayKey(establishmentId, date));
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The row update is undone if the caller's transaction rolls back; give the local seat back with it
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        counter.release();
+                    }
+                }
+            });
+        }
+        reserved.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Give back a seat taken by reserve (booking cancelled, rejected or deleted). Call it in the transaction that
+     * changes the booking: a database error is thrown so that change rolls back with it.
+     */
+    public void release(Long establishmentId, String visitingDate, String visitingTime) {
+        LocalDate date = parseDate(visitingDate);
+        LocalTime time = parseTime(visitingTime);
+        if (establishmentId == null || date == null || time == null) {
+            return;
+        }
+        slotRepository.release(establishmentId, date, time);
+        DayOccupancy day = days.get(dayKey(establishmentId, date));
+        SlotCounter counter = day != null ? day.slots.get(minuteOfDay(time)) : null;
+        if (counter == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The row update is undone if the caller's transaction rolls back; keep the local seat taken until it commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        counter.release();
+                    }
+                }
+            });
+        } else {
+            counter.release();
+        }
+    }
+
+    public boolean hasCapacity(Establishment establishment, String visitingDate, String visitingTime) {
+        LocalDate date = parseDate(visitingDate);
+        LocalTime time = parseTime(visitingTime);
+        if (establishment == null || establishment.getId() == null || date == null || time == null) {
+            return false;
+        }
+        SlotCounter counter = counter(establishment.getId(), date, time);
+        return counter.taken.get() < capacityOf(establishment);
+    }
+
+    /**
+     * Seats per slot for the establishment: its own setting, else the configured default; UNLIMITED when neither is positive
+     */
+    public int capacityOf(Establishment establishment) {
+        Integer own = establishment.getSlotCapacity();
+        int capacity = own != null ? own : defaultCapacity;
+        return capacity > 0 ? capacity : UNLIMITED;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loadedDays", days.size());
+        stats.put("reserved", reserved.get());
+        stats.put("rejectedInMemory", rejectedInMemory.get());
+        stats.put("rejectedByDatabase", rejectedByDatabase.get());
+        return stats;
+    }
+
+    /**
+     * Seed booking_slots for establishments that predate the slot table (or whose seeding was interrupted), one
+     * transaction each, marking each one done on its booking stats row. Active bookings are grouped with the same
+     * date and time parsing as reserve, so "2:30 PM", "14:30" and "14:30:15" share a slot. Existing slots are only
+     * ever raised, and slots already over capacity get a capacity equal to their bookings so the check constraint holds.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        try {
+            awaitBackfill();
+        } catch (Exception e) {
+            System.err.println("❌ Failed to backfill booking slots: " + e.getMessage());
+        }
+    }
+
+    // Reservations taken before the seed would count their slot as empty; the first one on this instance runs
+    // the pass itself if the startup one has not finished (or failed), and throws if it fails again
+    private void awaitBackfill() {
+        if (backfilled) {
+            return;
+        }
+        synchronized (backfillLock) {
+            if (backfilled) {
+                return;
+            }
+            // Not part of a caller's booking transaction: each establishment commits on its own
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            int seeded = 0;
+            for (Long establishmentId : statsRepository.findIdsWithoutSlots()) {
+                Integer rows = transaction.execute(status -> backfill(establishmentId));
+                seeded += rows != null ? rows : 0;
+            }
+            // Any day loaded before the seed counted its slots as empty
+            days.clear();
+            backfilled = true;
+            if (seeded > 0) {
+                System.out.println("✅ Backfilled " + seeded + " booking slots");
+            }
+        }
+    }
+
+    private int backfill(Long establishmentId) {
+        int capacity = establishmentRepository.findById(establishmentId).map(this::capacityOf).orElse(UNLIMITED);
+        Map<LocalDate, Map<LocalTime, Integer>> taken = new TreeMap<>();
+        for (Object[] row : bookingRepository.findSlotRowsByEstablishment(establishmentId, ACTIVE)) {
+            LocalDate date = parseDate((String) row[0]);
+            LocalTime time = parseTime((String) row[1]);
+            if (date != null && time != null) {
+                taken.computeIfAbsent(date, day -> new TreeMap<>()).merge(time, 1, Integer::sum);
+            }
+        }
+        int seeded = 0;
+        for (Map.Entry<LocalDate, Map<LocalTime, Integer>> day : taken.entrySet()) {
+            for (Map.Entry<LocalTime, Integer> slot : day.getValue().entrySet()) {
+                seeded += slotRepository.seedSlot(establishmentId, day.getKey(), slot.getKey(),
+                    Math.max(capacity, slot.getValue()), slot.getValue());
+            }
+        }
+        statsRepository.ensureRow(establishmentId);
+        statsRepository.markSlotsBackfilled(establishmentId, LocalDateTime.now());
+        return seeded;
+    }
+
+    private SlotCounter counter(Long establishmentId, LocalDate date, LocalTime time) {
+        awaitBackfill();
+        long key = dayKey(establishmentId, date);
+        long reloadMillis = reloadSeconds * 1000;
+        DayOccupancy day = days.get(key);
+        if (day == null || !day.fresh(reloadMillis)) {
+            // Queried outside compute(), which would hold the map bin for the whole query; a fresh view
+            // installed meanwhile by another thread wins, since reservations may already count on it
+            DayOccupancy stale = day;
+            DayOccupancy loaded = load(establishmentId, date);
+            day = days.compute(key, (k, current) ->
+                current != null && current != stale && current.fresh(reloadMillis) ? current : loaded);
+        }
+        return day.slots.computeIfAbsent(minuteOfDay(time), minute -> new SlotCounter(0));
+    }
+
+    private DayOccupancy load(Long establishmentId, LocalDate date) {
+        DayOccupancy day = new DayOccupancy();
+        for (BookingSlot slot : slotRepository.findByEstablishmentIdAndSlotDate(establishmentId, date)) {
+            day.slots.put(minuteOfDay(slot.getSlotTime()), new SlotCounter(slot.getReserved()));
+        }
+        return day;
+    }
+
+    private static long dayKey(Long establishmentId, LocalDate date) {
+        return (establishmentId << 22) | date.toEpochDay();
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static LocalDate parseDate(String value) {
+        return Booking.parseVisitDate(value);
+    }
+
+    // Slots are whole minutes
+    private static LocalTime parseTime(String value) {
+        LocalTime time = Booking.parseVisitTime(value);
+        return time != null ? time.truncatedTo(ChronoUnit.MINUTES) : null;
+    }
+}
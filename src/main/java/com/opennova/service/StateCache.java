@@ -0,0 +1,342 @@
+package com.opennova.service;
+
+import jakarta.persistence.Entity;
+
+import java.lang.ref.SoftReference;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Size-bounded key/value cache with per-entry TTL and W-TinyLFU-style eviction:
+ * new entries land in a small LRU window, then must out-score the main area's LRU victim
+ * on a count-min frequency sketch to be admitted. Large values are only softly referenced.
+ */
+final class StateCache {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final long NO_EXPIRY = 0L;
+
+    // Collections/maps above this many elements are treated as large values
+    private static final int LARGE_VALUE_ELEMENTS = 256;
+
+    private final int maxEntries;
+    private final int maxWindow;
+    private final int maxProtected;
+
+    private final Map<String, Node> data = new HashMap<>();
+    private final Node[] heads = { new Node(), new Node(), new Node() };
+    private final int[] sizes = new int[3];
+    private final FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long collected;
+    private int writesSinceSweep;
+
+    private static final class Node {
+        String key;
+        Object value;
+        long expiresAt;
+        int queue;
+        Node prev = this;
+        Node next = this;
+    }
+
+    StateCache(int maxEntries) {
+        this.maxEntries = Math.max(2, maxEntries);
+        this.maxWindow = Math.max(1, this.maxEntries / 100);
+        this.maxProtected = (int) ((this.maxEntries - maxWindow) * 0.8);
+        this.sketch = new FrequencySketch(this.maxEntries);
+    }
+
+    synchronized Object get(String key) {
+        sketch.increment(key);
+        Node node = data.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        Object value = liveValue(node, System.nanoTime());
+        if (value == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onAccess(node);
+        return value;
+    }
+
+    synchronized boolean containsKey(String key) {
+        Node node = data.get(key);
+        return node != null && liveValue(node, System.nanoTime()) != null;
+    }
+
+    synchronized void put(String key, Object value, long ttlNanos) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        sketch.increment(key);
+        long now = System.nanoTime();
+        if (++writesSinceSweep >= maxEntries) {
+            writesSinceSweep = 0;
+            removeExpired(now);
+        }
+
+        Node node = data.get(key);
+        if (node != null) {
+            node.value = wrap(value);
+            node.expiresAt = ttlNanos > 0 ? now + ttlNanos : NO_EXPIRY;
+            onAccess(node);
+            return;
+        }
+
+        node = new Node();
+        node.key = key;
+        node.value = wrap(value);
+        node.expiresAt = ttlNanos > 0 ? now + ttlNanos : NO_EXPIRY;
+        data.put(key, node);
+        link(node, WINDOW);
+
+        // Window overflow: its LRU entry becomes a candidate for the main area
+        if (sizes[WINDOW] > maxWindow) {
+            Node candidate = heads[WINDOW].next;
+            unlink(candidate);
+            link(candidate, PROBATION);
+            if (data.size() > maxEntries) {
+                evictOne(candidate, now);
+            }
+        }
+        // The window may have been under its share after removals; trim from the coldest queue
+        while (data.size() > maxEntries) {
+            int queue = sizes[PROBATION] > 0 ? PROBATION : sizes[PROTECTED] > 0 ? PROTECTED : WINDOW;
+            Node victim = heads[queue].next;
+            data.remove(victim.key);
+            unlink(victim);
+            evictions++;
+        }
+    }
+
+    synchronized void remove(String key) {
+        Node node = data.remove(key);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    synchronized void clear() {
+        data.clear();
+        for (int queue = 0; queue < heads.length; queue++) {
+            heads[queue].prev = heads[queue];
+            heads[queue].next = heads[queue];
+            sizes[queue] = 0;
+        }
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long requests = hits + misses;
+        stats.put("size", data.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("windowSize", sizes[WINDOW]);
+        stats.put("probationSize", sizes[PROBATION]);
+        stats.put("protectedSize", sizes[PROTECTED]);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hits / requests);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("collected", collected);
+        return stats;
+    }
+
+    private void evictOne(Node candidate, long now) {
+        Node victim = heads[PROBATION].next;
+        if (victim == candidate) {
+            // Probation held only the candidate; fall back to the protected LRU
+            victim = sizes[PROTECTED] > 0 ? heads[PROTECTED].next : candidate;
+        }
+        Node evicted;
+        if (victim != candidate && liveValue(victim, now) == null) {
+            return; // The victim had expired or been collected and is already gone
+        } else if (victim == candidate || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+            evicted = candidate;
+        } else {
+            evicted = victim;
+        }
+        data.remove(evicted.key);
+        unlink(evicted);
+        evictions++;
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue == PROBATION) {
+            // Second hit in the main area: promote, demoting the protected LRU if it overflows
+            unlink(node);
+            link(node, PROTECTED);
+            if (sizes[PROTECTED] > maxProtected) {
+                Node demoted = heads[PROTECTED].next;
+                unlink(demoted);
+                link(demoted, PROBATION);
+            }
+        } else {
+            unlink(node);
+            link(node, node.queue);
+        }
+    }
+
+    // Returns the value, dropping the entry if it has expired or its soft reference was cleared
+    private Object liveValue(Node node, long now) {
+        if (isExpired(node, now)) {
+            data.remove(node.key);
+            unlink(node);
+            expirations++;
+            return null;
+        }
+        Object value = node.value instanceof SoftReference ? ((SoftReference<?>) node.value).get() : node.value;
+        if (value == null) {
+            data.remove(node.key);
+            unlink(node);
+            collected++;
+        }
+        return value;
+    }
+
+    private static boolean isExpired(Node node, long now) {
+        return node.expiresAt != NO_EXPIRY && node.expiresAt - now < 0;
+    }
+
+    private void removeExpired(long now) {
+        Iterator<Node> nodes = data.values().iterator();
+        while (nodes.hasNext()) {
+            Node node = nodes.next();
+            if (isExpired(node, now)) {
+                nodes.remove();
+                unlink(node);
+                expirations++;
+            }
+        }
+    }
+
+    private void link(Node node, int queue) {
+        Node head = heads[queue];
+        node.queue = queue;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        sizes[queue]++;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == node) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node;
+        node.next = node;
+        sizes[node.queue]--;
+    }
+
+    private static Object wrap(Object value) {
+        return isLarge(value) ? new SoftReference<>(value) : value;
+    }
+
+    private static boolean isLarge(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size() > LARGE_VALUE_ELEMENTS;
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size() > LARGE_VALUE_ELEMENTS;
+        }
+        // JPA entities (or their proxies) drag their whole persistence graph along
+        return isEntity(value);
+    }
+
+    static boolean isEntity(Object value) {
+        for (Class<?> type = value.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            if (type.isAnnotationPresent(Entity.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count-min sketch of 4 rows with counters capped at 15, halved every 10 * capacity increments
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = { 0x97cb3127, 0xb3f51c8f, 0x5bd1e995, 0x2c1b3c6d };
+        private static final int MAX_COUNT = 15;
+
+        private final int[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+            this.table = new int[SEEDS.length][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * capacity;
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            int min = frequency(hash);
+            if (min >= MAX_COUNT) {
+                return;
+            }
+            // Conservative update: only the smallest counters move
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = indexOf(hash, row);
+                if (table[row][index] == min) {
+                    table[row][index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(String key) {
+            return frequency(spread(key.hashCode()));
+        }
+
+        private int frequency(int hash) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                min = Math.min(min, table[row][indexOf(hash, row)]);
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        // Aging: halve every counter so old popularity fades
+        private void reset() {
+            for (int[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>>= 1;
+                }
+            }
+            additions /= 2;
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x9e3779b9;
+            return h ^ (h >>> 15);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.opennova.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has one bucket per tick and every level above spans wheelSize times
+ * the level below; a timer is filed at the level its distance falls in and drops a level each time its bucket
+ * comes round. Adding a timer is O(1) and a tick only touches the buckets whose time has come, however many
+ * timers are waiting. Timers never fire early. Not thread-safe; callers synchronize.
+ */
+final class TimingWheel<T> {
+
+    // One wheel slot; a typed holder so the levels can be a plain array
+    private static final class Bucket<T> {
+        List<Entry<T>> entries;
+    }
+
+    private static final class Entry<T> {
+        final long tick;
+        final T item;
+
+        Entry(long tick, T item) {
+            this.tick = tick;
+            this.item = item;
+        }
+    }
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    private final Bucket<T>[][] buckets;
+    // Last tick processed
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1 || levels < 1
+                || Integer.numberOfTrailingZeros(wheelSize) * levels > 62) {
+            throw new IllegalArgumentException("Invalid timing wheel: tick " + tickMillis + "ms, size " + wheelSize + ", levels " + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        this.buckets = new Bucket[levels][wheelSize];
+        for (Bucket<T>[] level : buckets) {
+            for (int slot = 0; slot < wheelSize; slot++) {
+                level[slot] = new Bucket<>();
+            }
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    void add(long deadlineMillis, T item) {
+        // Rounded up so the timer never fires before its deadline; anything already due fires on the next tick
+        long tick = Math.floorDiv(deadlineMillis, tickMillis) + (Math.floorMod(deadlineMillis, tickMillis) == 0 ? 0 : 1);
+        file(new Entry<>(tick, item), currentTick + 1);
+        size++;
+    }
+
+    /**
+     * Move the wheel up to nowMillis and return everything that came due on the way
+     */
+    List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        if (size == 0 && target > currentTick) {
+            currentTick = target;
+            return due;
+        }
+        while (currentTick < target) {
+            currentTick++;
+            // Top down, so timers cascading from a higher level into a lower bucket due this tick are seen below
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    for (Entry<T> entry : detach(level, (int) ((currentTick >>> (bits * level)) & mask))) {
+                        file(entry, currentTick);
+                    }
+                }
+            }
+            for (Entry<T> entry : detach(0, (int) (currentTick & mask))) {
+                if (entry.tick <= currentTick) {
+                    due.add(entry.item);
+                    size--;
+                } else {
+                    file(entry, currentTick + 1);
+                }
+            }
+            if (size == 0) {
+                currentTick = target;
+            }
+        }
+        return due;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // earliest is the first tick the timer may still be processed at
+    private void file(Entry<T> entry, long earliest) {
+        long tick = Math.max(entry.tick, earliest);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << (bits * (level + 1)))) {
+            level++;
+        }
+        // Beyond the top level's span the timer sits in the top level and is re-filed each time round
+        int slot = (int) ((tick >>> (bits * level)) & mask);
+        Bucket<T> bucket = buckets[level][slot];
+        if (bucket.entries == null) {
+            bucket.entries = new ArrayList<>();
+        }
+        bucket.entries.add(entry);
+    }
+
+    private List<Entry<T>> detach(int level, int slot) {
+        Bucket<T> bucket = buckets[level][slot];
+        List<Entry<T>> entries = bucket.entries;
+        if (entries == null || entries.isEmpty()) {
+            return List.of();
+        }
+        bucket.entries = null;
+        return entries;
+    }
+}
@@ -0,0 +1,299 @@
+package com.opennova.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events fan-out for establishment (owner dashboard) and booking (customer) updates.
+ * Every connection has its own bounded buffer drained by a small sender pool, so a slow client
+ * never blocks the publisher; a client whose buffer fills up or that stops accepting writes is
+ * disconnected and is expected to reconnect.
+ */
+@Service
+public class UpdateStreamService {
+
+    public enum Topic {
+        ESTABLISHMENT,
+        BOOKING
+    }
+
+    @Value("${app.sse.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${app.sse.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${app.sse.idle-timeout-seconds:90}")
+    private long idleTimeoutSeconds;
+
+    @Value("${app.sse.connection-timeout-minutes:30}")
+    private long connectionTimeoutMinutes;
+
+    @Value("${app.sse.sender-threads:4}")
+    private int senderThreads;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Topic, Map<Long, Set<Subscriber>>> subscribers = new EnumMap<>(Topic.class);
+    private final AtomicLong eventSequence = new AtomicLong();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong slowConsumersDropped = new AtomicLong();
+    private final AtomicLong idleEvicted = new AtomicLong();
+
+    private ExecutorService senders;
+    private ScheduledExecutorService heartbeat;
+
+    public UpdateStreamService() {
+        for (Topic topic : Topic.values()) {
+            subscribers.put(topic, new ConcurrentHashMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), daemonThreads("sse-sender"));
+        heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("sse-heartbeat"));
+        heartbeat.scheduleWithFixedDelay(this::heartbeatAndEvict, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        for (Map<Long, Set<Subscriber>> byKey : subscribers.values()) {
+            byKey.values().forEach(set -> set.forEach(subscriber -> subscriber.close(false)));
+        }
+        senders.shutdownNow();
+    }
+
+    /**
+     * Open a stream for one establishment or booking. The first event is "connected".
+     */
+    public SseEmitter subscribe(Topic topic, long key) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(connectionTimeoutMinutes));
+        Subscriber subscriber = new Subscriber(topic, key, emitter);
+        emitter.onCompletion(() -> subscriber.close(false));
+        emitter.onTimeout(() -> subscriber.close(true));
+        emitter.onError(error -> subscriber.close(true));
+
+        // Inside compute() so a concurrent unregister cannot drop the set this subscriber is joining
+        subscribers.get(topic).compute(key, (k, set) -> {
+            Set<Subscriber> joined = set != null ? set : ConcurrentHashMap.newKeySet();
+            joined.add(subscriber);
+            return joined;
+        });
+
+        Map<String, Object> hello = new HashMap<>();
+        hello.put("topic", topic.name());
+        hello.put("id", key);
+        subscriber.enqueue(buildEvent("connected", hello));
+        return emitter;
+    }
+
+    /**
+     * Push an event to every stream open on (topic, key); returns immediately
+     */
+    public void publish(Topic topic, long key, String eventName, Map<String, Object> payload) {
+        Set<Subscriber> targets = subscribers.get(topic).get(key);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> event = buildEvent(eventName, payload);
+        if (event == null) {
+            return;
+        }
+        published.incrementAndGet();
+        for (Subscriber subscriber : targets) {
+            subscriber.enqueue(event);
+        }
+    }
+
+    public int getSubscriberCount(Topic topic, long key) {
+        Set<Subscriber> targets = subscribers.get(topic).get(key);
+        return targets == null ? 0 : targets.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (Topic topic : Topic.values()) {
+            int connections = 0;
+            for (Set<Subscriber> set : subscribers.get(topic).values()) {
+                connections += set.size();
+            }
+            stats.put(topic.name().toLowerCase() + "Connections", connections);
+        }
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("slowConsumersDropped", slowConsumersDropped.get());
+        stats.put("idleEvicted", idleEvicted.get());
+        return stats;
+    }
+
+    // The event is serialized once and the same frames are written to every subscriber
+    private Set<ResponseBodyEmitter.DataWithMediaType> buildEvent(String eventName, Map<String, Object> payload) {
+        try {
+            return SseEmitter.event()
+                .id(String.valueOf(eventSequence.incrementAndGet()))
+                .name(eventName)
+                .data(objectMapper.writeValueAsString(payload), MediaType.APPLICATION_JSON)
+                .build();
+        } catch (Exception e) {
+            System.err.println("Failed to serialize " + eventName + " event: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void heartbeatAndEvict() {
+        try {
+            long now = System.nanoTime();
+            long idleNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+            Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("heartbeat").build();
+            for (Map<Long, Set<Subscriber>> byKey : subscribers.values()) {
+                for (Set<Subscriber> set : byKey.values()) {
+                    for (Subscriber subscriber : set) {
+                        if (now - subscriber.lastWriteNanos > idleNanos) {
+                            // Nothing (not even a heartbeat) reached the client for too long
+                            idleEvicted.incrementAndGet();
+                            subscriber.close(true);
+                        } else if (subscriber.queue.isEmpty()) {
+                            subscriber.enqueue(ping);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("SSE heartbeat failed: " + e.getMessage());
+        }
+    }
+
+    private void unregister(Subscriber subscriber) {
+        Map<Long, Set<Subscriber>> byKey = subscribers.get(subscriber.topic);
+        byKey.computeIfPresent(subscriber.key, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Subscriber {
+        final Topic topic;
+        final long key;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean completed = new AtomicBoolean();
+        volatile boolean completeRequested;
+        volatile long lastWriteNanos = System.nanoTime();
+
+        Subscriber(Topic topic, long key, SseEmitter emitter) {
+            this.topic = topic;
+            this.key = key;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        }
+
+        void enqueue(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                // Backpressure: the client is not keeping up, so cut it loose instead of buffering without bound
+                slowConsumersDropped.incrementAndGet();
+                close(true);
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (Exception e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                    lastWriteNanos = System.nanoTime();
+                    delivered.incrementAndGet();
+                }
+            } catch (Exception e) {
+                // Client went away mid-write
+                close(true);
+            } finally {
+                draining.set(false);
+            }
+            if (closed.get()) {
+                // Closed while a write was in progress; the emitter is free again now
+                if (completeRequested) {
+                    completeEmitter();
+                }
+            } else if (!queue.isEmpty()) {
+                // An event may have been queued after the loop saw an empty queue
+                scheduleDrain();
+            }
+        }
+
+        void close(boolean completeEmitter) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            queue.clear();
+            unregister(this);
+            if (completeEmitter) {
+                completeRequested = true;
+                // A stalled write holds the emitter's lock: completing it here would block the publisher
+                // (or the heartbeat) behind the slow client, so the sender completes it once the write returns
+                if (draining.compareAndSet(false, true)) {
+                    completeEmitter();
+                }
+            }
+        }
+
+        void completeEmitter() {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+                // Already completed by the container
+            }
+        }
+    }
+}
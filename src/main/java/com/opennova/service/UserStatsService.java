@@ -0,0 +1,212 @@
+package com.opennova.service;
+
+import com.opennova.model.BookingBase;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.RequestStatus;
+import com.opennova.repository.BookingRepository;
+import com.opennova.repository.EstablishmentRequestRepository;
+import com.opennova.repository.ReviewRepository;
+import com.opennova.repository.SavedEstablishmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The numbers behind GET /api/user/stats: one GROUP BY over the user's bookings (live and archived) and a count
+ * query per other entity, cached per user for a short while. Every write that changes the figures drops the entry
+ * once it commits: the user's own, owners' (through the booking state machine and bulk actions) and the lifecycle
+ * scheduler's.
+ */
+@Service
+public class UserStatsService {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private EstablishmentRequestRepository establishmentRequestRepository;
+
+    @Autowired
+    private SavedEstablishmentRepository savedEstablishmentRepository;
+
+    @Value("${app.user-stats.cache-seconds:60}")
+    private long cacheSeconds;
+
+    @Value("${app.user-stats.max-cached:10000}")
+    private int maxCached;
+
+    private static final class Cached {
+        final Map<String, Object> stats;
+        final long expiresAtMillis;
+
+        Cached(Map<String, Object> stats, long expiresAtMillis) {
+            this.stats = stats;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final Map<Long, Cached> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Booking, review, request and saved-establishment figures for one user; the caller owns the returned map
+     */
+    public Map<String, Object> getStats(Long userId) {
+        long now = System.currentTimeMillis();
+        Cached current = cache.get(userId);
+        if (current != null && current.stats != null && current.expiresAtMillis > now) {
+            hits.incrementAndGet();
+            return new HashMap<>(current.stats);
+        }
+        misses.incrementAndGet();
+        Map<String, Object> stats = load(userId);
+
+        // Not stored if the user wrote something while it was loading (the entry was replaced by a marker)
+        Cached fresh = new Cached(stats, now + TimeUnit.SECONDS.toMillis(cacheSeconds));
+        if (current != null) {
+            cache.replace(userId, current, fresh);
+        } else if (cache.size() < maxCached || purgeExpired()) {
+            cache.putIfAbsent(userId, fresh);
+        }
+        return new HashMap<>(stats);
+    }
+
+    /**
+     * Forget a user's figures; called from any write to them, takes effect again after the transaction commits
+     */
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            invalidateAll(Collections.singleton(userId));
+        }
+    }
+
+    /**
+     * Forget the figures of every user a batch wrote for; each user is marked once, with one synchronization for all
+     */
+    public void invalidateAll(Collection<Long> userIds) {
+        Set<Long> distinct = new HashSet<>(userIds);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            return;
+        }
+        if (cache.size() >= maxCached) {
+            purgeExpired();
+        }
+        distinct.forEach(this::markStale);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    distinct.forEach(UserStatsService.this::markStale);
+                }
+            });
+        }
+    }
+
+    /**
+     * Forget the figures of the customers behind a batch of booking changes
+     */
+    public void invalidateCustomersOf(Collection<? extends BookingBase> bookings) {
+        List<Long> userIds = new ArrayList<>();
+        for (BookingBase booking : bookings) {
+            if (booking.getUser() != null) {
+                userIds.add(booking.getUser().getId());
+            }
+        }
+        invalidateAll(userIds);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedUsers", cache.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    // A marker rather than a removal, so a load that started before the write cannot put its result back;
+    // markers live one TTL, longer than any load
+    private void markStale(Long userId) {
+        cache.put(userId, new Cached(null, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(cacheSeconds)));
+    }
+
+    private boolean purgeExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> cached.expiresAtMillis <= now);
+        return cache.size() < maxCached;
+    }
+
+    private Map<String, Object> load(Long userId) {
+        Map<String, Object> stats = new HashMap<>();
+
+        long pending = 0;
+        long confirmed = 0;
+        long completed = 0;
+        long cancelled = 0;
+        double totalSpent = 0.0;
+        for (Object[] row : bookingRepository.countAndSumPaidByStatusForUser(userId)) {
+            long count = ((Number) row[1]).longValue();
+            totalSpent += row[2] != null ? ((Number) row[2]).doubleValue() : 0.0;
+            String status = String.valueOf(row[0]);
+            if (BookingStatus.PENDING.name().equals(status)) {
+                pending = count;
+            } else if (BookingStatus.CONFIRMED.name().equals(status)) {
+                confirmed = count;
+            } else if (BookingStatus.COMPLETED.name().equals(status)) {
+                completed = count;
+            } else if (BookingStatus.CANCELLED.name().equals(status)) {
+                cancelled = count;
+            }
+        }
+        stats.put("totalBookings", pending + confirmed + completed + cancelled);
+        stats.put("activeBookings", pending + confirmed);
+        stats.put("completedBookings", completed);
+        stats.put("cancelledBookings", cancelled);
+        stats.put("pendingBookings", pending);
+        stats.put("totalSpent", totalSpent);
+
+        List<Object[]> reviews = reviewRepository.countAndAverageRatingByUserId(userId);
+        Object[] review = reviews.isEmpty() ? new Object[] { 0L, null } : reviews.get(0);
+        double averageRating = review[1] != null ? ((Number) review[1]).doubleValue() : 0.0;
+        stats.put("totalReviews", review[0] != null ? ((Number) review[0]).longValue() : 0L);
+        stats.put("averageRatingGiven", Math.round(averageRating * 10.0) / 10.0);
+
+        long totalRequests = 0;
+        long pendingRequests = 0;
+        long approvedRequests = 0;
+        for (Object[] row : establishmentRequestRepository.countByStatusForUser(userId)) {
+            long count = ((Number) row[1]).longValue();
+            totalRequests += count;
+            if (row[0] == RequestStatus.PENDING) {
+                pendingRequests = count;
+            } else if (row[0] == RequestStatus.APPROVED) {
+                approvedRequests = count;
+            }
+        }
+        stats.put("totalEstablishmentRequests", totalRequests);
+        stats.put("pendingEstablishmentRequests", pendingRequests);
+        stats.put("approvedEstablishmentRequests", approvedRequests);
+
+        stats.put("savedEstablishments", savedEstablishmentRepository.countByUserId(userId));
+        return stats;
+    }
+}
@@ -0,0 +1,296 @@
+package com.opennova.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.config.ChatWebSocketConfig;
+import com.opennova.model.User;
+import com.opennova.security.CustomUserDetailsService;
+import com.opennova.security.JwtUtil;
+import com.opennova.service.ChatPushService;
+import com.opennova.service.ChatService;
+import com.opennova.service.UserService;
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatWebSocketEndpointTest {
+
+    private static final String ALICE = "alice@example.com";
+    private static final String ALICE_ROOM = "alice@example.com_support@opennova.com";
+    private static final String OTHER_ROOM = "bob@example.com_support@opennova.com";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JwtUtil jwtUtil = mock(JwtUtil.class);
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private final ChatService chatService = mock(ChatService.class);
+    private final UserService userService = mock(UserService.class);
+    private final ChatPushService chatPushService = new ChatPushService();
+    private final ChatWebSocketEndpoint endpoint = new ChatWebSocketEndpoint();
+
+    private ServerEndpointConfig.Configurator configurator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(chatPushService, "queueSize", 8);
+        ReflectionTestUtils.setField(endpoint, "chatService", chatService);
+        ReflectionTestUtils.setField(endpoint, "userService", userService);
+        ReflectionTestUtils.setField(endpoint, "chatPushService", chatPushService);
+        ReflectionTestUtils.setField(endpoint, "idleTimeoutSeconds", 300L);
+
+        // Register through the config to get hold of the handshake configurator the container would use
+        ServletContext servletContext = mock(ServletContext.class);
+        ServerContainer container = mock(ServerContainer.class);
+        when(servletContext.getAttribute(ServerContainer.class.getName())).thenReturn(container);
+        ChatWebSocketConfig config = new ChatWebSocketConfig();
+        ReflectionTestUtils.setField(config, "servletContext", servletContext);
+        ReflectionTestUtils.setField(config, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(config, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(config, "chatWebSocketEndpoint", endpoint);
+        ReflectionTestUtils.setField(config, "allowedOrigins", "https://app.opennova.com");
+        config.afterSingletonsInstantiated();
+        ArgumentCaptor<ServerEndpointConfig> registered = ArgumentCaptor.forClass(ServerEndpointConfig.class);
+        verify(container).addEndpoint(registered.capture());
+        assertEquals(ChatWebSocketConfig.CHAT_PATH, registered.getValue().getPath());
+        configurator = registered.getValue().getConfigurator();
+
+        UserDetails details = mock(UserDetails.class);
+        when(userDetailsService.loadUserByUsername(ALICE)).thenReturn(details);
+        when(jwtUtil.extractUsername("good")).thenReturn(ALICE);
+        when(jwtUtil.validateToken("good", details)).thenReturn(true);
+        when(jwtUtil.extractUsername("expired")).thenReturn(ALICE);
+        when(jwtUtil.validateToken("expired", details)).thenReturn(false);
+        when(jwtUtil.extractUsername("garbage")).thenThrow(new RuntimeException("Malformed JWT"));
+
+        User alice = new User();
+        alice.setId(1L);
+        alice.setEmail(ALICE);
+        when(userService.findByEmailSafe(ALICE)).thenReturn(alice);
+        when(chatService.getUserChatRoomId(alice)).thenReturn(ALICE_ROOM);
+        when(chatService.canAccessRoom(alice, ALICE_ROOM)).thenReturn(true);
+        when(chatService.canAccessRoom(alice, OTHER_ROOM)).thenReturn(false);
+    }
+
+    @Test
+    void validTokenFromTheSubprotocolOrBearerHeaderOpensAConnection() throws Exception {
+        Socket fromProtocol = open(handshake(Map.of(), protocols("good")));
+        Socket fromHeader = open(handshake(Map.of(), Map.of("authorization", List.of("Bearer good"))));
+
+        for (Socket socket : List.of(fromProtocol, fromHeader)) {
+            assertFalse(socket.closed());
+            Map<String, Object> connected = socket.frames.get(0);
+            assertEquals("connected", connected.get("type"));
+            assertEquals(ALICE, connected.get("email"));
+            assertEquals(ALICE_ROOM, connected.get("chatRoomId"));
+        }
+        assertEquals(2, chatPushService.getStats().get("connections"));
+        assertEquals(1, chatPushService.getStats().get("users"));
+
+        // The token is never echoed back as the selected subprotocol
+        assertEquals(ChatWebSocketConfig.TOKEN_PROTOCOL, configurator.getNegotiatedSubprotocol(
+            List.of(ChatWebSocketConfig.TOKEN_PROTOCOL), List.of(ChatWebSocketConfig.TOKEN_PROTOCOL, "good")));
+        assertEquals("", configurator.getNegotiatedSubprotocol(
+            List.of(ChatWebSocketConfig.TOKEN_PROTOCOL), List.of("good")));
+    }
+
+    @Test
+    void onlyConfiguredOriginsMayConnect() {
+        assertTrue(configurator.checkOrigin("https://app.opennova.com"));
+        assertFalse(configurator.checkOrigin(null));
+        assertFalse(configurator.checkOrigin("https://elsewhere.example.com"));
+    }
+
+    @Test
+    void missingOrRejectedTokenIsClosedBeforeAnythingIsRegistered() throws Exception {
+        List<ServerEndpointConfig> handshakes = List.of(
+            handshake(Map.of(), Map.of()),
+            // Tokens in the URL end up in access logs and are not accepted
+            handshake(Map.of("token", List.of("good")), Map.of()),
+            handshake(Map.of(), protocols("expired")),
+            handshake(Map.of(), protocols("garbage")),
+            handshake(Map.of(), Map.of("Sec-WebSocket-Protocol", List.of("good"))),
+            handshake(Map.of(), Map.of("Authorization", List.of("Basic good"))));
+
+        for (ServerEndpointConfig handshake : handshakes) {
+            assertFalse(handshake.getUserProperties().containsKey(ChatWebSocketEndpoint.USER_EMAIL));
+            Socket socket = open(handshake);
+            assertTrue(socket.closed());
+            assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY, socket.closeReasons.get(0).getCloseCode());
+            assertNull(socket.handler);
+            assertTrue(socket.frames.isEmpty());
+        }
+        assertEquals(0, chatPushService.getStats().get("connections"));
+    }
+
+    @Test
+    void authenticatedEmailWithoutAnAccountIsClosed() throws Exception {
+        ServerEndpointConfig handshake = handshake(Map.of(), protocols("good"));
+        when(userService.findByEmailSafe(ALICE)).thenReturn(null);
+
+        Socket socket = open(handshake);
+
+        assertTrue(socket.closed());
+        assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY, socket.closeReasons.get(0).getCloseCode());
+        assertEquals(0, chatPushService.getStats().get("connections"));
+    }
+
+    @Test
+    void onlyRoomsTheUserMayAccessCanBeFollowed() throws Exception {
+        Socket socket = open(handshake(Map.of(), protocols("good")));
+
+        socket.receive("{\"type\":\"subscribe\",\"chatRoomId\":\"" + OTHER_ROOM + "\",\"ref\":1}");
+        Map<String, Object> refused = socket.last();
+        assertEquals("error", refused.get("type"));
+        assertEquals(1, refused.get("ref"));
+        assertEquals("Not allowed to follow this chat room", refused.get("message"));
+        assertEquals(0, chatPushService.getStats().get("watchedRooms"));
+
+        // Someone else's conversation does not reach this socket
+        int before = socket.frames.size();
+        chatPushService.pushMessage(OTHER_ROOM, "bob@example.com", "support@opennova.com", Map.of("id", 5));
+        assertEquals(before, socket.frames.size());
+
+        socket.receive("{\"type\":\"subscribe\",\"chatRoomId\":\"" + ALICE_ROOM + "\",\"ref\":2}");
+        assertEquals("subscribed", socket.last().get("type"));
+        assertEquals(1, chatPushService.getStats().get("watchedRooms"));
+        chatPushService.pushMessage(ALICE_ROOM, "support@opennova.com", "staff@opennova.com", Map.of("id", 6));
+        assertEquals("message", socket.last().get("type"));
+
+        // Unsubscribing from a room it may not access is refused the same way
+        socket.receive("{\"type\":\"unsubscribe\",\"chatRoomId\":\"" + OTHER_ROOM + "\"}");
+        assertEquals("error", socket.last().get("type"));
+        assertEquals(1, chatPushService.getStats().get("watchedRooms"));
+    }
+
+    @Test
+    void closeUnregistersTheConnectionAndItsRooms() throws Exception {
+        Socket socket = open(handshake(Map.of(), protocols("good")));
+        socket.receive("{\"type\":\"subscribe\",\"chatRoomId\":\"" + ALICE_ROOM + "\"}");
+        assertEquals(1, chatPushService.getStats().get("watchedRooms"));
+
+        endpoint.onClose(socket.session, new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "bye"));
+
+        assertEquals(0, chatPushService.getStats().get("connections"));
+        assertEquals(0, chatPushService.getStats().get("watchedRooms"));
+        int before = socket.frames.size();
+        chatPushService.pushMessage(ALICE_ROOM, ALICE, "support@opennova.com", Map.of("id", 7));
+        assertEquals(before, socket.frames.size());
+    }
+
+    @Test
+    void clientThatStopsReadingIsClosedOnceItsQueueIsFull() throws Exception {
+        ReflectionTestUtils.setField(chatPushService, "queueSize", 2);
+        Socket socket = open(handshake(Map.of(), protocols("good")));
+        socket.stalled = true;
+
+        // The first frame is in flight, two more fit in the queue, the fourth overflows it
+        for (int id = 1; id <= 4; id++) {
+            chatPushService.pushMessage(ALICE_ROOM, ALICE, "support@opennova.com", Map.of("id", id));
+        }
+
+        assertTrue(socket.closed());
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER, socket.closeReasons.get(0).getCloseCode());
+        assertEquals(1L, chatPushService.getStats().get("slowConsumersClosed"));
+        assertEquals(0, chatPushService.getStats().get("connections"));
+    }
+
+    // What the container hands the endpoint after the handshake: a per-connection copy of the config
+    private ServerEndpointConfig handshake(Map<String, List<String>> parameters, Map<String, List<String>> headers) {
+        ServerEndpointConfig config = ServerEndpointConfig.Builder
+            .create(ChatWebSocketEndpoint.class, ChatWebSocketConfig.CHAT_PATH)
+            .configurator(configurator)
+            .build();
+        HandshakeRequest request = mock(HandshakeRequest.class);
+        when(request.getParameterMap()).thenReturn(parameters);
+        when(request.getHeaders()).thenReturn(headers);
+        configurator.modifyHandshake(config, request, mock(HandshakeResponse.class));
+        return config;
+    }
+
+    // How a browser passes its token: new WebSocket(url, ["access_token", jwt])
+    private static Map<String, List<String>> protocols(String token) {
+        return Map.of("Sec-WebSocket-Protocol", List.of(ChatWebSocketConfig.TOKEN_PROTOCOL + ", " + token));
+    }
+
+    private Socket open(ServerEndpointConfig config) throws Exception {
+        Socket socket = new Socket();
+        endpoint.onOpen(socket.session, config);
+        return socket;
+    }
+
+    /**
+     * A mocked container session that records frames and close reasons and
+     * completes each async send at once unless stalled
+     */
+    private final class Socket {
+        final Session session = mock(Session.class);
+        final List<Map<String, Object>> frames = new ArrayList<>();
+        final List<CloseReason> closeReasons = new ArrayList<>();
+        MessageHandler.Whole<String> handler;
+        boolean stalled;
+
+        @SuppressWarnings("unchecked")
+        Socket() throws Exception {
+            RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+            Map<String, Object> userProperties = new HashMap<>();
+            when(session.getUserProperties()).thenReturn(userProperties);
+            when(session.getAsyncRemote()).thenReturn(remote);
+            when(session.isOpen()).thenAnswer(invocation -> closeReasons.isEmpty());
+            doAnswer(invocation -> {
+                closeReasons.add(invocation.getArgument(0));
+                return null;
+            }).when(session).close(any(CloseReason.class));
+            doAnswer(invocation -> {
+                handler = invocation.getArgument(1);
+                return null;
+            }).when(session).addMessageHandler(eq(String.class), any(MessageHandler.Whole.class));
+            doAnswer(invocation -> {
+                frames.add(objectMapper.readValue(invocation.<String>getArgument(0), Map.class));
+                if (!stalled) {
+                    invocation.<SendHandler>getArgument(1).onResult(new SendResult());
+                }
+                return null;
+            }).when(remote).sendText(anyString(), any(SendHandler.class));
+        }
+
+        void receive(String text) {
+            handler.onMessage(text);
+        }
+
+        Map<String, Object> last() {
+            return frames.get(frames.size() - 1);
+        }
+
+        boolean closed() {
+            return !closeReasons.isEmpty();
+        }
+    }
+}
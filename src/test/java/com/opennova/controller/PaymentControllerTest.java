@@ -0,0 +1,122 @@
+package com.opennova.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.model.IdempotencyRecord;
+import com.opennova.model.User;
+import com.opennova.repository.IdempotencyRecordRepository;
+import com.opennova.security.CustomUserDetailsService;
+import com.opennova.service.IdempotencyService;
+import com.opennova.service.PaymentVerificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentControllerTest {
+
+    private static final String KEY = "verify-1";
+
+    // idempotency_records by record_key
+    private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final IdempotencyRecordRepository recordRepository = mock(IdempotencyRecordRepository.class);
+    private final PaymentVerificationService verificationService = mock(PaymentVerificationService.class);
+    private final Authentication authentication = mock(Authentication.class);
+    private final PaymentController controller = new PaymentController();
+
+    @BeforeEach
+    void setUp() {
+        when(recordRepository.claim(anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setRecordKey(invocation.getArgument(0));
+            record.setFingerprint(invocation.getArgument(1));
+            record.setCreatedAt(invocation.getArgument(2));
+            record.setExpiresAt(invocation.getArgument(3));
+            return table.putIfAbsent(record.getRecordKey(), record) == null ? 1 : 0;
+        });
+        when(recordRepository.findByRecordKey(anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.<String>getArgument(0))));
+        when(recordRepository.complete(anyString(), anyInt(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = table.get(invocation.<String>getArgument(0));
+            record.setStatusCode(invocation.getArgument(1));
+            record.setResponseBody(invocation.getArgument(2));
+            return 1;
+        });
+        when(recordRepository.release(anyString())).thenAnswer(invocation ->
+            table.computeIfPresent(invocation.getArgument(0),
+                (key, record) -> record.getStatusCode() == null ? null : record) == null ? 1 : 0);
+
+        IdempotencyService idempotencyService = new IdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "recordRepository", recordRepository);
+        ReflectionTestUtils.setField(idempotencyService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "waitSeconds", 1L);
+        ReflectionTestUtils.setField(idempotencyService, "abandonSeconds", 120L);
+        ReflectionTestUtils.setField(idempotencyService, "maxCached", 100);
+        ReflectionTestUtils.setField(controller, "idempotencyService", idempotencyService);
+        ReflectionTestUtils.setField(controller, "paymentVerificationService", verificationService);
+
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("user@example.com");
+        when(authentication.getPrincipal()).thenReturn(new CustomUserDetailsService.CustomUserPrincipal(user));
+    }
+
+    @Test
+    void failedVerificationIsNotReplayedToARetryWithTheSameKey() {
+        Map<String, Object> request = Map.of("transactionRef", "REF-1", "upiTransactionId", "UPI123ABC");
+        PaymentVerificationService.VerifiedPayment payment = new PaymentVerificationService.VerifiedPayment();
+        payment.setAmount(250.0);
+        payment.setVerifiedAt(LocalDateTime.now());
+        when(verificationService.verifyPayment("REF-1", "UPI123ABC"))
+            .thenThrow(new RuntimeException("connection reset"))
+            .thenReturn(new PaymentVerificationService.PaymentVerificationResult(true, "Verified", payment));
+
+        ResponseEntity<?> failed = controller.verifyPayment(request, KEY, authentication);
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+        assertTrue(table.isEmpty());
+
+        ResponseEntity<?> retried = controller.verifyPayment(request, KEY, authentication);
+        assertEquals(HttpStatus.OK, retried.getStatusCode());
+        assertNull(retried.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(true, ((Map<?, ?>) retried.getBody()).get("verified"));
+        verify(verificationService, times(2)).verifyPayment("REF-1", "UPI123ABC");
+
+        // Now that it succeeded, the verdict is what later retries get
+        ResponseEntity<?> replay = controller.verifyPayment(request, KEY, authentication);
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verify(verificationService, times(2)).verifyPayment("REF-1", "UPI123ABC");
+    }
+
+    @Test
+    void rejectedVerificationIsReplayed() {
+        Map<String, Object> request = Map.of("transactionRef", "REF-2", "upiTransactionId", "bad");
+        when(verificationService.verifyPayment("REF-2", "bad"))
+            .thenReturn(new PaymentVerificationService.PaymentVerificationResult(false, "Invalid UPI transaction ID format", null));
+
+        controller.verifyPayment(request, KEY, authentication);
+        ResponseEntity<?> replay = controller.verifyPayment(request, KEY, authentication);
+
+        assertEquals(HttpStatus.OK, replay.getStatusCode());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(false, ((Map<?, ?>) replay.getBody()).get("verified"));
+        verify(verificationService, times(1)).verifyPayment("REF-2", "bad");
+    }
+}
@@ -0,0 +1,138 @@
+package com.opennova.service;
+
+import com.opennova.model.ArchivedBooking;
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.repository.ArchivedBookingRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingArchiveServiceTest {
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final Query columnsQuery = mock(Query.class, Mockito.RETURNS_SELF);
+    private final Query moveQuery = mock(Query.class, Mockito.RETURNS_SELF);
+
+    private BookingArchiveService archive;
+
+    @BeforeEach
+    void setUp() {
+        archive = new BookingArchiveService();
+        ReflectionTestUtils.setField(archive, "archivedBookingRepository", mock(ArchivedBookingRepository.class));
+        ReflectionTestUtils.setField(archive, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(archive, "entityManager", entityManager);
+        ReflectionTestUtils.setField(archive, "archiveAfterDays", 180);
+        ReflectionTestUtils.setField(archive, "batchSize", 500);
+        when(entityManager.createNativeQuery(startsWith("SELECT a.column_name"))).thenReturn(columnsQuery);
+        when(entityManager.createNativeQuery(startsWith("WITH moved"))).thenReturn(moveQuery);
+        when(columnsQuery.getResultList()).thenReturn(List.of("id", "status", "updated_at"));
+    }
+
+    @Test
+    void movesFullBatchesUntilOneComesBackShort() {
+        when(moveQuery.executeUpdate()).thenReturn(500, 500, 3);
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(1003, archive.archiveOldBookings());
+
+        // A transaction per batch, all with the cutoff taken at the start of the run
+        verify(transactionManager, times(3)).commit(any());
+        ArgumentCaptor<Object> cutoff = ArgumentCaptor.forClass(Object.class);
+        verify(moveQuery, times(3)).setParameter(eq("cutoff"), cutoff.capture());
+        assertEquals(1, cutoff.getAllValues().stream().distinct().count());
+        LocalDateTime value = (LocalDateTime) cutoff.getValue();
+        assertTrue(!value.isBefore(before.minusDays(180)) && value.isBefore(LocalDateTime.now().minusDays(179)));
+        verify(moveQuery, times(3)).setParameter("batchSize", 500);
+        assertEquals(1003L, archive.getStats().get("archivedSinceStart"));
+    }
+
+    @Test
+    void moveCopiesTheSharedColumnsAndStampsArchivedAt() {
+        when(moveQuery.executeUpdate()).thenReturn(0);
+
+        assertEquals(0, archive.archiveOldBookings());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager, times(2)).createNativeQuery(sql.capture());
+        String move = sql.getAllValues().get(1);
+        assertTrue(move.contains("DELETE FROM bookings WHERE id IN (SELECT id FROM bookings "
+            + "WHERE status IN ('COMPLETED', 'CANCELLED') AND updated_at < :cutoff "
+            + "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED)"), move);
+        assertTrue(move.contains("RETURNING \"id\", \"status\", \"updated_at\")"), move);
+        assertTrue(move.endsWith("INSERT INTO bookings_archive (\"id\", \"status\", \"updated_at\", archived_at) "
+            + "SELECT \"id\", \"status\", \"updated_at\", :now FROM moved"), move);
+    }
+
+    @Test
+    void missingArchiveTableMovesNothing() {
+        when(columnsQuery.getResultList()).thenReturn(List.of());
+
+        assertEquals(0, archive.archiveOldBookings());
+
+        verify(entityManager, never()).createNativeQuery(startsWith("WITH moved"));
+        verify(transactionManager, never()).getTransaction(any());
+        assertNull(archive.getStats().get("lastRunAt"));
+    }
+
+    @Test
+    void archivedCopyReadsLikeTheLiveBooking() {
+        ArchivedBooking archived = new ArchivedBooking();
+        archived.setId(12L);
+        archived.setStatus(BookingStatus.COMPLETED);
+        archived.setAmount(new BigDecimal("250.00"));
+        archived.setVisitingDate("2026-03-01");
+        archived.setVisitingTime("2:30 PM");
+        archived.setArchivedAt(LocalDateTime.now());
+
+        Booking booking = archived.toBooking();
+
+        assertEquals(12L, booking.getId());
+        assertEquals(BookingStatus.COMPLETED, booking.getStatus());
+        assertEquals(new BigDecimal("250.00"), booking.getAmount());
+        assertEquals(LocalDate.of(2026, 3, 1), booking.getVisitDate());
+        assertEquals("2:30 PM", booking.getVisitingTime());
+    }
+
+    @Test
+    void mergeListsNewestFirstWithUndatedLast() {
+        Booking hot = booking(1L, LocalDateTime.of(2026, 10, 1, 9, 0));
+        Booking undated = booking(2L, null);
+        Booking old = booking(3L, LocalDateTime.of(2025, 1, 1, 9, 0));
+        Booking older = booking(4L, LocalDateTime.of(2024, 6, 1, 9, 0));
+
+        List<Booking> merged = BookingArchiveService.merge(List.of(undated, hot), List.of(older, old));
+
+        assertEquals(List.of(1L, 3L, 4L, 2L), merged.stream().map(Booking::getId).toList());
+    }
+
+    private static Booking booking(Long id, LocalDateTime createdAt) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setCreatedAt(createdAt);
+        return booking;
+    }
+}
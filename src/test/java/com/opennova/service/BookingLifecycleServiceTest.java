@@ -0,0 +1,301 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingSlot;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.Establishment;
+import com.opennova.model.OutboxEvent;
+import com.opennova.repository.BookingRepository;
+import com.opennova.repository.BookingSlotRepository;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import com.opennova.repository.OutboxEventRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingLifecycleServiceTest {
+
+    private static final Long ESTABLISHMENT_ID = 5L;
+    private static final LocalDate VISIT_DATE = LocalDate.now().plusDays(10);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final OutboxEventRepository outboxRepository = mock(OutboxEventRepository.class);
+    private final BookingSlotRepository slotRepository = mock(BookingSlotRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final UserStatsService userStatsService = mock(UserStatsService.class);
+
+    // Committed booking rows, and the outbox keys the unique index has seen
+    private final Map<Long, Booking> rows = new HashMap<>();
+    private final Set<String> outboxKeys = new LinkedHashSet<>();
+    private final FakeTransactionManager transactionManager = new FakeTransactionManager();
+
+    private OutboxService outboxService;
+    private SlotInventoryService slotInventoryService;
+    private BookingLifecycleService lifecycle;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxService();
+        ReflectionTestUtils.setField(outboxService, "outboxRepository", outboxRepository);
+        when(outboxRepository.save(any())).thenAnswer(invocation -> {
+            OutboxEvent event = invocation.getArgument(0);
+            if (!transactionManager.stage(event.getIdempotencyKey())) {
+                throw new DataIntegrityViolationException("duplicate key value violates unique constraint "
+                    + "\"uk_outbox_events_idempotency_key\"");
+            }
+            return event;
+        });
+
+        slotInventoryService = new SlotInventoryService();
+        ReflectionTestUtils.setField(slotInventoryService, "slotRepository", slotRepository);
+        // Every establishment already seeded
+        ReflectionTestUtils.setField(slotInventoryService, "statsRepository", mock(EstablishmentBookingStatsRepository.class));
+        ReflectionTestUtils.setField(slotInventoryService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(slotInventoryService, "establishmentRepository", mock(EstablishmentRepository.class));
+        ReflectionTestUtils.setField(slotInventoryService, "defaultCapacity", 1);
+        ReflectionTestUtils.setField(slotInventoryService, "reloadSeconds", 60L);
+        // The slot the booking below holds: one seat, taken
+        BookingSlot slot = new BookingSlot();
+        slot.setSlotTime(LocalTime.of(10, 0));
+        slot.setCapacity(1);
+        slot.setReserved(1);
+        when(slotRepository.findByEstablishmentIdAndSlotDate(ESTABLISHMENT_ID, VISIT_DATE)).thenReturn(List.of(slot));
+        when(slotRepository.release(anyLong(), any(), any())).thenReturn(1);
+
+        lifecycle = new BookingLifecycleService();
+        ReflectionTestUtils.setField(lifecycle, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(lifecycle, "slotInventoryService", slotInventoryService);
+        ReflectionTestUtils.setField(lifecycle, "outboxService", outboxService);
+        ReflectionTestUtils.setField(lifecycle, "bookingStatsService", mock(BookingStatsService.class));
+        ReflectionTestUtils.setField(lifecycle, "userStatsService", userStatsService);
+        ReflectionTestUtils.setField(lifecycle, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(lifecycle, "entityManager", entityManager);
+        ReflectionTestUtils.setField(lifecycle, "pendingTtlHours", 24L);
+        ReflectionTestUtils.setField(lifecycle, "noShowGraceHours", 4L);
+        ReflectionTestUtils.setField(lifecycle, "batchSize", 200);
+        ReflectionTestUtils.setField(lifecycle, "retrySeconds", 0L);
+        ReflectionTestUtils.setField(lifecycle, "wheel", new TimingWheel<>(1, 64, 5, System.currentTimeMillis() - 5000));
+
+        // Each transaction locks its own copy of the row, written back only if it commits
+        when(bookingRepository.lockAllByIdInAndStatus(anyCollection(), eq(BookingStatus.PENDING))).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            List<Booking> locked = new ArrayList<>();
+            for (Long id : ids) {
+                Booking row = rows.get(id);
+                if (row != null && row.getStatus() == BookingStatus.PENDING) {
+                    locked.add(transactionManager.load(copy(row)));
+                }
+            }
+            return locked;
+        });
+        // Hibernate bumps @Version on the flush that writes a changed row
+        doAnswer(invocation -> {
+            transactionManager.loaded.forEach(booking -> booking.setVersion(booking.getVersion() + 1));
+            return null;
+        }).when(entityManager).flush();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bookingCreatedThenExpiredGetsItsOwnOutboxEvent() {
+        Booking booking = create();
+
+        tick();
+
+        Booking row = rows.get(1L);
+        assertEquals(BookingStatus.CANCELLED, row.getStatus());
+        assertEquals(BookingLifecycleService.EXPIRED_REASON, row.getCancellationReason());
+        assertEquals(List.of("BOOKING_REALTIME_UPDATE:1:v0", "BOOKING_CREATED_CUSTOMER_EMAIL:1:v0",
+            "BOOKING_CREATED_OWNER_EMAIL:1:v0", "BOOKING_REALTIME_UPDATE:1:v1"), new ArrayList<>(outboxKeys));
+        assertEquals(0L, lifecycle.getStats().get("failedBatches"));
+        assertEquals(1L, lifecycle.getStats().get("expired"));
+        assertEquals(0, lifecycle.getStats().get("timers"));
+        assertTrue(slotInventoryService.hasCapacity(booking.getEstablishment(), booking.getVisitingDate(), booking.getVisitingTime()));
+        // The customer's cached figures still count it as pending
+        ArgumentCaptor<List<Booking>> expired = ArgumentCaptor.forClass(List.class);
+        verify(userStatsService).invalidateCustomersOf(expired.capture());
+        assertEquals(List.of(1L), expired.getValue().stream().map(Booking::getId).toList());
+    }
+
+    @Test
+    void failedBatchKeepsTheSeatAndIsRetried() throws Exception {
+        Booking booking = create();
+        // The first expiry cannot write its outbox row; the whole batch rolls back
+        transactionManager.failNextOutboxWrite = true;
+
+        tick();
+
+        assertEquals(1L, lifecycle.getStats().get("failedBatches"));
+        assertEquals(BookingStatus.PENDING, rows.get(1L).getStatus());
+        assertEquals(1, lifecycle.getStats().get("timers"));
+        assertFalse(slotInventoryService.hasCapacity(booking.getEstablishment(), booking.getVisitingDate(), booking.getVisitingTime()));
+
+        Thread.sleep(5);
+        tick();
+
+        assertEquals(BookingStatus.CANCELLED, rows.get(1L).getStatus());
+        assertEquals(1L, lifecycle.getStats().get("expired"));
+        assertTrue(outboxKeys.contains("BOOKING_REALTIME_UPDATE:1:v1"));
+        assertTrue(slotInventoryService.hasCapacity(booking.getEstablishment(), booking.getVisitingDate(), booking.getVisitingTime()));
+    }
+
+    @Test
+    void withoutATtlPendingBookingsAreNeverExpired() {
+        ReflectionTestUtils.setField(lifecycle, "pendingTtlHours", 0L);
+        ReflectionTestUtils.setField(lifecycle, "loadBatchSize", 100);
+        // An old PENDING row whose visit has passed, as the startup load finds it
+        List<Object[]> open = new ArrayList<>();
+        open.add(new Object[] { 1L, BookingStatus.PENDING, LocalDateTime.now().minusDays(30),
+            LocalDate.now().minusDays(20), LocalTime.of(10, 0) });
+        when(bookingRepository.findLifecycleRowsAfter(anyCollection(), anyLong(), any())).thenReturn(open, List.of());
+
+        create();
+        ReflectionTestUtils.invokeMethod(lifecycle, "loadFromDatabase");
+        tick();
+
+        assertEquals(BookingStatus.PENDING, rows.get(1L).getStatus());
+        assertEquals(1L, lifecycle.getStats().get("loaded"));
+        assertEquals(0, lifecycle.getStats().get("timers"));
+        assertEquals(0L, lifecycle.getStats().get("expired"));
+    }
+
+    // What createBooking leaves behind: a PENDING row at version 0, its outbox events and an expiry timer.
+    // Created two days ago, so the confirmation window has closed.
+    private Booking create() {
+        Establishment establishment = new Establishment();
+        establishment.setId(ESTABLISHMENT_ID);
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setEstablishment(establishment);
+        booking.setStatus(BookingStatus.PENDING);
+        booking.setCreatedAt(LocalDateTime.now().minusDays(2));
+        booking.setVisitingDate(VISIT_DATE.toString());
+        booking.setVisitingTime("10:00");
+        rows.put(1L, booking);
+        assertFalse(slotInventoryService.hasCapacity(booking.getEstablishment(), booking.getVisitingDate(), booking.getVisitingTime()));
+
+        transactionManager.execute(() -> {
+            outboxService.enqueue(OutboxEvent.Type.BOOKING_REALTIME_UPDATE, booking);
+            outboxService.enqueue(OutboxEvent.Type.BOOKING_CREATED_CUSTOMER_EMAIL, booking);
+            outboxService.enqueue(OutboxEvent.Type.BOOKING_CREATED_OWNER_EMAIL, booking);
+        });
+        lifecycle.bookingCreated(booking);
+        return booking;
+    }
+
+    private void tick() {
+        ReflectionTestUtils.invokeMethod(lifecycle, "tick");
+    }
+
+    private static Booking copy(Booking row) {
+        Booking booking = new Booking();
+        booking.setId(row.getId());
+        booking.setEstablishment(row.getEstablishment());
+        booking.setStatus(row.getStatus());
+        booking.setCreatedAt(row.getCreatedAt());
+        booking.setVisitingDate(row.getVisitingDate());
+        booking.setVisitingTime(row.getVisitingTime());
+        booking.setCancellationReason(row.getCancellationReason());
+        booking.setVersion(row.getVersion());
+        return booking;
+    }
+
+    /**
+     * Runs synchronizations like a real transaction manager; bookings loaded and outbox keys written in a
+     * transaction reach rows/outboxKeys only when it commits
+     */
+    private final class FakeTransactionManager implements PlatformTransactionManager {
+        final List<Booking> loaded = new ArrayList<>();
+        final List<String> staged = new ArrayList<>();
+        boolean failNextOutboxWrite;
+
+        Booking load(Booking booking) {
+            loaded.add(booking);
+            return booking;
+        }
+
+        boolean stage(String key) {
+            if (failNextOutboxWrite) {
+                failNextOutboxWrite = false;
+                return false;
+            }
+            if (outboxKeys.contains(key) || staged.contains(key)) {
+                return false;
+            }
+            staged.add(key);
+            return true;
+        }
+
+        void execute(Runnable work) {
+            TransactionStatus status = getTransaction(null);
+            work.run();
+            commit(status);
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            TransactionSynchronizationManager.initSynchronization();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            for (Booking booking : loaded) {
+                rows.put(booking.getId(), booking);
+            }
+            outboxKeys.addAll(staged);
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        private void complete(int outcome) {
+            loaded.clear();
+            staged.clear();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            for (TransactionSynchronization synchronization : synchronizations) {
+                if (outcome == TransactionSynchronization.STATUS_COMMITTED) {
+                    synchronization.afterCommit();
+                }
+                synchronization.afterCompletion(outcome);
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.EstablishmentBookingStats;
+import com.opennova.model.PaymentStatus;
+import com.opennova.model.RefundStatus;
+import com.opennova.model.RollupGranularity;
+import com.opennova.repository.BookingRollupRepository;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static com.opennova.service.TestFixtures.booking;
+import static com.opennova.service.TestFixtures.randomChange;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingRollupServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 10, 1, 0, 0);
+
+    private final BookingRollupRepository rollupRepository = mock(BookingRollupRepository.class);
+    private final EstablishmentBookingStatsRepository statsRepository = mock(EstablishmentBookingStatsRepository.class);
+
+    // booking_rollups for one establishment, by "granularity bucket_start", as applyDelta leaves it
+    private final Map<String, BookingRollupService.Change> rollups = new HashMap<>();
+
+    private BookingRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new BookingRollupService();
+        ReflectionTestUtils.setField(rollupService, "rollupRepository", rollupRepository);
+        ReflectionTestUtils.setField(rollupService, "statsRepository", statsRepository);
+        ReflectionTestUtils.setField(rollupService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(rollupService, "maxBuckets", 48);
+        rollupService.start();
+
+        when(rollupRepository.applyDelta(anyString(), any(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+            any(), any(), any())).thenAnswer(invocation -> {
+                BookingRollupService.Change change = new BookingRollupService.Change();
+                change.pending = invocation.getArgument(3);
+                change.confirmed = invocation.getArgument(4);
+                change.completed = invocation.getArgument(5);
+                change.cancelled = invocation.getArgument(6);
+                change.gross = invocation.getArgument(7);
+                change.paid = invocation.getArgument(8);
+                change.refund = invocation.getArgument(9);
+                rollups.computeIfAbsent(invocation.getArgument(0) + " " + invocation.getArgument(1),
+                    key -> new BookingRollupService.Change()).add(change);
+                return 1;
+            });
+    }
+
+    @AfterEach
+    void tearDown() {
+        rollupService.stop();
+    }
+
+    @Test
+    void deltasMatchARebuildFromTheBookings() {
+        Random random = new Random(53);
+        List<Booking> live = new ArrayList<>();
+
+        for (int step = 0; step < 5000; step++) {
+            int action = random.nextInt(10);
+            if (action < 3 || live.isEmpty()) {
+                Booking booking = new Booking();
+                booking.setAmount(new BigDecimal(random.nextInt(20000)).movePointLeft(2));
+                // Three days, so hours roll up into more than one day; a few legacy rows have no creation time
+                booking.setCreatedAt(random.nextInt(50) == 0 ? null : START.plusMinutes(random.nextInt(3 * 24 * 60)));
+                randomChange(booking, random);
+                live.add(booking);
+                apply(null, BookingStatsService.Snapshot.of(booking));
+            } else if (action < 9) {
+                Booking booking = live.get(random.nextInt(live.size()));
+                BookingStatsService.Snapshot before = BookingStatsService.Snapshot.of(booking);
+                randomChange(booking, random);
+                apply(before, BookingStatsService.Snapshot.of(booking));
+            } else {
+                Booking booking = live.remove(random.nextInt(live.size()));
+                apply(BookingStatsService.Snapshot.of(booking), null);
+            }
+        }
+
+        Map<String, BookingRollupService.Change> expected = rebuild(live);
+        Set<String> keys = new HashSet<>(expected.keySet());
+        keys.addAll(rollups.keySet());
+        for (String key : keys) {
+            assertSameRollup(key, expected.getOrDefault(key, new BookingRollupService.Change()),
+                rollups.getOrDefault(key, new BookingRollupService.Change()));
+        }
+        assertTrue(expected.keySet().stream().anyMatch(key -> key.startsWith("DAY")));
+    }
+
+    @Test
+    void statusChangeMovesCountsWithinTheBucketAndNoOpsWriteNothing() {
+        Booking booking = booking(BookingStatus.PENDING, PaymentStatus.PENDING, null, null);
+        booking.setCreatedAt(START.plusHours(10).plusMinutes(30));
+
+        BookingStatsService.Snapshot before = BookingStatsService.Snapshot.of(booking);
+        apply(before, BookingStatsService.Snapshot.of(booking));
+        verify(rollupRepository, never()).applyDelta(anyString(), any(), anyLong(), anyLong(), anyLong(), anyLong(),
+            anyLong(), any(), any(), any());
+
+        booking.setStatus(BookingStatus.CONFIRMED);
+        apply(before, BookingStatsService.Snapshot.of(booking));
+
+        verify(rollupRepository).applyDelta(eq("HOUR"), eq(START.plusHours(10)), eq(1L), eq(-1L), eq(1L), eq(0L), eq(0L),
+            any(), any(), any());
+        verify(rollupRepository).applyDelta(eq("DAY"), eq(START), eq(1L), eq(-1L), eq(1L), eq(0L), eq(0L),
+            any(), any(), any());
+        assertEquals(0, rollups.get("HOUR " + START.plusHours(10)).gross.signum());
+    }
+
+    @Test
+    void seriesFillsEmptyBucketsAndTotalsTheRange() {
+        LocalDateTime from = START.plusHours(8).plusMinutes(15);
+        LocalDateTime to = START.plusHours(12);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { START.plusHours(9), 1L, 2L, 0L, 1L, new BigDecimal("30.00"), new BigDecimal("20.00"), BigDecimal.ZERO });
+        rows.add(new Object[] { START.plusHours(11), 0L, 1L, 1L, 0L, new BigDecimal("15.50"), new BigDecimal("15.50"), new BigDecimal("5.00") });
+        when(rollupRepository.findByBucketForEstablishment(RollupGranularity.HOUR, 1L, START.plusHours(8), to)).thenReturn(rows);
+
+        Map<String, Object> result = rollupService.getSeries(RollupGranularity.HOUR, from, to, null, 1L);
+
+        assertEquals(START.plusHours(8), result.get("from"));
+        List<?> series = (List<?>) result.get("series");
+        assertEquals(4, series.size());
+        List<Object> totals = new ArrayList<>();
+        for (Object point : series) {
+            totals.add(((Map<?, ?>) point).get("totalBookings"));
+        }
+        assertEquals(List.of(0L, 4L, 0L, 2L), totals);
+        Map<?, ?> sum = (Map<?, ?>) result.get("totals");
+        assertEquals(6L, sum.get("totalBookings"));
+        assertEquals(3L, sum.get("confirmedBookings"));
+        assertEquals(45.5, sum.get("grossAmount"));
+        assertEquals(5.0, sum.get("refundAmount"));
+
+        assertThrows(RuntimeException.class, () -> rollupService.getSeries(RollupGranularity.HOUR, to, from, null, 1L));
+        // 49 hourly buckets against a limit of 48
+        assertThrows(RuntimeException.class,
+            () -> rollupService.getSeries(RollupGranularity.HOUR, START, START.plusHours(49), null, 1L));
+    }
+
+    @Test
+    void backfillRebuildsOnlyEstablishmentsNotBackfilledYet() {
+        EstablishmentBookingStats pending = new EstablishmentBookingStats(1L);
+        EstablishmentBookingStats done = new EstablishmentBookingStats(2L);
+        // Backfilled by another node between the listing and the lock
+        done.setRollupsBackfilledAt(START);
+        when(statsRepository.findIdsWithoutRollups()).thenReturn(List.of(1L, 2L));
+        when(statsRepository.lockByEstablishmentId(1L)).thenReturn(Optional.of(pending));
+        when(statsRepository.lockByEstablishmentId(2L)).thenReturn(Optional.of(done));
+
+        assertEquals(1, rollupService.backfillAll());
+
+        verify(statsRepository).ensureRow(1L);
+        verify(rollupRepository).deleteByEstablishmentId(1L);
+        verify(rollupRepository).insertHourlyFromBookings(1L);
+        verify(rollupRepository).insertDailyFromHourly(1L);
+        verify(rollupRepository, never()).deleteByEstablishmentId(2L);
+        verify(rollupRepository, never()).insertHourlyFromBookings(2L);
+        assertNotNull(pending.getRollupsBackfilledAt());
+        assertEquals(START, done.getRollupsBackfilledAt());
+        assertEquals(1L, rollupService.getBackfillStats().get("backfilledSinceStart"));
+
+        rollupService.rebuildAll();
+        verify(statsRepository).clearRollupsBackfilled();
+    }
+
+    // The rollup part of the delta BookingStatsService would apply for this change
+    private void apply(BookingStatsService.Snapshot before, BookingStatsService.Snapshot after) {
+        BookingStatsService.Delta delta = new BookingStatsService.Delta().change(before, after);
+        rollupService.apply(1L, (BookingRollupService.Delta) ReflectionTestUtils.getField(delta, "rollup"));
+    }
+
+    // What insertHourlyFromBookings and insertDailyFromHourly compute, filter for filter
+    private static Map<String, BookingRollupService.Change> rebuild(List<Booking> bookings) {
+        Map<LocalDateTime, BookingRollupService.Change> hours = new HashMap<>();
+        for (Booking booking : bookings) {
+            if (booking.getCreatedAt() == null) {
+                continue;
+            }
+            BookingRollupService.Change hour = hours.computeIfAbsent(
+                RollupGranularity.HOUR.bucketOf(booking.getCreatedAt()), key -> new BookingRollupService.Change());
+            BigDecimal paid = booking.getPaymentAmount() != null ? booking.getPaymentAmount() : BigDecimal.ZERO;
+            if (booking.getStatus() == BookingStatus.PENDING) {
+                hour.pending++;
+            } else if (booking.getStatus() == BookingStatus.CONFIRMED) {
+                hour.confirmed++;
+            } else if (booking.getStatus() == BookingStatus.COMPLETED) {
+                hour.completed++;
+            } else if (booking.getStatus() == BookingStatus.CANCELLED) {
+                hour.cancelled++;
+            }
+            hour.gross = hour.gross.add(booking.getAmount() != null ? booking.getAmount() : BigDecimal.ZERO);
+            if (booking.getPaymentStatus() == PaymentStatus.PAID) {
+                hour.paid = hour.paid.add(paid);
+            }
+            if (booking.getRefundStatus() == RefundStatus.PENDING || booking.getRefundStatus() == RefundStatus.APPROVED
+                || booking.getPaymentStatus() == PaymentStatus.REFUNDED) {
+                hour.refund = hour.refund.add(paid);
+            }
+        }
+        Map<String, BookingRollupService.Change> expected = new HashMap<>();
+        for (Map.Entry<LocalDateTime, BookingRollupService.Change> entry : hours.entrySet()) {
+            expected.put("HOUR " + entry.getKey(), entry.getValue());
+            expected.computeIfAbsent("DAY " + RollupGranularity.DAY.bucketOf(entry.getKey()),
+                key -> new BookingRollupService.Change()).add(entry.getValue());
+        }
+        return expected;
+    }
+
+    private static void assertSameRollup(String key, BookingRollupService.Change expected, BookingRollupService.Change actual) {
+        assertEquals(expected.pending, actual.pending, key + " pending");
+        assertEquals(expected.confirmed, actual.confirmed, key + " confirmed");
+        assertEquals(expected.completed, actual.completed, key + " completed");
+        assertEquals(expected.cancelled, actual.cancelled, key + " cancelled");
+        assertEquals(0, expected.gross.compareTo(actual.gross), key + " gross " + expected.gross + " vs " + actual.gross);
+        assertEquals(0, expected.paid.compareTo(actual.paid), key + " paid " + expected.paid + " vs " + actual.paid);
+        assertEquals(0, expected.refund.compareTo(actual.refund), key + " refund " + expected.refund + " vs " + actual.refund);
+    }
+}
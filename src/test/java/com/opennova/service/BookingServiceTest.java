@@ -0,0 +1,112 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingServiceTest {
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+
+    // bookings by id: visiting text and the typed columns as stored
+    private final TreeMap<Long, Booking> table = new TreeMap<>();
+
+    private BookingService bookingService;
+
+    @BeforeEach
+    void setUp() {
+        bookingService = new BookingService();
+        ReflectionTestUtils.setField(bookingService, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(bookingService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(bookingService, "visitBackfillBatchSize", 2);
+
+        when(bookingRepository.findVisitTextAfter(anyLong(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            List<Object[]> rows = new ArrayList<>();
+            for (Booking booking : table.tailMap(afterId, false).values()) {
+                boolean missing = (booking.getVisitDate() == null && booking.getVisitingDate() != null)
+                    || (booking.getVisitTime() == null && booking.getVisitingTime() != null);
+                if (missing && rows.size() < page.getPageSize()) {
+                    rows.add(new Object[] { booking.getId(), booking.getVisitingDate(), booking.getVisitingTime() });
+                }
+            }
+            return rows;
+        });
+        when(bookingRepository.fillVisitColumns(anyLong(), any(), any())).thenAnswer(invocation -> {
+            Booking booking = table.get(invocation.<Long>getArgument(0));
+            if (booking.getVisitDate() == null) {
+                ReflectionTestUtils.setField(booking, "visitDate", invocation.getArgument(1));
+            }
+            if (booking.getVisitTime() == null) {
+                ReflectionTestUtils.setField(booking, "visitTime", invocation.getArgument(2));
+            }
+            return 1;
+        });
+    }
+
+    @Test
+    void visitBackfillParsesLikeTheSettersAndSkipsUnreadableText() {
+        legacy(1L, "2026-11-01", "14:30");
+        legacy(2L, "2026-11-01", "2:30 pm");
+        legacy(3L, "next week", "later");
+        legacy(4L, null, "09:15:30");
+        legacy(5L, "2026-02-30", "10:00");
+
+        assertEquals(4, bookingService.backfillVisitColumns());
+
+        // Pages [1, 2], [3, 4], [5]: the short page ends the loop
+        verify(bookingRepository, times(3)).findVisitTextAfter(anyLong(), any());
+        for (Booking booking : table.values()) {
+            Booking viaSetters = new Booking();
+            viaSetters.setVisitingDate(booking.getVisitingDate());
+            viaSetters.setVisitingTime(booking.getVisitingTime());
+            assertEquals(viaSetters.getVisitDate(), booking.getVisitDate(), "booking " + booking.getId());
+            assertEquals(viaSetters.getVisitTime(), booking.getVisitTime(), "booking " + booking.getId());
+        }
+        assertEquals(LocalTime.of(14, 30), table.get(2L).getVisitTime());
+        assertEquals(LocalDate.of(2026, 11, 1), table.get(2L).getVisitDate());
+        assertNull(table.get(3L).getVisitDate());
+        assertNull(table.get(5L).getVisitDate());
+        assertEquals(LocalTime.of(10, 0), table.get(5L).getVisitTime());
+    }
+
+    @Test
+    void visitBackfillRerunFindsNothingLeftToFill() {
+        legacy(1L, "2026-11-01", "14:30");
+        legacy(2L, "sometime", "soon");
+        legacy(3L, "2026-11-02", "9:00 AM");
+
+        assertEquals(2, bookingService.backfillVisitColumns());
+        assertEquals(0, bookingService.backfillVisitColumns());
+        assertEquals(LocalTime.of(9, 0), table.get(3L).getVisitTime());
+    }
+
+    // A row written before the typed columns existed: text only
+    private void legacy(Long id, String visitingDate, String visitingTime) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        ReflectionTestUtils.setField(booking, "visitingDate", visitingDate);
+        ReflectionTestUtils.setField(booking, "visitingTime", visitingTime);
+        table.put(id, booking);
+    }
+}
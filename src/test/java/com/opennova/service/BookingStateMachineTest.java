@@ -0,0 +1,229 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.Establishment;
+import com.opennova.model.User;
+import com.opennova.repository.BookingRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingStateMachineTest {
+
+    private static final Long BOOKING_ID = 1L;
+    private static final Long ESTABLISHMENT_ID = 5L;
+    private static final Long USER_ID = 9L;
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final BookingStatsService bookingStatsService = mock(BookingStatsService.class);
+    private final UserStatsService userStatsService = mock(UserStatsService.class);
+    private final SlotInventoryService slotInventoryService = mock(SlotInventoryService.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    private BookingStateMachine machine;
+    private Booking booking;
+    // The status the row holds; refresh copies it onto the entity
+    private BookingStatus stored;
+
+    @BeforeEach
+    void setUp() {
+        machine = new BookingStateMachine();
+        ReflectionTestUtils.setField(machine, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(machine, "bookingStatsService", bookingStatsService);
+        ReflectionTestUtils.setField(machine, "userStatsService", userStatsService);
+        ReflectionTestUtils.setField(machine, "slotInventoryService", slotInventoryService);
+        ReflectionTestUtils.setField(machine, "entityManager", entityManager);
+        ReflectionTestUtils.setField(machine, "maxAttempts", 3);
+
+        booking = booking();
+        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+        doAnswer(invocation -> {
+            booking.setStatus(stored);
+            return null;
+        }).when(entityManager).refresh(booking);
+    }
+
+    @Test
+    void illegalTransitionIsRejectedWithoutTouchingTheRow() {
+        stored = BookingStatus.CANCELLED;
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> machine.apply(BOOKING_ID, BookingStateMachine.Action.CONFIRM, b -> { }, null));
+
+        assertEquals("Cannot confirm booking with status: CANCELLED", error.getMessage());
+        verify(bookingRepository, never()).transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any());
+        verify(bookingStatsService, never()).recordChange(any(), any(), any());
+        verify(userStatsService, never()).invalidate(any());
+    }
+
+    @Test
+    void refusedCheckStopsBeforeTheUpdate() {
+        stored = BookingStatus.PENDING;
+
+        assertThrows(RuntimeException.class, () -> machine.apply(BOOKING_ID, BookingStateMachine.Action.CONFIRM,
+            b -> { throw new RuntimeException("Access denied"); }, null));
+
+        verify(bookingRepository, never()).transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any());
+        verify(userStatsService, never()).invalidate(any());
+    }
+
+    @Test
+    void successRecordsTheStatsDeltaAndInvalidatesTheUser() {
+        stored = BookingStatus.PENDING;
+        LocalDateTime confirmedAt = LocalDateTime.now();
+        when(bookingRepository.transitionStatus(eq(BOOKING_ID), eq(BookingStatus.PENDING), eq(BookingStatus.CONFIRMED),
+            any(), eq(confirmedAt), any(), any(), any())).thenAnswer(invocation -> {
+                stored = BookingStatus.CONFIRMED;
+                return 1;
+            });
+
+        Booking result = machine.apply(BOOKING_ID, BookingStateMachine.Action.CONFIRM, b -> { },
+            b -> new BookingStateMachine.Changes().confirmedAt(confirmedAt));
+
+        assertSame(booking, result);
+        assertEquals(BookingStatus.CONFIRMED, result.getStatus());
+        ArgumentCaptor<BookingStatsService.Snapshot> before = ArgumentCaptor.forClass(BookingStatsService.Snapshot.class);
+        ArgumentCaptor<BookingStatsService.Snapshot> after = ArgumentCaptor.forClass(BookingStatsService.Snapshot.class);
+        verify(bookingStatsService).recordChange(eq(ESTABLISHMENT_ID), before.capture(), after.capture());
+        assertEquals(BookingStatus.PENDING, ReflectionTestUtils.getField(before.getValue(), "status"));
+        assertEquals(BookingStatus.CONFIRMED, ReflectionTestUtils.getField(after.getValue(), "status"));
+        verify(userStatsService).invalidate(USER_ID);
+        // Confirming keeps the seat
+        verify(slotInventoryService, never()).release(any(), any(), any());
+    }
+
+    @Test
+    void cancellationFreesTheSeatInsideTheTransition() {
+        stored = BookingStatus.CONFIRMED;
+        when(bookingRepository.transitionStatus(eq(BOOKING_ID), eq(BookingStatus.CONFIRMED), eq(BookingStatus.CANCELLED),
+            any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+                stored = BookingStatus.CANCELLED;
+                return 1;
+            });
+
+        machine.apply(BOOKING_ID, BookingStateMachine.Action.OWNER_CANCEL, b -> { }, null);
+
+        InOrder order = inOrder(bookingRepository, slotInventoryService);
+        order.verify(bookingRepository).transitionStatus(eq(BOOKING_ID), any(), any(), any(), any(), any(), any(), any());
+        order.verify(slotInventoryService).release(ESTABLISHMENT_ID, "2026-11-01", "10:00");
+    }
+
+    @Test
+    void failedSeatReleaseFailsTheTransition() {
+        stored = BookingStatus.PENDING;
+        when(bookingRepository.transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                stored = BookingStatus.CANCELLED;
+                return 1;
+            });
+        doThrow(new RuntimeException("connection reset")).when(slotInventoryService).release(any(), any(), any());
+
+        // Thrown out of the @Transactional method, so the status change rolls back with the seat
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> machine.apply(BOOKING_ID, BookingStateMachine.Action.REJECT, b -> { }, null));
+
+        assertEquals("connection reset", error.getMessage());
+    }
+
+    @Test
+    void lostRaceIsRetriedAgainstTheNewStatus() {
+        stored = BookingStatus.PENDING;
+        AtomicInteger calls = new AtomicInteger();
+        when(bookingRepository.transitionStatus(eq(BOOKING_ID), any(), eq(BookingStatus.CANCELLED),
+            any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+                if (calls.incrementAndGet() == 1) {
+                    // The owner confirmed it between our read and our update
+                    stored = BookingStatus.CONFIRMED;
+                    return 0;
+                }
+                assertEquals(BookingStatus.CONFIRMED, invocation.<BookingStatus>getArgument(1));
+                stored = BookingStatus.CANCELLED;
+                return 1;
+            });
+
+        Booking result = machine.apply(BOOKING_ID, BookingStateMachine.Action.CUSTOMER_CANCEL, b -> { }, null);
+
+        assertEquals(BookingStatus.CANCELLED, result.getStatus());
+        assertEquals(2, calls.get());
+        ArgumentCaptor<BookingStatsService.Snapshot> before = ArgumentCaptor.forClass(BookingStatsService.Snapshot.class);
+        verify(bookingStatsService, times(1)).recordChange(eq(ESTABLISHMENT_ID), before.capture(), any());
+        verify(slotInventoryService, times(1)).release(any(), any(), any());
+        // The delta starts from the status actually replaced, not the one first read
+        assertEquals(BookingStatus.CONFIRMED, ReflectionTestUtils.getField(before.getValue(), "status"));
+        verify(userStatsService, times(1)).invalidate(USER_ID);
+    }
+
+    @Test
+    void lostRaceRecheckedAgainstAnIllegalStatusIsRejected() {
+        stored = BookingStatus.PENDING;
+        when(bookingRepository.transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                stored = BookingStatus.CANCELLED;
+                return 0;
+            });
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> machine.apply(BOOKING_ID, BookingStateMachine.Action.CONFIRM, b -> { }, null));
+
+        assertEquals("Cannot confirm booking with status: CANCELLED", error.getMessage());
+        verify(bookingRepository, times(1)).transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any());
+        verify(bookingStatsService, never()).recordChange(any(), any(), any());
+        verify(userStatsService, never()).invalidate(any());
+    }
+
+    @Test
+    void givesUpAfterTheConfiguredNumberOfAttempts() {
+        stored = BookingStatus.PENDING;
+        when(bookingRepository.transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> machine.apply(BOOKING_ID, BookingStateMachine.Action.CONFIRM, b -> { }, null));
+
+        assertEquals("Booking 1 is being changed by someone else, please try again", error.getMessage());
+        verify(bookingRepository, times(3)).transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any());
+        verify(bookingStatsService, never()).recordChange(any(), any(), any());
+        verify(userStatsService, never()).invalidate(any());
+
+        // At least one attempt even when misconfigured
+        ReflectionTestUtils.setField(machine, "maxAttempts", 0);
+        assertThrows(RuntimeException.class,
+            () -> machine.apply(BOOKING_ID, BookingStateMachine.Action.CONFIRM, b -> { }, null));
+        verify(bookingRepository, times(4)).transitionStatus(anyLong(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static Booking booking() {
+        User user = new User();
+        user.setId(USER_ID);
+        Establishment establishment = new Establishment();
+        establishment.setId(ESTABLISHMENT_ID);
+        Booking booking = new Booking(user, establishment, null, new BigDecimal("100"));
+        booking.setId(BOOKING_ID);
+        booking.setVisitingDate("2026-11-01");
+        booking.setVisitingTime("10:00");
+        return booking;
+    }
+}
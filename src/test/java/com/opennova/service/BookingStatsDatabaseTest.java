@@ -0,0 +1,149 @@
+package com.opennova.service;
+
+import com.opennova.model.BookingBase;
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentBookingStats;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.PaymentStatus;
+import com.opennova.model.RefundStatus;
+import com.opennova.repository.BookingRollupRepository;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The counters' native upsert, delta update and FILTER recount over live and archived bookings
+ */
+class BookingStatsDatabaseTest extends PostgresTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 10, 1, 0, 0);
+
+    @Autowired
+    private EstablishmentBookingStatsRepository statsRepository;
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    @Autowired
+    private BookingRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BookingStatsService statsService;
+    private Establishment hotel;
+    private Establishment shop;
+
+    @BeforeEach
+    void setUp() {
+        BookingRollupService rollupService = new BookingRollupService();
+        ReflectionTestUtils.setField(rollupService, "rollupRepository", rollupRepository);
+        ReflectionTestUtils.setField(rollupService, "statsRepository", statsRepository);
+        ReflectionTestUtils.setField(rollupService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(rollupService, "maxBuckets", 2000);
+
+        statsService = new BookingStatsService();
+        ReflectionTestUtils.setField(statsService, "statsRepository", statsRepository);
+        ReflectionTestUtils.setField(statsService, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(statsService, "bookingRollupService", rollupService);
+        ReflectionTestUtils.setField(statsService, "transactionManager", transactionManager);
+
+        hotel = saveEstablishment("Hotel", EstablishmentType.HOTEL);
+        shop = saveEstablishment("Shop", EstablishmentType.SHOP);
+    }
+
+    @Test
+    void deltasLeaveEachRowEqualToARecount() {
+        List<BookingBase> bookings = replayHistory(statsService, new Random(29), 400, START, hotel, shop);
+        flushAndClear();
+
+        for (Establishment establishment : List.of(hotel, shop)) {
+            assertRowMatchesRecount(establishment.getId());
+            assertRowMatchesBookings(establishment.getId(), bookings);
+        }
+        assertEquals(0, statsService.reconcileAll());
+    }
+
+    @Test
+    void ensureRowInsertsOnceAndReconcileCorrectsADriftedRow() {
+        assertEquals(1, statsRepository.ensureRow(hotel.getId()));
+        assertEquals(0, statsRepository.ensureRow(hotel.getId()));
+
+        replayHistory(statsService, new Random(31), 100, START, hotel);
+        statsRepository.applyDelta(hotel.getId(), 2, -1, 0, 3, new BigDecimal("12.50"), BigDecimal.ZERO,
+            new BigDecimal("-4.00"));
+        flushAndClear();
+
+        // The shop has no bookings: reconcile creates its row with zeros and does not count it as drifted
+        assertEquals(1, statsService.reconcileAll());
+        flushAndClear();
+        assertRowMatchesRecount(hotel.getId());
+        assertRowMatchesRecount(shop.getId());
+        assertEquals(0, statsService.reconcileAll());
+    }
+
+    // The recount's FILTER clauses, spelled out over the bookings left in memory
+    private void assertRowMatchesBookings(Long establishmentId, List<BookingBase> bookings) {
+        EstablishmentBookingStats expected = new EstablishmentBookingStats();
+        for (BookingBase booking : bookings) {
+            if (!booking.getEstablishment().getId().equals(establishmentId)) {
+                continue;
+            }
+            BigDecimal paid = booking.getPaymentAmount();
+            switch (booking.getStatus()) {
+                case PENDING:
+                    expected.setPendingCount(expected.getPendingCount() + 1);
+                    break;
+                case CONFIRMED:
+                    expected.setConfirmedCount(expected.getConfirmedCount() + 1);
+                    expected.setConfirmedAmount(expected.getConfirmedAmount().add(paid));
+                    break;
+                case COMPLETED:
+                    expected.setCompletedCount(expected.getCompletedCount() + 1);
+                    break;
+                case CANCELLED:
+                    expected.setCancelledCount(expected.getCancelledCount() + 1);
+                    break;
+            }
+            if (booking.getPaymentStatus() == PaymentStatus.PAID) {
+                expected.setPaidRevenue(expected.getPaidRevenue().add(paid));
+            }
+            if ((booking.getRefundStatus() == RefundStatus.PENDING || booking.getRefundStatus() == RefundStatus.APPROVED)
+                && booking.getPaymentStatus() != PaymentStatus.REFUNDED) {
+                expected.setRefundsOwed(expected.getRefundsOwed().add(paid));
+            }
+        }
+
+        EstablishmentBookingStats row = statsRepository.findById(establishmentId).orElseThrow();
+        assertEquals(expected.getPendingCount(), row.getPendingCount());
+        assertEquals(expected.getConfirmedCount(), row.getConfirmedCount());
+        assertEquals(expected.getCompletedCount(), row.getCompletedCount());
+        assertEquals(expected.getCancelledCount(), row.getCancelledCount());
+        assertEquals(0, expected.getConfirmedAmount().compareTo(row.getConfirmedAmount()), "confirmed amount");
+        assertEquals(0, expected.getPaidRevenue().compareTo(row.getPaidRevenue()), "paid revenue");
+        assertEquals(0, expected.getRefundsOwed().compareTo(row.getRefundsOwed()), "refunds owed");
+    }
+
+    private void assertRowMatchesRecount(Long establishmentId) {
+        EstablishmentBookingStats row = statsRepository.findById(establishmentId).orElseThrow();
+        Object[] counts = statsRepository.countFromBookings(establishmentId).get(0);
+        assertEquals(((Number) counts[0]).longValue(), row.getPendingCount());
+        assertEquals(((Number) counts[1]).longValue(), row.getConfirmedCount());
+        assertEquals(((Number) counts[2]).longValue(), row.getCompletedCount());
+        assertEquals(((Number) counts[3]).longValue(), row.getCancelledCount());
+        assertEquals(0, new BigDecimal(counts[4].toString()).compareTo(row.getConfirmedAmount()), "confirmed amount");
+        assertEquals(0, new BigDecimal(counts[5].toString()).compareTo(row.getPaidRevenue()), "paid revenue");
+        assertEquals(0, new BigDecimal(counts[6].toString()).compareTo(row.getRefundsOwed()), "refunds owed");
+    }
+}
@@ -0,0 +1,212 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.EstablishmentBookingStats;
+import com.opennova.model.PaymentStatus;
+import com.opennova.model.RefundStatus;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.opennova.service.TestFixtures.booking;
+import static com.opennova.service.TestFixtures.randomChange;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingStatsServiceTest {
+
+    private final EstablishmentBookingStatsRepository statsRepository = mock(EstablishmentBookingStatsRepository.class);
+    private final EstablishmentRepository establishmentRepository = mock(EstablishmentRepository.class);
+    private final BookingRollupService bookingRollupService = mock(BookingRollupService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    // establishment_booking_stats, as the native queries leave it
+    private final Map<Long, EstablishmentBookingStats> rows = new HashMap<>();
+
+    private BookingStatsService stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = new BookingStatsService();
+        ReflectionTestUtils.setField(stats, "statsRepository", statsRepository);
+        ReflectionTestUtils.setField(stats, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(stats, "bookingRollupService", bookingRollupService);
+        ReflectionTestUtils.setField(stats, "transactionManager", transactionManager);
+        stats.start();
+
+        when(statsRepository.ensureRow(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            return rows.putIfAbsent(id, new EstablishmentBookingStats(id)) == null ? 1 : 0;
+        });
+        when(statsRepository.applyDelta(anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                EstablishmentBookingStats row = rows.get(invocation.<Long>getArgument(0));
+                row.setPendingCount(row.getPendingCount() + invocation.<Long>getArgument(1));
+                row.setConfirmedCount(row.getConfirmedCount() + invocation.<Long>getArgument(2));
+                row.setCompletedCount(row.getCompletedCount() + invocation.<Long>getArgument(3));
+                row.setCancelledCount(row.getCancelledCount() + invocation.<Long>getArgument(4));
+                row.setConfirmedAmount(row.getConfirmedAmount().add(invocation.getArgument(5)));
+                row.setPaidRevenue(row.getPaidRevenue().add(invocation.getArgument(6)));
+                row.setRefundsOwed(row.getRefundsOwed().add(invocation.getArgument(7)));
+                return 1;
+            });
+        when(statsRepository.lockByEstablishmentId(anyLong()))
+            .thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<Long>getArgument(0))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stats.stop();
+    }
+
+    @Test
+    void deltasMatchARecountOfTheBookings() {
+        Random random = new Random(31);
+        Map<Long, List<Booking>> bookings = new HashMap<>();
+        for (long establishmentId = 1; establishmentId <= 3; establishmentId++) {
+            bookings.put(establishmentId, new ArrayList<>());
+        }
+
+        for (int step = 0; step < 5000; step++) {
+            Long establishmentId = 1L + random.nextInt(3);
+            List<Booking> live = bookings.get(establishmentId);
+            int action = random.nextInt(10);
+            if (action < 3 || live.isEmpty()) {
+                Booking booking = randomBooking(random);
+                live.add(booking);
+                stats.recordChange(establishmentId, null, BookingStatsService.Snapshot.of(booking));
+            } else if (action < 9) {
+                Booking booking = live.get(random.nextInt(live.size()));
+                BookingStatsService.Snapshot before = BookingStatsService.Snapshot.of(booking);
+                randomChange(booking, random);
+                stats.recordChange(establishmentId, before, BookingStatsService.Snapshot.of(booking));
+            } else {
+                Booking booking = live.remove(random.nextInt(live.size()));
+                stats.recordChange(establishmentId, BookingStatsService.Snapshot.of(booking), null);
+            }
+        }
+
+        for (Map.Entry<Long, List<Booking>> entry : bookings.entrySet()) {
+            EstablishmentBookingStats expected = recount(entry.getValue());
+            EstablishmentBookingStats row = rows.get(entry.getKey());
+            assertNotNull(row, "row " + entry.getKey());
+            assertSameCounters(expected, row);
+        }
+    }
+
+    @Test
+    void reconcileCorrectsADriftedRowAndLeavesTheOthers() {
+        List<Booking> first = List.of(
+            booking(BookingStatus.CONFIRMED, PaymentStatus.PAID, RefundStatus.NOT_APPLICABLE, "40.00"),
+            booking(BookingStatus.PENDING, PaymentStatus.PENDING, null, null),
+            booking(BookingStatus.CANCELLED, PaymentStatus.PAID, RefundStatus.PENDING, "25.50"));
+        List<Booking> second = List.of(
+            booking(BookingStatus.COMPLETED, PaymentStatus.PAID, null, "10.00"));
+        for (Booking booking : first) {
+            stats.recordChange(1L, null, BookingStatsService.Snapshot.of(booking));
+        }
+        for (Booking booking : second) {
+            stats.recordChange(2L, null, BookingStatsService.Snapshot.of(booking));
+        }
+        // A lost update left the first row one confirmed booking short
+        EstablishmentBookingStats drifted = rows.get(1L);
+        drifted.setConfirmedCount(0);
+        drifted.setConfirmedAmount(BigDecimal.ZERO);
+        LocalDateTime untouched = rows.get(2L).getUpdatedAt().minusDays(1);
+        rows.get(2L).setUpdatedAt(untouched);
+
+        when(establishmentRepository.findAllIds()).thenReturn(List.of(1L, 2L));
+        when(statsRepository.countFromBookings(1L)).thenReturn(recountRow(first));
+        when(statsRepository.countFromBookings(2L)).thenReturn(recountRow(second));
+
+        assertEquals(1, stats.reconcileAll());
+
+        assertSameCounters(recount(first), rows.get(1L));
+        assertSameCounters(recount(second), rows.get(2L));
+        assertEquals(untouched, rows.get(2L).getUpdatedAt());
+        assertNotNull(rows.get(1L).getReconciledAt());
+        assertNotNull(rows.get(2L).getReconciledAt());
+        assertEquals(1L, stats.getReconcileStats().get("correctedSinceStart"));
+        // One transaction per establishment
+        verify(transactionManager, times(2)).commit(any());
+
+        // A second pass finds nothing to correct
+        assertEquals(0, stats.reconcileAll());
+        assertEquals(1L, stats.getReconcileStats().get("correctedSinceStart"));
+    }
+
+    private static Booking randomBooking(Random random) {
+        Booking booking = new Booking();
+        booking.setAmount(new BigDecimal(random.nextInt(20000)).movePointLeft(2));
+        booking.setCreatedAt(LocalDateTime.of(2026, 10, 1, 0, 0).plusHours(random.nextInt(500)));
+        randomChange(booking, random);
+        return booking;
+    }
+
+    // What countFromBookings computes, filter for filter
+    private static EstablishmentBookingStats recount(List<Booking> bookings) {
+        EstablishmentBookingStats expected = new EstablishmentBookingStats();
+        for (Booking booking : bookings) {
+            BigDecimal paid = booking.getPaymentAmount() != null ? booking.getPaymentAmount() : BigDecimal.ZERO;
+            if (booking.getStatus() == BookingStatus.PENDING) {
+                expected.setPendingCount(expected.getPendingCount() + 1);
+            } else if (booking.getStatus() == BookingStatus.CONFIRMED) {
+                expected.setConfirmedCount(expected.getConfirmedCount() + 1);
+                expected.setConfirmedAmount(expected.getConfirmedAmount().add(paid));
+            } else if (booking.getStatus() == BookingStatus.COMPLETED) {
+                expected.setCompletedCount(expected.getCompletedCount() + 1);
+            } else if (booking.getStatus() == BookingStatus.CANCELLED) {
+                expected.setCancelledCount(expected.getCancelledCount() + 1);
+            }
+            if (booking.getPaymentStatus() == PaymentStatus.PAID) {
+                expected.setPaidRevenue(expected.getPaidRevenue().add(paid));
+            }
+            if ((booking.getRefundStatus() == RefundStatus.PENDING || booking.getRefundStatus() == RefundStatus.APPROVED)
+                && booking.getPaymentStatus() != PaymentStatus.REFUNDED) {
+                expected.setRefundsOwed(expected.getRefundsOwed().add(paid));
+            }
+        }
+        return expected;
+    }
+
+    private static List<Object[]> recountRow(List<Booking> bookings) {
+        EstablishmentBookingStats counts = recount(bookings);
+        List<Object[]> result = new ArrayList<>();
+        result.add(new Object[] { counts.getPendingCount(), counts.getConfirmedCount(), counts.getCompletedCount(),
+            counts.getCancelledCount(), counts.getConfirmedAmount(), counts.getPaidRevenue(), counts.getRefundsOwed() });
+        return result;
+    }
+
+    private static void assertSameCounters(EstablishmentBookingStats expected, EstablishmentBookingStats actual) {
+        assertEquals(expected.getPendingCount(), actual.getPendingCount(), "pending");
+        assertEquals(expected.getConfirmedCount(), actual.getConfirmedCount(), "confirmed");
+        assertEquals(expected.getCompletedCount(), actual.getCompletedCount(), "completed");
+        assertEquals(expected.getCancelledCount(), actual.getCancelledCount(), "cancelled");
+        assertEquals(0, expected.getConfirmedAmount().compareTo(actual.getConfirmedAmount()),
+            "confirmed amount " + expected.getConfirmedAmount() + " vs " + actual.getConfirmedAmount());
+        assertEquals(0, expected.getPaidRevenue().compareTo(actual.getPaidRevenue()),
+            "paid revenue " + expected.getPaidRevenue() + " vs " + actual.getPaidRevenue());
+        assertEquals(0, expected.getRefundsOwed().compareTo(actual.getRefundsOwed()),
+            "refunds owed " + expected.getRefundsOwed() + " vs " + actual.getRefundsOwed());
+    }
+}
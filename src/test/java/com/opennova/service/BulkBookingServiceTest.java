@@ -0,0 +1,213 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.Establishment;
+import com.opennova.model.RefundStatus;
+import com.opennova.repository.BookingRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BulkBookingServiceTest {
+
+    private static final Long ESTABLISHMENT_ID = 5L;
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final QRCodeService qrCodeService = mock(QRCodeService.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final RealTimeUpdateService realTimeUpdateService = mock(RealTimeUpdateService.class);
+    private final SlotInventoryService slotInventoryService = mock(SlotInventoryService.class);
+    private final BookingLifecycleService bookingLifecycleService = mock(BookingLifecycleService.class);
+    private final BookingStatsService bookingStatsService = mock(BookingStatsService.class);
+    private final UserStatsService userStatsService = mock(UserStatsService.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    private BulkBookingService bulk;
+
+    @BeforeEach
+    void setUp() {
+        bulk = new BulkBookingService();
+        ReflectionTestUtils.setField(bulk, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(bulk, "qrCodeService", qrCodeService);
+        ReflectionTestUtils.setField(bulk, "emailService", emailService);
+        ReflectionTestUtils.setField(bulk, "notificationService", notificationService);
+        ReflectionTestUtils.setField(bulk, "realTimeUpdateService", realTimeUpdateService);
+        ReflectionTestUtils.setField(bulk, "slotInventoryService", slotInventoryService);
+        ReflectionTestUtils.setField(bulk, "bookingLifecycleService", bookingLifecycleService);
+        ReflectionTestUtils.setField(bulk, "bookingStatsService", bookingStatsService);
+        ReflectionTestUtils.setField(bulk, "userStatsService", userStatsService);
+        ReflectionTestUtils.setField(bulk, "entityManager", entityManager);
+        ReflectionTestUtils.setField(bulk, "maxItems", 3);
+        ReflectionTestUtils.setField(bulk, "qrThreads", 2);
+        bulk.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulk.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void confirmAppliesTheAllowedBookingsAndReportsTheRest() {
+        Booking pending = booking(1L, BookingStatus.PENDING);
+        Booking confirmed = booking(2L, BookingStatus.CONFIRMED);
+        locked(pending, confirmed);
+        when(qrCodeService.generateBookingQRCode(pending)).thenReturn("qr-1");
+
+        // Duplicates and nulls are dropped before the limit is checked
+        Map<String, Object> report = bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.CONFIRM,
+            Arrays.asList(1L, 2L, 3L, 1L, null), null);
+
+        assertEquals(3, report.get("requested"));
+        assertEquals(1, report.get("succeeded"));
+        assertEquals(2, report.get("failed"));
+        List<Map<String, Object>> results = (List<Map<String, Object>>) report.get("results");
+        assertEquals(List.of(1L, 2L, 3L), results.stream().map(result -> result.get("bookingId")).toList());
+        assertEquals(List.of(true, false, false), results.stream().map(result -> result.get("success")).toList());
+        assertEquals("Cannot confirm booking with status: CONFIRMED", results.get(1).get("message"));
+        assertEquals("Booking not found", results.get(2).get("message"));
+
+        assertEquals(BookingStatus.CONFIRMED, pending.getStatus());
+        assertNotNull(pending.getConfirmedAt());
+        assertEquals("qr-1", pending.getQrCode());
+        assertEquals(BookingStatus.CONFIRMED, confirmed.getStatus());
+        verify(bookingLifecycleService).bookingConfirmed(pending);
+        verify(bookingLifecycleService, never()).bookingConfirmed(confirmed);
+
+        // One flush, then one counters update moving a booking from pending to confirmed
+        InOrder order = inOrder(entityManager, bookingStatsService);
+        order.verify(entityManager).flush();
+        ArgumentCaptor<Map<Long, BookingStatsService.Delta>> deltas = ArgumentCaptor.forClass(Map.class);
+        order.verify(bookingStatsService).apply(deltas.capture());
+        BookingStatsService.Delta delta = deltas.getValue().get(ESTABLISHMENT_ID);
+        assertEquals(-1L, ReflectionTestUtils.getField(delta, "pending"));
+        assertEquals(1L, ReflectionTestUtils.getField(delta, "confirmed"));
+        // and the customers' cached figures dropped for the changed bookings only
+        verify(userStatsService).invalidateCustomersOf(List.of(pending));
+
+        verify(realTimeUpdateService, timeout(2000)).notifyBookingUpdate(pending);
+        verify(emailService, timeout(2000)).sendBookingConfirmationWithQR(pending);
+        verify(realTimeUpdateService, after(100).never()).notifyBookingUpdate(confirmed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedQrCodeStillConfirms() {
+        Booking pending = booking(1L, BookingStatus.PENDING);
+        locked(pending);
+        when(qrCodeService.generateBookingQRCode(pending)).thenThrow(new RuntimeException("encoder failed"));
+
+        Map<String, Object> report = bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.CONFIRM, List.of(1L), null);
+
+        List<Map<String, Object>> results = (List<Map<String, Object>>) report.get("results");
+        assertEquals(true, results.get(0).get("success"));
+        assertEquals("Confirmed without QR code", results.get(0).get("message"));
+        assertEquals(BookingStatus.CONFIRMED, pending.getStatus());
+        verify(emailService, timeout(2000)).sendBookingConfirmation(pending);
+    }
+
+    @Test
+    void rejectRefundsAndReleasesTheSlotsAfterTheFlush() {
+        Booking first = booking(1L, BookingStatus.PENDING);
+        Booking second = booking(2L, BookingStatus.PENDING);
+        second.setVisitingTime("11:00");
+        locked(first, second);
+
+        Map<String, Object> report = bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.REJECT, List.of(1L, 2L), "Closed");
+
+        assertEquals(2, report.get("succeeded"));
+        for (Booking booking : List.of(first, second)) {
+            assertEquals(BookingStatus.CANCELLED, booking.getStatus());
+            assertEquals("Closed", booking.getCancellationReason());
+            assertEquals(RefundStatus.APPROVED, booking.getRefundStatus());
+            assertNotNull(booking.getCancelledAt());
+        }
+        InOrder order = inOrder(entityManager, slotInventoryService);
+        order.verify(entityManager).flush();
+        order.verify(slotInventoryService).release(ESTABLISHMENT_ID, "2026-11-01", "10:00");
+        order.verify(slotInventoryService).release(ESTABLISHMENT_ID, "2026-11-01", "11:00");
+        verify(emailService, timeout(2000)).sendBookingRejectionWithDetails(second, "Closed");
+        verifyNoInteractions(qrCodeService);
+    }
+
+    @Test
+    void notificationsWaitForTheCommit() {
+        Booking pending = booking(1L, BookingStatus.PENDING);
+        locked(pending);
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.CONFIRM, List.of(1L), null);
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(realTimeUpdateService, after(100).never()).notifyBookingUpdate(any());
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        verify(realTimeUpdateService, timeout(2000)).notifyBookingUpdate(pending);
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeAnythingIsLocked() {
+        assertThrows(RuntimeException.class, () ->
+            bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.CUSTOMER_CANCEL, List.of(1L), null));
+        assertThrows(RuntimeException.class, () ->
+            bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.CONFIRM, List.of(), null));
+        assertThrows(RuntimeException.class, () ->
+            bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.CONFIRM, List.of(1L, 2L, 3L, 4L), null));
+        assertThrows(RuntimeException.class, () ->
+            bulk.apply(ESTABLISHMENT_ID, BookingStateMachine.Action.REJECT, List.of(1L), " "));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    private void locked(Booking... bookings) {
+        when(bookingRepository.lockAllByIdInAndEstablishmentId(anyCollection(), eq(ESTABLISHMENT_ID)))
+            .thenAnswer(invocation -> {
+                Collection<Long> ids = invocation.getArgument(0);
+                return Arrays.stream(bookings).filter(booking -> ids.contains(booking.getId())).toList();
+            });
+    }
+
+    private static Booking booking(Long id, BookingStatus status) {
+        Establishment establishment = new Establishment();
+        establishment.setId(ESTABLISHMENT_ID);
+        establishment.setName("Establishment " + ESTABLISHMENT_ID);
+        Booking booking = new Booking(null, establishment, null, new BigDecimal("100"));
+        booking.setId(id);
+        booking.setStatus(status);
+        booking.setVisitingDate("2026-11-01");
+        booking.setVisitingTime("10:00");
+        return booking;
+    }
+}
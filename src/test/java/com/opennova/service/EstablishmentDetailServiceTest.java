@@ -0,0 +1,146 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.repository.CollectionRepository;
+import com.opennova.repository.DoctorRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EstablishmentDetailServiceTest {
+
+    private final EstablishmentRepository establishmentRepository = mock(EstablishmentRepository.class);
+
+    // The row as the database currently has it
+    private final AtomicReference<String> storedName = new AtomicReference<>("Corner Cafe");
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile CountDownLatch loading;
+    private volatile CountDownLatch resume;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private EstablishmentDetailService details;
+
+    @BeforeEach
+    void setUp() {
+        details = new EstablishmentDetailService();
+        ReflectionTestUtils.setField(details, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(details, "doctorRepository", mock(DoctorRepository.class));
+        ReflectionTestUtils.setField(details, "collectionRepository", mock(CollectionRepository.class));
+        when(establishmentRepository.findWithMenusById(1L)).thenAnswer(invocation -> {
+            loads.incrementAndGet();
+            Establishment establishment = establishment(storedName.get());
+            CountDownLatch paused = resume;
+            if (paused != null) {
+                resume = null;
+                loading.countDown();
+                assertTrue(paused.await(5, TimeUnit.SECONDS));
+            }
+            return Optional.of(establishment);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void detailIsLoadedOnceAndServedFromTheCache() {
+        Map<String, Object> first = details.getDetail(1L);
+
+        assertSame(first, details.getDetail(1L));
+        assertEquals(1, loads.get());
+        details.evict(1L);
+        details.getDetail(1L);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void updateDuringARebuildKeepsTheStaleDetailOutOfTheCache() throws Exception {
+        loading = new CountDownLatch(1);
+        resume = new CountDownLatch(1);
+        CountDownLatch release = resume;
+        Future<Map<String, Object>> rebuild = pool.submit(() -> details.getDetail(1L));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // The owner's edit commits and evicts while the old row is still being turned into a detail
+        storedName.set("Corner Cafe & Bar");
+        details.evict(1L);
+        release.countDown();
+
+        assertEquals("Corner Cafe", rebuild.get(5, TimeUnit.SECONDS).get("name"));
+        assertEquals("Corner Cafe & Bar", details.getDetail(1L).get("name"));
+        assertEquals(2, loads.get());
+        assertEquals("Corner Cafe & Bar", details.getDetail(1L).get("name"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictAllDuringARebuildKeepsTheStaleDetailOutOfTheCache() throws Exception {
+        loading = new CountDownLatch(1);
+        resume = new CountDownLatch(1);
+        CountDownLatch release = resume;
+        Future<Map<String, Object>> rebuild = pool.submit(() -> details.getDetail(1L));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        storedName.set("Renamed");
+        details.evictAll();
+        release.countDown();
+        rebuild.get(5, TimeUnit.SECONDS);
+
+        assertEquals("Renamed", details.getDetail(1L).get("name"));
+    }
+
+    @Test
+    void cacheEndsOnTheLatestRowWhateverTheInterleaving() throws Exception {
+        CyclicBarrier start = new CyclicBarrier(2);
+        for (int round = 0; round < 500; round++) {
+            String name = "Name " + round;
+            Future<?> reader = pool.submit(() -> {
+                start.await();
+                return details.getDetail(1L);
+            });
+            Future<?> writer = pool.submit(() -> {
+                start.await();
+                storedName.set(name);
+                details.evict(1L);
+                return null;
+            });
+            reader.get(5, TimeUnit.SECONDS);
+            writer.get(5, TimeUnit.SECONDS);
+
+            assertEquals(name, details.getDetail(1L).get("name"), "round " + round);
+        }
+    }
+
+    private static Establishment establishment(String name) {
+        Establishment establishment = new Establishment();
+        establishment.setId(1L);
+        establishment.setName(name);
+        establishment.setType(EstablishmentType.HOTEL);
+        establishment.setStatus(EstablishmentStatus.OPEN);
+        establishment.setIsActive(true);
+        return establishment;
+    }
+}
@@ -0,0 +1,129 @@
+package com.opennova.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EstablishmentEventJournalTest {
+
+    private EstablishmentEventJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = new EstablishmentEventJournal();
+        ReflectionTestUtils.setField(journal, "capacity", 4);
+    }
+
+    @Test
+    void replaysEverythingAfterTheCursorInOrder() {
+        for (int i = 1; i <= 3; i++) {
+            journal.append(1L, EstablishmentEventJournal.EventType.BOOKING_CREATED, Map.of("bookingId", i));
+        }
+        journal.append(2L, EstablishmentEventJournal.EventType.STATUS_CHANGED, Map.of("status", "OPEN"));
+
+        Map<String, Object> updates = journal.getUpdatesSince(1L, 1, journal.getEpoch(), true);
+
+        assertEquals(false, updates.get("resyncRequired"));
+        assertEquals(3L, updates.get("latestSeq"));
+        assertEquals(List.of(2L, 3L), seqs(updates));
+        assertEquals(List.of(2, 3), field(updates, "bookingId"));
+        // Each establishment counts on its own
+        assertEquals(List.of(1L), seqs(journal.getUpdatesSince(2L, 0, null, true)));
+        // Caught up
+        assertEquals(List.of(), seqs(journal.getUpdatesSince(1L, 3, journal.getEpoch(), true)));
+    }
+
+    @Test
+    void cursorThatFellOffTheRingRequiresAResync() {
+        for (int i = 1; i <= 10; i++) {
+            journal.append(1L, EstablishmentEventJournal.EventType.BOOKING_UPDATED, Map.of("bookingId", i));
+        }
+
+        // 7..10 are held, so a client that saw 6 is still complete
+        assertEquals(List.of(7L, 8L, 9L, 10L), seqs(journal.getUpdatesSince(1L, 6, null, true)));
+
+        Map<String, Object> behind = journal.getUpdatesSince(1L, 5, null, true);
+        assertEquals(true, behind.get("resyncRequired"));
+        assertEquals(10L, behind.get("latestSeq"));
+        assertEquals(List.of(), seqs(behind));
+
+        // A cursor from the future came from an earlier process
+        assertEquals(true, journal.getUpdatesSince(1L, 11, null, true).get("resyncRequired"));
+    }
+
+    @Test
+    void restartIsNoticedThroughTheEpochOrAnUnknownCursor() {
+        journal.append(1L, EstablishmentEventJournal.EventType.STATUS_CHANGED, Map.of("status", "BUSY"));
+
+        Map<String, Object> otherEpoch = journal.getUpdatesSince(1L, 0, "0", true);
+        assertEquals(true, otherEpoch.get("resyncRequired"));
+        assertEquals(1L, otherEpoch.get("latestSeq"));
+
+        // Nothing recorded for this establishment since startup
+        assertEquals(true, journal.getUpdatesSince(9L, 4, null, true).get("resyncRequired"));
+        assertEquals(false, journal.getUpdatesSince(9L, 0, null, true).get("resyncRequired"));
+    }
+
+    @Test
+    void bookingEventsAreLeftOutForPublicReaders() {
+        journal.append(1L, EstablishmentEventJournal.EventType.BOOKING_CREATED, Map.of("bookingId", 1));
+        journal.append(1L, EstablishmentEventJournal.EventType.STATUS_CHANGED, Map.of("status", "OPEN"));
+        journal.append(1L, EstablishmentEventJournal.EventType.BOOKING_CANCELLED, Map.of("bookingId", 1));
+        journal.append(1L, EstablishmentEventJournal.EventType.SCHEDULE_CHANGED, Map.of());
+
+        Map<String, Object> updates = journal.getUpdatesSince(1L, 0, null, false);
+
+        assertEquals(List.of(2L, 4L), seqs(updates));
+        assertEquals(List.of("STATUS_CHANGED", "SCHEDULE_CHANGED"), field(updates, "type"));
+        // The cursor still moves past the hidden events
+        assertEquals(4L, updates.get("latestSeq"));
+    }
+
+    @Test
+    void randomCursorsMatchAFullHistory() {
+        ReflectionTestUtils.setField(journal, "capacity", 8);
+        Random random = new Random(47);
+        List<Long> history = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            if (random.nextInt(3) > 0) {
+                journal.append(1L, EstablishmentEventJournal.EventType.BOOKING_UPDATED, Map.of("step", step));
+                history.add((long) history.size() + 1);
+                continue;
+            }
+            long latest = history.size();
+            long since = random.nextInt((int) latest + 3);
+            Map<String, Object> updates = journal.getUpdatesSince(1L, since, null, true);
+
+            boolean resync = since > latest || (latest > 0 && since < latest - 8);
+            assertEquals(resync, updates.get("resyncRequired"), "since " + since + " of " + latest);
+            assertEquals(latest, updates.get("latestSeq"));
+            List<Long> expected = resync ? List.of() : history.subList((int) Math.min(since, latest), (int) latest);
+            assertEquals(expected, seqs(updates), "since " + since + " of " + latest);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> seqs(Map<String, Object> updates) {
+        List<Long> seqs = new ArrayList<>();
+        for (Map<String, Object> event : (List<Map<String, Object>>) updates.get("events")) {
+            seqs.add((Long) event.get("seq"));
+        }
+        return seqs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> field(Map<String, Object> updates, String name) {
+        List<Object> values = new ArrayList<>();
+        for (Map<String, Object> event : (List<Map<String, Object>>) updates.get("events")) {
+            values.add(event.get(name));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,86 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EstablishmentKeysetDatabaseTest extends PostgresTest {
+
+    @Autowired
+    private EstablishmentRepository establishmentRepository;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        save("Cafe", EstablishmentType.HOTEL, EstablishmentStatus.OPEN, true);
+        save("Bakery", EstablishmentType.SHOP, EstablishmentStatus.OPEN, true);
+        save("Cafe", EstablishmentType.HOTEL, EstablishmentStatus.BUSY, true);
+        save("Cafe", EstablishmentType.SHOP, EstablishmentStatus.OPEN, false);
+        save("Cafe", EstablishmentType.HOTEL, EstablishmentStatus.OPEN, true);
+        save("Diner", EstablishmentType.HOTEL, EstablishmentStatus.OPEN, true);
+    }
+
+    @Test
+    void nameKeysetBreaksTiesOnIdAndSkipsInactiveRows() {
+        List<Long> seen = new ArrayList<>();
+        String afterName = null;
+        Long afterId = null;
+        List<Establishment> page;
+        do {
+            page = establishmentRepository.findByFiltersAfterName(null, null, afterName, afterId, PageRequest.of(0, 2));
+            for (Establishment establishment : page) {
+                seen.add(establishment.getId());
+            }
+            if (!page.isEmpty()) {
+                afterName = page.get(page.size() - 1).getName();
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 2);
+
+        assertEquals(List.of(ids.get(1), ids.get(0), ids.get(2), ids.get(4), ids.get(5)), seen);
+        // Resuming in the middle of the tied names
+        assertEquals(List.of(ids.get(4)), idsOf(establishmentRepository.findByFiltersAfterName(
+            EstablishmentType.HOTEL, EstablishmentStatus.OPEN, "Cafe", ids.get(0), PageRequest.of(0, 1))));
+    }
+
+    @Test
+    void idKeysetAppliesTheFiltersAndRunsOutCleanly() {
+        assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4), ids.get(5)), idsOf(
+            establishmentRepository.findByFiltersAfterId(EstablishmentType.HOTEL, null, null, PageRequest.of(0, 10))));
+        assertEquals(List.of(ids.get(4), ids.get(5)), idsOf(establishmentRepository.findByFiltersAfterId(
+            EstablishmentType.HOTEL, EstablishmentStatus.OPEN, ids.get(0), PageRequest.of(0, 10))));
+        assertEquals(List.of(), idsOf(establishmentRepository.findByFiltersAfterId(
+            null, null, ids.get(5), PageRequest.of(0, 10))));
+    }
+
+    private void save(String name, EstablishmentType type, EstablishmentStatus status, boolean active) {
+        Establishment establishment = new Establishment();
+        establishment.setName(name);
+        establishment.setType(type);
+        establishment.setStatus(status);
+        establishment.setIsActive(active);
+        establishment.setAddress("1 Main Street");
+        establishment.setEmail(name.toLowerCase() + ids.size() + "@example.com");
+        establishment.setPassword("secret");
+        ids.add(establishmentRepository.save(establishment).getId());
+    }
+
+    private static List<Long> idsOf(List<Establishment> establishments) {
+        List<Long> ids = new ArrayList<>();
+        for (Establishment establishment : establishments) {
+            ids.add(establishment.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,168 @@
+package com.opennova.service;
+
+import com.opennova.model.EstablishmentRequest;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.RequestStatus;
+import com.opennova.model.User;
+import com.opennova.repository.EstablishmentRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EstablishmentRequestRegistryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    private final EstablishmentRequestRepository repository = mock(EstablishmentRequestRepository.class);
+
+    private EstablishmentRequestRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new EstablishmentRequestRegistry();
+        ReflectionTestUtils.setField(registry, "establishmentRequestRepository", repository);
+    }
+
+    @Test
+    void loadsOnceAndIndexesByUserAndStatus() {
+        when(repository.findAllWithUser()).thenReturn(List.of(
+            request(1L, user(10L), RequestStatus.PENDING, 1),
+            request(2L, user(10L), RequestStatus.APPROVED, 2),
+            request(3L, user(11L), RequestStatus.PENDING, 3)));
+
+        // Newest first
+        assertEquals(List.of(2L, 1L), ids(registry.findByUser(10L)));
+        assertEquals(List.of(3L), ids(registry.findByUser(11L)));
+        assertEquals(List.of(), ids(registry.findByUser(12L)));
+        assertEquals(List.of(3L, 1L), ids(registry.findByStatus(RequestStatus.PENDING)));
+        assertEquals(List.of(3L, 2L, 1L), ids(registry.findAll()));
+        assertEquals(2L, registry.countByStatus(RequestStatus.PENDING));
+        assertEquals(0L, registry.countByStatus(RequestStatus.REJECTED));
+        assertEquals("User 10", registry.get(1L).getRequestedByName());
+        assertEquals("user10@example.com", registry.get(1L).toMap().get("requestedByEmail"));
+
+        verify(repository, times(1)).findAllWithUser();
+    }
+
+    @Test
+    void statusChangeMovesTheRequestAndKeepsTheUserDetails() {
+        when(repository.findAllWithUser()).thenReturn(List.of(request(1L, user(10L), RequestStatus.PENDING, 1)));
+
+        LocalDateTime reviewedAt = START.plusDays(1);
+        EstablishmentRequestRegistry.RequestRecord updated =
+            registry.updateStatus(1L, RequestStatus.APPROVED, "Looks good", reviewedAt);
+
+        assertEquals(RequestStatus.APPROVED, updated.getStatus());
+        assertEquals("Looks good", updated.getAdminNotes());
+        assertEquals(reviewedAt, updated.getUpdatedAt());
+        assertEquals("User 10", updated.getRequestedByName());
+        assertEquals(List.of(), ids(registry.findByStatus(RequestStatus.PENDING)));
+        assertEquals(List.of(1L), ids(registry.findByStatus(RequestStatus.APPROVED)));
+        assertEquals(0L, registry.countByStatus(RequestStatus.PENDING));
+        // Unknown ids are not created by a status change
+        assertNull(registry.updateStatus(99L, RequestStatus.REJECTED, null, reviewedAt));
+        assertNull(registry.get(99L));
+    }
+
+    @Test
+    void putAndRemoveKeepEveryIndexInStepWithAFullScan() {
+        when(repository.findAllWithUser()).thenReturn(List.of());
+        Random random = new Random(41);
+        Map<Long, EstablishmentRequest> reference = new HashMap<>();
+        RequestStatus[] statuses = RequestStatus.values();
+
+        for (int step = 0; step < 5000; step++) {
+            long id = 1 + random.nextInt(60);
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    // A new request, or an edit that may move it to another user
+                    EstablishmentRequest request = request(id, user(100L + random.nextInt(5)),
+                        statuses[random.nextInt(statuses.length)], random.nextInt(1000));
+                    registry.put(request);
+                    reference.put(id, request);
+                    break;
+                case 2:
+                    RequestStatus status = statuses[random.nextInt(statuses.length)];
+                    if (registry.updateStatus(id, status, "step " + step, START) != null) {
+                        reference.get(id).setStatus(status);
+                    }
+                    break;
+                default:
+                    registry.remove(id);
+                    reference.remove(id);
+                    break;
+            }
+        }
+
+        assertEquals(reference.size(), registry.findAll().size());
+        for (RequestStatus status : statuses) {
+            List<Long> expected = new ArrayList<>();
+            for (EstablishmentRequest request : newestFirst(reference)) {
+                if (request.getStatus() == status) {
+                    expected.add(request.getId());
+                }
+            }
+            assertEquals(expected, ids(registry.findByStatus(status)), status.name());
+            assertEquals(expected.size(), registry.countByStatus(status), status.name());
+        }
+        for (long userId = 100; userId < 105; userId++) {
+            List<Long> expected = new ArrayList<>();
+            for (EstablishmentRequest request : newestFirst(reference)) {
+                if (request.getUser().getId() == userId) {
+                    expected.add(request.getId());
+                }
+            }
+            assertEquals(expected, ids(registry.findByUser(userId)), "user " + userId);
+        }
+        assertTrue(registry.findAll().stream().allMatch(record -> reference.containsKey(record.getId())));
+    }
+
+    private static List<EstablishmentRequest> newestFirst(Map<Long, EstablishmentRequest> requests) {
+        List<EstablishmentRequest> sorted = new ArrayList<>(requests.values());
+        sorted.sort(Comparator.comparing(EstablishmentRequest::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(EstablishmentRequest::getId, Comparator.reverseOrder()));
+        return sorted;
+    }
+
+    private static List<Long> ids(List<EstablishmentRequestRegistry.RequestRecord> records) {
+        List<Long> ids = new ArrayList<>();
+        for (EstablishmentRequestRegistry.RequestRecord record : records) {
+            ids.add(record.getId());
+        }
+        return ids;
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("User " + id);
+        user.setEmail("user" + id + "@example.com");
+        return user;
+    }
+
+    private static EstablishmentRequest request(Long id, User user, RequestStatus status, int minutes) {
+        EstablishmentRequest request = new EstablishmentRequest(user, "Request " + id, EstablishmentType.SHOP,
+            "shop" + id + "@example.com", "Street " + id);
+        request.setId(id);
+        request.setStatus(status);
+        request.setCreatedAt(START.plusMinutes(minutes));
+        return request;
+    }
+}
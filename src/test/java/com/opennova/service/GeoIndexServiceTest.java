@@ -0,0 +1,264 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GeoIndexServiceTest {
+
+    private static final EstablishmentType[] TYPES = EstablishmentType.values();
+    private static final EstablishmentStatus[] STATUSES = EstablishmentStatus.values();
+
+    private final EstablishmentRepository establishmentRepository = mock(EstablishmentRepository.class);
+    private final List<Establishment> table = new ArrayList<>();
+    private GeoIndexService index;
+
+    @BeforeEach
+    void setUp() {
+        index = new GeoIndexService();
+        ReflectionTestUtils.setField(index, "establishmentRepository", establishmentRepository);
+        when(establishmentRepository.findByIsActiveTrue()).thenAnswer(invocation -> new ArrayList<>(table));
+    }
+
+    @Test
+    void radiusQueriesMatchAFullScan() {
+        Random random = new Random(3);
+        // A dense city, so the grid is probed rather than scanned, plus points spread over the globe
+        for (int i = 0; i < 4000; i++) {
+            add(random, 12.9 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4);
+        }
+        for (int i = 0; i < 2000; i++) {
+            add(random, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+        }
+        index.rebuild();
+
+        for (int query = 0; query < 300; query++) {
+            double latitude = query % 3 == 0 ? random.nextDouble() * 180 - 90 : 12.9 + random.nextDouble() * 0.4;
+            double longitude = query % 3 == 0 ? random.nextDouble() * 360 - 180 : 77.4 + random.nextDouble() * 0.4;
+            double radiusKm = query % 10 == 0 ? 500 + random.nextDouble() * 3000 : random.nextDouble() * 15;
+            EstablishmentType type = random.nextBoolean() ? TYPES[random.nextInt(TYPES.length)] : null;
+            EstablishmentStatus status = random.nextBoolean() ? STATUSES[random.nextInt(STATUSES.length)] : null;
+            assertRadius(latitude, longitude, radiusKm, type, status);
+        }
+    }
+
+    @Test
+    void nearestQueriesMatchAFullScan() {
+        Random random = new Random(5);
+        for (int i = 0; i < 4000; i++) {
+            add(random, 12.9 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4);
+        }
+        for (int i = 0; i < 2000; i++) {
+            add(random, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+        }
+        index.rebuild();
+
+        for (int query = 0; query < 300; query++) {
+            double latitude = query % 3 == 0 ? random.nextDouble() * 180 - 90 : 12.9 + random.nextDouble() * 0.4;
+            double longitude = query % 3 == 0 ? random.nextDouble() * 360 - 180 : 77.4 + random.nextDouble() * 0.4;
+            int k = 1 + random.nextInt(query % 10 == 0 ? 200 : 20);
+            EstablishmentType type = random.nextBoolean() ? TYPES[random.nextInt(TYPES.length)] : null;
+            EstablishmentStatus status = random.nextBoolean() ? STATUSES[random.nextInt(STATUSES.length)] : null;
+            assertNearest(latitude, longitude, k, type, status);
+        }
+    }
+
+    @Test
+    void pagesOfNearestResultsMatchTheScanInOrder() {
+        Random random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            add(random, 40.6 + random.nextDouble() * 0.3, -74.1 + random.nextDouble() * 0.3);
+        }
+        index.rebuild();
+
+        List<GeoIndexService.NearbyResult> expected = scan(40.75, -73.95, Double.MAX_VALUE, null, EstablishmentStatus.OPEN);
+        List<GeoIndexService.NearbyResult> paged = new ArrayList<>();
+        double afterDistance = -1.0;
+        long afterId = 0L;
+        while (true) {
+            List<GeoIndexService.NearbyResult> page =
+                index.findNearest(40.75, -73.95, 25, null, EstablishmentStatus.OPEN, afterDistance, afterId);
+            if (page.isEmpty()) {
+                break;
+            }
+            paged.addAll(page);
+            afterDistance = page.get(page.size() - 1).getDistanceKm();
+            afterId = page.get(page.size() - 1).getEstablishmentId();
+        }
+        assertSameResults(expected, paged, "paged");
+    }
+
+    @Test
+    void pointsOnCellBoundariesAreFound() {
+        Random random = new Random(11);
+        // Exactly on the 0.05 degree grid lines, and queries on the lines as well
+        for (int lat = 0; lat < 40; lat++) {
+            for (int lon = 0; lon < 40; lon++) {
+                add(random, 10.0 + lat * 0.05, 20.0 + lon * 0.05);
+            }
+        }
+        index.rebuild();
+
+        for (int query = 0; query < 100; query++) {
+            double latitude = 10.0 + random.nextInt(40) * 0.05;
+            double longitude = 20.0 + random.nextInt(40) * 0.05;
+            // Radii of exactly one and two grid steps put neighbours right on the circle
+            double radiusKm = query % 2 == 0
+                ? GeoIndexService.haversine(latitude, longitude, latitude + 0.05, longitude)
+                : GeoIndexService.haversine(latitude, longitude, latitude, longitude + 0.1);
+            assertRadius(latitude, longitude, radiusKm, null, null);
+            assertNearest(latitude, longitude, 1 + random.nextInt(30), null, null);
+        }
+    }
+
+    @Test
+    void queriesReachAcrossTheAntimeridian() {
+        Random random = new Random(13);
+        for (int i = 0; i < 500; i++) {
+            add(random, -17.0 + random.nextDouble(), 179.5 + random.nextDouble());
+        }
+        index.rebuild();
+
+        for (int query = 0; query < 100; query++) {
+            double latitude = -17.0 + random.nextDouble();
+            double longitude = query % 2 == 0 ? 179.9 + random.nextDouble() * 0.1 : -180.0 + random.nextDouble() * 0.1;
+            assertRadius(latitude, longitude, 1 + random.nextDouble() * 30, null, null);
+            assertNearest(latitude, longitude, 1 + random.nextInt(40), null, null);
+        }
+    }
+
+    @Test
+    void queriesNearAPoleReachAcrossIt() {
+        Random random = new Random(17);
+        // Enough occupied cells elsewhere that k-nearest walks rings instead of falling back to a scan
+        for (int i = 0; i < 20000; i++) {
+            add(random, random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180);
+        }
+        for (int i = 0; i < 300; i++) {
+            add(random, 89.9 + random.nextDouble() * 0.05, random.nextDouble() * 360 - 180);
+            add(random, -89.95 - random.nextDouble() * 0.05, random.nextDouble() * 360 - 180);
+        }
+        // Two kilometres apart across the north pole, with a third point further away on the query's meridian
+        table.add(establishment(900001L, 89.99, 0.0, EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+        table.add(establishment(900002L, 89.99, 180.0, EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+        table.add(establishment(900003L, 89.96, 0.0, EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+        index.rebuild();
+
+        List<GeoIndexService.NearbyResult> nearest = index.findNearest(89.99, 0.0, 2, EstablishmentType.HOTEL, null);
+        assertEquals(900001L, nearest.get(0).getEstablishmentId());
+        assertEquals(900002L, nearest.get(1).getEstablishmentId());
+
+        for (int query = 0; query < 60; query++) {
+            double latitude = query % 2 == 0 ? 89.95 + random.nextDouble() * 0.05 : -89.9 - random.nextDouble() * 0.1;
+            double longitude = random.nextDouble() * 360 - 180;
+            assertRadius(latitude, longitude, random.nextDouble() * 20, null, null);
+            assertNearest(latitude, longitude, 1 + random.nextInt(50), null, null);
+        }
+    }
+
+    @Test
+    void updatesMoveAndDropEstablishments() {
+        Random random = new Random(19);
+        for (int i = 0; i < 200; i++) {
+            add(random, 51.4 + random.nextDouble() * 0.2, -0.2 + random.nextDouble() * 0.2);
+        }
+        index.rebuild();
+
+        for (int step = 0; step < 500; step++) {
+            Establishment establishment = table.get(random.nextInt(table.size()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    establishment.setLatitude(51.4 + random.nextDouble() * 0.2);
+                    establishment.setLongitude(-0.2 + random.nextDouble() * 0.2);
+                    break;
+                case 1:
+                    establishment.setIsActive(!establishment.getIsActive());
+                    break;
+                default:
+                    establishment.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            }
+            index.update(establishment);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            double latitude = 51.4 + random.nextDouble() * 0.2;
+            double longitude = -0.2 + random.nextDouble() * 0.2;
+            assertRadius(latitude, longitude, random.nextDouble() * 5, null, EstablishmentStatus.OPEN);
+            assertNearest(latitude, longitude, 1 + random.nextInt(20), null, null);
+        }
+    }
+
+    private void assertRadius(double latitude, double longitude, double radiusKm,
+                              EstablishmentType type, EstablishmentStatus status) {
+        assertSameResults(scan(latitude, longitude, radiusKm, type, status),
+            index.findWithinRadius(latitude, longitude, radiusKm, type, status),
+            "radius " + radiusKm + " around " + latitude + "," + longitude);
+    }
+
+    private void assertNearest(double latitude, double longitude, int k,
+                               EstablishmentType type, EstablishmentStatus status) {
+        List<GeoIndexService.NearbyResult> expected = scan(latitude, longitude, Double.MAX_VALUE, type, status);
+        assertSameResults(expected.subList(0, Math.min(k, expected.size())),
+            index.findNearest(latitude, longitude, k, type, status),
+            k + " nearest to " + latitude + "," + longitude);
+    }
+
+    // Haversine over every active establishment, as the nearby endpoint did before the index
+    private List<GeoIndexService.NearbyResult> scan(double latitude, double longitude, double radiusKm,
+                                                    EstablishmentType type, EstablishmentStatus status) {
+        List<GeoIndexService.NearbyResult> results = new ArrayList<>();
+        for (Establishment establishment : table) {
+            if (!establishment.getIsActive() || (type != null && establishment.getType() != type)
+                    || (status != null && establishment.getStatus() != status)) {
+                continue;
+            }
+            double distance = GeoIndexService.haversine(latitude, longitude,
+                establishment.getLatitude(), establishment.getLongitude());
+            if (distance <= radiusKm) {
+                results.add(new GeoIndexService.NearbyResult(establishment.getId(), distance));
+            }
+        }
+        results.sort(Comparator.comparingDouble(GeoIndexService.NearbyResult::getDistanceKm)
+            .thenComparingLong(GeoIndexService.NearbyResult::getEstablishmentId));
+        return results;
+    }
+
+    private static void assertSameResults(List<GeoIndexService.NearbyResult> expected,
+                                          List<GeoIndexService.NearbyResult> actual, String query) {
+        assertEquals(expected.size(), actual.size(), query);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getEstablishmentId(), actual.get(i).getEstablishmentId(), query + " #" + i);
+            assertEquals(expected.get(i).getDistanceKm(), actual.get(i).getDistanceKm(), 1e-9, query + " #" + i);
+        }
+    }
+
+    private void add(Random random, double latitude, double longitude) {
+        table.add(establishment(table.size() + 1L, latitude, longitude,
+            TYPES[random.nextInt(TYPES.length)], STATUSES[random.nextInt(STATUSES.length)]));
+    }
+
+    private static Establishment establishment(long id, double latitude, double longitude,
+                                               EstablishmentType type, EstablishmentStatus status) {
+        Establishment establishment = new Establishment();
+        establishment.setId(id);
+        establishment.setLatitude(latitude);
+        establishment.setLongitude(longitude);
+        establishment.setType(type);
+        establishment.setStatus(status);
+        establishment.setIsActive(true);
+        return establishment;
+    }
+}
@@ -0,0 +1,118 @@
+package com.opennova.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.repository.IdempotencyRecordRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Each call commits on its own, as in production, so the two "instances" see each other's rows
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceDatabaseTest extends PostgresTest {
+
+    private static final String ENDPOINT = "POST /api/user/bookings";
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        recordRepository.deleteAll();
+    }
+
+    @Test
+    void duplicateWaitingOnAnotherInstanceGetsTheStoredResponseUnderOpenSessionInView() throws Exception {
+        IdempotencyService first = service();
+        IdempotencyService second = service();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<ResponseEntity<?>> original = pool.submit(() -> first.execute(ENDPOINT, 1L, "key-1", "body", () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("bookingId", 9));
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        pool.submit(() -> {
+            Thread.sleep(300);
+            release.countDown();
+            return null;
+        });
+
+        // One EntityManager for the whole duplicate request, as OpenEntityManagerInViewInterceptor binds it
+        TransactionSynchronizationManager.bindResource(entityManagerFactory,
+            new EntityManagerHolder(entityManagerFactory.createEntityManager()));
+        ResponseEntity<?> duplicate;
+        long started = System.currentTimeMillis();
+        try {
+            duplicate = second.execute(ENDPOINT, 1L, "key-1", "body", () -> {
+                throw new AssertionError("the duplicate must not run the action");
+            });
+        } finally {
+            EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            holder.getEntityManager().close();
+        }
+
+        assertEquals(HttpStatus.CREATED, duplicate.getStatusCode());
+        assertEquals(9, ((Map<?, ?>) duplicate.getBody()).get("bookingId"));
+        assertEquals("true", duplicate.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        // Answered once the first request stored its response, well before wait-seconds ran out
+        assertTrue(System.currentTimeMillis() - started < 5000);
+        assertEquals(HttpStatus.CREATED, original.get(5, TimeUnit.SECONDS).getStatusCode());
+    }
+
+    @Test
+    void serverErrorReleasesTheKeyAndTheRetryIsStored() {
+        IdempotencyService service = service();
+        ResponseEntity<?> failed = service.execute(ENDPOINT, 1L, "key-2", "body",
+            () -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "boom")));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+        assertTrue(recordRepository.findResponse(ENDPOINT + "|1|key-2").isEmpty());
+
+        ResponseEntity<?> retried = service.execute(ENDPOINT, 1L, "key-2", "body",
+            () -> ResponseEntity.ok(Map.of("bookingId", 10)));
+
+        assertEquals(HttpStatus.OK, retried.getStatusCode());
+        Object[] stored = recordRepository.findResponse(ENDPOINT + "|1|key-2").get(0);
+        assertEquals(200, stored[0]);
+        assertEquals("{\"bookingId\":10}", stored[1]);
+    }
+
+    private IdempotencyService service() {
+        IdempotencyService service = new IdempotencyService();
+        ReflectionTestUtils.setField(service, "recordRepository", recordRepository);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "ttlHours", 24L);
+        ReflectionTestUtils.setField(service, "waitSeconds", 10L);
+        ReflectionTestUtils.setField(service, "abandonSeconds", 120L);
+        ReflectionTestUtils.setField(service, "maxCached", 100);
+        return service;
+    }
+}
@@ -0,0 +1,283 @@
+package com.opennova.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opennova.model.IdempotencyRecord;
+import com.opennova.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class IdempotencyServiceTest {
+
+    private static final String ENDPOINT = "POST /api/user/bookings";
+
+    // idempotency_records by record_key, shared by every instance below like the real table
+    private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final IdempotencyRecordRepository recordRepository =
+        mock(IdempotencyRecordRepository.class, withSettings().stubOnly());
+    private final AtomicInteger runs = new AtomicInteger();
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(32);
+        when(recordRepository.claim(anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setRecordKey(invocation.getArgument(0));
+            record.setFingerprint(invocation.getArgument(1));
+            record.setCreatedAt(invocation.getArgument(2));
+            record.setExpiresAt(invocation.getArgument(3));
+            return table.putIfAbsent(record.getRecordKey(), record) == null ? 1 : 0;
+        });
+        // Each read sees the row as committed at that moment
+        when(recordRepository.findByRecordKey(anyString())).thenAnswer(invocation -> {
+            IdempotencyRecord record = table.get(invocation.<String>getArgument(0));
+            return Optional.ofNullable(record != null ? copy(record) : null);
+        });
+        when(recordRepository.findResponse(anyString())).thenAnswer(invocation -> {
+            IdempotencyRecord record = table.get(invocation.<String>getArgument(0));
+            List<Object[]> rows = new ArrayList<>();
+            if (record != null) {
+                rows.add(new Object[] { record.getStatusCode(), record.getResponseBody() });
+            }
+            return rows;
+        });
+        when(recordRepository.complete(anyString(), anyInt(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord updated = table.computeIfPresent(invocation.getArgument(0), (key, record) -> {
+                IdempotencyRecord done = copy(record);
+                done.setStatusCode(invocation.getArgument(1));
+                done.setResponseBody(invocation.getArgument(2));
+                return done;
+            });
+            return updated != null ? 1 : 0;
+        });
+        when(recordRepository.release(anyString())).thenAnswer(invocation ->
+            table.computeIfPresent(invocation.getArgument(0),
+                (key, record) -> record.getStatusCode() == null ? null : record) == null ? 1 : 0);
+        doAnswer(invocation -> table.remove(invocation.<IdempotencyRecord>getArgument(0).getRecordKey()))
+            .when(recordRepository).delete(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentDuplicatesAcrossInstancesRunTheActionOnce() throws Exception {
+        IdempotencyService first = service(10);
+        IdempotencyService second = service(10);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<?>>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            IdempotencyService service = i % 2 == 0 ? first : second;
+            futures.add(pool.submit(() -> {
+                start.await();
+                return service.execute(ENDPOINT, 1L, "key-1", Map.of("establishmentId", 5),
+                    slowly(created(Map.of("bookingId", 77))));
+            }));
+        }
+        start.countDown();
+
+        int replays = 0;
+        for (Future<ResponseEntity<?>> future : futures) {
+            ResponseEntity<?> response = future.get(30, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.CREATED, response.getStatusCode());
+            assertEquals(77, ((Map<?, ?>) response.getBody()).get("bookingId"));
+            if ("true".equals(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER))) {
+                replays++;
+            }
+        }
+        assertEquals(1, runs.get());
+        assertEquals(31, replays);
+    }
+
+    @Test
+    void storedResponseIsReplayedAfterARestart() {
+        service(10).execute(ENDPOINT, 1L, "key-1", Map.of("amount", 100), created(Map.of("bookingId", 9)));
+
+        ResponseEntity<?> replay = service(10).execute(ENDPOINT, 1L, "key-1", Map.of("amount", 100),
+            created(Map.of("bookingId", 10)));
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.CREATED, replay.getStatusCode());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(9, ((Map<?, ?>) replay.getBody()).get("bookingId"));
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRefused() {
+        IdempotencyService service = service(10);
+        service.execute(ENDPOINT, 1L, "key-1", Map.of("amount", 100), created(Map.of("bookingId", 9)));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+            service.execute(ENDPOINT, 1L, "key-1", Map.of("amount", 200), created(Map.of())).getStatusCode());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+            service(10).execute(ENDPOINT, 1L, "key-1", Map.of("amount", 200), created(Map.of())).getStatusCode());
+        // Another user's key of the same name is a different key
+        assertEquals(HttpStatus.CREATED,
+            service.execute(ENDPOINT, 2L, "key-1", Map.of("amount", 200), created(Map.of())).getStatusCode());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void serverErrorsAndExceptionsLetARetryRunAgain() {
+        IdempotencyService service = service(10);
+        ResponseEntity<?> failed = service.execute(ENDPOINT, 1L, "key-1", "body", () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("success", false));
+        });
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, failed.getStatusCode());
+        assertTrue(table.isEmpty());
+
+        assertThrows(RuntimeException.class, () -> service.execute(ENDPOINT, 1L, "key-1", "body", () -> {
+            runs.incrementAndGet();
+            throw new RuntimeException("Time slot is not available");
+        }));
+        assertTrue(table.isEmpty());
+
+        ResponseEntity<?> retried = service.execute(ENDPOINT, 1L, "key-1", "body", created(Map.of("bookingId", 3)));
+        assertEquals(HttpStatus.CREATED, retried.getStatusCode());
+        assertNull(retried.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void clientErrorsAreReplayed() {
+        IdempotencyService service = service(10);
+        Supplier<ResponseEntity<?>> badRequest = () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid date"));
+        };
+        service.execute(ENDPOINT, 1L, "key-1", "body", badRequest);
+
+        ResponseEntity<?> replay = service.execute(ENDPOINT, 1L, "key-1", "body", badRequest);
+
+        assertEquals(HttpStatus.BAD_REQUEST, replay.getStatusCode());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void duplicateOfASlowRequestGivesUpWithConflict() throws Exception {
+        IdempotencyService first = service(1);
+        IdempotencyService second = service(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Future<ResponseEntity<?>> original = pool.submit(() -> first.execute(ENDPOINT, 1L, "key-1", "body", () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return created(Map.of("bookingId", 4)).get();
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // Same instance waits on the first call, the other one polls the table; both stop after wait-seconds
+        assertEquals(HttpStatus.CONFLICT, first.execute(ENDPOINT, 1L, "key-1", "body", created(Map.of())).getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, second.execute(ENDPOINT, 1L, "key-1", "body", created(Map.of())).getStatusCode());
+
+        release.countDown();
+        assertEquals(HttpStatus.CREATED, original.get(5, TimeUnit.SECONDS).getStatusCode());
+        ResponseEntity<?> replay = second.execute(ENDPOINT, 1L, "key-1", "body", created(Map.of()));
+        assertEquals(4, ((Map<?, ?>) replay.getBody()).get("bookingId"));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void abandonedClaimIsTakenOver() {
+        IdempotencyService service = service(10);
+        ReflectionTestUtils.setField(service, "abandonSeconds", 120L);
+        // A crashed instance claimed the key five minutes ago and never stored a response
+        recordRepository.claim(ENDPOINT + "|1|key-1", "stale", LocalDateTime.now().minusMinutes(5),
+            LocalDateTime.now().plusHours(1));
+
+        ResponseEntity<?> response = service.execute(ENDPOINT, 1L, "key-1", "body", created(Map.of("bookingId", 5)));
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(1, runs.get());
+        assertEquals(201, table.get(ENDPOINT + "|1|key-1").getStatusCode());
+    }
+
+    @Test
+    void requestsWithoutAKeyAlwaysRun() {
+        IdempotencyService service = service(10);
+        service.execute(ENDPOINT, 1L, null, "body", created(Map.of()));
+        service.execute(ENDPOINT, 1L, " ", "body", created(Map.of()));
+
+        assertEquals(2, runs.get());
+        assertTrue(table.isEmpty());
+    }
+
+    private IdempotencyService service(long waitSeconds) {
+        IdempotencyService service = new IdempotencyService();
+        ReflectionTestUtils.setField(service, "recordRepository", recordRepository);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "ttlHours", 24L);
+        ReflectionTestUtils.setField(service, "waitSeconds", waitSeconds);
+        ReflectionTestUtils.setField(service, "abandonSeconds", 120L);
+        ReflectionTestUtils.setField(service, "maxCached", 100);
+        return service;
+    }
+
+    private Supplier<ResponseEntity<?>> created(Map<String, Object> body) {
+        return () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(body);
+        };
+    }
+
+    // Long enough for every duplicate to arrive while the first is still running
+    private static Supplier<ResponseEntity<?>> slowly(Supplier<ResponseEntity<?>> action) {
+        return () -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return action.get();
+        };
+    }
+
+    private static IdempotencyRecord copy(IdempotencyRecord record) {
+        IdempotencyRecord copy = new IdempotencyRecord();
+        copy.setRecordKey(record.getRecordKey());
+        copy.setFingerprint(record.getFingerprint());
+        copy.setStatusCode(record.getStatusCode());
+        copy.setResponseBody(record.getResponseBody());
+        copy.setCreatedAt(record.getCreatedAt());
+        copy.setExpiresAt(record.getExpiresAt());
+        return copy;
+    }
+}
@@ -0,0 +1,159 @@
+package com.opennova.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperatingScheduleServiceTest {
+
+    // A Monday
+    private static final LocalDate WEEK = LocalDate.of(2026, 10, 12);
+
+    private final OperatingScheduleService service = new OperatingScheduleService();
+
+    @Test
+    void rangeEndingAfterMidnightSpillsIntoTheNextDay() {
+        OperatingScheduleService.CompiledSchedule schedule = service.compile(null, "6 PM - 2 AM");
+
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.MONDAY, "17:59")));
+        assertTrue(schedule.isOpenAt(at(DayOfWeek.MONDAY, "23:30")));
+        assertTrue(schedule.isOpenAt(at(DayOfWeek.TUESDAY, "01:59")));
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.TUESDAY, "02:00")));
+        // Sunday night carries over into Monday morning
+        assertTrue(schedule.isOpenAt(at(DayOfWeek.MONDAY, "01:00")));
+        assertEquals(at(DayOfWeek.TUESDAY, "02:00"), schedule.nextClosing(at(DayOfWeek.MONDAY, "23:30")));
+        assertEquals(at(DayOfWeek.TUESDAY, "18:00"), schedule.nextOpening(at(DayOfWeek.TUESDAY, "02:00")));
+        assertFalse(schedule.isFromDefault());
+    }
+
+    @Test
+    void overnightDayInTheWeeklyScheduleEndsTheNextMorning() {
+        OperatingScheduleService.CompiledSchedule schedule = service.compile(
+            "{\"friday\": {\"openTime\": \"22:00\", \"closeTime\": \"03:00\"}}", null);
+
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.FRIDAY, "21:59")));
+        assertTrue(schedule.isOpenAt(at(DayOfWeek.SATURDAY, "02:59")));
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.SATURDAY, "03:00")));
+        // Nothing else in the week
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.SATURDAY, "22:30")));
+        assertEquals(at(DayOfWeek.FRIDAY, "22:00").plusWeeks(1), schedule.nextOpening(at(DayOfWeek.SATURDAY, "03:00")));
+    }
+
+    @Test
+    void closedDaysStayClosedWhateverHoursTheyCarry() {
+        OperatingScheduleService.CompiledSchedule schedule = service.compile("{"
+            + "\"monday\": \"Closed\","
+            + "\"tuesday\": {\"isOpen\": false, \"openTime\": \"09:00\", \"closeTime\": \"17:00\"},"
+            + "\"wednesday\": {\"closed\": true, \"openTime\": \"09:00\", \"closeTime\": \"17:00\"},"
+            + "\"thu\": \"9:00 - 17:00\","
+            + "\"saturday\": \"holiday\"}", "9:00 - 21:00");
+
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.MONDAY, "10:00")));
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.TUESDAY, "10:00")));
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.WEDNESDAY, "10:00")));
+        assertTrue(schedule.isOpenAt(at(DayOfWeek.THURSDAY, "10:00")));
+        // Days the weekly schedule leaves out are closed, not filled from operatingHours
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.FRIDAY, "10:00")));
+        assertFalse(schedule.isOpenAt(at(DayOfWeek.SATURDAY, "10:00")));
+        assertEquals(at(DayOfWeek.THURSDAY, "09:00"), schedule.nextOpening(at(DayOfWeek.MONDAY, "10:00")));
+
+        OperatingScheduleService.CompiledSchedule shut = service.compile("{\"monday\": \"closed\"}", null);
+        assertTrue(shut.isNeverOpen());
+        assertNull(shut.nextOpening(at(DayOfWeek.MONDAY, "10:00")));
+        assertFalse(shut.isFromDefault());
+    }
+
+    @Test
+    void twelveAndTwentyFourHourTimesCompileToTheSameMinutes() {
+        assertSameHours(service.compile(null, "09:30-17:45"), service.compile(null, "9:30 AM - 5:45 PM"));
+        assertSameHours(service.compile(null, "09:30-17:45"), service.compile(null, "9.30am to 5.45 p.m."));
+        assertSameHours(service.compile(null, "12:00-24:00"), service.compile(null, "12 PM - 12 AM"));
+        assertSameHours(service.compile(null, "21:00-23:00"), service.compile(null, "21:00 – 23:00"));
+        // A bare opening hour takes the closing PM only when that still leaves a range
+        assertSameHours(service.compile(null, "13:00-17:00"), service.compile(null, "1 - 5 PM"));
+        assertSameHours(service.compile(null, "09:00-17:00"), service.compile(null, "9 - 5 PM"));
+    }
+
+    @Test
+    void severalRangesAndRoundTheClockText() {
+        OperatingScheduleService.CompiledSchedule split = service.compile(null, "9:00-12:00, 14:00-18:00");
+        assertTrue(split.isOpenAt(at(DayOfWeek.WEDNESDAY, "11:59")));
+        assertFalse(split.isOpenAt(at(DayOfWeek.WEDNESDAY, "13:00")));
+        assertEquals(at(DayOfWeek.WEDNESDAY, "14:00"), split.nextOpening(at(DayOfWeek.WEDNESDAY, "12:30")));
+
+        OperatingScheduleService.CompiledSchedule slots = service.compile("[{\"day\": \"Sat\", \"slots\": ["
+            + "{\"start\": \"10:00\", \"end\": \"12:00\"}, {\"start\": \"4 PM\", \"end\": \"8 PM\"}]}]", null);
+        assertTrue(slots.isOpenAt(at(DayOfWeek.SATURDAY, "10:30")));
+        assertFalse(slots.isOpenAt(at(DayOfWeek.SATURDAY, "13:00")));
+        assertTrue(slots.isOpenAt(at(DayOfWeek.SATURDAY, "19:59")));
+
+        for (String text : new String[] { "Open 24 hours", "24/7", "always open", "00:00 - 00:00" }) {
+            OperatingScheduleService.CompiledSchedule always = service.compile(null, text);
+            assertTrue(always.isAlwaysOpen(), text);
+            assertNull(always.nextClosing(at(DayOfWeek.SUNDAY, "23:59")), text);
+        }
+    }
+
+    @Test
+    void textThatDoesNotParseFallsBackToTheDefaultHours() {
+        for (String text : new String[] { "call us", "25:00 - 26:00", "13 PM - 5 PM", "9:75 - 17:00" }) {
+            OperatingScheduleService.CompiledSchedule schedule = service.compile(null, text);
+            assertTrue(schedule.isFromDefault(), text);
+            assertFalse(schedule.isOpenAt(at(DayOfWeek.SUNDAY, "08:59")), text);
+            assertTrue(schedule.isOpenAt(at(DayOfWeek.SUNDAY, "09:00")), text);
+            assertFalse(schedule.isOpenAt(at(DayOfWeek.SUNDAY, "21:00")), text);
+        }
+
+        // A weekly schedule that is not JSON gives way to the operating hours
+        OperatingScheduleService.CompiledSchedule fallback = service.compile("{not json", "10:00-12:00");
+        assertFalse(fallback.isFromDefault());
+        assertTrue(fallback.isOpenAt(at(DayOfWeek.MONDAY, "11:00")));
+        assertFalse(fallback.isOpenAt(at(DayOfWeek.MONDAY, "13:00")));
+
+        // Nothing configured is never open, and is not a parse failure
+        for (String text : new String[] { null, "", "   " }) {
+            OperatingScheduleService.CompiledSchedule none = service.compile(null, text);
+            assertTrue(none.isNeverOpen());
+            assertFalse(none.isFromDefault());
+        }
+    }
+
+    @Test
+    void compiledScheduleIsReusedUntilItsTextChanges() {
+        OperatingScheduleService.CompiledSchedule first = service.compile(1L, null, "9:00-17:00");
+
+        assertSame(first, service.compile(1L, null, "9:00-17:00"));
+        OperatingScheduleService.CompiledSchedule changed = service.compile(1L, null, "10:00-17:00");
+        assertNotSame(first, changed);
+        assertFalse(changed.isOpenAt(at(DayOfWeek.MONDAY, "09:30")));
+
+        service.evict(1L);
+        assertNotSame(changed, service.compile(1L, null, "10:00-17:00"));
+    }
+
+    private static void assertSameHours(OperatingScheduleService.CompiledSchedule expected,
+                                        OperatingScheduleService.CompiledSchedule actual) {
+        assertFalse(expected.isFromDefault());
+        assertFalse(actual.isFromDefault());
+        LocalDateTime minute = WEEK.atStartOfDay();
+        for (int i = 0; i < OperatingScheduleService.MINUTES_PER_WEEK; i++, minute = minute.plusMinutes(1)) {
+            if (expected.isOpenAt(minute) != actual.isOpenAt(minute)) {
+                throw new AssertionError("differs at " + minute);
+            }
+        }
+    }
+
+    private static LocalDateTime at(DayOfWeek day, String time) {
+        return WEEK.plusDays(day.getValue() - 1).atTime(LocalTime.parse(time));
+    }
+}
@@ -0,0 +1,144 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.OutboxEvent;
+import com.opennova.repository.BookingRepository;
+import com.opennova.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxServiceTest {
+
+    private final OutboxEventRepository outboxRepository = mock(OutboxEventRepository.class);
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final RealTimeUpdateService realTimeUpdateService = mock(RealTimeUpdateService.class);
+    private final Booking booking = new Booking();
+
+    private OutboxService outbox;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new OutboxService();
+        ReflectionTestUtils.setField(outbox, "outboxRepository", outboxRepository);
+        ReflectionTestUtils.setField(outbox, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(outbox, "emailService", emailService);
+        ReflectionTestUtils.setField(outbox, "realTimeUpdateService", realTimeUpdateService);
+        ReflectionTestUtils.setField(outbox, "batchSize", 50);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 8);
+        ReflectionTestUtils.setField(outbox, "leaseSeconds", 120L);
+        booking.setId(42L);
+        when(bookingRepository.findWithDetailsById(42L)).thenReturn(Optional.of(booking));
+    }
+
+    @Test
+    void claimedEventsAreDeliveredAndMarkedDone() {
+        when(outboxRepository.claimBatch(anyString(), any(), any(), anyInt())).thenReturn(2);
+        when(outboxRepository.findByClaimTokenOrderByIdAsc(anyString())).thenReturn(List.of(
+            event(1L, OutboxEvent.Type.BOOKING_CREATED_CUSTOMER_EMAIL, 1),
+            event(2L, OutboxEvent.Type.BOOKING_REALTIME_UPDATE, 1)));
+
+        drain();
+
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(outboxRepository).claimBatch(token.capture(), any(), any(), eq(50));
+        verify(emailService).sendBookingConfirmationSync(booking);
+        verify(realTimeUpdateService).notifyBookingUpdate(booking);
+        verify(outboxRepository).markDone(eq(1L), eq(token.getValue()), any());
+        verify(outboxRepository).markDone(eq(2L), eq(token.getValue()), any());
+        verify(outboxRepository, never()).markFailed(anyLong(), anyString(), any(), any(), any());
+        assertEquals(2L, outbox.getStats().get("delivered"));
+    }
+
+    @Test
+    void fullBatchesAreClaimedUntilOneComesBackShort() {
+        ReflectionTestUtils.setField(outbox, "batchSize", 2);
+        when(outboxRepository.claimBatch(anyString(), any(), any(), anyInt())).thenReturn(2, 2, 1);
+        when(outboxRepository.findByClaimTokenOrderByIdAsc(anyString())).thenReturn(List.of());
+
+        drain();
+
+        verify(outboxRepository, times(3)).claimBatch(anyString(), any(), any(), eq(2));
+    }
+
+    @Test
+    void failedDeliveryBacksOffThenGivesUp() {
+        doThrow(new RuntimeException("SMTP down")).when(emailService).sendBookingConfirmationSync(booking);
+        when(outboxRepository.claimBatch(anyString(), any(), any(), anyInt())).thenReturn(1);
+        when(outboxRepository.findByClaimTokenOrderByIdAsc(anyString()))
+            .thenReturn(List.of(event(1L, OutboxEvent.Type.BOOKING_CREATED_CUSTOMER_EMAIL, 3)))
+            .thenReturn(List.of(event(1L, OutboxEvent.Type.BOOKING_CREATED_CUSTOMER_EMAIL, 8)));
+
+        LocalDateTime before = LocalDateTime.now();
+        drain();
+        ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).markFailed(eq(1L), anyString(), eq(OutboxEvent.Status.PENDING),
+            nextAttempt.capture(), eq("SMTP down"));
+        // Third attempt: 8 seconds
+        assertTrue(!nextAttempt.getValue().isBefore(before.plusSeconds(8)));
+        assertTrue(nextAttempt.getValue().isBefore(LocalDateTime.now().plusSeconds(9)));
+
+        drain();
+        verify(outboxRepository).markFailed(eq(1L), anyString(), eq(OutboxEvent.Status.FAILED), any(), eq("SMTP down"));
+        verify(outboxRepository, never()).markDone(anyLong(), anyString(), any());
+        assertEquals(2L, outbox.getStats().get("failedAttempts"));
+    }
+
+    @Test
+    void deletedBookingIsMarkedDoneWithoutDelivery() {
+        when(outboxRepository.claimBatch(anyString(), any(), any(), anyInt())).thenReturn(1);
+        OutboxEvent event = new OutboxEvent(OutboxEvent.Type.BOOKING_REALTIME_UPDATE, 7L, 0);
+        event.setId(1L);
+        when(outboxRepository.findByClaimTokenOrderByIdAsc(anyString())).thenReturn(List.of(event));
+
+        drain();
+
+        verify(realTimeUpdateService, never()).notifyBookingUpdate(any());
+        verify(outboxRepository).markDone(eq(1L), anyString(), any());
+    }
+
+    @Test
+    void eachChangeOfABookingGetsItsOwnKey() {
+        // Created (version 0), then expired after a flush bumped the version
+        outbox.enqueue(OutboxEvent.Type.BOOKING_REALTIME_UPDATE, booking);
+        outbox.enqueue(OutboxEvent.Type.BOOKING_CREATED_CUSTOMER_EMAIL, booking);
+        booking.setVersion(1);
+        outbox.enqueue(OutboxEvent.Type.BOOKING_REALTIME_UPDATE, booking);
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxRepository, times(3)).save(saved.capture());
+        assertEquals(List.of("BOOKING_REALTIME_UPDATE:42:v0", "BOOKING_CREATED_CUSTOMER_EMAIL:42:v0",
+            "BOOKING_REALTIME_UPDATE:42:v1"), saved.getAllValues().stream().map(OutboxEvent::getIdempotencyKey).toList());
+    }
+
+    private OutboxEvent event(Long id, OutboxEvent.Type type, int attempts) {
+        OutboxEvent event = new OutboxEvent(type, booking.getId(), booking.getVersion());
+        event.setId(id);
+        event.setAttempts(attempts);
+        return event;
+    }
+
+    private void drain() {
+        ReflectionTestUtils.invokeMethod(outbox, "drain");
+    }
+}
@@ -0,0 +1,105 @@
+package com.opennova.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentSortedListTest {
+
+    // Sorted by score descending, then id, like the catalog's rating views
+    private static final Comparator<long[]> BY_SCORE =
+        Comparator.comparingLong((long[] item) -> -item[1]).thenComparingLong(item -> item[0]);
+
+    @Test
+    void updatesMatchASortedMapAndLeaveOldVersionsIntact() {
+        Random random = new Random(7);
+        TreeMap<Long, Long> model = new TreeMap<>();
+        for (long id = 0; id < 300; id++) {
+            model.put(id, (long) random.nextInt(10));
+        }
+        PersistentSortedList<long[]> list = PersistentSortedList.of(BY_SCORE, item -> item[0], items(model));
+        List<long[]> snapshot = new ArrayList<>(list.asList());
+        PersistentSortedList<long[]> old = list;
+
+        for (int step = 0; step < 5000; step++) {
+            long id = random.nextInt(400);
+            Long score = model.get(id);
+            if (score != null) {
+                list = list.without(new long[] { id, score });
+                model.remove(id);
+            }
+            if (random.nextInt(4) != 0) {
+                long next = random.nextInt(10);
+                list = list.with(new long[] { id, next });
+                model.put(id, next);
+            }
+            if (step % 500 == 0) {
+                assertEquals(flatten(items(model)), flatten(list.asList()), "step " + step);
+            }
+        }
+
+        assertEquals(flatten(items(model)), flatten(list.asList()));
+        assertEquals(model.size(), list.size());
+        assertEquals(flatten(snapshot), flatten(old.asList()));
+        for (int i = 0; i < list.size(); i++) {
+            assertSame(list.asList().get(i), new ArrayList<>(list.asList()).get(i));
+        }
+    }
+
+    @Test
+    void findWalksTheOrderWithoutAProbe() {
+        PersistentSortedList<long[]> list = PersistentSortedList.empty(BY_SCORE, item -> item[0]);
+        for (long id = 1; id <= 50; id++) {
+            list = list.with(new long[] { id, id % 5 });
+        }
+
+        long[] found = list.find(item -> BY_SCORE.compare(new long[] { 17, 2 }, item));
+        assertEquals(17, found[0]);
+        assertNull(list.find(item -> BY_SCORE.compare(new long[] { 17, 3 }, item)));
+        assertSame(list, list.without(new long[] { 99, 0 }));
+    }
+
+    @Test
+    void treeStaysShallowForSequentialIds() {
+        PersistentSortedList<long[]> list = PersistentSortedList.empty(BY_SCORE, item -> item[0]);
+        for (long id = 0; id < 100_000; id++) {
+            list = list.with(new long[] { id, 0 });
+        }
+        int[] depth = new int[1];
+        // A descent to every element costs as many comparisons as the element's depth
+        for (int i = 0; i < list.size(); i += 997) {
+            long[] item = list.asList().get(i);
+            int[] steps = new int[1];
+            list.find(other -> {
+                steps[0]++;
+                return BY_SCORE.compare(item, other);
+            });
+            depth[0] = Math.max(depth[0], steps[0]);
+        }
+        assertTrue(depth[0] < 60, "depth " + depth[0]);
+    }
+
+    private static List<long[]> items(TreeMap<Long, Long> model) {
+        List<long[]> items = new ArrayList<>();
+        model.forEach((id, score) -> items.add(new long[] { id, score }));
+        items.sort(BY_SCORE);
+        return items;
+    }
+
+    private static List<String> flatten(List<long[]> items) {
+        List<String> flat = new ArrayList<>();
+        for (long[] item : items) {
+            flat.add(item[0] + ":" + item[1]);
+        }
+        return flat;
+    }
+}
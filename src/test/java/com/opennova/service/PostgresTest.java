@@ -0,0 +1,132 @@
+package com.opennova.service;
+
+import com.opennova.model.ArchivedBooking;
+import com.opennova.model.Booking;
+import com.opennova.model.BookingBase;
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.opennova.service.TestFixtures.randomChange;
+
+/**
+ * Repositories and schema against a real Postgres, for the native SQL (ON CONFLICT, FILTER, date_trunc)
+ * that mocks cannot check. One container serves every subclass; the tests are skipped where Docker is missing.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+abstract class PostgresTest {
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    protected TestEntityManager entityManager;
+
+    private long nextArchivedId = 1;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    Establishment saveEstablishment(String name, EstablishmentType type) {
+        Establishment establishment = new Establishment();
+        establishment.setName(name);
+        establishment.setType(type);
+        establishment.setStatus(EstablishmentStatus.OPEN);
+        establishment.setIsActive(true);
+        establishment.setAddress("1 Main Street");
+        establishment.setEmail(name.toLowerCase() + "@example.com");
+        establishment.setPassword("secret");
+        return entityManager.persistFlushFind(establishment);
+    }
+
+    /**
+     * Creates, changes and deletes random live and archived bookings of the establishments over three days from
+     * start, applying each change's delta through the stats service as the booking services do; returns the
+     * bookings left. Native updates bypass the persistence context, so read results back after flushAndClear.
+     */
+    List<BookingBase> replayHistory(BookingStatsService stats, Random random, int steps, LocalDateTime start,
+                                    Establishment... establishments) {
+        User user = new User();
+        user.setName("Guest");
+        user.setEmail("guest@example.com");
+        user.setPassword("secret");
+        entityManager.persist(user);
+
+        List<BookingBase> bookings = new ArrayList<>();
+        for (int step = 0; step < steps; step++) {
+            int action = random.nextInt(10);
+            BookingBase booking;
+            BookingStatsService.Snapshot before = null;
+            BookingStatsService.Snapshot after;
+            if (action < 3 || bookings.isEmpty()) {
+                booking = action == 0 ? archived() : new Booking();
+                booking.setUser(user);
+                booking.setUserEmail(user.getEmail());
+                booking.setEstablishment(establishments[random.nextInt(establishments.length)]);
+                booking.setAmount(new BigDecimal(random.nextInt(20000)).movePointLeft(2));
+                booking.setCreatedAt(start.plusMinutes(random.nextInt(3 * 24 * 60)));
+                change(booking, random);
+                entityManager.persist(booking);
+                bookings.add(booking);
+                after = BookingStatsService.Snapshot.of(booking);
+            } else if (action < 9) {
+                booking = bookings.get(random.nextInt(bookings.size()));
+                before = BookingStatsService.Snapshot.of(booking);
+                change(booking, random);
+                after = BookingStatsService.Snapshot.of(booking);
+            } else {
+                booking = bookings.remove(random.nextInt(bookings.size()));
+                before = BookingStatsService.Snapshot.of(booking);
+                entityManager.remove(booking);
+                after = null;
+            }
+            entityManager.flush();
+            stats.apply(Map.of(booking.getEstablishment().getId(), new BookingStatsService.Delta().change(before, after)));
+        }
+        return bookings;
+    }
+
+    void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private ArchivedBooking archived() {
+        ArchivedBooking booking = new ArchivedBooking();
+        booking.setId(nextArchivedId++);
+        booking.setArchivedAt(LocalDateTime.now());
+        return booking;
+    }
+
+    // paid_amount is NOT NULL in the schema
+    private static void change(BookingBase booking, Random random) {
+        randomChange(booking, random);
+        if (booking.getPaymentAmount() == null) {
+            booking.setPaymentAmount(BigDecimal.ZERO);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentRatingStats;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.model.EstablishmentType;
+import com.opennova.repository.EstablishmentRatingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PublicCatalogServiceTest {
+
+    private final EstablishmentRepository establishmentRepository = mock(EstablishmentRepository.class);
+    private final EstablishmentRatingStatsRepository ratingStatsRepository = mock(EstablishmentRatingStatsRepository.class);
+
+    // The database as the repositories see it
+    private final TreeMap<Long, Establishment> table = new TreeMap<>();
+
+    private PublicCatalogService catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new PublicCatalogService();
+        ReflectionTestUtils.setField(catalog, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(catalog, "ratingStatsRepository", ratingStatsRepository);
+        ReflectionTestUtils.setField(catalog, "operatingScheduleService", mock(OperatingScheduleService.class));
+        when(establishmentRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(table.values()));
+        when(ratingStatsRepository.findAll()).thenReturn(List.of());
+        when(ratingStatsRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(ratingStatsRepository.findByEstablishmentIdIn(anyList())).thenReturn(List.of());
+        // The keyset queries as EstablishmentRepository writes them
+        when(establishmentRepository.findByFiltersAfterId(any(), any(), any(), any())).thenAnswer(invocation -> {
+            Long afterId = invocation.getArgument(2);
+            return keyset(invocation.getArgument(0), invocation.getArgument(1),
+                e -> afterId == null || e.getId() > afterId,
+                Comparator.comparing(Establishment::getId), invocation.getArgument(3));
+        });
+        when(establishmentRepository.findByFiltersAfterName(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            String afterName = invocation.getArgument(2);
+            Long afterId = invocation.getArgument(3);
+            return keyset(invocation.getArgument(0), invocation.getArgument(1),
+                e -> afterName == null || e.getName().compareTo(afterName) > 0
+                    || (e.getName().equals(afterName) && e.getId() > afterId),
+                Comparator.comparing(Establishment::getName).thenComparing(Establishment::getId),
+                invocation.getArgument(4));
+        });
+    }
+
+    @Test
+    void singleEntryRefreshesMatchAFullRebuild() {
+        Random random = new Random(42);
+        Map<Long, EstablishmentRatingStats> ratings = new TreeMap<>();
+        when(ratingStatsRepository.findById(anyLong()))
+            .thenAnswer(invocation -> Optional.ofNullable(ratings.get((Long) invocation.getArgument(0))));
+        for (long id = 1; id <= 200; id++) {
+            table.put(id, establishment(id, random));
+        }
+        catalog.rebuildAll();
+        // Rating views that exist are carried through every refresh, not rebuilt
+        catalog.getSnapshot().sortedByRating(null, null);
+        catalog.getSnapshot().sortedByRating("HOTEL", null);
+        catalog.getSnapshot().sortedByRating(null, "OPEN");
+        catalog.getSnapshot().sortedByRating("SHOP", "BUSY");
+
+        for (int step = 0; step < 2000; step++) {
+            long id = 1 + random.nextInt(250);
+            if (random.nextInt(5) == 0) {
+                table.remove(id);
+                catalog.removeEstablishment(id);
+            } else {
+                Establishment establishment = establishment(id, random);
+                table.put(id, establishment);
+                catalog.refreshEstablishment(establishment);
+                EstablishmentRatingStats stats = new EstablishmentRatingStats(id);
+                stats.setReviewCount(1 + random.nextInt(3));
+                stats.setRatingSum(stats.getReviewCount() * (1 + random.nextInt(5)));
+                ratings.put(id, stats);
+                catalog.refreshRating(id);
+            }
+        }
+
+        PublicCatalogService.CatalogSnapshot incremental = catalog.getSnapshot();
+        ratings.keySet().retainAll(table.keySet());
+        when(ratingStatsRepository.findAll()).thenReturn(new ArrayList<>(ratings.values()));
+        PublicCatalogService.CatalogSnapshot rebuilt = catalog.rebuildAll();
+        assertEquals(ids(rebuilt.getAll()), ids(incremental.getAll()));
+        for (String type : new String[] { null, "HOTEL", "HOSPITAL", "SHOP" }) {
+            for (String status : new String[] { null, "OPEN", "CLOSED", "BUSY" }) {
+                assertEquals(ids(rebuilt.find(type, status)), ids(incremental.find(type, status)), type + ":" + status);
+                assertEquals(ids(rebuilt.sortedByRating(type, status)), ids(incremental.sortedByRating(type, status)));
+            }
+        }
+        for (long id = 1; id <= 250; id++) {
+            assertEquals(rebuilt.getById(id), incremental.getById(id));
+        }
+    }
+
+    @Test
+    void concurrentFirstReadsBuildTheSnapshotOnce() throws Exception {
+        table.put(1L, establishment(1L, EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+        AtomicInteger builds = new AtomicInteger();
+        when(establishmentRepository.findAll()).thenAnswer(invocation -> {
+            builds.incrementAndGet();
+            Thread.sleep(50);
+            return new ArrayList<>(table.values());
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<PublicCatalogService.CatalogSnapshot>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(pool.submit(() -> {
+                    start.await();
+                    return catalog.getSnapshot();
+                }));
+            }
+            start.countDown();
+            PublicCatalogService.CatalogSnapshot first = reads.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<PublicCatalogService.CatalogSnapshot> read : reads) {
+                assertSame(first, read.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void refreshSharesTheListsTheEntryIsNotIn() {
+        table.put(1L, establishment(1L, EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+        table.put(2L, establishment(2L, EstablishmentType.SHOP, EstablishmentStatus.CLOSED));
+        table.put(3L, establishment(3L, EstablishmentType.HOSPITAL, EstablishmentStatus.BUSY));
+        PublicCatalogService.CatalogSnapshot before = catalog.rebuildAll();
+        List<Map<String, Object>> shopView = before.sortedByRating("SHOP", null);
+
+        // Hotel goes from OPEN to BUSY
+        Establishment hotel = establishment(1L, EstablishmentType.HOTEL, EstablishmentStatus.BUSY);
+        catalog.refreshEstablishment(hotel);
+        PublicCatalogService.CatalogSnapshot after = catalog.getSnapshot();
+
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertSame(before.find("SHOP", null), after.find("SHOP", null));
+        assertSame(before.find(null, "CLOSED"), after.find(null, "CLOSED"));
+        assertSame(before.find("SHOP", "CLOSED"), after.find("SHOP", "CLOSED"));
+        assertSame(shopView, after.sortedByRating("SHOP", null));
+        assertNotSame(before.find("HOTEL", null), after.find("HOTEL", null));
+        assertEquals(List.of(), ids(after.find(null, "OPEN")));
+        assertEquals(List.of(1L, 3L), ids(after.find(null, "BUSY")));
+        assertEquals("BUSY", after.getById(1L).get("status"));
+
+        hotel.setIsActive(false);
+        catalog.refreshEstablishment(hotel);
+        assertNull(catalog.getSnapshot().getById(1L));
+        assertEquals(List.of(), ids(catalog.getSnapshot().find("HOTEL", null)));
+    }
+
+    @Test
+    void ratingRefreshKeepsTheEntryInPlace() {
+        table.put(5L, establishment(5L, EstablishmentType.SHOP, EstablishmentStatus.OPEN));
+        table.put(9L, establishment(9L, EstablishmentType.SHOP, EstablishmentStatus.OPEN));
+        catalog.rebuildAll();
+        EstablishmentRatingStats stats = new EstablishmentRatingStats(9L);
+        stats.setReviewCount(2);
+        stats.setRatingSum(9);
+        when(ratingStatsRepository.findById(9L)).thenReturn(Optional.of(stats));
+
+        catalog.refreshRating(9L);
+
+        PublicCatalogService.CatalogSnapshot snapshot = catalog.getSnapshot();
+        assertEquals(List.of(5L, 9L), ids(snapshot.getAll()));
+        assertEquals(4.5, (Double) snapshot.getById(9L).get("averageRating"), 1e-9);
+        assertEquals(List.of(9L, 5L), ids(snapshot.sortedByRating("SHOP", "OPEN")));
+    }
+
+    @Test
+    void openNowFilterUsesTheScheduleCompiledWithTheEntry() {
+        OperatingScheduleService schedules = new OperatingScheduleService();
+        ReflectionTestUtils.setField(catalog, "operatingScheduleService", schedules);
+        Establishment always = establishment(1L, EstablishmentType.SHOP, EstablishmentStatus.OPEN);
+        always.setOperatingHours("Open 24 hours");
+        // No hours configured: never open
+        Establishment unset = establishment(2L, EstablishmentType.SHOP, EstablishmentStatus.OPEN);
+        Establishment busy = establishment(3L, EstablishmentType.SHOP, EstablishmentStatus.BUSY);
+        busy.setOperatingHours("24 hours");
+        table.put(1L, always);
+        table.put(2L, unset);
+        table.put(3L, busy);
+        LocalDateTime night = LocalDateTime.of(2026, 10, 14, 3, 0);
+
+        PublicCatalogService.CatalogSnapshot built = catalog.rebuildAll();
+        assertEquals(List.of(1L), ids(built.filterOpenAt(built.getAll(), night)));
+
+        // The snapshot holds its own compiled schedules, whatever the service still caches
+        schedules.evict(1L);
+        assertEquals(List.of(1L), ids(built.filterOpenAt(built.getAll(), night)));
+
+        unset.setOperatingHours("24 hours");
+        catalog.refreshEstablishment(unset);
+        PublicCatalogService.CatalogSnapshot refreshed = catalog.getSnapshot();
+        assertEquals(List.of(1L, 2L), ids(refreshed.filterOpenAt(refreshed.getAll(), night)));
+        assertSame(built.getSchedule(1L), refreshed.getSchedule(1L));
+
+        catalog.refreshRating(2L);
+        assertSame(refreshed.getSchedule(2L), catalog.getSnapshot().getSchedule(2L));
+
+        catalog.removeEstablishment(1L);
+        assertNull(catalog.getSnapshot().getSchedule(1L));
+    }
+
+    @Test
+    void nameCursorWalksThroughTiedNamesByIdAndStopsAtTheEnd() {
+        table.put(4L, named(4L, "Cafe"));
+        table.put(1L, named(1L, "Cafe"));
+        table.put(7L, named(7L, "Bakery"));
+        table.put(2L, named(2L, "Cafe | Bar"));
+        table.put(9L, named(9L, "Cafe"));
+        table.put(3L, named(3L, "Diner"));
+        catalog.rebuildAll();
+
+        List<List<Long>> pages = pageThrough("name", 2);
+
+        assertEquals(List.of(List.of(7L, 1L), List.of(4L, 9L), List.of(2L, 3L)), pages);
+    }
+
+    @Test
+    void idCursorEndsWithoutAnEmptyTrailingPage() {
+        for (long id = 1; id <= 6; id++) {
+            table.put(id, establishment(id, id % 2 == 0 ? EstablishmentType.SHOP : EstablishmentType.HOTEL,
+                EstablishmentStatus.OPEN));
+        }
+        catalog.rebuildAll();
+
+        assertEquals(List.of(List.of(1L, 2L, 3L), List.of(4L, 5L, 6L)), pageThrough("id", 3));
+        assertEquals(List.of(List.of(2L, 4L), List.of(6L)), pageThrough("id", 2, "SHOP"));
+        assertEquals(List.of(List.of(1L, 2L, 3L, 4L, 5L, 6L)), pageThrough("id", 10));
+    }
+
+    @Test
+    void ratingCursorKeepsTiesInIdOrderAndRoundTripsTheExactRating() {
+        List<EstablishmentRatingStats> ratings = new ArrayList<>();
+        // 7/3 and 2/3 do not print as short decimals
+        long[][] sums = { { 1, 7, 3 }, { 2, 9, 2 }, { 3, 7, 3 }, { 4, 9, 2 }, { 5, 2, 3 }, { 6, 7, 3 }, { 8, 9, 2 } };
+        for (long[] row : sums) {
+            table.put(row[0], establishment(row[0], EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+            EstablishmentRatingStats stats = new EstablishmentRatingStats(row[0]);
+            stats.setRatingSum(row[1]);
+            stats.setReviewCount(row[2]);
+            ratings.add(stats);
+        }
+        // Rated zero
+        table.put(7L, establishment(7L, EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+        when(ratingStatsRepository.findAll()).thenReturn(ratings);
+        catalog.rebuildAll();
+
+        assertEquals(List.of(List.of(2L, 4L), List.of(8L, 1L), List.of(3L, 6L), List.of(5L, 7L)),
+            pageThrough("rating", 2));
+        assertEquals(List.of(List.of(2L, 4L, 8L), List.of(1L, 3L, 6L), List.of(5L, 7L)), pageThrough("rating", 3));
+    }
+
+    @Test
+    void cursorThatDoesNotParseIsRejected() {
+        table.put(1L, establishment(1L, EstablishmentType.HOTEL, EstablishmentStatus.OPEN));
+        catalog.rebuildAll();
+
+        for (String[] bad : new String[][] {
+            { "rating", "%%%not base64" },
+            { "rating", cursor("rating|abc|0x1.0p2") },
+            { "rating", cursor("rating|1|four") },
+            { "rating", cursor("rating|1|NaN") },
+            { "rating", cursor("rating|1") },
+            { "name", cursor("name||Cafe") },
+            { "id", cursor("name|1|Cafe") },
+        }) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> catalog.getPage(null, null, bad[0], 2, bad[1], null, null), bad[1]);
+            assertFalse(e.getMessage().contains("input string"), e.getMessage());
+        }
+    }
+
+    private List<List<Long>> pageThrough(String sort, int size) {
+        return pageThrough(sort, size, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Long>> pageThrough(String sort, int size, String type) {
+        List<List<Long>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> page = catalog.getPage(type, null, sort, size, cursor, null, null);
+            pages.add(ids((List<Map<String, Object>>) page.get("items")));
+            cursor = (String) page.get("nextCursor");
+            assertEquals(cursor != null, page.get("hasMore"));
+            assertTrue(pages.size() <= table.size(), "cursor does not advance");
+        } while (cursor != null);
+        return pages;
+    }
+
+    private List<Establishment> keyset(EstablishmentType type, EstablishmentStatus status,
+                                      Predicate<Establishment> after,
+                                      Comparator<Establishment> order, Pageable pageable) {
+        return table.values().stream()
+            .filter(Establishment::getIsActive)
+            .filter(e -> type == null || e.getType() == type)
+            .filter(e -> status == null || e.getStatus() == status)
+            .filter(after)
+            .sorted(order)
+            .limit(pageable.getPageSize())
+            .toList();
+    }
+
+    private static String cursor(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Establishment named(long id, String name) {
+        Establishment establishment = establishment(id, EstablishmentType.HOTEL, EstablishmentStatus.OPEN);
+        establishment.setName(name);
+        return establishment;
+    }
+
+    private static Establishment establishment(long id, Random random) {
+        Establishment establishment = establishment(id,
+            EstablishmentType.values()[random.nextInt(EstablishmentType.values().length)],
+            EstablishmentStatus.values()[random.nextInt(EstablishmentStatus.values().length)]);
+        establishment.setIsActive(random.nextInt(6) != 0);
+        return establishment;
+    }
+
+    private static Establishment establishment(long id, EstablishmentType type, EstablishmentStatus status) {
+        Establishment establishment = new Establishment();
+        establishment.setId(id);
+        establishment.setName("Establishment " + id);
+        establishment.setType(type);
+        establishment.setStatus(status);
+        establishment.setIsActive(true);
+        return establishment;
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> entry : entries) {
+            ids.add((Long) entry.get("id"));
+        }
+        return ids;
+    }
+}
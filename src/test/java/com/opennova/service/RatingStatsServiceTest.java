@@ -0,0 +1,138 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentRatingStats;
+import com.opennova.model.Review;
+import com.opennova.model.ReviewStatus;
+import com.opennova.model.User;
+import com.opennova.repository.EstablishmentRatingStatsRepository;
+import com.opennova.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RatingStatsServiceTest {
+
+    private final EstablishmentRatingStatsRepository ratingStatsRepository = mock(EstablishmentRatingStatsRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private RatingStatsService ratingStats;
+
+    @BeforeEach
+    void setUp() {
+        ratingStats = new RatingStatsService();
+        ReflectionTestUtils.setField(ratingStats, "ratingStatsRepository", ratingStatsRepository);
+        ReflectionTestUtils.setField(ratingStats, "publicCatalogService", mock(PublicCatalogService.class));
+        ReflectionTestUtils.setField(ratingStats, "transactionManager", transactionManager);
+    }
+
+    @Test
+    void backfillRecountsRowsADeltaCreatedBeforeAnyRecount() {
+        // Establishment 1 got its row from ensureRow on a review approval; 2 was recounted meanwhile
+        when(ratingStatsRepository.findIdsNotBackfilled()).thenReturn(List.of(1L, 2L));
+        when(ratingStatsRepository.lockByEstablishmentId(1L)).thenReturn(Optional.of(row(1L, null)));
+        when(ratingStatsRepository.lockByEstablishmentId(2L)).thenReturn(Optional.of(row(2L, LocalDateTime.now())));
+
+        ratingStats.backfillMissing();
+
+        verify(ratingStatsRepository).ensureRow(1L);
+        verify(ratingStatsRepository).backfillEstablishment(1L);
+        verify(ratingStatsRepository, never()).backfillEstablishment(2L);
+        verify(ratingStatsRepository, never()).count();
+    }
+
+    @Test
+    void oneFailedRecountStopsTheRunWithoutThrowing() {
+        when(ratingStatsRepository.findIdsNotBackfilled()).thenReturn(List.of(1L));
+        when(ratingStatsRepository.lockByEstablishmentId(1L)).thenReturn(Optional.empty());
+
+        ratingStats.backfillMissing();
+
+        verify(ratingStatsRepository, never()).backfillEstablishment(anyLong());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void reviewNotificationsWaitForTheCommit() {
+        ReviewService reviews = reviewService();
+        NotificationService notifications = (NotificationService) ReflectionTestUtils.getField(reviews, "notificationService");
+
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            reviews.approveReview(7L, 3L);
+            verify(notifications, never()).sendUserNotification(anyLong(), anyString(), anyString(), any());
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        verify(notifications).sendUserNotification(anyLong(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void failedDeleteIsRethrownSoTheTransactionRollsBackCleanly() {
+        ReviewService reviews = reviewService();
+        RatingStatsService failing = mock(RatingStatsService.class);
+        doThrow(new RuntimeException("stats row locked")).when(failing).recordChange(any(), any(), any());
+        ReflectionTestUtils.setField(reviews, "ratingStatsService", failing);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> reviews.deleteReview(7L, 3L, "OWNER"));
+
+        assertEquals("Failed to delete review: stats row locked", error.getMessage());
+        NotificationService notifications = (NotificationService) ReflectionTestUtils.getField(reviews, "notificationService");
+        verify(notifications, never()).sendUserNotification(anyLong(), anyString(), anyString(), any());
+    }
+
+    private ReviewService reviewService() {
+        User owner = new User();
+        owner.setId(3L);
+        User author = new User();
+        author.setId(4L);
+        Establishment establishment = new Establishment();
+        establishment.setId(1L);
+        establishment.setOwner(owner);
+        Review review = new Review();
+        review.setId(7L);
+        review.setUser(author);
+        review.setEstablishment(establishment);
+        review.setRating(4);
+        review.setStatus(ReviewStatus.PENDING);
+
+        ReviewRepository reviewRepository = mock(ReviewRepository.class);
+        when(reviewRepository.findById(7L)).thenReturn(Optional.of(review));
+        when(reviewRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ReviewService reviews = new ReviewService();
+        ReflectionTestUtils.setField(reviews, "reviewRepository", reviewRepository);
+        ReflectionTestUtils.setField(reviews, "notificationService", mock(NotificationService.class));
+        ReflectionTestUtils.setField(reviews, "ratingStatsService", mock(RatingStatsService.class));
+        ReflectionTestUtils.setField(reviews, "userStatsService", mock(UserStatsService.class));
+        return reviews;
+    }
+
+    private static EstablishmentRatingStats row(Long establishmentId, LocalDateTime backfilledAt) {
+        EstablishmentRatingStats row = new EstablishmentRatingStats(establishmentId);
+        row.setBackfilledAt(backfilledAt);
+        return row;
+    }
+}
@@ -0,0 +1,199 @@
+package com.opennova.service;
+
+import com.opennova.model.EstablishmentStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RealTimeStateRegistryTest {
+
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void randomOperationsMatchAHashMap() {
+        Random random = new Random(23);
+        for (int round = 0; round < 20; round++) {
+            RealTimeStateRegistry.LongKeyedTable table = new RealTimeStateRegistry.LongKeyedTable();
+            // Value and long held per key, as the table keeps them
+            Map<Long, Object[]> reference = new HashMap<>();
+            // Narrow key ranges give long probe chains and wrap-around; wide ones spread out
+            long keyRange = round % 2 == 0 ? 300 : Long.MAX_VALUE;
+
+            for (int step = 0; step < 20000; step++) {
+                long key = keyRange == Long.MAX_VALUE ? random.nextLong() % 5000 * 7919 : random.nextInt((int) keyRange) - 20;
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        String value = "v" + step;
+                        table.put(key, value);
+                        reference.computeIfAbsent(key, k -> new Object[] { null, 0L })[0] = value;
+                        break;
+                    case 2:
+                        table.putLong(key, step);
+                        reference.computeIfAbsent(key, k -> new Object[] { null, 0L })[1] = (long) step;
+                        break;
+                    case 3:
+                        table.remove(key);
+                        reference.remove(key);
+                        break;
+                    default:
+                        Object[] expected = reference.get(key);
+                        assertEquals(expected != null ? expected[0] : null, table.get(key), "get " + key);
+                        assertEquals(expected != null ? (long) expected[1] : -1L, table.getLong(key, -1L), "getLong " + key);
+                }
+                assertEquals(reference.size(), table.size());
+            }
+            for (Map.Entry<Long, Object[]> entry : reference.entrySet()) {
+                assertEquals(entry.getValue()[0], table.get(entry.getKey()));
+                assertEquals((long) entry.getValue()[1], table.getLong(entry.getKey(), -1L));
+            }
+        }
+    }
+
+    @Test
+    void tableGrowsAndKeepsEveryKey() {
+        RealTimeStateRegistry.LongKeyedTable table = new RealTimeStateRegistry.LongKeyedTable();
+        for (long key = 0; key < 100000; key++) {
+            table.put(key * 31, key);
+        }
+        assertEquals(100000, table.size());
+        assertTrue(capacity(table) >= 200000);
+        for (long key = 0; key < 100000; key++) {
+            assertEquals(key, table.get(key * 31));
+        }
+        assertNull(table.get(1));
+    }
+
+    @Test
+    void removedSlotsAreReusedWithoutGrowing() {
+        RealTimeStateRegistry.LongKeyedTable table = new RealTimeStateRegistry.LongKeyedTable();
+        int initialCapacity = capacity(table);
+        for (int round = 0; round < 500; round++) {
+            // Half the initial capacity, so any slot left behind by a removal would force a resize
+            for (long key = 0; key < initialCapacity / 2; key++) {
+                table.putLong(round * 1000L + key, key);
+            }
+            for (long key = 0; key < initialCapacity / 2; key++) {
+                table.remove(round * 1000L + key);
+            }
+        }
+        assertEquals(0, table.size());
+        assertEquals(initialCapacity, capacity(table));
+        assertEquals(-1L, table.getLong(499000L, -1L));
+    }
+
+    @Test
+    void readersNeverSeeAWrongValueWhileTheTableResizes() throws Exception {
+        RealTimeStateRegistry.LongKeyedTable table = new RealTimeStateRegistry.LongKeyedTable();
+        AtomicLong published = new AtomicLong(-1);
+        AtomicBoolean removing = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Long>> readers = new ArrayList<>();
+        for (int reader = 0; reader < 6; reader++) {
+            int seed = reader;
+            readers.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                long reads = 0;
+                start.await();
+                while (!done.get()) {
+                    long last = published.get();
+                    if (last < 0) {
+                        continue;
+                    }
+                    long key = random.nextInt((int) last + 1);
+                    Object value = table.get(key * 13);
+                    long stamp = table.getLong(key * 13, -1L);
+                    if (!removing.get()) {
+                        // Every published key must be found, through any number of resizes
+                        assertEquals(key, value, "key " + key);
+                        assertEquals(key, stamp, "key " + key);
+                    } else {
+                        assertTrue(value == null || value.equals(key), "key " + key + " read " + value);
+                        assertTrue(stamp == -1L || stamp == key, "key " + key + " read " + stamp);
+                    }
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        start.countDown();
+        for (long key = 0; key < 200000; key++) {
+            table.put(key * 13, key);
+            table.putLong(key * 13, key);
+            published.set(key);
+        }
+        removing.set(true);
+        for (long key = 0; key < 200000; key += 2) {
+            table.remove(key * 13);
+        }
+        done.set(true);
+
+        for (Future<Long> reader : readers) {
+            assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+        }
+        assertEquals(100000, table.size());
+        for (long key = 1; key < 200000; key += 2) {
+            assertEquals(key, table.get(key * 13));
+        }
+    }
+
+    @Test
+    void clearDropsEveryAttributeOfOneEntity() {
+        RealTimeStateRegistry registry = new RealTimeStateRegistry();
+        registry.setEstablishmentStatus(1L, EstablishmentStatus.BUSY);
+        registry.setEstablishmentStatus(2L, EstablishmentStatus.OPEN);
+        registry.touch(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, 1L);
+        registry.touch(RealTimeStateRegistry.EntityKind.BOOKING, 1L);
+
+        assertTrue(registry.hasUpdateSince(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, 1L,
+            LocalDateTime.now().minusMinutes(1)));
+        assertFalse(registry.hasUpdateSince(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, 2L,
+            LocalDateTime.now().minusMinutes(1)));
+
+        registry.clear(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, 1L);
+
+        assertNull(registry.getEstablishmentStatus(1L));
+        assertNull(registry.getLastUpdate(RealTimeStateRegistry.EntityKind.ESTABLISHMENT, 1L));
+        assertEquals(EstablishmentStatus.OPEN, registry.getEstablishmentStatus(2L));
+        // Same id, other kind
+        assertTrue(registry.getLastUpdate(RealTimeStateRegistry.EntityKind.BOOKING, 1L) != null);
+    }
+
+    private static int capacity(RealTimeStateRegistry.LongKeyedTable table) {
+        Object slots = ReflectionTestUtils.getField(table, "slots");
+        return ((long[]) ReflectionTestUtils.getField(slots, "keys")).length;
+    }
+}
@@ -0,0 +1,194 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentStatus;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.opennova.service.TestFixtures.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RealTimeUpdateServiceTest {
+
+    private final EstablishmentRepository establishmentRepository = mock(EstablishmentRepository.class);
+    private final PublicCatalogService publicCatalogService = mock(PublicCatalogService.class);
+    private final GeoIndexService geoIndexService = mock(GeoIndexService.class);
+    private final SearchIndexService searchIndexService = mock(SearchIndexService.class);
+    private final EstablishmentDetailService establishmentDetailService = mock(EstablishmentDetailService.class);
+    private final UpdateStreamService updateStreamService = mock(UpdateStreamService.class);
+    private final RealTimeStateRegistry stateRegistry = new RealTimeStateRegistry();
+    private final EstablishmentEventJournal eventJournal = new EstablishmentEventJournal();
+
+    // SSE event names in the order they were published
+    private final List<String> published = new CopyOnWriteArrayList<>();
+
+    private RealTimeUpdateService updates;
+    private Establishment establishment;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(eventJournal, "capacity", 16);
+        updates = new RealTimeUpdateService();
+        ReflectionTestUtils.setField(updates, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(updates, "sharedStateService", mock(SharedStateService.class));
+        ReflectionTestUtils.setField(updates, "publicCatalogService", publicCatalogService);
+        ReflectionTestUtils.setField(updates, "geoIndexService", geoIndexService);
+        ReflectionTestUtils.setField(updates, "establishmentDetailService", establishmentDetailService);
+        ReflectionTestUtils.setField(updates, "stateRegistry", stateRegistry);
+        ReflectionTestUtils.setField(updates, "updateStreamService", updateStreamService);
+        ReflectionTestUtils.setField(updates, "eventJournal", eventJournal);
+        ReflectionTestUtils.setField(updates, "searchIndexService", searchIndexService);
+        ReflectionTestUtils.setField(updates, "coalesceWindowMillis", 100L);
+        ReflectionTestUtils.setField(updates, "coalesceMaxDelayMillis", 300L);
+        updates.startRefreshScheduler();
+
+        establishment = new Establishment();
+        establishment.setId(1L);
+        establishment.setName("Corner Cafe");
+        establishment.setStatus(EstablishmentStatus.OPEN);
+        when(establishmentRepository.findById(1L)).thenReturn(Optional.of(establishment));
+        doAnswer(invocation -> {
+            published.add(invocation.getArgument(2));
+            return null;
+        }).when(updateStreamService).publish(any(), anyLong(), anyString(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        updates.stopRefreshScheduler();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void burstOfEditsIsFlushedOnceWithOneEvent() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            updates.notifyEstablishmentUpdate(establishment);
+        }
+        assertEquals(1, updates.getRefreshStats().get("pending"));
+
+        await(() -> (long) updates.getRefreshStats().get("flushed") == 1);
+        await(() -> published.size() == 1);
+
+        verify(establishmentRepository, times(1)).findById(1L);
+        verify(publicCatalogService, times(1)).refreshEstablishment(establishment);
+        verify(geoIndexService, times(1)).update(establishment);
+        verify(searchIndexService, times(1)).indexEstablishment(establishment);
+        verify(establishmentDetailService, times(1)).evict(1L);
+        assertEquals(List.of("SCHEDULE_CHANGED"), journaled("type"));
+        assertEquals(List.of(3), journaled("coalesced"));
+        assertEquals(List.of("establishment-update"), published);
+        assertEquals(3L, updates.getRefreshStats().get("requested"));
+    }
+
+    @Test
+    void statusAndScheduleChangesMergedIntoOneFlushAreBothAnnounced() throws Exception {
+        updates.notifyEstablishmentUpdate(establishment);
+        establishment.setStatus(EstablishmentStatus.BUSY);
+        updates.notifyEstablishmentStatusUpdate(establishment);
+        // The new status is readable before the flush
+        assertEquals("BUSY", updates.getEstablishmentStatus(1L));
+
+        await(() -> published.size() == 2);
+
+        assertEquals(1L, updates.getRefreshStats().get("flushed"));
+        verify(establishmentRepository, times(1)).findById(1L);
+        assertEquals(List.of("STATUS_CHANGED", "SCHEDULE_CHANGED"), journaled("type"));
+        assertEquals(List.of("BUSY", "BUSY"), journaled("status"));
+        assertEquals(List.of("establishment-status", "establishment-update"), published);
+        // Public readers, who skip booking events, get both
+        Map<String, Object> publicView = eventJournal.getUpdatesSince(1L, 0, null, false);
+        assertEquals(2, ((List<?>) publicView.get("events")).size());
+    }
+
+    @Test
+    void plainRefreshRebuildsTheCachesWithoutAnnouncingAnything() throws Exception {
+        updates.requestRefresh(1L);
+        updates.syncEstablishmentData(1L);
+
+        await(() -> (long) updates.getRefreshStats().get("flushed") == 1);
+
+        verify(publicCatalogService, times(1)).refreshEstablishment(establishment);
+        assertEquals(List.of(), journaled("type"));
+        assertEquals(List.of(), published);
+    }
+
+    @Test
+    void steadyStreamOfEditsIsStillFlushedByTheMaxDelay() throws Exception {
+        long start = System.currentTimeMillis();
+        // Every edit lands inside the window of the previous one, for well over the max delay
+        while (System.currentTimeMillis() - start < 1000) {
+            updates.notifyEstablishmentUpdate(establishment);
+            Thread.sleep(20);
+        }
+
+        assertTrue((long) updates.getRefreshStats().get("flushed") >= 2,
+            "flushed " + updates.getRefreshStats().get("flushed"));
+        // Each flush announces once, however many edits it absorbed
+        await(() -> (int) updates.getRefreshStats().get("pending") == 0
+            && published.size() == (long) updates.getRefreshStats().get("flushed"));
+    }
+
+    @Test
+    void establishmentDeletedWhilePendingIsDroppedFromEveryIndex() throws Exception {
+        updates.notifyEstablishmentUpdate(establishment);
+        when(establishmentRepository.findById(1L)).thenReturn(Optional.empty());
+
+        await(() -> (long) updates.getRefreshStats().get("flushed") == 1);
+
+        verify(publicCatalogService).removeEstablishment(1L);
+        verify(geoIndexService).remove(1L);
+        verify(searchIndexService).removeEstablishment(1L);
+        verify(publicCatalogService, never()).refreshEstablishment(any(Establishment.class));
+        assertEquals(List.of(), journaled("type"));
+        assertEquals(List.of(), published);
+    }
+
+    @Test
+    void nothingIsScheduledUntilTheChangeCommits() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        updates.notifyEstablishmentUpdate(establishment);
+        assertEquals(0, updates.getRefreshStats().get("pending"));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        Thread.sleep(200);
+        assertEquals(0L, updates.getRefreshStats().get("flushed"));
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        await(() -> published.size() == 1);
+        verify(updateStreamService).publish(eq(UpdateStreamService.Topic.ESTABLISHMENT), eq(1L),
+            eq("establishment-update"), any());
+    }
+
+    private List<Object> journaled(String field) {
+        List<Object> values = new ArrayList<>();
+        for (Object event : (List<?>) eventJournal.getUpdatesSince(1L, 0, null, true).get("events")) {
+            values.add(((Map<?, ?>) event).get(field));
+        }
+        return values;
+    }
+}
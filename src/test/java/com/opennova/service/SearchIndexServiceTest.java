@@ -0,0 +1,194 @@
+package com.opennova.service;
+
+import com.opennova.model.Establishment;
+import com.opennova.model.EstablishmentType;
+import com.opennova.model.Menu;
+import com.opennova.repository.CollectionRepository;
+import com.opennova.repository.DoctorRepository;
+import com.opennova.repository.EstablishmentRatingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import com.opennova.repository.MenuRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchIndexServiceTest {
+
+    private final EstablishmentRepository establishmentRepository = mock(EstablishmentRepository.class);
+    private final MenuRepository menuRepository = mock(MenuRepository.class);
+    private final EstablishmentRatingStatsRepository ratingStatsRepository = mock(EstablishmentRatingStatsRepository.class);
+
+    // The database as the repositories see it
+    private final TreeMap<Long, Establishment> table = new TreeMap<>();
+    private final List<Menu> menus = new ArrayList<>();
+
+    private PublicCatalogService catalog;
+    private SearchIndexService search;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new PublicCatalogService();
+        ReflectionTestUtils.setField(catalog, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(catalog, "ratingStatsRepository", ratingStatsRepository);
+        ReflectionTestUtils.setField(catalog, "operatingScheduleService", mock(OperatingScheduleService.class));
+        when(establishmentRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(table.values()));
+        when(establishmentRepository.findByIsActiveTrue()).thenAnswer(invocation -> table.values().stream()
+            .filter(Establishment::getIsActive).toList());
+        when(menuRepository.findByIsActiveTrue()).thenAnswer(invocation -> new ArrayList<>(menus));
+        when(ratingStatsRepository.findAll()).thenReturn(List.of());
+        when(ratingStatsRepository.findById(anyLong())).thenReturn(Optional.empty());
+
+        search = new SearchIndexService();
+        ReflectionTestUtils.setField(search, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(search, "menuRepository", menuRepository);
+        ReflectionTestUtils.setField(search, "doctorRepository", mock(DoctorRepository.class));
+        ReflectionTestUtils.setField(search, "collectionRepository", mock(CollectionRepository.class));
+        ReflectionTestUtils.setField(search, "publicCatalogService", catalog);
+
+        table.put(1L, establishment(1L, "Biryani House", "12 MG Road"));
+        table.put(2L, establishment(2L, "Paradise", "Near Biryani Street"));
+        table.put(3L, establishment(3L, "Biryanis Corner", "Lake View"));
+        table.put(4L, establishment(4L, "Burger Barn", "Station Road"));
+    }
+
+    @Test
+    void exactTitleMatchRanksAboveAPrefixAndABodyMatch() {
+        List<Map<?, ?>> hits = hits("biryani", null);
+
+        assertEquals(List.of(1L, 3L, 2L), ids(hits));
+        assertEquals(10.0, hits.get(0).get("score"));
+        // "biryanis" as a prefix beats its trigram similarity
+        assertEquals(5.75, hits.get(1).get("score"));
+        assertEquals(4.0, hits.get(2).get("score"));
+        assertEquals("Biryani House", hits.get(0).get("establishmentName"));
+    }
+
+    @Test
+    void prefixMatchesPreferTitlesAndCloserTerms() {
+        assertEquals(List.of(1L, 3L, 2L), ids(hits("bir", null)));
+        assertEquals(List.of(4L), ids(hits("burg", null)));
+        // A single letter is too short to stand for a prefix
+        assertEquals(List.of(), ids(hits("b", null)));
+    }
+
+    @Test
+    void misspelledTermsMatchThroughSharedTrigrams() {
+        List<Map<?, ?>> hits = hits("biriyani", null);
+
+        assertEquals(1L, hits.get(0).get("id"));
+        assertTrue(ids(hits).contains(2L));
+        assertFalse(ids(hits).contains(4L));
+        assertEquals(List.of(4L), ids(hits("burgr", null)));
+        // Too few trigrams in common
+        assertEquals(List.of(), ids(hits("pizza", null)));
+    }
+
+    @Test
+    void everyQueryTermHasToMatch() {
+        assertEquals(List.of(1L), ids(hits("biryani road", null)));
+        assertEquals(List.of(4L), ids(hits("ROAD burger", null)));
+        assertEquals(List.of(), ids(hits("biryani station", null)));
+    }
+
+    @Test
+    void updatedEstablishmentIsReindexedUnderItsNewTerms() {
+        assertEquals(List.of(1L, 3L, 2L), ids(hits("biryani", null)));
+
+        Establishment renamed = establishment(1L, "Dosa Point", "12 MG Road");
+        table.put(1L, renamed);
+        catalog.refreshEstablishment(renamed);
+        search.indexEstablishment(renamed);
+
+        assertEquals(List.of(3L, 2L), ids(hits("biryani", null)));
+        assertEquals(List.of(1L), ids(hits("dosa", null)));
+        // The old name's terms are gone from the typo index too
+        assertFalse(ids(hits("biriyani", null)).contains(1L));
+
+        renamed.setIsActive(false);
+        search.indexEstablishment(renamed);
+        assertEquals(List.of(), ids(hits("dosa", null)));
+    }
+
+    @Test
+    void removingAnEstablishmentDropsItsMenus() {
+        menus.add(menu(10L, table.get(2L), "Chicken Biryani", "Mains"));
+        menus.add(menu(11L, table.get(4L), "Veg Burger", "Mains"));
+
+        List<Map<?, ?>> menuHits = hits("biryani", Set.of(SearchIndexService.DocumentKind.MENU));
+        assertEquals(List.of(10L), ids(menuHits));
+        assertEquals(2L, menuHits.get(0).get("establishmentId"));
+        assertEquals("Paradise", menuHits.get(0).get("establishmentName"));
+
+        search.removeEstablishment(2L);
+
+        assertEquals(List.of(), ids(hits("biryani", Set.of(SearchIndexService.DocumentKind.MENU))));
+        assertEquals(List.of(11L), ids(hits("mains", Set.of(SearchIndexService.DocumentKind.MENU))));
+        assertEquals(List.of(1L, 3L), ids(hits("biryani", Set.of(SearchIndexService.DocumentKind.ESTABLISHMENT))));
+    }
+
+    @Test
+    void resultsArePagedInRankOrder() {
+        Map<String, Object> first = search.search("biryani", null, 0, 2);
+        Map<String, Object> second = search.search("biryani", null, 1, 2);
+
+        assertEquals(3, first.get("total"));
+        assertEquals(true, first.get("hasMore"));
+        assertEquals(List.of(1L, 3L), ids(results(first)));
+        assertEquals(false, second.get("hasMore"));
+        assertEquals(List.of(2L), ids(results(second)));
+    }
+
+    private List<Map<?, ?>> hits(String query, Set<SearchIndexService.DocumentKind> kinds) {
+        return results(search.search(query, kinds, 0, SearchIndexService.MAX_PAGE_SIZE));
+    }
+
+    private static List<Map<?, ?>> results(Map<String, Object> result) {
+        List<Map<?, ?>> hits = new ArrayList<>();
+        for (Object hit : (List<?>) result.get("results")) {
+            hits.add((Map<?, ?>) hit);
+        }
+        return hits;
+    }
+
+    private static List<Long> ids(List<Map<?, ?>> hits) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<?, ?> hit : hits) {
+            ids.add((Long) hit.get("id"));
+        }
+        return ids;
+    }
+
+    private static Establishment establishment(long id, String name, String address) {
+        Establishment establishment = new Establishment();
+        establishment.setId(id);
+        establishment.setName(name);
+        establishment.setAddress(address);
+        establishment.setType(EstablishmentType.HOTEL);
+        establishment.setIsActive(true);
+        return establishment;
+    }
+
+    private static Menu menu(long id, Establishment establishment, String name, String category) {
+        Menu menu = new Menu();
+        menu.setId(id);
+        menu.setEstablishment(establishment);
+        menu.setName(name);
+        menu.setCategory(category);
+        menu.setIsActive(true);
+        return menu;
+    }
+}
@@ -0,0 +1,408 @@
+package com.opennova.service;
+
+import com.opennova.model.BookingSlot;
+import com.opennova.model.Establishment;
+import com.opennova.repository.BookingRepository;
+import com.opennova.repository.BookingSlotRepository;
+import com.opennova.repository.EstablishmentBookingStatsRepository;
+import com.opennova.repository.EstablishmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class SlotInventoryServiceTest {
+
+    private static final String DATE = "2026-11-01";
+
+    private final SlotTable table = new SlotTable();
+    private final BookingRepository bookingRepository = mock(BookingRepository.class, withSettings().stubOnly());
+    private final BookingSlotRepository slotRepository = mock(BookingSlotRepository.class, withSettings().stubOnly());
+    private final EstablishmentBookingStatsRepository statsRepository = mock(EstablishmentBookingStatsRepository.class);
+    private final EstablishmentRepository establishmentRepository = mock(EstablishmentRepository.class);
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(32);
+        when(slotRepository.ensureSlot(anyLong(), any(), any(), anyInt())).thenAnswer(invocation -> table.ensure(
+            invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3), 0));
+        when(slotRepository.seedSlot(anyLong(), any(), any(), anyInt(), anyInt())).thenAnswer(invocation -> table.seed(
+            invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+            invocation.getArgument(3), invocation.getArgument(4)));
+        when(slotRepository.tryReserve(anyLong(), any(), any(), anyInt())).thenAnswer(invocation -> table.tryReserve(
+            invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+        when(slotRepository.release(anyLong(), any(), any())).thenAnswer(invocation -> table.release(
+            invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        when(slotRepository.findByEstablishmentIdAndSlotDate(anyLong(), any())).thenAnswer(invocation -> table.day(
+            invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void lastSeatGoesToExactlyOneOfManyConcurrentRequests() throws Exception {
+        SlotInventoryService inventory = inventory(1);
+        for (int slot = 0; slot < 50; slot++) {
+            String time = String.format("%02d:%02d", 8 + slot / 60, slot % 60);
+            List<Boolean> results = race(32, thread -> inventory.reserve(establishment(1L), DATE, time));
+            assertEquals(1, results.stream().filter(Boolean::booleanValue).count(), time);
+            assertEquals(1, table.reserved(1L, LocalDate.parse(DATE), LocalTime.parse(time)));
+        }
+    }
+
+    @Test
+    void instancesSharingTheDatabaseNeverOversell() throws Exception {
+        SlotInventoryService first = inventory(2);
+        SlotInventoryService second = inventory(2);
+        for (int slot = 0; slot < 20; slot++) {
+            String time = "10:" + String.format("%02d", slot);
+            List<Boolean> results = race(32, thread -> (thread % 2 == 0 ? first : second).reserve(establishment(1L), DATE, time));
+            assertEquals(2, results.stream().filter(Boolean::booleanValue).count(), time);
+            assertEquals(2, table.reserved(1L, LocalDate.parse(DATE), LocalTime.parse(time)));
+        }
+    }
+
+    @Test
+    void rolledBackReservationsGiveTheirSeatBackUnderContention() throws Exception {
+        SlotInventoryService inventory = inventory(3);
+        AtomicInteger committed = new AtomicInteger();
+
+        // Every thread keeps trying until one of its reservations commits; two in three roll back
+        List<Boolean> results = race(24, thread -> {
+            Random random = new Random(thread);
+            for (int attempt = 0; attempt < 200; attempt++) {
+                boolean commit = random.nextInt(3) == 0;
+                if (inTransaction(commit, () -> inventory.reserve(establishment(2L), DATE, "18:00")) && commit) {
+                    committed.incrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        });
+
+        assertEquals(3, committed.get());
+        assertEquals(3, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(3, table.reserved(2L, LocalDate.parse(DATE), LocalTime.of(18, 0)));
+        assertFalse(inventory.hasCapacity(establishment(2L), DATE, "18:00"));
+    }
+
+    @Test
+    void onlyRolledBackAttemptsLeaveTheSlotEmpty() throws Exception {
+        SlotInventoryService inventory = inventory(2);
+        race(16, thread -> {
+            for (int attempt = 0; attempt < 20; attempt++) {
+                inTransaction(false, () -> inventory.reserve(establishment(3L), DATE, "12:00"));
+            }
+            return true;
+        });
+
+        assertEquals(0, table.reserved(3L, LocalDate.parse(DATE), LocalTime.of(12, 0)));
+        assertTrue(inventory.reserve(establishment(3L), DATE, "12:00"));
+        assertTrue(inventory.reserve(establishment(3L), DATE, "12:00"));
+        assertFalse(inventory.reserve(establishment(3L), DATE, "12:00"));
+    }
+
+    @Test
+    void releaseRolledBackWithItsTransactionKeepsTheSeatTaken() throws Exception {
+        SlotInventoryService inventory = inventory(1);
+        assertTrue(inTransaction(true, () -> inventory.reserve(establishment(4L), DATE, "15:00")));
+
+        // e.g. an expiry batch that fails after releasing the seat
+        inTransaction(false, () -> {
+            inventory.release(4L, DATE, "15:00");
+            return true;
+        });
+        assertEquals(1, table.reserved(4L, LocalDate.parse(DATE), LocalTime.of(15, 0)));
+        assertFalse(inventory.hasCapacity(establishment(4L), DATE, "15:00"));
+
+        inTransaction(true, () -> {
+            inventory.release(4L, DATE, "15:00");
+            return true;
+        });
+        assertEquals(0, table.reserved(4L, LocalDate.parse(DATE), LocalTime.of(15, 0)));
+        assertTrue(inventory.reserve(establishment(4L), DATE, "15:00"));
+    }
+
+    @Test
+    void withoutAnyLimitEveryBookingIsTakenAndCounted() throws Exception {
+        SlotInventoryService inventory = inventory(0);
+
+        List<Boolean> results = race(32, thread -> inventory.reserve(establishment(5L), DATE, "19:00"));
+
+        assertTrue(results.stream().allMatch(Boolean::booleanValue));
+        assertEquals(32, table.reserved(5L, LocalDate.parse(DATE), LocalTime.of(19, 0)));
+        assertTrue(inventory.hasCapacity(establishment(5L), DATE, "19:00"));
+    }
+
+    @Test
+    void establishmentCapacityOverridesTheDefaultAndAChangeAppliesAtOnce() {
+        SlotInventoryService inventory = inventory(1);
+        Establishment clinic = establishment(6L, 3);
+
+        assertTrue(inventory.reserve(clinic, DATE, "09:00"));
+        assertTrue(inventory.reserve(clinic, DATE, "09:00"));
+        assertTrue(inventory.reserve(clinic, DATE, "09:00"));
+        assertFalse(inventory.reserve(clinic, DATE, "09:00"));
+        assertEquals(3, table.capacity(6L, LocalDate.parse(DATE), LocalTime.of(9, 0)));
+
+        // The owner raises the limit; the seats already taken still count
+        clinic.setSlotCapacity(4);
+        assertTrue(inventory.reserve(clinic, DATE, "09:00"));
+        assertFalse(inventory.reserve(clinic, DATE, "09:00"));
+        // and 0 lifts it
+        clinic.setSlotCapacity(0);
+        assertTrue(inventory.reserve(clinic, DATE, "09:00"));
+        assertEquals(5, table.reserved(6L, LocalDate.parse(DATE), LocalTime.of(9, 0)));
+    }
+
+    @Test
+    void backfillGroupsTimesTheWayReserveParsesThem() {
+        when(statsRepository.findIdsWithoutSlots()).thenReturn(List.of(7L));
+        when(bookingRepository.findSlotRowsByEstablishment(eq(7L), anyCollection())).thenReturn(List.of(
+            new Object[] { DATE, "2:30 PM" },
+            new Object[] { DATE, "14:30" },
+            new Object[] { DATE, "14:30:15" },
+            new Object[] { DATE, "09:00" },
+            new Object[] { DATE, "soon" }));
+        SlotInventoryService inventory = inventory(1);
+
+        inventory.backfillMissing();
+
+        LocalDate date = LocalDate.parse(DATE);
+        assertEquals(2, table.rows.size());
+        assertEquals(3, table.reserved(7L, date, LocalTime.of(14, 30)));
+        assertEquals(1, table.reserved(7L, date, LocalTime.of(9, 0)));
+        // Over capacity from before the slot table: full, and a cancellation frees exactly one of its own seats
+        assertFalse(inventory.reserve(establishment(7L), DATE, "2:30 pm"));
+        inventory.release(7L, DATE, "14:30:15");
+        assertEquals(2, table.reserved(7L, date, LocalTime.of(14, 30)));
+        verify(statsRepository).markSlotsBackfilled(eq(7L), any());
+    }
+
+    @Test
+    void backfillRaisesSlotsCreatedBeforeIt() {
+        LocalDate date = LocalDate.parse(DATE);
+        // Left by a reservation on another instance that ran before this seed, and by an interrupted earlier seed
+        table.ensure(7L, date, LocalTime.of(11, 0), 1, 0);
+        table.ensure(7L, date, LocalTime.of(12, 0), 3, 1);
+        when(statsRepository.findIdsWithoutSlots()).thenReturn(List.of(7L));
+        when(bookingRepository.findSlotRowsByEstablishment(eq(7L), anyCollection())).thenReturn(List.of(
+            new Object[] { DATE, "11:00" },
+            new Object[] { DATE, "11:00" },
+            new Object[] { DATE, "12:00" }));
+
+        inventory(1).backfillMissing();
+
+        assertEquals(2, table.reserved(7L, date, LocalTime.of(11, 0)));
+        assertEquals(2, table.capacity(7L, date, LocalTime.of(11, 0)));
+        // Never lowered: the row already counts a seat the bookings read did not see
+        assertEquals(1, table.reserved(7L, date, LocalTime.of(12, 0)));
+        assertEquals(3, table.capacity(7L, date, LocalTime.of(12, 0)));
+    }
+
+    @Test
+    void reservationsWaitForTheBackfillAndRetryItAfterAFailure() {
+        when(statsRepository.findIdsWithoutSlots())
+            .thenThrow(new RuntimeException("connection refused"))
+            .thenReturn(List.of(7L));
+        when(bookingRepository.findSlotRowsByEstablishment(eq(7L), anyCollection()))
+            .thenReturn(List.<Object[]>of(new Object[] { DATE, "09:00" }));
+        SlotInventoryService inventory = inventory(1);
+
+        inventory.backfillMissing();
+        assertEquals(0, table.reserved(7L, LocalDate.parse(DATE), LocalTime.of(9, 0)));
+
+        // The existing booking holds the only seat once the retried seed has run
+        assertFalse(inventory.reserve(establishment(7L), DATE, "09:00"));
+        assertEquals(1, table.reserved(7L, LocalDate.parse(DATE), LocalTime.of(9, 0)));
+        assertTrue(inventory.reserve(establishment(7L), DATE, "10:00"));
+        verify(statsRepository, times(2)).findIdsWithoutSlots();
+    }
+
+    private SlotInventoryService inventory(int capacity) {
+        SlotInventoryService inventory = new SlotInventoryService();
+        ReflectionTestUtils.setField(inventory, "slotRepository", slotRepository);
+        ReflectionTestUtils.setField(inventory, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(inventory, "statsRepository", statsRepository);
+        ReflectionTestUtils.setField(inventory, "establishmentRepository", establishmentRepository);
+        ReflectionTestUtils.setField(inventory, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(inventory, "defaultCapacity", capacity);
+        ReflectionTestUtils.setField(inventory, "reloadSeconds", 60L);
+        return inventory;
+    }
+
+    // No capacity of its own, so the inventory's default applies
+    private static Establishment establishment(Long id) {
+        return establishment(id, null);
+    }
+
+    private static Establishment establishment(Long id, Integer slotCapacity) {
+        Establishment establishment = new Establishment();
+        establishment.setId(id);
+        establishment.setSlotCapacity(slotCapacity);
+        return establishment;
+    }
+
+    private interface Attempt {
+        boolean run(int thread) throws Exception;
+    }
+
+    // Starts all threads together and returns each one's result
+    private List<Boolean> race(int threads, Attempt attempt) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                return attempt.run(thread);
+            }));
+        }
+        start.countDown();
+        List<Boolean> results = new ArrayList<>();
+        for (Future<Boolean> future : futures) {
+            results.add(future.get(30, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    /**
+     * Runs work as if in a transaction: on rollback the table undoes this thread's writes first, as the database
+     * would, then the registered synchronizations see the outcome
+     */
+    private boolean inTransaction(boolean commit, Callable<Boolean> work) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        boolean result;
+        List<TransactionSynchronization> synchronizations;
+        try {
+            result = work.call();
+        } finally {
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        table.complete(commit);
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (commit) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(commit
+                ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        return result;
+    }
+
+    /**
+     * booking_slots with its conditional updates; writes are logged per thread so a rollback can undo them
+     */
+    private static final class SlotTable {
+        final Map<String, int[]> rows = new ConcurrentHashMap<>();
+        final ThreadLocal<List<Runnable>> undo = ThreadLocal.withInitial(ArrayList::new);
+
+        synchronized int ensure(Long establishmentId, LocalDate date, LocalTime time, int capacity, int reserved) {
+            return rows.putIfAbsent(key(establishmentId, date, time), new int[] { capacity, reserved }) == null ? 1 : 0;
+        }
+
+        // ON CONFLICT DO UPDATE with GREATEST, as the seed query does
+        synchronized int seed(Long establishmentId, LocalDate date, LocalTime time, int capacity, int reserved) {
+            rows.merge(key(establishmentId, date, time), new int[] { capacity, reserved },
+                (row, seeded) -> new int[] { Math.max(row[0], seeded[1]), Math.max(row[1], seeded[1]) });
+            return 1;
+        }
+
+        synchronized int tryReserve(Long establishmentId, LocalDate date, LocalTime time, int capacity) {
+            int[] row = rows.get(key(establishmentId, date, time));
+            if (row == null || row[1] >= capacity) {
+                return 0;
+            }
+            row[0] = capacity;
+            row[1]++;
+            undo.get().add(() -> row[1]--);
+            return 1;
+        }
+
+        synchronized int release(Long establishmentId, LocalDate date, LocalTime time) {
+            int[] row = rows.get(key(establishmentId, date, time));
+            if (row == null || row[1] <= 0) {
+                return 0;
+            }
+            row[1]--;
+            undo.get().add(() -> row[1]++);
+            return 1;
+        }
+
+        synchronized List<BookingSlot> day(Long establishmentId, LocalDate date) {
+            List<BookingSlot> slots = new ArrayList<>();
+            rows.forEach((key, row) -> {
+                String[] parts = key.split("\\|");
+                if (parts[0].equals(String.valueOf(establishmentId)) && parts[1].equals(date.toString())) {
+                    BookingSlot slot = new BookingSlot();
+                    slot.setSlotTime(LocalTime.parse(parts[2]));
+                    slot.setCapacity(row[0]);
+                    slot.setReserved(row[1]);
+                    slots.add(slot);
+                }
+            });
+            return slots;
+        }
+
+        synchronized void complete(boolean commit) {
+            List<Runnable> writes = undo.get();
+            if (!commit) {
+                for (int i = writes.size() - 1; i >= 0; i--) {
+                    writes.get(i).run();
+                }
+            }
+            writes.clear();
+        }
+
+        synchronized int reserved(Long establishmentId, LocalDate date, LocalTime time) {
+            int[] row = rows.get(key(establishmentId, date, time));
+            return row != null ? row[1] : 0;
+        }
+
+        synchronized int capacity(Long establishmentId, LocalDate date, LocalTime time) {
+            int[] row = rows.get(key(establishmentId, date, time));
+            return row != null ? row[0] : 0;
+        }
+
+        private static String key(Long establishmentId, LocalDate date, LocalTime time) {
+            return establishmentId + "|" + date + "|" + time;
+        }
+    }
+}
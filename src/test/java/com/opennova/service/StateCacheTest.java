@@ -0,0 +1,159 @@
+package com.opennova.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateCacheTest {
+
+    @Test
+    void neverHoldsMoreThanItsBound() {
+        StateCache cache = new StateCache(100);
+        Random random = new Random(29);
+        for (int step = 0; step < 50000; step++) {
+            // Skewed keys: a few are hot, most are seen once or twice
+            String key = "key-" + (random.nextInt(4) == 0 ? random.nextInt(50) : random.nextInt(100000));
+            if (random.nextBoolean()) {
+                cache.put(key, step, 0L);
+            } else {
+                cache.get(key);
+            }
+            if (step % 10 == 0) {
+                cache.remove("key-" + random.nextInt(50));
+            }
+            Map<String, Object> stats = cache.stats();
+            int size = (int) stats.get("size");
+            assertTrue(size <= 100, "size " + size);
+            assertEquals(size, (int) stats.get("windowSize") + (int) stats.get("probationSize")
+                + (int) stats.get("protectedSize"));
+        }
+    }
+
+    @Test
+    void frequentCandidateIsAdmittedAndOneHitCandidateIsNot() {
+        StateCache cache = new StateCache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, i, 0L);
+        }
+        // Asked for often before it was ever cached
+        for (int i = 0; i < 5; i++) {
+            assertNull(cache.get("popular"));
+        }
+        cache.put("popular", "p", 0L);
+        cache.put("x", "x", 0L);
+
+        // k9 left the window first and lost to k0 on a tie; popular then beat k0
+        assertFalse(cache.containsKey("k9"));
+        assertFalse(cache.containsKey("k0"));
+        assertTrue(cache.containsKey("popular"));
+        assertTrue(cache.containsKey("x"));
+        assertEquals(10, cache.stats().get("size"));
+        assertEquals(2L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void hotEntriesSurviveAScan() {
+        StateCache cache = new StateCache(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot-" + i, i, 0L);
+        }
+        // Moves the last one out of the window, so every hot entry's next hit promotes it
+        cache.put("filler", 0, 0L);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot-" + i);
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            cache.put("scan-" + i, i, 0L);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, cache.get("hot-" + i), "hot-" + i);
+        }
+        assertEquals(100, cache.stats().get("size"));
+    }
+
+    @Test
+    void secondHitPromotesFromProbationToProtected() {
+        StateCache cache = new StateCache(100);
+        cache.put("a", 1, 0L);
+        assertEquals(1, cache.stats().get("windowSize"));
+
+        // The window holds one entry at this size; the next insert moves a to probation
+        cache.put("b", 2, 0L);
+        assertEquals(1, cache.stats().get("probationSize"));
+        assertEquals(0, cache.stats().get("protectedSize"));
+
+        assertEquals(1, cache.get("a"));
+        assertEquals(0, cache.stats().get("probationSize"));
+        assertEquals(1, cache.stats().get("protectedSize"));
+    }
+
+    @Test
+    void protectedOverflowIsDemotedNotEvicted() {
+        StateCache cache = new StateCache(100);
+        // (100 - 1) * 0.8 = 79 protected entries at most
+        for (int i = 0; i < 90; i++) {
+            cache.put("k" + i, i, 0L);
+        }
+        cache.put("last", -1, 0L);
+        for (int i = 0; i < 90; i++) {
+            cache.get("k" + i);
+        }
+
+        Map<String, Object> stats = cache.stats();
+        assertEquals(79, stats.get("protectedSize"));
+        assertEquals(11, stats.get("probationSize"));
+        assertEquals(0L, stats.get("evictions"));
+        for (int i = 0; i < 90; i++) {
+            assertEquals(i, cache.get("k" + i));
+        }
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() throws Exception {
+        StateCache cache = new StateCache(100);
+        cache.put("short", "s", TimeUnit.MILLISECONDS.toNanos(20));
+        cache.put("forever", "f", 0L);
+        assertEquals("s", cache.get("short"));
+
+        Thread.sleep(60);
+
+        assertFalse(cache.containsKey("short"));
+        assertNull(cache.get("short"));
+        assertEquals("f", cache.get("forever"));
+        assertEquals(1L, cache.stats().get("expirations"));
+
+        // A rewrite starts a new lifetime
+        cache.put("forever", "f2", TimeUnit.MILLISECONDS.toNanos(20));
+        Thread.sleep(60);
+        assertNull(cache.get("forever"));
+    }
+
+    @Test
+    void expiredEntriesAreSweptBeforeLiveOnesAreEvicted() throws Exception {
+        StateCache cache = new StateCache(10);
+        for (int i = 0; i < 5; i++) {
+            cache.put("short-" + i, i, TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        Thread.sleep(60);
+        for (int i = 0; i < 10; i++) {
+            cache.put("live-" + i, i, 0L);
+        }
+
+        Map<String, Object> stats = cache.stats();
+        assertEquals(5L, stats.get("expirations"));
+        assertEquals(0L, stats.get("evictions"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, cache.get("live-" + i));
+        }
+    }
+}
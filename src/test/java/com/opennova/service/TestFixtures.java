@@ -0,0 +1,60 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.BookingBase;
+import com.opennova.model.BookingStatus;
+import com.opennova.model.PaymentStatus;
+import com.opennova.model.RefundStatus;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bookings and waits shared by the service tests
+ */
+final class TestFixtures {
+
+    private static final long AWAIT_MILLIS = 3000;
+
+    private TestFixtures() {
+    }
+
+    static Booking booking(BookingStatus status, PaymentStatus payment, RefundStatus refund, String paid) {
+        Booking booking = new Booking();
+        booking.setStatus(status);
+        booking.setPaymentStatus(payment);
+        booking.setRefundStatus(refund);
+        booking.setPaymentAmount(paid != null ? new BigDecimal(paid) : null);
+        return booking;
+    }
+
+    /**
+     * Any combination of statuses and paid amount, including ones the services never produce:
+     * counters and rollups must follow whatever is stored
+     */
+    static void randomChange(BookingBase booking, Random random) {
+        BookingStatus[] statuses = BookingStatus.values();
+        PaymentStatus[] payments = PaymentStatus.values();
+        RefundStatus[] refunds = RefundStatus.values();
+        booking.setStatus(statuses[random.nextInt(statuses.length)]);
+        booking.setPaymentStatus(random.nextInt(8) == 0 ? null : payments[random.nextInt(payments.length)]);
+        booking.setRefundStatus(random.nextInt(4) == 0 ? null : refunds[random.nextInt(refunds.length)]);
+        if (random.nextInt(3) == 0) {
+            booking.setPaymentAmount(random.nextInt(5) == 0 ? null : new BigDecimal(random.nextInt(20000)).movePointLeft(2));
+        }
+    }
+
+    /**
+     * Polls until the condition holds, failing the test if it has not within a few seconds
+     */
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
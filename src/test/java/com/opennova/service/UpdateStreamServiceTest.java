@@ -0,0 +1,205 @@
+package com.opennova.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.opennova.service.TestFixtures.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UpdateStreamServiceTest {
+
+    private static final Pattern EVENT_NAME = Pattern.compile("event:(\\S+)");
+
+    private UpdateStreamService streams;
+
+    @BeforeEach
+    void setUp() {
+        streams = new UpdateStreamService();
+        ReflectionTestUtils.setField(streams, "bufferSize", 4);
+        // Heartbeats are driven by hand below
+        ReflectionTestUtils.setField(streams, "heartbeatSeconds", 3600L);
+        ReflectionTestUtils.setField(streams, "idleTimeoutSeconds", 90L);
+        ReflectionTestUtils.setField(streams, "connectionTimeoutMinutes", 30L);
+        ReflectionTestUtils.setField(streams, "senderThreads", 2);
+        streams.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        streams.stop();
+    }
+
+    @Test
+    void eventsReachOnlyTheirOwnStreamInOrder() throws Exception {
+        Client first = connect(UpdateStreamService.Topic.ESTABLISHMENT, 1L);
+        Client other = connect(UpdateStreamService.Topic.ESTABLISHMENT, 2L);
+
+        streams.publish(UpdateStreamService.Topic.ESTABLISHMENT, 1L, "booking", Map.of("bookingId", 7));
+        streams.publish(UpdateStreamService.Topic.ESTABLISHMENT, 1L, "status", Map.of("status", "OPEN"));
+        // Nobody listens to this booking: not even counted as published
+        streams.publish(UpdateStreamService.Topic.BOOKING, 1L, "booking", Map.of("bookingId", 7));
+
+        assertEquals("connected", first.next());
+        assertEquals("booking", first.next());
+        assertEquals("status", first.next());
+        assertEquals("connected", other.next());
+        assertNull(other.events.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(2L, streams.getStats().get("published"));
+    }
+
+    @Test
+    void failedWriteUnregistersTheStream() throws Exception {
+        Client client = connect(UpdateStreamService.Topic.BOOKING, 3L);
+        assertEquals("connected", client.next());
+        assertEquals(1, streams.getSubscriberCount(UpdateStreamService.Topic.BOOKING, 3L));
+
+        client.broken = true;
+        streams.publish(UpdateStreamService.Topic.BOOKING, 3L, "booking", Map.of("bookingId", 3));
+
+        await(() -> streams.getSubscriberCount(UpdateStreamService.Topic.BOOKING, 3L) == 0);
+        assertEquals(0, streams.getStats().get("bookingConnections"));
+    }
+
+    @Test
+    void containerCompletionAndTimeoutUnregisterTheStream() throws Exception {
+        Client completed = connect(UpdateStreamService.Topic.ESTABLISHMENT, 4L);
+        Client timedOut = connect(UpdateStreamService.Topic.ESTABLISHMENT, 4L);
+        assertEquals(2, streams.getSubscriberCount(UpdateStreamService.Topic.ESTABLISHMENT, 4L));
+
+        completed.onCompletion.run();
+        assertEquals(1, streams.getSubscriberCount(UpdateStreamService.Topic.ESTABLISHMENT, 4L));
+
+        timedOut.onTimeout.run();
+        assertEquals(0, streams.getSubscriberCount(UpdateStreamService.Topic.ESTABLISHMENT, 4L));
+        // The timed out emitter is completed so the container releases the request
+        await(() -> timedOut.completed);
+    }
+
+    @Test
+    void slowClientIsCutLooseInsteadOfBuffered() throws Exception {
+        Client slow = connect(UpdateStreamService.Topic.ESTABLISHMENT, 5L);
+        Client fast = connect(UpdateStreamService.Topic.ESTABLISHMENT, 5L);
+        slow.stall = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 20; i++) {
+                streams.publish(UpdateStreamService.Topic.ESTABLISHMENT, 5L, "booking", Map.of("bookingId", i));
+                // The fast client keeps up
+                assertEquals(i == 0 ? "connected" : "booking", fast.next());
+                if (i == 0) {
+                    assertEquals("booking", fast.next());
+                }
+            }
+
+            assertEquals(1, streams.getSubscriberCount(UpdateStreamService.Topic.ESTABLISHMENT, 5L));
+            assertEquals(1L, streams.getStats().get("slowConsumersDropped"));
+            // Still inside its stalled write
+            assertFalse(slow.completed);
+        } finally {
+            slow.stall.countDown();
+        }
+        await(() -> slow.completed);
+    }
+
+    @Test
+    void idleStreamIsEvictedByTheHeartbeat() throws Exception {
+        Client client = connect(UpdateStreamService.Topic.BOOKING, 6L);
+        assertEquals("connected", client.next());
+
+        ReflectionTestUtils.setField(streams, "idleTimeoutSeconds", 0L);
+        Thread.sleep(5);
+        ReflectionTestUtils.invokeMethod(streams, "heartbeatAndEvict");
+
+        assertEquals(0, streams.getSubscriberCount(UpdateStreamService.Topic.BOOKING, 6L));
+        assertEquals(1L, streams.getStats().get("idleEvicted"));
+        await(() -> client.completed);
+    }
+
+    private Client connect(UpdateStreamService.Topic topic, long key) throws Exception {
+        Client client = new Client();
+        SseEmitter emitter = streams.subscribe(topic, key);
+        client.attach(emitter);
+        return client;
+    }
+
+    /**
+     * Stands in for the servlet container behind an emitter: records the events written to it
+     * and hands the test the callbacks the container would fire
+     */
+    private static final class Client {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        volatile boolean broken;
+        volatile boolean completed;
+        volatile CountDownLatch stall;
+        volatile Runnable onCompletion;
+        volatile Runnable onTimeout;
+
+        @SuppressWarnings("unchecked")
+        void attach(SseEmitter emitter) throws Exception {
+            Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+            Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[] { handlerType },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "send":
+                            if (broken) {
+                                throw new IOException("Broken pipe");
+                            }
+                            CountDownLatch latch = stall;
+                            if (latch != null) {
+                                latch.await();
+                            }
+                            StringBuilder frame = new StringBuilder();
+                            if (args[0] instanceof Set) {
+                                for (ResponseBodyEmitter.DataWithMediaType part : (Set<ResponseBodyEmitter.DataWithMediaType>) args[0]) {
+                                    frame.append(part.getData());
+                                }
+                            } else {
+                                frame.append(args[0]);
+                            }
+                            Matcher name = EVENT_NAME.matcher(frame);
+                            if (name.find()) {
+                                events.add(name.group(1));
+                            }
+                            return null;
+                        case "complete":
+                        case "completeWithError":
+                            completed = true;
+                            return null;
+                        case "onCompletion":
+                            onCompletion = (Runnable) args[0];
+                            return null;
+                        case "onTimeout":
+                            onTimeout = (Runnable) args[0];
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+            ReflectionTestUtils.invokeMethod(emitter, "initialize", handler);
+        }
+
+        String next() throws InterruptedException {
+            return events.poll(2, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.opennova.service;
+
+import com.opennova.model.Booking;
+import com.opennova.model.User;
+import com.opennova.repository.BookingRepository;
+import com.opennova.repository.EstablishmentRequestRepository;
+import com.opennova.repository.ReviewRepository;
+import com.opennova.repository.SavedEstablishmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserStatsServiceTest {
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+
+    // Pending bookings per user, as the database holds them, and how often they were counted
+    private final Map<Long, AtomicLong> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    // The last value per user whose write has also finished invalidating
+    private final Map<Long, AtomicLong> completed = new ConcurrentHashMap<>();
+    // Runs inside the next load, after the cache was looked at and before the rows are read
+    private volatile Runnable duringLoad;
+
+    private UserStatsService userStats;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        userStats = new UserStatsService();
+        ReflectionTestUtils.setField(userStats, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(userStats, "reviewRepository", mock(ReviewRepository.class));
+        ReflectionTestUtils.setField(userStats, "establishmentRequestRepository", mock(EstablishmentRequestRepository.class));
+        ReflectionTestUtils.setField(userStats, "savedEstablishmentRepository", mock(SavedEstablishmentRepository.class));
+        ReflectionTestUtils.setField(userStats, "cacheSeconds", 60L);
+        ReflectionTestUtils.setField(userStats, "maxCached", 1000);
+
+        when(bookingRepository.countAndSumPaidByStatusForUser(anyLong())).thenAnswer(invocation -> {
+            loads.incrementAndGet();
+            Runnable hook = duringLoad;
+            duringLoad = null;
+            if (hook != null) {
+                hook.run();
+            }
+            long count = pending.computeIfAbsent(invocation.getArgument(0), id -> new AtomicLong()).get();
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] { "PENDING", count, null });
+            return rows;
+        });
+        pool = Executors.newFixedThreadPool(6);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void figuresAreCachedUntilInvalidated() {
+        write(1L);
+        assertEquals(1L, pendingOf(1L));
+        assertEquals(1L, pendingOf(1L));
+        assertEquals(1, loads.get());
+        assertEquals(1L, userStats.getCacheStats().get("hits"));
+
+        write(1L);
+        assertEquals(2L, pendingOf(1L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void firstLoadOverlappingAWriteIsNotCached() {
+        // Read 0 before the write landed; the marker the write left must keep that out of the cache
+        duringLoad = () -> userStats.invalidate(1L);
+        assertEquals(0L, pendingOf(1L));
+        pending.get(1L).incrementAndGet();
+
+        assertEquals(1L, pendingOf(1L));
+        assertEquals(2, loads.get());
+        assertEquals(1L, pendingOf(1L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void reloadOverlappingAWriteDoesNotReplaceTheNewMarker() {
+        write(1L);
+        duringLoad = () -> userStats.invalidate(1L);
+        assertEquals(1L, pendingOf(1L));
+        pending.get(1L).incrementAndGet();
+
+        assertEquals(2L, pendingOf(1L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidationIsRepeatedOnceTheWriteCommits() {
+        assertEquals(0L, pendingOf(1L));
+        TransactionSynchronizationManager.initSynchronization();
+        userStats.invalidate(1L);
+        // Another request loads before the write commits and caches what it could see
+        assertEquals(0L, pendingOf(1L));
+        pending.get(1L).incrementAndGet();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(1L, pendingOf(1L));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void batchInvalidatesEachCustomerOnceWithOneSynchronization() {
+        List<Booking> bookings = List.of(booking(1L), booking(1L), booking(2L), new Booking());
+        pendingOf(1L);
+        pendingOf(2L);
+        pendingOf(3L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        userStats.invalidateCustomersOf(bookings);
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        TransactionSynchronizationManager.clearSynchronization();
+
+        loads.set(0);
+        pendingOf(1L);
+        pendingOf(2L);
+        pendingOf(3L);
+        // Users 1 and 2 reloaded, user 3 still cached
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void readerNeverSeesFiguresOlderThanACompletedWrite() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int reader = 0; reader < 5; reader++) {
+            readers.add(pool.submit(() -> {
+                start.await();
+                int reads = 0;
+                do {
+                    for (long userId = 1; userId <= 3; userId++) {
+                        long written = completed.computeIfAbsent(userId, id -> new AtomicLong()).get();
+                        long seen = pendingOf(userId);
+                        assertTrue(seen >= written, "user " + userId + " saw " + seen + " after " + written + " was written");
+                        reads++;
+                    }
+                } while (!done.get());
+                return reads;
+            }));
+        }
+
+        start.countDown();
+        for (int step = 0; step < 20000; step++) {
+            write(1L + step % 3);
+        }
+        done.set(true);
+
+        for (Future<Integer> reader : readers) {
+            assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+        }
+        for (long userId = 1; userId <= 3; userId++) {
+            assertEquals(pending.get(userId).get(), pendingOf(userId));
+        }
+    }
+
+    // A committed write outside any transaction: the row changes, then the entry is dropped
+    private void write(Long userId) {
+        long value = pending.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+        userStats.invalidate(userId);
+        completed.computeIfAbsent(userId, id -> new AtomicLong()).set(value);
+    }
+
+    private long pendingOf(Long userId) {
+        return (long) userStats.getStats(userId).get("pendingBookings");
+    }
+
+    private static Booking booking(Long userId) {
+        User user = new User();
+        user.setId(userId);
+        Booking booking = new Booking();
+        booking.setUser(user);
+        return booking;
+    }
+}